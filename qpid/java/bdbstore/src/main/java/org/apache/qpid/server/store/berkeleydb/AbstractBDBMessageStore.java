@@ -21,11 +21,13 @@ package org.apache.qpid.server.store.berkeleydb;
 import static org.apache.qpid.server.store.berkeleydb.BDBUtils.DEFAULT_DATABASE_CONFIG;
 import static org.apache.qpid.server.store.berkeleydb.BDBUtils.abortTransactionSafely;
 import static org.apache.qpid.server.store.berkeleydb.BDBUtils.closeCursorSafely;
+import static org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey.CHUNK_SIZE;
 
 import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
@@ -49,15 +51,17 @@ import org.apache.qpid.server.store.Event;
 import org.apache.qpid.server.store.EventListener;
 import org.apache.qpid.server.store.EventManager;
 import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.ResidentMessageContent;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoreException;
 import org.apache.qpid.server.store.StoreFuture;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
 import org.apache.qpid.server.store.Xid;
+import org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey;
 import org.apache.qpid.server.store.berkeleydb.entry.PreparedTransaction;
 import org.apache.qpid.server.store.berkeleydb.entry.QueueEntryKey;
-import org.apache.qpid.server.store.berkeleydb.tuple.ContentBinding;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.MessageMetaDataBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.PreparedTransactionBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.QueueEntryBinding;
@@ -75,7 +79,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     private static final String MESSAGE_META_DATA_DB_NAME = "MESSAGE_METADATA";
     private static final String MESSAGE_META_DATA_SEQ_DB_NAME = "MESSAGE_METADATA.SEQ";
-    private static final String MESSAGE_CONTENT_DB_NAME = "MESSAGE_CONTENT";
+    private static final String MESSAGE_CONTENT_DB_NAME = "MESSAGE_CONTENT_CHUNKS";
     private static final String DELIVERY_DB_NAME = "QUEUE_ENTRIES";
 
     //TODO: Add upgrader to remove BRIDGES and LINKS
@@ -97,6 +101,8 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     private boolean _limitBusted;
     private long _totalStoreSize;
 
+    private volatile ResidentMessageContent _residentMessageContent = new ResidentMessageContent();
+
     @Override
     public void upgradeStoreStructure() throws StoreException
     {
@@ -398,9 +404,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                     }
 
                     //now remove the content data from the store if there is any.
-                    DatabaseEntry contentKeyEntry = new DatabaseEntry();
-                    LongBinding.longToEntry(messageId, contentKeyEntry);
-                    getMessageContentDb().delete(tx, contentKeyEntry);
+                    deleteContent(tx, messageId);
 
                     if (getLogger().isDebugEnabled())
                     {
@@ -498,7 +502,8 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     /**
      * Fills the provided ByteBuffer with as much content for the specified message as possible, starting
-     * from the specified offset in the message.
+     * from the specified offset in the message. Only the content chunks overlapping the range read are
+     * fetched from the database.
      *
      * @param messageId The message to get the data for.
      * @param offset    The offset of the data within the message.
@@ -510,40 +515,44 @@ public abstract class AbstractBDBMessageStore implements MessageStore
      */
     int getContent(long messageId, int offset, ByteBuffer dst) throws StoreException
     {
-        DatabaseEntry contentKeyEntry = new DatabaseEntry();
-        LongBinding.longToEntry(messageId, contentKeyEntry);
-        DatabaseEntry value = new DatabaseEntry();
-        ContentBinding contentTupleBinding = ContentBinding.getInstance();
-
-
         if (getLogger().isDebugEnabled())
         {
             getLogger().debug("Message Id: " + messageId + " Getting content body from offset: " + offset);
         }
 
+        MessageContentKeyBinding keyBinding = MessageContentKeyBinding.getInstance();
+        DatabaseEntry key = new DatabaseEntry();
+        keyBinding.objectToEntry(new MessageContentKey(messageId, offset / CHUNK_SIZE), key);
+        DatabaseEntry value = new DatabaseEntry();
+
+        Cursor cursor = null;
         try
         {
+            cursor = getMessageContentDb().openCursor(null, null);
 
             int written = 0;
-            OperationStatus status = getMessageContentDb().get(null, contentKeyEntry, value, LockMode.READ_UNCOMMITTED);
-            if (status == OperationStatus.SUCCESS)
+            int offsetInChunk = offset % CHUNK_SIZE;
+            OperationStatus status = cursor.getSearchKey(key, value, LockMode.READ_UNCOMMITTED);
+            if (status != OperationStatus.SUCCESS && offset > 0)
             {
-                byte[] dataAsBytes = contentTupleBinding.entryToObject(value);
-                int size = dataAsBytes.length;
-                if (offset > size)
-                {
-                    throw new RuntimeException("Offset " + offset + " is greater than message size " + size
-                                               + " for message id " + messageId + "!");
-
-                }
+                checkOffset(messageId, offset, getContentSize(cursor, messageId));
+            }
 
-                written = size - offset;
-                if(written > dst.remaining())
+            while (status == OperationStatus.SUCCESS
+                   && dst.hasRemaining()
+                   && keyBinding.entryToObject(key).getMessageId() == messageId)
+            {
+                if (offsetInChunk > value.getSize())
                 {
-                    written = dst.remaining();
+                    checkOffset(messageId, offset, getContentSize(cursor, messageId));
                 }
 
-                dst.put(dataAsBytes, offset, written);
+                int length = Math.min(value.getSize() - offsetInChunk, dst.remaining());
+                dst.put(value.getData(), value.getOffset() + offsetInChunk, length);
+                written += length;
+                offsetInChunk = 0;
+
+                status = cursor.getNext(key, value, LockMode.READ_UNCOMMITTED);
             }
             return written;
         }
@@ -554,35 +563,57 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                                                                  + " to database: "
                                                                  + e.getMessage(), e);
         }
+        finally
+        {
+            closeCursorSafely(cursor, getEnvironmentFacade());
+        }
     }
 
-    byte[] getAllContent(long messageId) throws StoreException
+    private void checkOffset(long messageId, int offset, long size)
     {
-        DatabaseEntry contentKeyEntry = new DatabaseEntry();
-        LongBinding.longToEntry(messageId, contentKeyEntry);
-        DatabaseEntry value = new DatabaseEntry();
-        ContentBinding contentTupleBinding = ContentBinding.getInstance();
+        if (size > 0 && offset > size)
+        {
+            throw new RuntimeException("Offset " + offset + " is greater than message size " + size
+                                       + " for message id " + messageId + "!");
+        }
+    }
 
+    private long getContentSize(Cursor cursor, long messageId)
+    {
+        MessageContentKeyBinding keyBinding = MessageContentKeyBinding.getInstance();
+        DatabaseEntry key = new DatabaseEntry();
+        keyBinding.objectToEntry(new MessageContentKey(messageId, 0), key);
+        DatabaseEntry value = new DatabaseEntry();
 
-        if (getLogger().isDebugEnabled())
+        long size = 0;
+        OperationStatus status = cursor.getSearchKeyRange(key, value, LockMode.READ_UNCOMMITTED);
+        while (status == OperationStatus.SUCCESS && keyBinding.entryToObject(key).getMessageId() == messageId)
         {
-            getLogger().debug("Message Id: " + messageId + " Getting content body");
+            size += value.getSize();
+            status = cursor.getNext(key, value, LockMode.READ_UNCOMMITTED);
         }
+        return size;
+    }
 
+    private ContentChunks getContentChunks(long messageId, int contentSize) throws StoreException
+    {
+        MessageContentKeyBinding keyBinding = MessageContentKeyBinding.getInstance();
+        DatabaseEntry key = new DatabaseEntry();
+        keyBinding.objectToEntry(new MessageContentKey(messageId, 0), key);
+        DatabaseEntry value = new DatabaseEntry();
+
+        ContentChunks content = new ContentChunks(contentSize);
+        Cursor cursor = null;
         try
         {
-
-            int written = 0;
-            OperationStatus status = getMessageContentDb().get(null, contentKeyEntry, value, LockMode.READ_UNCOMMITTED);
-            if (status == OperationStatus.SUCCESS)
+            cursor = getMessageContentDb().openCursor(null, null);
+            OperationStatus status = cursor.getSearchKeyRange(key, value, LockMode.READ_UNCOMMITTED);
+            while (status == OperationStatus.SUCCESS && keyBinding.entryToObject(key).getMessageId() == messageId)
             {
-                return contentTupleBinding.entryToObject(value);
+                content.append(ByteBuffer.wrap(value.getData(), value.getOffset(), value.getSize()));
+                status = cursor.getNext(key, value, LockMode.READ_UNCOMMITTED);
             }
-            else
-            {
-                throw new StoreException("Unable to find message with id " + messageId);
-            }
-
+            return content;
         }
         catch (RuntimeException e)
         {
@@ -591,6 +622,10 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                                                                  + " to database: "
                                                                  + e.getMessage(), e);
         }
+        finally
+        {
+            closeCursorSafely(cursor, getEnvironmentFacade());
+        }
     }
 
     private void visitMessagesInternal(MessageHandler handler, EnvironmentFacade environmentFacade)
@@ -663,34 +698,39 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     }
 
     /**
-     * Stores a chunk of message data.
+     * Stores message content as a sequence of records, one per content chunk, keyed by message id and chunk
+     * index. Empty content is not stored.
      *
      * @param tx         The transaction for the operation.
      * @param messageId       The message to store the data for.
-     * @param offset          The offset of the data chunk in the message.
-     * @param contentBody     The content of the data chunk.
+     * @param content         The content of the message.
      *
      * @throws org.apache.qpid.server.store.StoreException If the operation fails for any reason, or if the specified message does not exist.
      */
-    private void addContent(final Transaction tx, long messageId, int offset,
-                            ByteBuffer contentBody) throws StoreException
+    private void addContent(final Transaction tx, long messageId, ContentChunks content) throws StoreException
     {
+        MessageContentKeyBinding keyBinding = MessageContentKeyBinding.getInstance();
         DatabaseEntry key = new DatabaseEntry();
-        LongBinding.longToEntry(messageId, key);
         DatabaseEntry value = new DatabaseEntry();
-        ContentBinding messageBinding = ContentBinding.getInstance();
-        messageBinding.objectToEntry(contentBody.array(), value);
         try
         {
-            OperationStatus status = getMessageContentDb().put(tx, key, value);
-            if (status != OperationStatus.SUCCESS)
+            Database contentDb = getMessageContentDb();
+            int chunk = 0;
+            for (; chunk < content.getChunkCount(); chunk++)
             {
-                throw new StoreException("Error adding content for message id " + messageId + ": " + status);
+                keyBinding.objectToEntry(new MessageContentKey(messageId, chunk), key);
+                value.setData(content.getChunk(chunk), 0, content.getChunkLength(chunk));
+                OperationStatus status = contentDb.put(tx, key, value);
+                if (status != OperationStatus.SUCCESS)
+                {
+                    throw new StoreException("Error adding content for message id " + messageId + ": " + status);
+                }
             }
 
             if (getLogger().isDebugEnabled())
             {
-                getLogger().debug("Storing content for message " + messageId + " in transaction " + tx);
+                getLogger().debug("Storing content for message " + messageId + " in " + chunk
+                                  + " chunks in transaction " + tx);
 
             }
         }
@@ -703,6 +743,30 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         }
     }
 
+    private void deleteContent(final Transaction tx, long messageId)
+    {
+        MessageContentKeyBinding keyBinding = MessageContentKeyBinding.getInstance();
+        DatabaseEntry key = new DatabaseEntry();
+        keyBinding.objectToEntry(new MessageContentKey(messageId, 0), key);
+        DatabaseEntry value = new DatabaseEntry();
+        value.setPartial(0, 0, true);
+
+        Cursor cursor = getMessageContentDb().openCursor(tx, null);
+        try
+        {
+            OperationStatus status = cursor.getSearchKeyRange(key, value, LockMode.RMW);
+            while (status == OperationStatus.SUCCESS && keyBinding.entryToObject(key).getMessageId() == messageId)
+            {
+                cursor.delete();
+                status = cursor.getNext(key, value, LockMode.RMW);
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
     /**
      * Stores message meta-data.
      *
@@ -1064,6 +1128,15 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     protected abstract ConfiguredObject<?> getParent();
 
+    /**
+     * Counts the content held in memory by this store in that of the broker owning the parent; called as the store
+     * is opened.
+     */
+    protected void setResidentMessageContent(ConfiguredObject<?> parent)
+    {
+        _residentMessageContent = ResidentMessageContent.forParent(parent);
+    }
+
     protected abstract EnvironmentFacade getEnvironmentFacade();
 
     protected abstract long getPersistentSizeLowThreshold();
@@ -1075,19 +1148,25 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     static interface MessageDataRef<T extends StorableMessageMetaData>
     {
         T getMetaData();
-        byte[] getData();
-        void setData(byte[] data);
+        ContentChunks getData();
+        void setData(ContentChunks data);
         boolean isHardRef();
+        void contentAdded(int bytes);
+        void release();
     }
 
     private static final class MessageDataHardRef<T extends StorableMessageMetaData> implements MessageDataRef<T>
     {
         private final T _metaData;
-        private byte[] _data;
+        private final ResidentMessageContent _residentMessageContent;
+        private ContentChunks _data;
+        private long _residentBytes;
+        private boolean _released;
 
-        private MessageDataHardRef(final T metaData)
+        private MessageDataHardRef(final T metaData, final ResidentMessageContent residentMessageContent)
         {
             _metaData = metaData;
+            _residentMessageContent = residentMessageContent;
         }
 
         @Override
@@ -1097,13 +1176,13 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         }
 
         @Override
-        public byte[] getData()
+        public ContentChunks getData()
         {
             return _data;
         }
 
         @Override
-        public void setData(final byte[] data)
+        public void setData(final ContentChunks data)
         {
             _data = data;
         }
@@ -1113,14 +1192,34 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         {
             return true;
         }
+
+        @Override
+        public synchronized void contentAdded(final int bytes)
+        {
+            if (!_released)
+            {
+                _residentBytes += bytes;
+                _residentMessageContent.added(bytes);
+            }
+        }
+
+        @Override
+        public synchronized void release()
+        {
+            if (!_released)
+            {
+                _released = true;
+                _residentMessageContent.released(_residentBytes);
+            }
+        }
     }
 
     private static final class MessageData<T extends StorableMessageMetaData>
     {
         private T _metaData;
-        private SoftReference<byte[]> _data;
+        private SoftReference<ContentChunks> _data;
 
-        private MessageData(final T metaData, final byte[] data)
+        private MessageData(final T metaData, final ContentChunks data)
         {
             _metaData = metaData;
 
@@ -1135,12 +1234,12 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             return _metaData;
         }
 
-        public byte[] getData()
+        public ContentChunks getData()
         {
             return _data == null ? null : _data.get();
         }
 
-        public void setData(final byte[] data)
+        public void setData(final ContentChunks data)
         {
             _data = new SoftReference<>(data);
         }
@@ -1150,7 +1249,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     private static final class MessageDataSoftRef<T extends StorableMessageMetaData> extends SoftReference<MessageData<T>> implements MessageDataRef<T>
     {
 
-        public MessageDataSoftRef(final T metadata, byte[] data)
+        public MessageDataSoftRef(final T metadata, ContentChunks data)
         {
             super(new MessageData<T>(metadata, data));
         }
@@ -1163,7 +1262,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         }
 
         @Override
-        public byte[] getData()
+        public ContentChunks getData()
         {
             MessageData<T> ref = get();
 
@@ -1171,7 +1270,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         }
 
         @Override
-        public void setData(final byte[] data)
+        public void setData(final ContentChunks data)
         {
             MessageData<T> ref = get();
             if(ref != null)
@@ -1185,6 +1284,104 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         {
             return false;
         }
+
+        @Override
+        public void contentAdded(final int bytes)
+        {
+        }
+
+        @Override
+        public void release()
+        {
+        }
+    }
+
+    /**
+     * Message content held as the chunks it is stored in, every chunk but the last holding
+     * {@link MessageContentKey#CHUNK_SIZE} bytes, so that content is accumulated, stored and read back without
+     * being gathered into a single array. Ranges are returned as read-only buffers, which may share the chunks.
+     */
+    static final class ContentChunks
+    {
+        private final List<byte[]> _chunks = new ArrayList<>();
+        private final int _expectedSize;
+        private int _size;
+
+        ContentChunks(final int expectedSize)
+        {
+            _expectedSize = expectedSize;
+        }
+
+        void append(ByteBuffer src)
+        {
+            while (src.hasRemaining())
+            {
+                int index = _size / CHUNK_SIZE;
+                int offsetInChunk = _size % CHUNK_SIZE;
+                if (index == _chunks.size())
+                {
+                    _chunks.add(new byte[Math.min(CHUNK_SIZE, Math.max(_expectedSize - _size, src.remaining()))]);
+                }
+                else if (_chunks.get(index).length == offsetInChunk)
+                {
+                    // more content than expected
+                    _chunks.set(index, Arrays.copyOf(_chunks.get(index),
+                                                     Math.min(CHUNK_SIZE, offsetInChunk + src.remaining())));
+                }
+                byte[] chunk = _chunks.get(index);
+                int length = Math.min(chunk.length - offsetInChunk, src.remaining());
+                src.get(chunk, offsetInChunk, length);
+                _size += length;
+            }
+        }
+
+        int read(int offset, ByteBuffer dst)
+        {
+            int position = offset;
+            while (dst.hasRemaining() && position < _size)
+            {
+                int index = position / CHUNK_SIZE;
+                int offsetInChunk = position % CHUNK_SIZE;
+                int length = Math.min(dst.remaining(), getChunkLength(index) - offsetInChunk);
+                dst.put(_chunks.get(index), offsetInChunk, length);
+                position += length;
+            }
+            return position - offset;
+        }
+
+        ByteBuffer read(int offset, int size)
+        {
+            if (offset > _size)
+            {
+                throw new IndexOutOfBoundsException("Offset " + offset + " is beyond the end of the content of size "
+                                                    + _size);
+            }
+            int length = Math.min(size, _size - offset);
+            int offsetInChunk = offset % CHUNK_SIZE;
+            if (length > 0 && offsetInChunk + length <= CHUNK_SIZE)
+            {
+                return ByteBuffer.wrap(_chunks.get(offset / CHUNK_SIZE), offsetInChunk, length).asReadOnlyBuffer();
+            }
+            ByteBuffer content = ByteBuffer.allocate(length);
+            read(offset, content);
+            content.flip();
+            return content.asReadOnlyBuffer();
+        }
+
+        int getChunkCount()
+        {
+            return _chunks.size();
+        }
+
+        byte[] getChunk(int index)
+        {
+            return _chunks.get(index);
+        }
+
+        int getChunkLength(int index)
+        {
+            return Math.min(CHUNK_SIZE, _size - index * CHUNK_SIZE);
+        }
     }
 
     final class StoredBDBMessage<T extends StorableMessageMetaData> implements StoredMessage<T>
@@ -1205,7 +1402,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
             if(!isRecovered)
             {
-                _messageDataRef = new MessageDataHardRef<>(metaData);
+                _messageDataRef = new MessageDataHardRef<>(metaData, _residentMessageContent);
             }
             else
             {
@@ -1236,100 +1433,86 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         @Override
         public void addContent(int offsetInMessage, ByteBuffer src)
         {
-            src = src.slice();
-            byte[] data = _messageDataRef.getData();
+            ContentChunks data = _messageDataRef.getData();
             if(data == null)
             {
-                data = new byte[src.remaining()];
-                src.duplicate().get(data);
+                data = new ContentChunks(getMetaData().getContentSize());
                 _messageDataRef.setData(data);
             }
-            else
-            {
-                byte[] oldData = data;
-                data = new byte[oldData.length + src.remaining()];
-
-
-                System.arraycopy(oldData, 0, data, 0, oldData.length);
-                src.duplicate().get(data, oldData.length, src.remaining());
-
-                _messageDataRef.setData(data);
-            }
-
+            int length = src.remaining();
+            data.append(src.duplicate());
+            _messageDataRef.contentAdded(length);
         }
 
         @Override
         public int getContent(int offsetInMessage, ByteBuffer dst)
         {
-            byte[] data = _messageDataRef.getData();
+            ContentChunks data = _messageDataRef.getData();
             if(data == null)
             {
                 if(stored())
                 {
                     checkMessageStoreOpen();
-                    data = AbstractBDBMessageStore.this.getAllContent(_messageId);
-                    T metaData = _messageDataRef.getMetaData();
-                    if (metaData == null)
-                    {
-                        metaData = (T) getMessageMetaData(_messageId);
-                        _messageDataRef = new MessageDataSoftRef<>(metaData, data);
-                    }
-                    else
-                    {
-                        _messageDataRef.setData(data);
-                    }
+                    ByteBuffer content = readContent(offsetInMessage, dst.remaining());
+                    int length = content.remaining();
+                    dst.put(content);
+                    return length;
                 }
                 else
                 {
-                    data = new byte[0];
+                    return 0;
                 }
             }
 
-            int length = Math.min(dst.remaining(), data.length - offsetInMessage);
-            dst.put(data, offsetInMessage, length);
-            return length;
+            return data.read(offsetInMessage, dst);
         }
 
         @Override
         public ByteBuffer getContent(int offsetInMessage, int size)
         {
-            byte[] data = _messageDataRef.getData();
+            ContentChunks data = _messageDataRef.getData();
             if(data == null)
             {
                 if(stored())
                 {
                     checkMessageStoreOpen();
-                    data = AbstractBDBMessageStore.this.getAllContent(_messageId);
-                    T metaData = _messageDataRef.getMetaData();
-                    if (metaData == null)
-                    {
-                        metaData = (T) getMessageMetaData(_messageId);
-                        _messageDataRef = new MessageDataSoftRef<>(metaData, data);
-                    }
-                    else
-                    {
-                        _messageDataRef.setData(data);
-                    }
+                    return readContent(offsetInMessage, size);
                 }
                 else
                 {
                     return null;
                 }
             }
-            try
-            {
-                return ByteBuffer.wrap(data, offsetInMessage, Math.min(size, data.length - offsetInMessage));
-            }
-            catch (IndexOutOfBoundsException e)
+            return data.read(offsetInMessage, size);
+        }
+
+        /**
+         * Reads the requested range of the stored content from the chunks holding it. Content read in its
+         * entirety is kept, softly referenced, for subsequent reads.
+         */
+        private ByteBuffer readContent(int offsetInMessage, int size)
+        {
+            int contentSize = getMetaData().getContentSize();
+            if (offsetInMessage == 0 && size >= contentSize)
             {
-                IndexOutOfBoundsException indexOutOfBoundsException =
-                        new IndexOutOfBoundsException("Error wrapping data (data.length: " + data.length
-                                                      + " offsetInMessage: " + offsetInMessage
-                                                      + " size: " + size);
-                indexOutOfBoundsException.initCause(e);
-                throw indexOutOfBoundsException;
+                ContentChunks data = getContentChunks(_messageId, contentSize);
+                T metaData = _messageDataRef.getMetaData();
+                if (metaData == null)
+                {
+                    metaData = (T) getMessageMetaData(_messageId);
+                    _messageDataRef = new MessageDataSoftRef<>(metaData, data);
+                }
+                else
+                {
+                    _messageDataRef.setData(data);
+                }
+                return data.read(0, contentSize);
             }
 
+            ByteBuffer content = ByteBuffer.allocate(Math.max(0, Math.min(size, contentSize - offsetInMessage)));
+            AbstractBDBMessageStore.this.getContent(_messageId, offsetInMessage, content);
+            content.flip();
+            return content;
         }
 
         synchronized Runnable store(Transaction txn)
@@ -1338,10 +1521,10 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             {
 
                 AbstractBDBMessageStore.this.storeMetaData(txn, _messageId, _messageDataRef.getMetaData());
-                AbstractBDBMessageStore.this.addContent(txn, _messageId, 0,
+                AbstractBDBMessageStore.this.addContent(txn, _messageId,
                                                         _messageDataRef.getData() == null
-                                                                ? ByteBuffer.allocate(0)
-                                                                : ByteBuffer.wrap(_messageDataRef.getData()));
+                                                                ? new ContentChunks(0)
+                                                                : _messageDataRef.getData());
 
 
                 MessageDataRef<T> hardRef = _messageDataRef;
@@ -1355,6 +1538,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                 while (ref == null);
 
                 _messageDataRef = messageDataSoftRef;
+                hardRef.release();
 
                 class Pointer implements Runnable
                 {
@@ -1418,6 +1602,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             int delta = getMetaData().getContentSize();
             removeMessage(_messageId, false);
             storedSizeChangeOccurred(-delta);
+            _messageDataRef.release();
         }
 
         @Override
@@ -64,7 +64,7 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
 {
     private static final Logger LOGGER = Logger.getLogger(BDBConfigurationStore.class);
 
-    public static final int VERSION = 8;
+    public static final int VERSION = 9;
     private static final String CONFIGURED_OBJECTS_DB_NAME = "CONFIGURED_OBJECTS";
     private static final String CONFIGURED_OBJECT_HIERARCHY_DB_NAME = "CONFIGURED_OBJECT_HIERARCHY";
 
@@ -527,6 +527,7 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
             if (_messageStoreOpen.compareAndSet(false, true))
             {
                 _parent = parent;
+                setResidentMessageContent(parent);
 
                 final SizeMonitoringSettings sizeMonitorSettings = (SizeMonitoringSettings) parent;
                 _persistentSizeHighThreshold = sizeMonitorSettings.getStoreOverfullSize();
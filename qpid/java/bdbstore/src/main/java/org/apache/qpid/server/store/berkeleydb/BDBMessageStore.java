@@ -66,6 +66,7 @@ public class BDBMessageStore extends AbstractBDBMessageStore
         if (_messageStoreOpen.compareAndSet(false, true))
         {
             _parent = parent;
+            setResidentMessageContent(parent);
 
             final SizeMonitoringSettings sizeMonitorSettings = (SizeMonitoringSettings) parent;
             _persistentSizeHighThreshold = sizeMonitorSettings.getStoreOverfullSize();
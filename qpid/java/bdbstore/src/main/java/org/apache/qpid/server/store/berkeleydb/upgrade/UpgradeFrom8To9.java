@@ -0,0 +1,150 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb.upgrade;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.store.StoreException;
+import org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
+
+import com.sleepycat.bind.tuple.LongBinding;
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.CursorConfig;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
+
+public class UpgradeFrom8To9 extends AbstractStoreUpgrade
+{
+    private static final Logger _logger = Logger.getLogger(UpgradeFrom8To9.class);
+
+    static final String OLD_CONTENT_DB_NAME = "MESSAGE_CONTENT";
+    static final String NEW_CONTENT_DB_NAME = "MESSAGE_CONTENT_CHUNKS";
+
+    /**
+     * Upgrades from a v8 database to a v9 database
+     *
+     * Change in this version:
+     *
+     * Message content is moved from MESSAGE_CONTENT to MESSAGE_CONTENT_CHUNKS. The structure of the
+     * database changes from ( message-id: long ) {@literal ->} ( byte[] data ) to ( message-id: long,
+     * chunk: int ) {@literal ->} ( byte[] data ), where every chunk but the last of a message holds
+     * 64KiB of content. Messages with empty content have no chunks.
+     *
+     * That is a part of the content can be read without reading all of it.
+     */
+    @Override
+    public void performUpgrade(final Environment environment, final UpgradeInteractionHandler handler, ConfiguredObject<?> parent)
+    {
+        reportStarting(environment, 8);
+        upgradeMessageContent(environment);
+        reportFinished(environment, 9);
+    }
+
+    private void upgradeMessageContent(final Environment environment)
+    {
+        _logger.info("Message Contents");
+        if (environment.getDatabaseNames().contains(OLD_CONTENT_DB_NAME))
+        {
+            Transaction transaction = environment.beginTransaction(null, null);
+            final AtomicLong rowCount = new AtomicLong();
+            DatabaseRunnable contentOperation = new DatabaseRunnable()
+            {
+                @Override
+                public void run(Database oldContentDatabase, Database newContentDatabase, Transaction transaction)
+                {
+                    DatabaseEntry key = new DatabaseEntry();
+                    DatabaseEntry value = new DatabaseEntry();
+                    value.setPartial(0, 0, true);
+                    Cursor cursor = oldContentDatabase.openCursor(transaction, CursorConfig.READ_COMMITTED);
+                    try
+                    {
+                        while (cursor.getNext(key, value, LockMode.DEFAULT) == OperationStatus.SUCCESS)
+                        {
+                            long messageId = LongBinding.entryToLong(key);
+                            copyContentChunks(cursor, newContentDatabase, transaction, messageId);
+                            if (rowCount.incrementAndGet() % 1000 == 0)
+                            {
+                                _logger.info("Processed " + rowCount.get() + " records.");
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        cursor.close();
+                    }
+                }
+            };
+            new DatabaseTemplate(environment, OLD_CONTENT_DB_NAME, NEW_CONTENT_DB_NAME, transaction)
+                    .run(contentOperation);
+            _logger.info(rowCount.get() + " Message Content Entries");
+            environment.removeDatabase(transaction, OLD_CONTENT_DB_NAME);
+            transaction.commit();
+        }
+    }
+
+    /**
+     * Copies the content of the message at the cursor position a chunk at a time, so that no more than a chunk of
+     * the content of a message is read into memory at once.
+     */
+    private void copyContentChunks(Cursor cursor, Database newContentDatabase, Transaction transaction,
+            long messageId)
+    {
+        MessageContentKeyBinding keyBinding = MessageContentKeyBinding.getInstance();
+        DatabaseEntry oldKey = new DatabaseEntry();
+        DatabaseEntry chunkKey = new DatabaseEntry();
+        DatabaseEntry chunkValue = new DatabaseEntry();
+        int chunk = 0;
+        while (true)
+        {
+            chunkValue.setPartial(chunk * MessageContentKey.CHUNK_SIZE, MessageContentKey.CHUNK_SIZE, true);
+            if (cursor.getCurrent(oldKey, chunkValue, LockMode.DEFAULT) != OperationStatus.SUCCESS)
+            {
+                throw new StoreException("Cannot read content chunk " + chunk + " of message " + messageId);
+            }
+            if (chunkValue.getSize() == 0)
+            {
+                break;
+            }
+
+            keyBinding.objectToEntry(new MessageContentKey(messageId, chunk), chunkKey);
+            OperationStatus status = newContentDatabase.put(transaction, chunkKey,
+                    new DatabaseEntry(chunkValue.getData(), chunkValue.getOffset(), chunkValue.getSize()));
+            if (status != OperationStatus.SUCCESS)
+            {
+                throw new StoreException("Cannot add content chunk " + chunk + " of message " + messageId
+                                         + ": " + status);
+            }
+            chunk++;
+            if (chunkValue.getSize() < MessageContentKey.CHUNK_SIZE)
+            {
+                break;
+            }
+        }
+    }
+}
@@ -29,11 +29,13 @@ import java.util.concurrent.ScheduledFuture;
 import org.apache.qpid.server.connection.IConnectionRegistry;
 import org.apache.qpid.server.exchange.ExchangeImpl;
 import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageSource;
 import org.apache.qpid.server.model.AbstractConfiguredObject;
 import org.apache.qpid.server.model.BrokerModel;
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.model.DeliverySchedulerPolicy;
 import org.apache.qpid.server.model.Connection;
 import org.apache.qpid.server.model.Exchange;
 import org.apache.qpid.server.model.ManagedAttributeField;
@@ -48,6 +50,7 @@ import org.apache.qpid.server.stats.StatisticsCounter;
 import org.apache.qpid.server.store.DurableConfigurationStore;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.txn.DtxRegistry;
+import org.apache.qpid.server.virtualhost.DeliveryScheduler;
 import org.apache.qpid.server.virtualhost.ExchangeIsAlternateException;
 import org.apache.qpid.server.virtualhost.HouseKeepingTask;
 import org.apache.qpid.server.virtualhost.RequiredExchangeException;
@@ -203,6 +206,18 @@ public class BDBHAReplicaVirtualHostImpl extends AbstractConfiguredObject<BDBHAR
         return 0;
     }
 
+    @Override
+    public int getDeliveryThreadCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public DeliverySchedulerPolicy getDeliverySchedulerPolicy()
+    {
+        return null;
+    }
+
     @Override
     public long getQueueCount()
     {
@@ -245,6 +260,90 @@ public class BDBHAReplicaVirtualHostImpl extends AbstractConfiguredObject<BDBHAR
         return 0;
     }
 
+    @Override
+    public long getMessageConversionCacheHits()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMessageConversionCacheMisses()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMessageConversionCacheSize()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getRecoveringQueueCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getRecoveredMessageCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getRecoveredQueueEntryCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMessageSizeMedian()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMessageSize95thPercentile()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMessageSize99thPercentile()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMaximumMessageSize()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getDeliveryLatencyMedian()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getDeliveryLatency95thPercentile()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getDeliveryLatency99thPercentile()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getMaximumDeliveryLatency()
+    {
+        return 0;
+    }
+
     @Override
     public Collection<VirtualHostAlias> getAliases()
     {
@@ -365,6 +464,18 @@ public class BDBHAReplicaVirtualHostImpl extends AbstractConfiguredObject<BDBHAR
         return 0;
     }
 
+    @Override
+    public MessageConversionCache getMessageConversionCache()
+    {
+        return null;
+    }
+
+    @Override
+    public DeliveryScheduler getDeliveryScheduler()
+    {
+        return null;
+    }
+
     @Override
     public void setHouseKeepingPoolSize(final int newSize)
     {
@@ -413,6 +524,12 @@ public class BDBHAReplicaVirtualHostImpl extends AbstractConfiguredObject<BDBHAR
         throwUnsupportedForReplica();
     }
 
+    @Override
+    public void registerMessageDeliveryLatency(final long latency)
+    {
+        throwUnsupportedForReplica();
+    }
+
     @Override
     public void registerMessageDelivered(final long messageSize)
     {
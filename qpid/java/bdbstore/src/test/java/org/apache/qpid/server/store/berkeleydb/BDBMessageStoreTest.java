@@ -41,6 +41,7 @@ import org.apache.qpid.server.store.MessageStoreTestCase;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoreException;
 import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey;
 import org.apache.qpid.server.virtualhost.berkeleydb.BDBVirtualHost;
 import org.apache.qpid.transport.DeliveryProperties;
 import org.apache.qpid.transport.Header;
@@ -305,6 +306,61 @@ public class BDBMessageStoreTest extends MessageStoreTestCase
         assertTrue("Unexpected content", Arrays.equals(expected, array));
     }
 
+    public void testGetContentSpanningChunks() throws Exception
+    {
+        BDBMessageStore bdbStore = (BDBMessageStore) getStore();
+        int chunkSize = MessageContentKey.CHUNK_SIZE;
+        byte[] content = new byte[chunkSize * 2 + chunkSize / 2];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) i;
+        }
+
+        MessageMetaData messageMetaData_0_8 = new MessageMetaData(createPublishInfoBody_0_8(),
+                createContentHeaderBody_0_8(createContentHeaderProperties_0_8(), content.length));
+        StoredMessage<MessageMetaData> storedMessage_0_8 = bdbStore.addMessage(messageMetaData_0_8);
+        storedMessage_0_8.addContent(0, ByteBuffer.wrap(content, 0, 1000));
+        storedMessage_0_8.addContent(1000, ByteBuffer.wrap(content, 1000, content.length - 1000));
+
+        // content held in memory before it is stored
+        ByteBuffer unstored = storedMessage_0_8.getContent(chunkSize - 50, 100);
+        byte[] unstoredBytes = new byte[unstored.remaining()];
+        unstored.get(unstoredBytes);
+        assertTrue("Unexpected content before store",
+                   Arrays.equals(Arrays.copyOfRange(content, chunkSize - 50, chunkSize + 50), unstoredBytes));
+        assertTrue("Content spanning chunks should be read-only", unstored.isReadOnly());
+        assertTrue("Content within a chunk should be read-only",
+                   storedMessage_0_8.getContent(10, 100).isReadOnly());
+
+        ((AbstractBDBMessageStore.StoredBDBMessage)storedMessage_0_8).flushToStore();
+        long messageid_0_8 = storedMessage_0_8.getMessageNumber();
+
+        // range crossing the boundary between the first and second chunks
+        ByteBuffer dst = ByteBuffer.allocate(100);
+        int length = bdbStore.getContent(messageid_0_8, chunkSize - 50, dst);
+        assertEquals("Unexpected length", 100, length);
+        assertTrue("Unexpected content",
+                   Arrays.equals(Arrays.copyOfRange(content, chunkSize - 50, chunkSize + 50), dst.array()));
+
+        // range within the last chunk, running off the end of the content
+        dst = ByteBuffer.allocate(chunkSize);
+        length = bdbStore.getContent(messageid_0_8, chunkSize * 2 + 10, dst);
+        assertEquals("Unexpected length", chunkSize / 2 - 10, length);
+
+        // whole content
+        dst = ByteBuffer.allocate(content.length);
+        length = bdbStore.getContent(messageid_0_8, 0, dst);
+        assertEquals("Unexpected length", content.length, length);
+        assertTrue("Unexpected content", Arrays.equals(content, dst.array()));
+
+        bdbStore.removeMessage(messageid_0_8, true);
+        for (int offset : new int[] {0, chunkSize, chunkSize * 2})
+        {
+            assertEquals("Retrieved content when none was expected at offset " + offset,
+                         0, bdbStore.getContent(messageid_0_8, offset, ByteBuffer.allocate(1)));
+        }
+    }
+
     /**
      * Tests that messages which are added to the store and then removed using the
      * public MessageStore interfaces are actually removed from the store by then
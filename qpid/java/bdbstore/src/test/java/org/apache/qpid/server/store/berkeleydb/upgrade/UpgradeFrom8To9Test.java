@@ -0,0 +1,151 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb.upgrade;
+
+import static org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey.CHUNK_SIZE;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
+
+import com.sleepycat.bind.tuple.LongBinding;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.Transaction;
+
+public class UpgradeFrom8To9Test extends AbstractUpgradeTestCase
+{
+    private static final String OLD_CONTENT_DB_NAME = "MESSAGE_CONTENT";
+    private static final String NEW_CONTENT_DB_NAME = "MESSAGE_CONTENT_CHUNKS";
+
+    @Override
+    protected String getStoreDirectoryName()
+    {
+        // message content is stored in the same way by v7 and v8 stores
+        return "bdbstore-v7";
+    }
+
+    public void testPerformUpgrade() throws Exception
+    {
+        Map<Long, byte[]> expectedContent = new HashMap<>();
+        expectedContent.put(1L, new byte[0]);
+        expectedContent.put(2L, createContent(100));
+        expectedContent.put(3L, createContent(CHUNK_SIZE));
+        expectedContent.put(4L, createContent(CHUNK_SIZE * 2 + 100));
+        for (Map.Entry<Long, byte[]> entry : expectedContent.entrySet())
+        {
+            putOldContent(entry.getKey(), entry.getValue());
+        }
+        assertDatabaseRecordCount(OLD_CONTENT_DB_NAME, expectedContent.size());
+
+        UpgradeFrom8To9 upgrade = new UpgradeFrom8To9();
+        upgrade.performUpgrade(_environment, UpgradeInteractionHandler.DEFAULT_HANDLER, getVirtualHost());
+
+        assertFalse("Old content database should have been removed",
+                    _environment.getDatabaseNames().contains(OLD_CONTENT_DB_NAME));
+
+        Map<Long, List<byte[]>> chunks = loadContentChunks();
+        assertEquals("Unexpected number of chunks of the single chunk message", 1, chunks.get(3L).size());
+        assertEquals("Unexpected number of chunks of the large message", 3, chunks.get(4L).size());
+        for (Map.Entry<Long, byte[]> entry : expectedContent.entrySet())
+        {
+            long messageId = entry.getKey();
+            byte[] content = entry.getValue();
+            List<byte[]> messageChunks = chunks.remove(messageId);
+            if (content.length == 0)
+            {
+                assertNull("Empty content should have no chunks", messageChunks);
+                continue;
+            }
+
+            assertNotNull("No chunks for message " + messageId, messageChunks);
+            ByteArrayOutputStream upgradedContent = new ByteArrayOutputStream();
+            for (int i = 0; i < messageChunks.size(); i++)
+            {
+                byte[] chunk = messageChunks.get(i);
+                if (i < messageChunks.size() - 1)
+                {
+                    assertEquals("Unexpected size of chunk " + i + " of message " + messageId,
+                                 CHUNK_SIZE, chunk.length);
+                }
+                upgradedContent.write(chunk);
+            }
+            assertTrue("Unexpected content of message " + messageId,
+                       Arrays.equals(content, upgradedContent.toByteArray()));
+        }
+        assertTrue("Unexpected chunks of messages " + chunks.keySet(), chunks.isEmpty());
+    }
+
+    private byte[] createContent(final int size)
+    {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+
+    private void putOldContent(final long messageId, final byte[] content)
+    {
+        new DatabaseTemplate(_environment, OLD_CONTENT_DB_NAME, null).run(new DatabaseRunnable()
+        {
+            @Override
+            public void run(Database sourceDatabase, Database targetDatabase, Transaction transaction)
+            {
+                DatabaseEntry key = new DatabaseEntry();
+                LongBinding.longToEntry(messageId, key);
+                sourceDatabase.put(transaction, key, new DatabaseEntry(content));
+            }
+        });
+    }
+
+    private Map<Long, List<byte[]>> loadContentChunks()
+    {
+        final Map<Long, List<byte[]>> chunks = new HashMap<>();
+        CursorOperation loadOperation = new CursorOperation()
+        {
+            @Override
+            public void processEntry(Database sourceDatabase, Database targetDatabase, Transaction transaction,
+                    DatabaseEntry key, DatabaseEntry value)
+            {
+                MessageContentKey contentKey = MessageContentKeyBinding.getInstance().entryToObject(key);
+                List<byte[]> messageChunks = chunks.get(contentKey.getMessageId());
+                if (messageChunks == null)
+                {
+                    messageChunks = new ArrayList<>();
+                    chunks.put(contentKey.getMessageId(), messageChunks);
+                }
+                assertEquals("Unexpected chunk index", messageChunks.size(), contentKey.getChunk());
+                messageChunks.add(Arrays.copyOfRange(value.getData(), value.getOffset(),
+                                                     value.getOffset() + value.getSize()));
+            }
+        };
+        new DatabaseTemplate(_environment, NEW_CONTENT_DB_NAME, null).run(loadOperation);
+        return chunks;
+    }
+}
@@ -25,10 +25,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.qpid.server.store.berkeleydb.BDBConfigurationStore;
+import org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey;
 import org.apache.qpid.server.store.berkeleydb.tuple.ContentBinding;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
 
 import com.sleepycat.bind.tuple.IntegerBinding;
-import com.sleepycat.bind.tuple.LongBinding;
 import com.sleepycat.je.Cursor;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseConfig;
@@ -128,6 +129,7 @@ public class UpgraderTest extends AbstractUpgradeTestCase
     private void assertContent()
     {
         final ContentBinding contentBinding = ContentBinding.getInstance();
+        final MessageContentKeyBinding keyBinding = MessageContentKeyBinding.getInstance();
         CursorOperation contentCursorOperation = new CursorOperation()
         {
 
@@ -135,12 +137,14 @@ public class UpgraderTest extends AbstractUpgradeTestCase
             public void processEntry(Database sourceDatabase, Database targetDatabase, Transaction transaction, DatabaseEntry key,
                     DatabaseEntry value)
             {
-                long id = LongBinding.entryToLong(key);
-                assertTrue("Unexpected id", id > 0);
+                MessageContentKey contentKey = keyBinding.entryToObject(key);
+                assertTrue("Unexpected id", contentKey.getMessageId() > 0);
                 byte[] content = contentBinding.entryToObject(value);
                 assertNotNull("Unexpected content", content);
             }
         };
-        new DatabaseTemplate(_environment, "MESSAGE_CONTENT", null).run(contentCursorOperation);
+        new DatabaseTemplate(_environment, "MESSAGE_CONTENT_CHUNKS", null).run(contentCursorOperation);
+        assertFalse("Unchunked content database remains after upgrade",
+                    _environment.getDatabaseNames().contains("MESSAGE_CONTENT"));
     }
 }
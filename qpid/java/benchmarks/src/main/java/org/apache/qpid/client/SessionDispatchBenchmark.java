@@ -0,0 +1,148 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.client.util.PrefetchBuffer;
+
+/**
+ * Measures the rate at which a session hands prefetched messages from the thread receiving them to its dispatcher
+ * thread.
+ * <p>
+ * The benchmark thread stands in for the connection's receiving thread and adds a batch of messages to a
+ * {@link PrefetchBuffer}, which a dedicated thread takes and dispatches as a session's dispatcher does. Each invocation
+ * then waits for the dispatcher to reach a marker added after the batch, as the session does when it synchronises
+ * with its dispatcher, so the score is the number of messages dispatched per second by one session. With a non-zero
+ * prefetch the buffer emits threshold events as a no-acknowledge session's does to suspend and resume its channel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SessionDispatchBenchmark
+{
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"0", "500"})
+    public int prefetch;
+
+    private PrefetchBuffer<Runnable> _buffer;
+    private Thread _dispatcherThread;
+    private volatile boolean _closed;
+    private long _dispatched;
+    private long _thresholdEvents;
+
+    private final Runnable _message = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            _dispatched++;
+        }
+    };
+
+    @Setup
+    public void setUp()
+    {
+        _buffer = new PrefetchBuffer<Runnable>(prefetch, prefetch / 2,
+                                               new PrefetchBuffer.ThresholdListener()
+                                               {
+                                                   @Override
+                                                   public void aboveThreshold(final int currentValue)
+                                                   {
+                                                       _thresholdEvents++;
+                                                   }
+
+                                                   @Override
+                                                   public void underThreshold(final int currentValue)
+                                                   {
+                                                       _thresholdEvents++;
+                                                   }
+                                               });
+        _dispatcherThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    while (!_closed)
+                    {
+                        _buffer.take().run();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    // closed
+                }
+            }
+        }, "Dispatcher-benchmark");
+        _dispatcherThread.setDaemon(true);
+        _dispatcherThread.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException
+    {
+        _closed = true;
+        _dispatcherThread.interrupt();
+        _dispatcherThread.join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void dispatch() throws InterruptedException
+    {
+        for (int i = 0; i < BATCH_SIZE; i++)
+        {
+            _buffer.add(_message);
+        }
+
+        final CountDownLatch signal = new CountDownLatch(1);
+        _buffer.add(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                signal.countDown();
+            }
+        });
+        signal.await();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.framing;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.util.BytesDataOutput;
+
+/**
+ * Measures creating {@link AMQShortString}s, as the broker does for the exchange names, routing keys and queue names
+ * of the frames it decodes, and interning them.
+ * <p>
+ * The names are drawn from a fixed set, all of which are interned during setup, so that interning a name read from a
+ * buffer finds the existing instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class AMQShortStringBenchmark
+{
+    private static final int NAMES = 1024;
+
+    @Param({"8", "64"})
+    public int nameLength;
+
+    private String[] _names;
+    private byte[][] _encodedNames;
+    private int _nameIndex;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        _names = new String[NAMES];
+        _encodedNames = new byte[NAMES][];
+        byte[] buffer = new byte[nameLength + 1];
+        BytesDataOutput output = new BytesDataOutput(buffer);
+        for (int i = 0; i < NAMES; i++)
+        {
+            StringBuilder builder = new StringBuilder(nameLength);
+            builder.append(i).append('.');
+            while (builder.length() < nameLength)
+            {
+                builder.append((char) ('a' + builder.length() % 26));
+            }
+            _names[i] = builder.toString();
+            new AMQShortString(_names[i]).intern();
+
+            output.reset();
+            EncodingUtils.writeShortStringBytes(output, _names[i]);
+            _encodedNames[i] = Arrays.copyOf(buffer, output.length());
+        }
+    }
+
+    @Benchmark
+    public AMQShortString createFromString()
+    {
+        return new AMQShortString(_names[nextIndex()]);
+    }
+
+    @Benchmark
+    public AMQShortString readFromBuffer() throws IOException
+    {
+        return AMQShortString.readFromBuffer(new ByteArrayDataInput(_encodedNames[nextIndex()]));
+    }
+
+    @Benchmark
+    public AMQShortString readFromBufferAndIntern() throws IOException
+    {
+        return AMQShortString.readFromBuffer(new ByteArrayDataInput(_encodedNames[nextIndex()])).intern();
+    }
+
+    @Benchmark
+    public AMQShortString createFromStringAndIntern()
+    {
+        return new AMQShortString(_names[nextIndex()]).intern();
+    }
+
+    private int nextIndex()
+    {
+        return _nameIndex++ & (NAMES - 1);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.framing;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.util.BytesDataOutput;
+
+/**
+ * Measures the {@link EncodingUtils} encoding and decoding of the short strings, long strings and numbers that make up
+ * 0-8 method frames and content headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class EncodingUtilsBenchmark
+{
+    @Param({"16", "200"})
+    public int stringLength;
+
+    private String _string;
+    private byte[] _encodedShortString;
+    private byte[] _encodedLongString;
+    private byte[] _encodedLong;
+    private byte[] _outputBuffer;
+    private BytesDataOutput _output;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        StringBuilder builder = new StringBuilder(stringLength);
+        for (int i = 0; i < stringLength; i++)
+        {
+            builder.append((char) ('a' + i % 26));
+        }
+        _string = builder.toString();
+
+        _outputBuffer = new byte[stringLength + 8];
+        _output = new BytesDataOutput(_outputBuffer);
+
+        EncodingUtils.writeShortStringBytes(_output, _string);
+        _encodedShortString = copyOutput();
+
+        _output.reset();
+        EncodingUtils.writeLongStringBytes(_output, _string);
+        _encodedLongString = copyOutput();
+
+        _output.reset();
+        EncodingUtils.writeLong(_output, 1234567890123L);
+        _encodedLong = copyOutput();
+    }
+
+    @Benchmark
+    public int writeShortString() throws IOException
+    {
+        _output.reset();
+        EncodingUtils.writeShortStringBytes(_output, _string);
+        return _output.length();
+    }
+
+    @Benchmark
+    public String readShortString() throws IOException
+    {
+        return EncodingUtils.readShortString(new ByteArrayDataInput(_encodedShortString));
+    }
+
+    @Benchmark
+    public int writeLongString() throws IOException
+    {
+        _output.reset();
+        EncodingUtils.writeLongStringBytes(_output, _string);
+        return _output.length();
+    }
+
+    @Benchmark
+    public String readLongString() throws IOException
+    {
+        return EncodingUtils.readLongString(new ByteArrayDataInput(_encodedLongString));
+    }
+
+    @Benchmark
+    public int writeLong() throws IOException
+    {
+        _output.reset();
+        EncodingUtils.writeLong(_output, 1234567890123L);
+        return _output.length();
+    }
+
+    @Benchmark
+    public long readLong() throws IOException
+    {
+        return EncodingUtils.readLong(new ByteArrayDataInput(_encodedLong));
+    }
+
+    private byte[] copyOutput()
+    {
+        return Arrays.copyOf(_outputBuffer, _output.length());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.common.AMQPFilterTypes;
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.queue.BaseQueue;
+import org.apache.qpid.server.store.MemoryMessageStore;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+
+/**
+ * Measures the routing of {@link DirectExchange}.
+ * <p>
+ * Each binding key is bound to one queue, and one binding in ten also has a selector. Messages are internal messages
+ * held in a {@link MemoryMessageStore}; one message in eight has a routing key to which nothing is bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class DirectExchangeRoutingBenchmark
+{
+    private static final int MESSAGES = 1024;
+
+    @Param({"100", "1000", "5000"})
+    public int bindingCount;
+
+    private TaskExecutor _taskExecutor;
+    private MessageStore _messageStore;
+    private DirectExchange _exchange;
+    private ServerMessage[] _messages;
+    private String[] _routingKeys;
+    private int _messageIndex;
+
+    @Setup
+    public void setUp()
+    {
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        _taskExecutor = new CurrentThreadTaskExecutor();
+        _taskExecutor.start();
+        VirtualHostImpl virtualHost = ExchangeBenchmarkSupport.createVirtualHost(_taskExecutor);
+        _exchange = new DirectExchange(ExchangeBenchmarkSupport.exchangeAttributes(), virtualHost);
+
+        for (int i = 0; i < bindingCount; i++)
+        {
+            Map<String, Object> arguments = null;
+            if (i % 10 == 0)
+            {
+                arguments = Collections.<String, Object>singletonMap(AMQPFilterTypes.JMS_SELECTOR.toString(),
+                                                                     "priority > 4");
+            }
+            _exchange.addBinding("key" + i, ExchangeBenchmarkSupport.createQueue(virtualHost, "queue" + i), arguments);
+        }
+
+        _messageStore = new MemoryMessageStore();
+        _messageStore.openMessageStore(virtualHost);
+
+        Random random = new Random(0);
+        _messages = new ServerMessage[MESSAGES];
+        _routingKeys = new String[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++)
+        {
+            _routingKeys[i] = random.nextInt(8) == 0 ? "unbound" + i : "key" + random.nextInt(bindingCount);
+            Map<String, Object> headers = Collections.<String, Object>singletonMap("priority", random.nextInt(10));
+            InternalMessageHeader header = new InternalMessageHeader(headers, null, 0L, null, null, "message" + i,
+                                                                     null, null, (byte) 4, 0L, null, null);
+            _messages[i] = InternalMessage.createStringMessage(_messageStore, header, "");
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _messageStore.closeMessageStore();
+        _taskExecutor.stop();
+    }
+
+    @Benchmark
+    public List<? extends BaseQueue> route()
+    {
+        int index = _messageIndex++ & (MESSAGES - 1);
+        return _exchange.doRoute(_messages[index], _routingKeys[index], InstanceProperties.EMPTY);
+    }
+}
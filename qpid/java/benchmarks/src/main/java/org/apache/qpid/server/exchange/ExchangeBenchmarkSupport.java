@@ -0,0 +1,91 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.model.BrokerModel;
+import org.apache.qpid.server.model.ConfiguredObjectFactory;
+import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
+import org.apache.qpid.server.model.Exchange;
+import org.apache.qpid.server.model.Model;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.queue.AMQQueue;
+import org.apache.qpid.server.security.SecurityManager;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+
+/**
+ * Creates the virtualhost and queues the exchange benchmarks bind to. Both are mocks standing in for just enough of
+ * the broker model for bindings to be created and messages to be routed.
+ */
+final class ExchangeBenchmarkSupport
+{
+    private ExchangeBenchmarkSupport()
+    {
+    }
+
+    static VirtualHostImpl createVirtualHost(final TaskExecutor taskExecutor)
+    {
+        ConfiguredObjectFactoryImpl factory = new ConfiguredObjectFactoryImpl(BrokerModel.getInstance());
+
+        VirtualHostImpl virtualHost = mock(VirtualHostImpl.class);
+        when(virtualHost.getSecurityManager()).thenReturn(mock(SecurityManager.class));
+        when(virtualHost.getEventLogger()).thenReturn(new EventLogger());
+        when(virtualHost.getCategoryClass()).thenReturn(VirtualHost.class);
+        when(virtualHost.getTaskExecutor()).thenReturn(taskExecutor);
+        when(virtualHost.getObjectFactory()).thenReturn(factory);
+        when(virtualHost.getModel()).thenReturn(factory.getModel());
+        return virtualHost;
+    }
+
+    static AMQQueue createQueue(final VirtualHostImpl virtualHost, final String name)
+    {
+        ConfiguredObjectFactory factory = virtualHost.getObjectFactory();
+        Model model = virtualHost.getModel();
+        TaskExecutor taskExecutor = virtualHost.getTaskExecutor();
+
+        AMQQueue queue = mock(AMQQueue.class);
+        when(queue.getName()).thenReturn(name);
+        when(queue.getVirtualHost()).thenReturn(virtualHost);
+        when(queue.getCategoryClass()).thenReturn(Queue.class);
+        when(queue.getObjectFactory()).thenReturn(factory);
+        when(queue.getModel()).thenReturn(model);
+        when(queue.getTaskExecutor()).thenReturn(taskExecutor);
+        return queue;
+    }
+
+    static Map<String, Object> exchangeAttributes()
+    {
+        Map<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put(Exchange.ID, UUID.randomUUID());
+        attributes.put(Exchange.NAME, "benchmark");
+        attributes.put(Exchange.DURABLE, false);
+        return attributes;
+    }
+}
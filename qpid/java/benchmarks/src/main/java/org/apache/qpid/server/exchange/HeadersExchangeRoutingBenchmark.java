@@ -0,0 +1,181 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.binding.BindingImpl;
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.filter.Filterable;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.queue.BaseQueue;
+import org.apache.qpid.server.store.MemoryMessageStore;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+
+/**
+ * Compares the indexed routing of {@link HeadersExchange} with a linear scan of every
+ * {@link HeadersBinding}, as performed by the exchange before the index was introduced.
+ * <p>
+ * Each binding constrains two headers drawn from a vocabulary of header names and values; half of the
+ * bindings use x-match "all", the other half "any". Each message carries a few headers drawn from the
+ * same vocabulary. Messages are internal messages held in a {@link MemoryMessageStore}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class HeadersExchangeRoutingBenchmark
+{
+    private static final int HEADER_NAMES = 64;
+    private static final int HEADER_VALUES = 16;
+    private static final int MESSAGES = 1024;
+
+    @Param({"100", "1000", "5000"})
+    public int bindingCount;
+
+    @Param({"4"})
+    public int headersPerMessage;
+
+    private TaskExecutor _taskExecutor;
+    private MessageStore _messageStore;
+    private HeadersExchange _exchange;
+    private List<HeadersBinding> _headersBindings;
+    private ServerMessage[] _messages;
+    private int _messageIndex;
+
+    @Setup
+    public void setUp()
+    {
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        _taskExecutor = new CurrentThreadTaskExecutor();
+        _taskExecutor.start();
+        VirtualHostImpl virtualHost = ExchangeBenchmarkSupport.createVirtualHost(_taskExecutor);
+        _exchange = new HeadersExchange(ExchangeBenchmarkSupport.exchangeAttributes(), virtualHost);
+
+        Random random = new Random(0);
+        for (int i = 0; i < bindingCount; i++)
+        {
+            Map<String, Object> arguments = new HashMap<String, Object>();
+            arguments.put("x-match", i % 2 == 0 ? "all" : "any");
+            while (arguments.size() < 3)
+            {
+                arguments.put(randomName(random), randomValue(random));
+            }
+            _exchange.addBinding("binding" + i, ExchangeBenchmarkSupport.createQueue(virtualHost, "queue" + i), arguments);
+        }
+
+        _headersBindings = new ArrayList<HeadersBinding>();
+        for (BindingImpl binding : _exchange.getBindings())
+        {
+            _headersBindings.add(new HeadersBinding(binding));
+        }
+
+        _messageStore = new MemoryMessageStore();
+        _messageStore.openMessageStore(virtualHost);
+
+        _messages = new ServerMessage[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++)
+        {
+            Map<String, Object> headers = new HashMap<String, Object>();
+            while (headers.size() < headersPerMessage)
+            {
+                headers.put(randomName(random), randomValue(random));
+            }
+            InternalMessageHeader header = new InternalMessageHeader(headers, null, 0L, null, null, "message" + i,
+                                                                     null, null, (byte) 4, 0L, null, null);
+            _messages[i] = InternalMessage.createStringMessage(_messageStore, header, "");
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _messageStore.closeMessageStore();
+        _taskExecutor.stop();
+    }
+
+    @Benchmark
+    public List<? extends BaseQueue> indexedRoute()
+    {
+        return _exchange.doRoute(nextMessage(), "", InstanceProperties.EMPTY);
+    }
+
+    @Benchmark
+    public List<? extends BaseQueue> linearScanRoute()
+    {
+        ServerMessage message = nextMessage();
+        LinkedHashSet<BaseQueue> queues = new LinkedHashSet<BaseQueue>();
+        for (HeadersBinding hb : _headersBindings)
+        {
+            if (hb.matches(Filterable.Factory.newInstance(message, InstanceProperties.EMPTY)))
+            {
+                BindingImpl b = hb.getBinding();
+                b.incrementMatches();
+                queues.add(b.getAMQQueue());
+            }
+        }
+        return new ArrayList<BaseQueue>(queues);
+    }
+
+    private ServerMessage nextMessage()
+    {
+        return _messages[_messageIndex++ & (MESSAGES - 1)];
+    }
+
+    private static String randomName(final Random random)
+    {
+        return "header" + random.nextInt(HEADER_NAMES);
+    }
+
+    private static String randomValue(final Random random)
+    {
+        return "value" + random.nextInt(HEADER_VALUES);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.queue.BaseQueue;
+import org.apache.qpid.server.store.MemoryMessageStore;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+
+/**
+ * Measures the routing of {@link TopicExchange}.
+ * <p>
+ * Routing keys have three words, such as {@code stock.nyse.ibm}, drawn from a vocabulary for each position. Each
+ * binding key is a routing key with one word replaced by a {@code *} or a {@code #} wildcard, or, for one binding in
+ * four, left exact. Messages are internal messages held in a {@link MemoryMessageStore}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class TopicExchangeRoutingBenchmark
+{
+    private static final String[] CATEGORIES = {"stock", "bond", "future", "option"};
+    private static final String[] MARKETS = {"nyse", "nasdaq", "lse", "tse", "hkex", "asx", "tsx", "bse"};
+    private static final int SYMBOLS = 256;
+    private static final int MESSAGES = 1024;
+
+    @Param({"100", "1000", "5000"})
+    public int bindingCount;
+
+    private TaskExecutor _taskExecutor;
+    private MessageStore _messageStore;
+    private TopicExchange _exchange;
+    private ServerMessage[] _messages;
+    private String[] _routingKeys;
+    private int _messageIndex;
+
+    @Setup
+    public void setUp()
+    {
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        _taskExecutor = new CurrentThreadTaskExecutor();
+        _taskExecutor.start();
+        VirtualHostImpl virtualHost = ExchangeBenchmarkSupport.createVirtualHost(_taskExecutor);
+        _exchange = new TopicExchange(ExchangeBenchmarkSupport.exchangeAttributes(), virtualHost);
+
+        Random random = new Random(0);
+        for (int i = 0; i < bindingCount; i++)
+        {
+            String[] words = randomWords(random);
+            switch (i % 4)
+            {
+                case 0:
+                    words[1] = "*";
+                    break;
+                case 1:
+                    words[2] = "*";
+                    break;
+                case 2:
+                    words[1] = "#";
+                    break;
+                default:
+                    break;
+            }
+            String bindingKey = words[0] + "." + words[1] + "." + words[2];
+            _exchange.addBinding(bindingKey, ExchangeBenchmarkSupport.createQueue(virtualHost, "queue" + i), null);
+        }
+
+        _messageStore = new MemoryMessageStore();
+        _messageStore.openMessageStore(virtualHost);
+
+        _messages = new ServerMessage[MESSAGES];
+        _routingKeys = new String[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++)
+        {
+            String[] words = randomWords(random);
+            _routingKeys[i] = words[0] + "." + words[1] + "." + words[2];
+            InternalMessageHeader header = new InternalMessageHeader(null, null, 0L, null, null, "message" + i,
+                                                                     null, null, (byte) 4, 0L, null, null);
+            _messages[i] = InternalMessage.createStringMessage(_messageStore, header, "");
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _messageStore.closeMessageStore();
+        _taskExecutor.stop();
+    }
+
+    @Benchmark
+    public List<? extends BaseQueue> route()
+    {
+        int index = _messageIndex++ & (MESSAGES - 1);
+        return _exchange.doRoute(_messages[index], _routingKeys[index], InstanceProperties.EMPTY);
+    }
+
+    private static String[] randomWords(final Random random)
+    {
+        return new String[] { CATEGORIES[random.nextInt(CATEGORIES.length)],
+                              MARKETS[random.nextInt(MARKETS.length)],
+                              "s" + random.nextInt(SYMBOLS) };
+    }
+}
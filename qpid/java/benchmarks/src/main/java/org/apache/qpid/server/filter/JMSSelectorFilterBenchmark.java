@@ -0,0 +1,187 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.filter;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.store.MemoryMessageStore;
+import org.apache.qpid.server.store.MessageStore;
+
+/**
+ * Measures the evaluation of JMS selectors of typical shapes against messages held in a {@link MemoryMessageStore}.
+ * <p>
+ * The single selector benchmarks compare the parsed expression tree with its compiled form. The consumer benchmarks
+ * evaluate the selectors of a number of consumers, several of which share a selector string, against each message:
+ * once wrapping the message afresh for every consumer, as happens without a shared {@link CachingFilterable}, and
+ * once sharing a single caching filterable between all the consumers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class JMSSelectorFilterBenchmark
+{
+    private static final int MESSAGES = 1024;
+    private static final int DISTINCT_SELECTORS = 8;
+    private static final String[] REGIONS = {"north", "south", "east", "west"};
+
+    private static final Map<String, String> SELECTOR_SHAPES = new HashMap<String, String>();
+    static
+    {
+        SELECTOR_SHAPES.put("equality", "region = 'north'");
+        SELECTOR_SHAPES.put("in", "region IN ('north', 'east')");
+        SELECTOR_SHAPES.put("range", "price BETWEEN 100 AND 500");
+        SELECTOR_SHAPES.put("like", "symbol LIKE 'AB%'");
+        SELECTOR_SHAPES.put("conjunction", "region = 'north' AND price > 100 AND symbol LIKE 'AB%'");
+        SELECTOR_SHAPES.put("disjunction", "region = 'north' OR region = 'south' OR region = 'east' OR urgent = TRUE");
+        SELECTOR_SHAPES.put("jmsHeaders", "JMSPriority > 4 AND JMSType = 'order'");
+    }
+
+    @Param({"equality", "in", "range", "like", "conjunction", "disjunction", "jmsHeaders"})
+    public String shape;
+
+    @Param({"100"})
+    public int consumerCount;
+
+    private MessageStore _messageStore;
+    private ServerMessage[] _messages;
+    private int _messageIndex;
+
+    private JMSSelectorFilter _parsedFilter;
+    private JMSSelectorFilter _compiledFilter;
+    private JMSSelectorFilter[] _consumerFilters;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        String selector = SELECTOR_SHAPES.get(shape);
+        _parsedFilter = new JMSSelectorFilter(selector, false);
+        _compiledFilter = new JMSSelectorFilter(selector, true);
+
+        _consumerFilters = new JMSSelectorFilter[consumerCount];
+        for (int i = 0; i < consumerCount; i++)
+        {
+            _consumerFilters[i] = new JMSSelectorFilter(selector + " AND shard <> " + (i % DISTINCT_SELECTORS));
+        }
+
+        _messageStore = new MemoryMessageStore();
+        _messageStore.openMessageStore(mock(ConfiguredObject.class));
+
+        Random random = new Random(0);
+        _messages = new ServerMessage[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++)
+        {
+            Map<String, Object> headers = new HashMap<String, Object>();
+            headers.put("region", REGIONS[random.nextInt(REGIONS.length)]);
+            headers.put("price", random.nextInt(1000));
+            headers.put("symbol", (random.nextBoolean() ? "AB" : "XY") + random.nextInt(100));
+            headers.put("urgent", random.nextInt(10) == 0);
+            headers.put("shard", random.nextInt(DISTINCT_SELECTORS));
+            InternalMessageHeader header = new InternalMessageHeader(headers, null, 0L, null, null, "message" + i,
+                                                                     null, null, (byte) random.nextInt(10), 0L,
+                                                                     random.nextBoolean() ? "order" : "quote", null);
+            _messages[i] = InternalMessage.createStringMessage(_messageStore, header, "");
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _messageStore.closeMessageStore();
+    }
+
+    @Benchmark
+    public boolean parsedSelector()
+    {
+        return _parsedFilter.matches(Filterable.Factory.newInstance(nextMessage(), InstanceProperties.EMPTY));
+    }
+
+    @Benchmark
+    public boolean compiledSelector()
+    {
+        return _compiledFilter.matches(Filterable.Factory.newInstance(nextMessage(), InstanceProperties.EMPTY));
+    }
+
+    @Benchmark
+    public int consumersWithoutSharedEvaluation()
+    {
+        ServerMessage message = nextMessage();
+        int matches = 0;
+        for (JMSSelectorFilter filter : _consumerFilters)
+        {
+            if (filter.matches(Filterable.Factory.newInstance(message, InstanceProperties.EMPTY)))
+            {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int consumersWithSharedEvaluation()
+    {
+        CachingFilterable filterable =
+                new CachingFilterable(Filterable.Factory.newInstance(nextMessage(), InstanceProperties.EMPTY));
+        int matches = 0;
+        for (JMSSelectorFilter filter : _consumerFilters)
+        {
+            if (filter.matches(filterable))
+            {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private ServerMessage nextMessage()
+    {
+        return _messages[_messageIndex++ & (MESSAGES - 1)];
+    }
+}
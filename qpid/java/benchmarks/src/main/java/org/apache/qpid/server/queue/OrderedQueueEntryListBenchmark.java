@@ -0,0 +1,206 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.model.BrokerModel;
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.security.SecurityManager;
+import org.apache.qpid.server.store.MemoryMessageStore;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+
+/**
+ * Measures adding entries to an {@link OrderedQueueEntryList} and deleting them again, as a queue does when messages
+ * are enqueued and then consumed.
+ * <p>
+ * The list is kept at a steady depth: every operation adds an entry at the tail and deletes one. In the in order
+ * benchmark the entry deleted is always at the head of the list. In the out of order benchmark every second
+ * operation instead deletes an entry from the middle of the list, as happens when consumers with selectors or
+ * priorities take messages out of order, so that the list must scavenge the deleted entries it has been left with.
+ * Messages are internal messages held in a {@link MemoryMessageStore}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class OrderedQueueEntryListBenchmark
+{
+    private static final String SCAVENGE_COUNT_PROPERTY = "qpid.queue.scavenge_count";
+
+    /** Depth of the list, in entries added but not yet deleted. A multiple of four. */
+    @Param({"1024", "65536"})
+    public int depth;
+
+    @Param({"50"})
+    public int scavengeCount;
+
+    private TaskExecutor _taskExecutor;
+    private MessageStore _messageStore;
+    private OrderedQueueEntryList _list;
+    private ServerMessage[] _messages;
+    private MessageReference[] _references;
+    private QueueEntry[] _entries;
+    private long _operations;
+
+    @Setup
+    public void setUp()
+    {
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        String oldScavengeCount = System.setProperty(SCAVENGE_COUNT_PROPERTY, String.valueOf(scavengeCount));
+        try
+        {
+            _taskExecutor = new CurrentThreadTaskExecutor();
+            _taskExecutor.start();
+            ConfiguredObjectFactoryImpl factory = new ConfiguredObjectFactoryImpl(BrokerModel.getInstance());
+
+            VirtualHostImpl virtualHost = mock(VirtualHostImpl.class);
+            when(virtualHost.getSecurityManager()).thenReturn(mock(SecurityManager.class));
+            when(virtualHost.getEventLogger()).thenReturn(new EventLogger());
+            when(virtualHost.getTaskExecutor()).thenReturn(_taskExecutor);
+            when(virtualHost.getObjectFactory()).thenReturn(factory);
+            when(virtualHost.getModel()).thenReturn(factory.getModel());
+
+            Map<String, Object> queueAttributes = new HashMap<String, Object>();
+            queueAttributes.put(Queue.ID, UUID.randomUUID());
+            queueAttributes.put(Queue.NAME, "benchmark");
+            StandardQueueImpl queue = new StandardQueueImpl(queueAttributes, virtualHost);
+            queue.open();
+            _list = queue.getEntries();
+        }
+        finally
+        {
+            if (oldScavengeCount == null)
+            {
+                System.clearProperty(SCAVENGE_COUNT_PROPERTY);
+            }
+            else
+            {
+                System.setProperty(SCAVENGE_COUNT_PROPERTY, oldScavengeCount);
+            }
+        }
+
+        _messageStore = new MemoryMessageStore();
+        _messageStore.openMessageStore(mock(ConfiguredObject.class));
+
+        // a message may be on the list only once, so there are enough messages for each to have been
+        // deleted from the list before it is added again
+        _messages = new ServerMessage[2 * depth];
+        _references = new MessageReference[_messages.length];
+        for (int i = 0; i < _messages.length; i++)
+        {
+            InternalMessageHeader header = new InternalMessageHeader(null, null, 0L, null, null, "message" + i,
+                                                                     null, null, (byte) 4, 0L, null, null);
+            _messages[i] = InternalMessage.createStringMessage(_messageStore, header, "");
+            // held until tear down, so that the message is not deleted when its entry is
+            _references[i] = _messages[i].newReference();
+        }
+
+        _entries = new QueueEntry[depth];
+        _operations = 0L;
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        for (MessageReference reference : _references)
+        {
+            reference.release();
+        }
+        _messageStore.closeMessageStore();
+        _taskExecutor.stop();
+    }
+
+    @Benchmark
+    public QueueEntry enqueueAndDeleteInOrder()
+    {
+        long operation = _operations++;
+        int slot = (int) (operation % depth);
+        QueueEntry oldest = _entries[slot];
+        if (oldest != null)
+        {
+            delete(oldest);
+        }
+        return _entries[slot] = _list.add(_messages[(int) (operation % _messages.length)]);
+    }
+
+    @Benchmark
+    public QueueEntry enqueueAndDeleteOutOfOrder()
+    {
+        long operation = _operations++;
+        int slot = (int) (operation % depth);
+        if ((operation & 1L) == 0L)
+        {
+            // an even entry added half the depth ago, which is mid list
+            QueueEntry middle = _entries[(int) ((operation + depth / 2) % depth)];
+            if (operation >= depth / 2)
+            {
+                delete(middle);
+            }
+        }
+        else if (_entries[slot] != null)
+        {
+            // an odd entry added the depth ago, which is at the head as every older entry has been deleted
+            delete(_entries[slot]);
+        }
+        return _entries[slot] = _list.add(_messages[(int) (operation % _messages.length)]);
+    }
+
+    private static void delete(final QueueEntry entry)
+    {
+        entry.acquire();
+        entry.delete();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.transport;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the rate at which one 0-10 session can send message transfers to another, and have them completed, within
+ * the same JVM.
+ * <p>
+ * Each session's connection hands the events it sends to a thread which delivers them to the other connection, so
+ * that, as over a network, the sending session and the thread completing its commands run concurrently. The
+ * receiving session processes each transfer as it arrives. Each invocation sends a batch of transfers, optionally
+ * with completion listeners, and then syncs the sending session, so the score is the number of transfers sent and
+ * completed per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SessionThroughputBenchmark
+{
+    private static final int BATCH_SIZE = 1000;
+    private static final ByteBuffer BODY = ByteBuffer.allocate(256);
+
+    @Param({"false", "true"})
+    public boolean completionListener;
+
+    private Session _sender;
+    private DeliveringSender _toReceiver;
+    private DeliveringSender _toSender;
+
+    private final Method.CompletionListener _listener = new Method.CompletionListener()
+    {
+        @Override
+        public void onComplete(final Method method)
+        {
+        }
+    };
+
+    @Setup
+    public void setUp()
+    {
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        Connection senderConnection = new Connection();
+        Connection receiverConnection = new Connection();
+        senderConnection.setConnectionDelegate(new BenchmarkConnectionDelegate());
+        receiverConnection.setConnectionDelegate(new BenchmarkConnectionDelegate());
+        _toReceiver = new DeliveringSender(receiverConnection, "Receiver-IO");
+        _toSender = new DeliveringSender(senderConnection, "Sender-IO");
+        senderConnection.setSender(_toReceiver);
+        receiverConnection.setSender(_toSender);
+
+        _sender = new Session(senderConnection, new Binary("sender".getBytes()), 0);
+        Session receiver = new Session(receiverConnection, new Binary("receiver".getBytes()), 0);
+        receiver.setSessionListener(new SessionListener()
+        {
+            public void opened(Session ssn) {}
+
+            public void resumed(Session ssn) {}
+
+            public void message(Session ssn, MessageTransfer xfr)
+            {
+                ssn.processed(xfr);
+            }
+
+            public void exception(Session ssn, SessionException exc) {}
+
+            public void closed(Session ssn) {}
+        });
+        senderConnection.map(_sender, 0);
+        receiverConnection.map(receiver, 0);
+        _sender.setState(Session.State.OPEN);
+        receiver.setState(Session.State.OPEN);
+
+        _toReceiver.start();
+        _toSender.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException
+    {
+        _toReceiver.close();
+        _toSender.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void transferAndSync()
+    {
+        for (int i = 0; i < BATCH_SIZE; i++)
+        {
+            MessageTransfer xfr = new MessageTransfer("destination", MessageAcceptMode.NONE,
+                                                      MessageAcquireMode.PRE_ACQUIRED, null, BODY.duplicate());
+            if (completionListener)
+            {
+                xfr.setCompletionListener(_listener);
+            }
+            _sender.invoke(xfr);
+        }
+        _sender.sync();
+    }
+
+    private static class BenchmarkConnectionDelegate extends ConnectionDelegate
+    {
+        public void init(Connection conn, ProtocolHeader hdr)
+        {
+        }
+    }
+
+    /**
+     * Delivers the events sent on one connection to another from a dedicated thread.
+     */
+    private static class DeliveringSender extends Thread implements Sender<ProtocolEvent>
+    {
+        private final BlockingQueue<ProtocolEvent> _events = new LinkedBlockingQueue<ProtocolEvent>();
+        private final Connection _peer;
+        private volatile boolean _closed;
+
+        private DeliveringSender(Connection peer, String name)
+        {
+            super(name);
+            setDaemon(true);
+            _peer = peer;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while (!_closed)
+                {
+                    _peer.received(_events.take());
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // closed
+            }
+        }
+
+        public void setIdleTimeout(int i)
+        {
+        }
+
+        public void send(ProtocolEvent msg)
+        {
+            _events.add(msg);
+        }
+
+        public void flush()
+        {
+        }
+
+        public void close()
+        {
+            _closed = true;
+            interrupt();
+        }
+    }
+}
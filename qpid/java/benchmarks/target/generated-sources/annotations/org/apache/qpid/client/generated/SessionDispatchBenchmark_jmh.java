@@ -0,0 +1,4 @@
+package org.apache.qpid.client.generated;
+public class SessionDispatchBenchmark_jmh extends SessionDispatchBenchmark_jmh_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.apache.qpid.framing.generated;
+public class AMQShortStringBenchmark_jmh extends AMQShortStringBenchmark_jmh_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.apache.qpid.framing.generated;
+public class EncodingUtilsBenchmark_jmh extends EncodingUtilsBenchmark_jmh_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.apache.qpid.server.exchange.generated;
+public class DirectExchangeRoutingBenchmark_jmh extends DirectExchangeRoutingBenchmark_jmh_B3 {
+}
+
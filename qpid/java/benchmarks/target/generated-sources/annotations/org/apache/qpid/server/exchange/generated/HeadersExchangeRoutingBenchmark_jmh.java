@@ -0,0 +1,4 @@
+package org.apache.qpid.server.exchange.generated;
+public class HeadersExchangeRoutingBenchmark_jmh extends HeadersExchangeRoutingBenchmark_jmh_B3 {
+}
+
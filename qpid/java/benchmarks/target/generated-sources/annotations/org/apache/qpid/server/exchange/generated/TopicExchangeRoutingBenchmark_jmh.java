@@ -0,0 +1,4 @@
+package org.apache.qpid.server.exchange.generated;
+public class TopicExchangeRoutingBenchmark_jmh extends TopicExchangeRoutingBenchmark_jmh_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.apache.qpid.server.queue.generated;
+public class OrderedQueueEntryListBenchmark_jmh extends OrderedQueueEntryListBenchmark_jmh_B3 {
+}
+
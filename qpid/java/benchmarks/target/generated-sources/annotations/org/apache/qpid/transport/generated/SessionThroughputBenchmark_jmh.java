@@ -0,0 +1,4 @@
+package org.apache.qpid.transport.generated;
+public class SessionThroughputBenchmark_jmh extends SessionThroughputBenchmark_jmh_B3 {
+}
+
@@ -36,6 +36,7 @@ import org.apache.log4j.PropertyConfigurator;
 import org.apache.qpid.server.configuration.BrokerProperties;
 import org.apache.qpid.server.configuration.updater.TaskExecutor;
 import org.apache.qpid.server.configuration.updater.TaskExecutorImpl;
+import org.apache.qpid.server.logging.AsynchronousMessageLogger;
 import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.logging.Log4jMessageLogger;
 import org.apache.qpid.server.logging.LogRecorder;
@@ -56,6 +57,7 @@ public class Broker implements BrokerShutdownProvider
 
     private volatile Thread _shutdownHookThread;
     private EventLogger _eventLogger;
+    private AsynchronousMessageLogger _asynchronousMessageLogger;
     private boolean _configuringOwnLogging = false;
     private final TaskExecutor _taskExecutor = new TaskExecutorImpl();
 
@@ -109,6 +111,11 @@ public class Broker implements BrokerShutdownProvider
             }
             finally
             {
+                if (_asynchronousMessageLogger != null)
+                {
+                    _asynchronousMessageLogger.stop();
+                }
+
                 if (_configuringOwnLogging)
                 {
                     LogManager.shutdown();
@@ -163,7 +170,20 @@ public class Broker implements BrokerShutdownProvider
         }
         // Create the RootLogger to be used during broker operation
         boolean statusUpdatesEnabled = Boolean.parseBoolean(System.getProperty(BrokerProperties.PROPERTY_STATUS_UPDATES, "true"));
-        MessageLogger messageLogger = new Log4jMessageLogger(statusUpdatesEnabled);
+        Log4jMessageLogger log4jMessageLogger = new Log4jMessageLogger(statusUpdatesEnabled);
+        MessageLogger messageLogger = log4jMessageLogger;
+        if (Boolean.getBoolean(BrokerProperties.PROPERTY_ASYNCHRONOUS_OPERATIONAL_LOGGING))
+        {
+            int bufferSize = Integer.getInteger(BrokerProperties.PROPERTY_OPERATIONAL_LOGGING_BUFFER_SIZE,
+                                                AsynchronousMessageLogger.DEFAULT_BUFFER_SIZE);
+            AsynchronousMessageLogger.OverflowPolicy overflowPolicy =
+                    AsynchronousMessageLogger.OverflowPolicy.valueOf(
+                            System.getProperty(BrokerProperties.PROPERTY_OPERATIONAL_LOGGING_OVERFLOW_POLICY,
+                                               AsynchronousMessageLogger.OverflowPolicy.BLOCK.name()).toUpperCase());
+            _asynchronousMessageLogger = new AsynchronousMessageLogger(log4jMessageLogger, bufferSize, overflowPolicy);
+            _asynchronousMessageLogger.start();
+            messageLogger = _asynchronousMessageLogger;
+        }
         _eventLogger.setMessageLogger(messageLogger);
 
         // Additionally, report BRK-1006 and BRK-1007 into log4j appenders
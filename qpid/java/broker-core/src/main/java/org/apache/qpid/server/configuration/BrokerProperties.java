@@ -49,6 +49,20 @@ public class BrokerProperties
     public static final String PROPERTY_QPID_WORK = "QPID_WORK";
     public static final String PROPERTY_LOG_RECORDS_BUFFER_SIZE = "qpid.broker_log_records_buffer_size";
 
+    public static final String PROPERTY_ASYNCHRONOUS_OPERATIONAL_LOGGING = "qpid.broker_operational_logging_asynchronous";
+    public static final String PROPERTY_OPERATIONAL_LOGGING_BUFFER_SIZE = "qpid.broker_operational_logging_buffer_size";
+    public static final String PROPERTY_OPERATIONAL_LOGGING_OVERFLOW_POLICY = "qpid.broker_operational_logging_overflow_policy";
+
+    /** Whether the pool of frame buffers of the non-blocking transport allocates direct rather than heap buffers */
+    public static final String PROPERTY_FRAME_BUFFER_POOL_DIRECT = "qpid.broker_frame_buffer_pool_direct";
+    /** The number of free buffers of each size the pool of frame buffers of the non-blocking transport retains */
+    public static final String PROPERTY_FRAME_BUFFER_POOL_MAX_BUFFERS = "qpid.broker_frame_buffer_pool_max_buffers_per_size";
+    public static final int DEFAULT_FRAME_BUFFER_POOL_MAX_BUFFERS = 256;
+
+    public static final String PROPERTY_COMPILE_SELECTORS = "qpid.broker_compile_selectors";
+    public static final boolean COMPILE_SELECTORS =
+            Boolean.parseBoolean(System.getProperty(PROPERTY_COMPILE_SELECTORS, "true"));
+
     private BrokerProperties()
     {
     }
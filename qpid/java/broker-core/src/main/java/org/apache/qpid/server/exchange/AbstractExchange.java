@@ -707,7 +707,7 @@ public abstract class AbstractExchange<T extends AbstractExchange<T>>
         }
 
         BindingImpl existingMapping;
-        synchronized(this)
+        synchronized(getBindingLock(bindingKey))
         {
             BindingIdentifier bindingIdentifier = new BindingIdentifier(bindingKey, queue);
             existingMapping = _bindingsMap.get(bindingIdentifier);
@@ -740,6 +740,15 @@ public abstract class AbstractExchange<T extends AbstractExchange<T>>
         }
     }
 
+    /**
+     * Returns the monitor held while a binding with the given key is created or has its arguments replaced, which is
+     * the exchange itself unless the exchange allows bindings with different keys to be changed concurrently.
+     */
+    protected Object getBindingLock(final String bindingKey)
+    {
+        return this;
+    }
+
     @Override
     public void addBinding(final BindingImpl b)
     {
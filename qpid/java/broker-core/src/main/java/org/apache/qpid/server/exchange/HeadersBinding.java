@@ -119,6 +119,50 @@ class HeadersBinding
         return _binding;
     }
 
+    /**
+     * @return the names of the headers which must be present, with any value
+     */
+    Set<String> getRequiredHeaders()
+    {
+        return required;
+    }
+
+    /**
+     * @return the header names and the values which they must carry
+     */
+    Map<String, Object> getMatchedHeaders()
+    {
+        return matches;
+    }
+
+    /**
+     * @return true if satisfying any one of the header constraints is sufficient to match
+     */
+    boolean isMatchAny()
+    {
+        return matchAny;
+    }
+
+    /**
+     * @return the total number of header constraints (presence and value) of this binding
+     */
+    int getConstraintCount()
+    {
+        return required.size() + matches.size();
+    }
+
+    /**
+     * Checks the message against the selector (if any) carried in the binding arguments,
+     * ignoring the header constraints.
+     *
+     * @param message the message to check
+     * @return true if the binding has no selector, or the selector matches the message
+     */
+    boolean matchesFilter(Filterable message)
+    {
+        return _filter == null || _filter.matches(message);
+    }
+
     /**
      * Checks whether the supplied headers match the requirements of this binding
      * @param headers the headers to check
@@ -139,7 +183,7 @@ class HeadersBinding
 
     public boolean matches(Filterable message)
     {
-        return matches(message.getMessageHeader()) && (_filter == null || _filter.matches(message));
+        return matches(message.getMessageHeader()) && matchesFilter(message);
     }
 
     private boolean and(AMQMessageHeader headers)
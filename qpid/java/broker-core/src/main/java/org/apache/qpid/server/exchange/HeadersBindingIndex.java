@@ -0,0 +1,270 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.apache.qpid.server.filter.Filterable;
+import org.apache.qpid.server.message.AMQMessageHeader;
+
+/**
+ * An inverted index over the header constraints of a set of {@link HeadersBinding}s.
+ * <p>
+ * Each binding is indexed under the names of the headers it requires to be present and under the
+ * name/value pairs it requires to match. Routing a message then only visits the bindings indexed
+ * under the headers the message actually carries: an "any" binding matches on its first satisfied
+ * constraint, an "all" binding once the number of its satisfied constraints reaches its constraint
+ * count. Bindings without header constraints match every message and are held separately.
+ * <p>
+ * Lookups are lock free; modifications are serialised on the index.
+ */
+class HeadersBindingIndex
+{
+    private final ConcurrentMap<String, CopyOnWriteArraySet<HeadersBinding>> _bindingsByRequiredHeader =
+            new ConcurrentHashMap<String, CopyOnWriteArraySet<HeadersBinding>>();
+
+    private final ConcurrentMap<String, ConcurrentMap<Object, CopyOnWriteArraySet<HeadersBinding>>> _bindingsByMatchedHeader =
+            new ConcurrentHashMap<String, ConcurrentMap<Object, CopyOnWriteArraySet<HeadersBinding>>>();
+
+    private final CopyOnWriteArraySet<HeadersBinding> _unconditionalBindings =
+            new CopyOnWriteArraySet<HeadersBinding>();
+
+    synchronized void add(HeadersBinding binding)
+    {
+        if(binding.getConstraintCount() == 0)
+        {
+            _unconditionalBindings.add(binding);
+            return;
+        }
+
+        for(String name : binding.getRequiredHeaders())
+        {
+            CopyOnWriteArraySet<HeadersBinding> bindings = _bindingsByRequiredHeader.get(name);
+            if(bindings == null)
+            {
+                bindings = new CopyOnWriteArraySet<HeadersBinding>();
+                _bindingsByRequiredHeader.put(name, bindings);
+            }
+            bindings.add(binding);
+        }
+
+        for(Map.Entry<String, Object> entry : binding.getMatchedHeaders().entrySet())
+        {
+            ConcurrentMap<Object, CopyOnWriteArraySet<HeadersBinding>> bindingsByValue =
+                    _bindingsByMatchedHeader.get(entry.getKey());
+            if(bindingsByValue == null)
+            {
+                bindingsByValue = new ConcurrentHashMap<Object, CopyOnWriteArraySet<HeadersBinding>>();
+                _bindingsByMatchedHeader.put(entry.getKey(), bindingsByValue);
+            }
+            CopyOnWriteArraySet<HeadersBinding> bindings = bindingsByValue.get(entry.getValue());
+            if(bindings == null)
+            {
+                bindings = new CopyOnWriteArraySet<HeadersBinding>();
+                bindingsByValue.put(entry.getValue(), bindings);
+            }
+            bindings.add(binding);
+        }
+    }
+
+    synchronized boolean remove(HeadersBinding binding)
+    {
+        if(binding.getConstraintCount() == 0)
+        {
+            return _unconditionalBindings.remove(binding);
+        }
+
+        boolean removed = false;
+        for(String name : binding.getRequiredHeaders())
+        {
+            CopyOnWriteArraySet<HeadersBinding> bindings = _bindingsByRequiredHeader.get(name);
+            if(bindings != null)
+            {
+                removed |= bindings.remove(binding);
+                if(bindings.isEmpty())
+                {
+                    _bindingsByRequiredHeader.remove(name);
+                }
+            }
+        }
+
+        for(Map.Entry<String, Object> entry : binding.getMatchedHeaders().entrySet())
+        {
+            ConcurrentMap<Object, CopyOnWriteArraySet<HeadersBinding>> bindingsByValue =
+                    _bindingsByMatchedHeader.get(entry.getKey());
+            if(bindingsByValue != null)
+            {
+                CopyOnWriteArraySet<HeadersBinding> bindings = bindingsByValue.get(entry.getValue());
+                if(bindings != null)
+                {
+                    removed |= bindings.remove(binding);
+                    if(bindings.isEmpty())
+                    {
+                        bindingsByValue.remove(entry.getValue());
+                    }
+                }
+                if(bindingsByValue.isEmpty())
+                {
+                    _bindingsByMatchedHeader.remove(entry.getKey());
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Finds the bindings whose header constraints and selector (if any) match the given message.
+     *
+     * @param message the message to match
+     * @return the matching bindings, each occurring once
+     */
+    List<HeadersBinding> match(Filterable message)
+    {
+        List<HeadersBinding> matched = null;
+
+        for(HeadersBinding binding : _unconditionalBindings)
+        {
+            if(binding.matchesFilter(message))
+            {
+                matched = add(matched, binding);
+            }
+        }
+
+        AMQMessageHeader headers = message.getMessageHeader();
+        if(headers != null && !(_bindingsByRequiredHeader.isEmpty() && _bindingsByMatchedHeader.isEmpty()))
+        {
+            MatchState state = new MatchState(message, matched);
+            for(String name : headers.getHeaderNames())
+            {
+                Set<HeadersBinding> bindings = _bindingsByRequiredHeader.get(name);
+                if(bindings != null)
+                {
+                    for(HeadersBinding binding : bindings)
+                    {
+                        state.constraintSatisfied(binding);
+                    }
+                }
+
+                Map<Object, CopyOnWriteArraySet<HeadersBinding>> bindingsByValue = _bindingsByMatchedHeader.get(name);
+                if(bindingsByValue != null)
+                {
+                    Object value = headers.getHeader(name);
+                    if(value != null && (bindings = bindingsByValue.get(value)) != null)
+                    {
+                        for(HeadersBinding binding : bindings)
+                        {
+                            state.constraintSatisfied(binding);
+                        }
+                    }
+                }
+            }
+            matched = state.getMatched();
+        }
+
+        return matched == null ? Collections.<HeadersBinding>emptyList() : matched;
+    }
+
+    private static List<HeadersBinding> add(List<HeadersBinding> matched, HeadersBinding binding)
+    {
+        if(matched == null)
+        {
+            matched = new ArrayList<HeadersBinding>();
+        }
+        matched.add(binding);
+        return matched;
+    }
+
+    /**
+     * Tracks, for the routing of a single message, the "any" bindings already matched and the number
+     * of satisfied constraints of the partially matched "all" bindings.
+     */
+    private static final class MatchState
+    {
+        private final Filterable _message;
+        private List<HeadersBinding> _matched;
+        private Set<HeadersBinding> _anyBindingsSeen;
+        private Map<HeadersBinding, int[]> _allBindingsSatisfied;
+
+        private MatchState(final Filterable message, final List<HeadersBinding> matched)
+        {
+            _message = message;
+            _matched = matched;
+        }
+
+        void constraintSatisfied(HeadersBinding binding)
+        {
+            if(binding.isMatchAny())
+            {
+                if(_anyBindingsSeen == null)
+                {
+                    _anyBindingsSeen = new HashSet<HeadersBinding>();
+                }
+                if(_anyBindingsSeen.add(binding))
+                {
+                    candidate(binding);
+                }
+            }
+            else if(binding.getConstraintCount() == 1)
+            {
+                candidate(binding);
+            }
+            else
+            {
+                if(_allBindingsSatisfied == null)
+                {
+                    _allBindingsSatisfied = new HashMap<HeadersBinding, int[]>();
+                }
+                int[] satisfied = _allBindingsSatisfied.get(binding);
+                if(satisfied == null)
+                {
+                    satisfied = new int[1];
+                    _allBindingsSatisfied.put(binding, satisfied);
+                }
+                if(++satisfied[0] == binding.getConstraintCount())
+                {
+                    candidate(binding);
+                }
+            }
+        }
+
+        private void candidate(HeadersBinding binding)
+        {
+            if(binding.matchesFilter(_message))
+            {
+                _matched = add(_matched, binding);
+            }
+        }
+
+        List<HeadersBinding> getMatched()
+        {
+            return _matched;
+        }
+    }
+}
@@ -22,17 +22,17 @@ package org.apache.qpid.server.exchange;
 
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.apache.log4j.Logger;
 
 import org.apache.qpid.exchange.ExchangeDefaults;
 import org.apache.qpid.server.binding.BindingImpl;
+import org.apache.qpid.server.filter.CachingFilterable;
 import org.apache.qpid.server.filter.Filterable;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.ServerMessage;
@@ -78,8 +78,10 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
     private final ConcurrentMap<String, CopyOnWriteArraySet<BindingImpl>> _bindingsByKey =
                             new ConcurrentHashMap<String, CopyOnWriteArraySet<BindingImpl>>();
 
-    private final CopyOnWriteArrayList<HeadersBinding> _bindingHeaderMatchers =
-                            new CopyOnWriteArrayList<HeadersBinding>();
+    private final ConcurrentMap<BindingImpl, HeadersBinding> _bindingHeaderMatchers =
+                            new ConcurrentHashMap<BindingImpl, HeadersBinding>();
+
+    private final HeadersBindingIndex _bindingIndex = new HeadersBindingIndex();
 
     @ManagedObjectFactoryConstructor
     public HeadersExchange(final Map<String, Object> attributes, final VirtualHostImpl vhost)
@@ -97,26 +99,31 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
             _logger.debug("Exchange " + getName() + ": routing message with headers " + payload.getMessageHeader());
         }
 
-        LinkedHashSet<BaseQueue> queues = new LinkedHashSet<BaseQueue>();
+        // bindings with identical selectors share the outcome of the selector through the caching filterable
+        Filterable filterable = new CachingFilterable(Filterable.Factory.newInstance(payload, instanceProperties));
+        List<HeadersBinding> matched = _bindingIndex.match(filterable);
 
-        for (HeadersBinding hb : _bindingHeaderMatchers)
+        ArrayList<BaseQueue> queues = new ArrayList<BaseQueue>(matched.size());
+        for (HeadersBinding hb : matched)
         {
-            if (hb.matches(Filterable.Factory.newInstance(payload,instanceProperties)))
-            {
-                BindingImpl b = hb.getBinding();
+            BindingImpl b = hb.getBinding();
 
-                b.incrementMatches();
+            b.incrementMatches();
 
-                if (_logger.isDebugEnabled())
-                {
-                    _logger.debug("Exchange " + getName() + ": delivering message with headers " +
-                                  payload.getMessageHeader() + " to " + b.getAMQQueue().getName());
-                }
-                queues.add(b.getAMQQueue());
+            if (_logger.isDebugEnabled())
+            {
+                _logger.debug("Exchange " + getName() + ": delivering message with headers " +
+                              payload.getMessageHeader() + " to " + b.getAMQQueue().getName());
             }
+            queues.add(b.getAMQQueue());
         }
 
-        return new ArrayList<BaseQueue>(queues);
+        if (queues.size() > 1)
+        {
+            // several bindings of the same queue may have matched
+            return new ArrayList<BaseQueue>(new LinkedHashSet<BaseQueue>(queues));
+        }
+        return queues;
     }
 
     protected void onBind(final BindingImpl binding)
@@ -145,7 +152,9 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
                           " with binding key '" +bindingKey + "' and args: " + binding.getArguments());
         }
 
-        _bindingHeaderMatchers.add(new HeadersBinding(binding));
+        HeadersBinding headersBinding = new HeadersBinding(binding);
+        _bindingHeaderMatchers.put(binding, headersBinding);
+        _bindingIndex.add(headersBinding);
         bindings.add(binding);
 
     }
@@ -154,13 +163,11 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
     protected void onBindingUpdated(final BindingImpl binding, final Map<String, Object> oldArguments)
     {
         HeadersBinding headersBinding = new HeadersBinding(binding);
-        ListIterator<HeadersBinding> iter = _bindingHeaderMatchers.listIterator();
-        while(iter.hasNext())
+        HeadersBinding oldHeadersBinding = _bindingHeaderMatchers.replace(binding, headersBinding);
+        if(oldHeadersBinding != null)
         {
-            if(iter.next().equals(headersBinding))
-            {
-                iter.set(headersBinding);
-            }
+            _bindingIndex.remove(oldHeadersBinding);
+            _bindingIndex.add(headersBinding);
         }
 
     }
@@ -175,7 +182,8 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
             bindings.remove(binding);
         }
 
-        boolean removedBinding = _bindingHeaderMatchers.remove(new HeadersBinding(binding));
+        HeadersBinding headersBinding = _bindingHeaderMatchers.remove(binding);
+        boolean removedBinding = headersBinding != null && _bindingIndex.remove(headersBinding);
         if(_logger.isDebugEnabled())
         {
             _logger.debug("Removing Binding: " + removedBinding);
@@ -23,10 +23,10 @@ package org.apache.qpid.server.exchange;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.log4j.Logger;
 
@@ -55,10 +55,14 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
 
     private final TopicParser _parser = new TopicParser();
 
-    private final Map<String, TopicExchangeResult> _topicExchangeResults =
+    // Bindings are created, updated and removed holding the monitor of the result for their routing key, rather than
+    // that of the exchange, so that changes to bindings with different keys do not wait for one another. Routing
+    // takes no lock: the parser replaces its state machine copy on write and the results use concurrent collections.
+    private final ConcurrentMap<String, TopicExchangeResult> _topicExchangeResults =
             new ConcurrentHashMap<String, TopicExchangeResult>();
 
-    private final Map<BindingImpl, Map<String,Object>> _bindings = new HashMap<BindingImpl, Map<String,Object>>();
+    private final Map<BindingImpl, Map<String,Object>> _bindings =
+            new ConcurrentHashMap<BindingImpl, Map<String,Object>>();
 
     @ManagedObjectFactoryConstructor
     public TopicExchange(final Map<String,Object> attributes, final VirtualHostImpl vhost)
@@ -67,11 +71,19 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
     }
 
     @Override
-    protected synchronized void onBindingUpdated(final BindingImpl binding, final Map<String, Object> oldArguments)
+    protected Object getBindingLock(final String bindingKey)
+    {
+        return getOrCreateResult(TopicNormalizer.normalize(bindingKey));
+    }
+
+    @Override
+    protected void onBindingUpdated(final BindingImpl binding, final Map<String, Object> oldArguments)
     {
         final String bindingKey = binding.getBindingKey();
         AMQQueue queue = binding.getAMQQueue();
-        Map<String,Object> args = binding.getArguments();
+        Map<String,Object> args = binding.getArguments() == null
+                ? Collections.<String, Object>emptyMap()
+                : binding.getArguments();
 
         assert queue != null;
         assert bindingKey != null;
@@ -82,44 +94,22 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
         }
 
         String routingKey = TopicNormalizer.normalize(bindingKey);
+        TopicExchangeResult result = _topicExchangeResults.get(routingKey);
+        if (result == null)
+        {
+            return;
+        }
 
         try
         {
-
-            if (_bindings.containsKey(binding))
+            synchronized (result)
             {
                 Map<String, Object> oldArgs = _bindings.get(binding);
-                _bindings.put(binding, args);
-                TopicExchangeResult result = _topicExchangeResults.get(routingKey);
-
-                if (FilterSupport.argumentsContainFilter(args))
-                {
-                    if (FilterSupport.argumentsContainFilter(oldArgs))
-                    {
-                        result.replaceQueueFilter(queue,
-                                                  FilterSupport.createMessageFilter(oldArgs, queue),
-                                                  FilterSupport.createMessageFilter(args, queue));
-                    }
-                    else
-                    {
-                        result.addFilteredQueue(queue, FilterSupport.createMessageFilter(args, queue));
-                        result.removeUnfilteredQueue(queue);
-                    }
-                }
-                else
+                if (oldArgs != null)
                 {
-                    if (FilterSupport.argumentsContainFilter(oldArgs))
-                    {
-                        result.addUnfilteredQueue(queue);
-                        result.removeFilteredQueue(queue, FilterSupport.createMessageFilter(oldArgs, queue));
-                    }
-                    else
-                    {
-                        // TODO - fix control flow
-                        return;
-                    }
+                    _bindings.put(binding, args);
+                    updateQueueFilter(result, queue, oldArgs, args);
                 }
-
             }
         }
         catch (AMQInvalidArgumentException e)
@@ -130,11 +120,13 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
 
     }
 
-    protected synchronized void registerQueue(final BindingImpl binding) throws AMQInvalidArgumentException
+    protected void registerQueue(final BindingImpl binding) throws AMQInvalidArgumentException
     {
         final String bindingKey = binding.getBindingKey();
         AMQQueue queue = binding.getAMQQueue();
-        Map<String,Object> args = binding.getArguments();
+        Map<String,Object> args = binding.getArguments() == null
+                ? Collections.<String, Object>emptyMap()
+                : binding.getArguments();
 
         assert queue != null;
         assert bindingKey != null;
@@ -145,77 +137,98 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
         }
 
         String routingKey = TopicNormalizer.normalize(bindingKey);
+        TopicExchangeResult result = getOrCreateResult(routingKey);
 
-        if(_bindings.containsKey(binding))
+        synchronized (result)
         {
             Map<String,Object> oldArgs = _bindings.get(binding);
-            TopicExchangeResult result = _topicExchangeResults.get(routingKey);
-
-            if(FilterSupport.argumentsContainFilter(args))
+            if(oldArgs != null)
             {
-                if(FilterSupport.argumentsContainFilter(oldArgs))
-                {
-                    result.replaceQueueFilter(queue,
-                                              FilterSupport.createMessageFilter(oldArgs, queue),
-                                              FilterSupport.createMessageFilter(args, queue));
-                }
-                else
+                if(updateQueueFilter(result, queue, oldArgs, args))
                 {
-                    result.addFilteredQueue(queue, FilterSupport.createMessageFilter(args, queue));
-                    result.removeUnfilteredQueue(queue);
+                    result.addBinding(binding);
                 }
             }
             else
             {
-                if(FilterSupport.argumentsContainFilter(oldArgs))
+                if(FilterSupport.argumentsContainFilter(args))
                 {
-                    result.addUnfilteredQueue(queue);
-                    result.removeFilteredQueue(queue, FilterSupport.createMessageFilter(oldArgs, queue));
+                    result.addFilteredQueue(queue, FilterSupport.createMessageFilter(args, queue));
                 }
                 else
                 {
-                    // TODO - fix control flow
-                    return;
+                    result.addUnfilteredQueue(queue);
                 }
+
+                result.addBinding(binding);
+                _bindings.put(binding, args);
             }
+        }
 
-            result.addBinding(binding);
+    }
 
-        }
-        else
+    /**
+     * Returns the result for the given normalized routing key, creating it and adding it to the parser if there is
+     * none. A result is created holding its monitor until the parser routes to it, so that a binding made to a
+     * result created by another thread is routed to as soon as the binding is complete.
+     */
+    private TopicExchangeResult getOrCreateResult(final String routingKey)
+    {
+        TopicExchangeResult result = _topicExchangeResults.get(routingKey);
+        if(result == null)
         {
-
-            TopicExchangeResult result = _topicExchangeResults.get(routingKey);
-            if(result == null)
+            TopicExchangeResult newResult = new TopicExchangeResult();
+            synchronized (newResult)
             {
-                result = new TopicExchangeResult();
-                if(FilterSupport.argumentsContainFilter(args))
-                {
-                    result.addFilteredQueue(queue, FilterSupport.createMessageFilter(args, queue));
-                }
-                else
+                result = _topicExchangeResults.putIfAbsent(routingKey, newResult);
+                if(result == null)
                 {
-                    result.addUnfilteredQueue(queue);
+                    result = newResult;
+                    _parser.addBinding(routingKey, result);
                 }
-                _parser.addBinding(routingKey, result);
-                _topicExchangeResults.put(routingKey,result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Moves the queue of a binding between the filtered and unfiltered queues of the result as its arguments change
+     * from the old to the new. Must be called holding the monitor of the result.
+     *
+     * @return false if neither the old nor the new arguments contain a filter, and so nothing was changed
+     */
+    private boolean updateQueueFilter(final TopicExchangeResult result,
+                                      final AMQQueue queue,
+                                      final Map<String, Object> oldArgs,
+                                      final Map<String, Object> args) throws AMQInvalidArgumentException
+    {
+        if(FilterSupport.argumentsContainFilter(args))
+        {
+            if(FilterSupport.argumentsContainFilter(oldArgs))
+            {
+                result.replaceQueueFilter(queue,
+                                          FilterSupport.createMessageFilter(oldArgs, queue),
+                                          FilterSupport.createMessageFilter(args, queue));
             }
             else
             {
-                if(FilterSupport.argumentsContainFilter(args))
-                {
-                    result.addFilteredQueue(queue, FilterSupport.createMessageFilter(args, queue));
-                }
-                else
-                {
-                    result.addUnfilteredQueue(queue);
-                }
+                result.addFilteredQueue(queue, FilterSupport.createMessageFilter(args, queue));
+                result.removeUnfilteredQueue(queue);
             }
-
-            result.addBinding(binding);
-            _bindings.put(binding, args);
         }
-
+        else
+        {
+            if(FilterSupport.argumentsContainFilter(oldArgs))
+            {
+                result.addUnfilteredQueue(queue);
+                result.removeFilteredQueue(queue, FilterSupport.createMessageFilter(oldArgs, queue));
+            }
+            else
+            {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -252,20 +265,28 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
 
     }
 
-    private synchronized boolean deregisterQueue(final BindingImpl binding)
+    private boolean deregisterQueue(final BindingImpl binding)
     {
-        if(_bindings.containsKey(binding))
+        String bindingKey = TopicNormalizer.normalize(binding.getBindingKey());
+        TopicExchangeResult result = _topicExchangeResults.get(bindingKey);
+        if(result == null)
+        {
+            return false;
+        }
+
+        synchronized (result)
         {
             Map<String,Object> bindingArgs = _bindings.remove(binding);
+            if(bindingArgs == null)
+            {
+                return false;
+            }
 
             if (_logger.isDebugEnabled())
             {
                 _logger.debug("deregisterQueue " + bindingArgs);
             }
 
-            String bindingKey = TopicNormalizer.normalize(binding.getBindingKey());
-            TopicExchangeResult result = _topicExchangeResults.get(bindingKey);
-
             result.removeBinding(binding);
 
             if(FilterSupport.argumentsContainFilter(bindingArgs))
@@ -286,10 +307,6 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
             }
             return true;
         }
-        else
-        {
-            return false;
-        }
     }
 
     private Collection<AMQQueue> getMatchedQueues(Filterable message, String routingKey)
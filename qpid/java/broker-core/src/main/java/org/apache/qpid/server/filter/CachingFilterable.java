@@ -0,0 +1,160 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.filter.FilterableMessage;
+import org.apache.qpid.server.message.AMQMessageHeader;
+
+/**
+ * A {@link Filterable} which remembers the header values looked up by selectors and the outcome of each
+ * distinct selector evaluated against it.
+ * <p>
+ * A single instance is meant to be shared by all the consumers (or bindings) considering the same message, so
+ * that each header is resolved once per message rather than once per consumer, and consumers with identical
+ * selector strings evaluate the selector only once. Persistence and redelivery are always read from the
+ * underlying filterable; the owner must discard the instance if a change to these could alter selector outcomes.
+ */
+public final class CachingFilterable implements Filterable, FilterableMessage
+{
+    private final Filterable _filterable;
+    private Map<String, Object> _headerValues;
+    private Map<String, Boolean> _selectorResults;
+
+    public CachingFilterable(final Filterable filterable)
+    {
+        _filterable = filterable;
+    }
+
+    @Override
+    public AMQMessageHeader getMessageHeader()
+    {
+        return _filterable.getMessageHeader();
+    }
+
+    @Override
+    public boolean isPersistent()
+    {
+        return _filterable.isPersistent();
+    }
+
+    @Override
+    public boolean isRedelivered()
+    {
+        return _filterable.isRedelivered();
+    }
+
+    @Override
+    public Object getConnectionReference()
+    {
+        return _filterable.getConnectionReference();
+    }
+
+    @Override
+    public Object getHeader(final String name)
+    {
+        synchronized (this)
+        {
+            if (_headerValues != null)
+            {
+                Object value = _headerValues.get(name);
+                if (value != null || _headerValues.containsKey(name))
+                {
+                    return value;
+                }
+            }
+        }
+
+        Object value = getMessageHeader().getHeader(name);
+
+        synchronized (this)
+        {
+            if (_headerValues == null)
+            {
+                _headerValues = new HashMap<String, Object>();
+            }
+            _headerValues.put(name, value);
+        }
+        return value;
+    }
+
+    @Override
+    public String getReplyTo()
+    {
+        return getMessageHeader().getReplyTo();
+    }
+
+    @Override
+    public String getType()
+    {
+        return getMessageHeader().getType();
+    }
+
+    @Override
+    public byte getPriority()
+    {
+        return getMessageHeader().getPriority();
+    }
+
+    @Override
+    public String getMessageId()
+    {
+        return getMessageHeader().getMessageId();
+    }
+
+    @Override
+    public long getTimestamp()
+    {
+        return getMessageHeader().getTimestamp();
+    }
+
+    @Override
+    public String getCorrelationId()
+    {
+        return getMessageHeader().getCorrelationId();
+    }
+
+    @Override
+    public long getExpiration()
+    {
+        return getMessageHeader().getExpiration();
+    }
+
+    /**
+     * @param selector the selector string
+     * @return the recorded outcome of the selector, or null if it has not been evaluated against this message
+     */
+    synchronized Boolean getSelectorResult(final String selector)
+    {
+        return _selectorResults == null ? null : _selectorResults.get(selector);
+    }
+
+    synchronized void setSelectorResult(final String selector, final boolean result)
+    {
+        if (_selectorResults == null)
+        {
+            _selectorResults = new HashMap<String, Boolean>();
+        }
+        _selectorResults.put(selector, result);
+    }
+}
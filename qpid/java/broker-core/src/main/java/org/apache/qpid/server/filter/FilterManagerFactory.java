@@ -23,9 +23,6 @@ package org.apache.qpid.server.filter;
 import org.apache.log4j.Logger;
 
 import org.apache.qpid.common.AMQPFilterTypes;
-import org.apache.qpid.filter.SelectorParsingException;
-import org.apache.qpid.filter.selector.ParseException;
-import org.apache.qpid.filter.selector.TokenMgrError;
 
 import java.util.Map;
 
@@ -55,22 +52,7 @@ public class FilterManagerFactory
                 if (selector instanceof String && !selector.equals(""))
                 {
                     manager = new SimpleFilterManager();
-                    try
-                    {
-                        manager.add(new JMSSelectorFilter((String)selector));
-                    }
-                    catch (ParseException e)
-                    {
-                        throw new AMQInvalidArgumentException("Cannot parse JMS selector \"" + selector + "\"", e);
-                    }
-                    catch (SelectorParsingException e)
-                    {
-                        throw new AMQInvalidArgumentException("Cannot parse JMS selector \"" + selector + "\"", e);
-                    }
-                    catch (TokenMgrError e)
-                    {
-                        throw new AMQInvalidArgumentException("Cannot parse JMS selector \"" + selector + "\"", e);
-                    }
+                    manager.add(FilterSupport.getMessageFilter((String) selector));
                 }
 
             }
@@ -46,7 +46,11 @@ public class FilterSupport
     }
 
 
-    private static MessageFilter getMessageFilter(String selectorString) throws AMQInvalidArgumentException
+    /**
+     * Returns the filter for the given selector, sharing a single parsed (and compiled) filter between all the
+     * users of an identical selector string for as long as any of them holds on to it.
+     */
+    static JMSSelectorFilter getMessageFilter(String selectorString) throws AMQInvalidArgumentException
     {
         WeakReference<JMSSelectorFilter> selectorRef = _selectorCache.get(selectorString);
         JMSSelectorFilter selector = null;
@@ -26,30 +26,60 @@ import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.apache.log4j.Logger;
 import org.apache.qpid.filter.BooleanExpression;
+import org.apache.qpid.filter.ExpressionCompiler;
 import org.apache.qpid.filter.FilterableMessage;
 import org.apache.qpid.filter.SelectorParsingException;
 import org.apache.qpid.filter.selector.ParseException;
 import org.apache.qpid.filter.selector.SelectorParser;
 import org.apache.qpid.filter.selector.TokenMgrError;
+import org.apache.qpid.server.configuration.BrokerProperties;
 
 
 public class JMSSelectorFilter implements MessageFilter
 {
     private final static Logger _logger = org.apache.log4j.Logger.getLogger(JMSSelectorFilter.class);
 
-    private String _selector;
-    private BooleanExpression _matcher;
+    private final String _selector;
+    private final BooleanExpression _matcher;
 
     public JMSSelectorFilter(String selector) throws ParseException, TokenMgrError, SelectorParsingException
+    {
+        this(selector, BrokerProperties.COMPILE_SELECTORS);
+    }
+
+    /**
+     * @param selector the selector string
+     * @param compile whether the parsed selector is compiled into a form that is cheaper to evaluate
+     */
+    public JMSSelectorFilter(String selector, boolean compile)
+            throws ParseException, TokenMgrError, SelectorParsingException
     {
         _selector = selector;
-        _matcher = new SelectorParser().parse(selector);
+        BooleanExpression matcher = new SelectorParser().parse(selector);
+        _matcher = compile ? ExpressionCompiler.compile(matcher) : matcher;
     }
 
     public boolean matches(Filterable message)
     {
-
-        boolean match = _matcher.matches(wrap(message));
+        boolean match;
+        if(message instanceof CachingFilterable)
+        {
+            CachingFilterable cachingFilterable = (CachingFilterable) message;
+            Boolean result = cachingFilterable.getSelectorResult(_selector);
+            if(result == null)
+            {
+                match = _matcher.matches(cachingFilterable);
+                cachingFilterable.setSelectorResult(_selector, match);
+            }
+            else
+            {
+                match = result;
+            }
+        }
+        else
+        {
+            match = _matcher.matches(wrap(message));
+        }
         if(_logger.isDebugEnabled())
         {
             _logger.debug(message + " match(" + match + ") selector(" + System.identityHashCode(_selector) + "):" + _selector);
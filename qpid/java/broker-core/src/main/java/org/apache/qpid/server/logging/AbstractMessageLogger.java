@@ -73,7 +73,7 @@ public abstract class AbstractMessageLogger implements MessageLogger
     {
         if (isMessageEnabled(message.getLogHierarchy()))
         {
-            rawMessage(_msgPrefix + getActor() + message, message.getLogHierarchy());
+            writeMessage(getMessagePrefix(null), message);
         }
     }
 
@@ -81,10 +81,26 @@ public abstract class AbstractMessageLogger implements MessageLogger
     {
         if (isMessageEnabled(message.getLogHierarchy()))
         {
-            rawMessage(_msgPrefix + getActor() + subject.toLogString() + message,
-                       message.getLogHierarchy());
+            writeMessage(getMessagePrefix(subject), message);
         }
     }
+
+    /**
+     * Returns the text which precedes a message logged by the current actor about the given subject. It describes
+     * the actor as it is when the message is logged, so must be taken on the thread logging the message.
+     *
+     * @param subject the subject of the message, or null if it has none
+     */
+    String getMessagePrefix(LogSubject subject)
+    {
+        return subject == null ? _msgPrefix + getActor() : _msgPrefix + getActor() + subject.toLogString();
+    }
+
+    void writeMessage(String prefix, LogMessage message)
+    {
+        rawMessage(prefix + message, message.getLogHierarchy());
+    }
+
     abstract void rawMessage(String message, String logHierarchy);
 
     abstract void rawMessage(String message, Throwable throwable, String logHierarchy);
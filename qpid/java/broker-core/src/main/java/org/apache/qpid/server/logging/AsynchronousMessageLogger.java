@@ -0,0 +1,302 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Writes operational log messages from a dedicated thread, so that the threads logging them do not wait on the
+ * formatting of the messages or on the appenders writing them.
+ * <p>
+ * A logged message is placed in a bounded buffer along with the description of its actor and subject, which are
+ * taken when it is logged. The writer thread takes the messages from the buffer in batches, formats them and hands
+ * them to the underlying logger. Should the buffer be full, the message is either dropped and counted, or the thread
+ * logging it waits for space, according to the {@link OverflowPolicy}.
+ */
+public class AsynchronousMessageLogger implements MessageLogger
+{
+    private static final Logger LOGGER = Logger.getLogger(AsynchronousMessageLogger.class);
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    public enum OverflowPolicy
+    {
+        /** Discard the message, counting it as dropped */
+        DROP,
+        /** Wait for space in the buffer */
+        BLOCK
+    }
+
+    private static final PendingMessage STOP = new PendingMessage(null, null);
+
+    private final AbstractMessageLogger _messageLogger;
+    private final BlockingQueue<PendingMessage> _pendingMessages;
+    private final OverflowPolicy _overflowPolicy;
+    private final int _batchSize;
+    private final Thread _writerThread;
+    private final AtomicLong _droppedCount = new AtomicLong();
+
+    /**
+     * Held shared while a message is logged and exclusively while stopping, so that no message is placed in the
+     * buffer once it has been drained for the last time
+     */
+    private final ReadWriteLock _stopLock = new ReentrantReadWriteLock();
+    private boolean _stopped;
+
+    public AsynchronousMessageLogger(final AbstractMessageLogger messageLogger,
+                                     final int bufferSize,
+                                     final OverflowPolicy overflowPolicy)
+    {
+        this(messageLogger, bufferSize, DEFAULT_BATCH_SIZE, overflowPolicy);
+    }
+
+    public AsynchronousMessageLogger(final AbstractMessageLogger messageLogger,
+                                     final int bufferSize,
+                                     final int batchSize,
+                                     final OverflowPolicy overflowPolicy)
+    {
+        _messageLogger = messageLogger;
+        _pendingMessages = new ArrayBlockingQueue<>(bufferSize);
+        _overflowPolicy = overflowPolicy;
+        _batchSize = batchSize;
+        _writerThread = new Thread(new Writer(), "Operational-Log-Writer");
+        _writerThread.setDaemon(true);
+    }
+
+    public void start()
+    {
+        _writerThread.start();
+    }
+
+    /**
+     * Writes the messages already logged and stops the writer thread. Messages logged from then on are written by the
+     * thread logging them.
+     */
+    public void stop()
+    {
+        _stopLock.writeLock().lock();
+        try
+        {
+            if (_stopped)
+            {
+                return;
+            }
+            _stopped = true;
+
+            boolean interrupted = false;
+            if (_writerThread.isAlive())
+            {
+                while (true)
+                {
+                    try
+                    {
+                        _pendingMessages.put(STOP);
+                        break;
+                    }
+                    catch (InterruptedException e)
+                    {
+                        interrupted = true;
+                    }
+                }
+                // the remainder is written only once the writer has finished, so that messages are written in order
+                while (_writerThread.isAlive())
+                {
+                    try
+                    {
+                        _writerThread.join();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        interrupted = true;
+                    }
+                }
+            }
+
+            List<PendingMessage> remaining = new ArrayList<>();
+            _pendingMessages.drainTo(remaining);
+            write(remaining);
+
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        finally
+        {
+            _stopLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return _messageLogger.isEnabled();
+    }
+
+    @Override
+    public boolean isMessageEnabled(final String logHierarchy)
+    {
+        return _messageLogger.isMessageEnabled(logHierarchy);
+    }
+
+    @Override
+    public void message(final LogMessage message)
+    {
+        message(null, message);
+    }
+
+    @Override
+    public void message(final LogSubject subject, final LogMessage message)
+    {
+        if (isMessageEnabled(message.getLogHierarchy()))
+        {
+            PendingMessage pendingMessage = new PendingMessage(_messageLogger.getMessagePrefix(subject), message);
+            _stopLock.readLock().lock();
+            try
+            {
+                if (_stopped)
+                {
+                    _messageLogger.writeMessage(pendingMessage.getPrefix(), pendingMessage.getMessage());
+                }
+                else if (_overflowPolicy == OverflowPolicy.DROP)
+                {
+                    if (!_pendingMessages.offer(pendingMessage))
+                    {
+                        _droppedCount.incrementAndGet();
+                    }
+                }
+                else
+                {
+                    try
+                    {
+                        _pendingMessages.put(pendingMessage);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        _droppedCount.incrementAndGet();
+                    }
+                }
+            }
+            finally
+            {
+                _stopLock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the number of messages logged but not yet written
+     */
+    public int getQueueDepth()
+    {
+        return _pendingMessages.size();
+    }
+
+    /**
+     * @return the number of messages discarded because the buffer was full
+     */
+    public long getDroppedCount()
+    {
+        return _droppedCount.get();
+    }
+
+    /**
+     * @return true if the batch held the instruction to stop
+     */
+    private boolean write(List<PendingMessage> batch)
+    {
+        boolean stop = false;
+        for (PendingMessage pendingMessage : batch)
+        {
+            if (pendingMessage == STOP)
+            {
+                stop = true;
+                continue;
+            }
+            try
+            {
+                _messageLogger.writeMessage(pendingMessage.getPrefix(), pendingMessage.getMessage());
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.error("Failed to write operational log message", e);
+            }
+        }
+        return stop;
+    }
+
+    private final class Writer implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            List<PendingMessage> batch = new ArrayList<>(_batchSize);
+            boolean stop = false;
+            while (!stop)
+            {
+                try
+                {
+                    batch.add(_pendingMessages.take());
+                }
+                catch (InterruptedException e)
+                {
+                    // only stopped by stop
+                    continue;
+                }
+                _pendingMessages.drainTo(batch, _batchSize - 1);
+                stop = write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static final class PendingMessage
+    {
+        private final String _prefix;
+        private final LogMessage _message;
+
+        private PendingMessage(final String prefix, final LogMessage message)
+        {
+            _prefix = prefix;
+            _message = message;
+        }
+
+        String getPrefix()
+        {
+            return _prefix;
+        }
+
+        LogMessage getMessage()
+        {
+            return _message;
+        }
+    }
+}
@@ -90,17 +90,25 @@ public class BindingMessages
 
         rawMessage = msg.toString();
 
+        final String pattern = rawMessage;
         final Object[] messageArguments = {param1};
-        // Create a new MessageFormat to ensure thread safety.
-        // Sharing a MessageFormat and using applyPattern is not thread safe
-        MessageFormat formatter = new MessageFormat(rawMessage, _currentLocale);
-
-        final String message = formatter.format(messageArguments);
 
         return new LogMessage()
         {
+            private volatile String _message;
+
             public String toString()
             {
+                String message = _message;
+                if (message == null)
+                {
+                    // Create a new MessageFormat to ensure thread safety.
+                    // Sharing a MessageFormat and using applyPattern is not thread safe
+                    MessageFormat formatter = new MessageFormat(pattern, _currentLocale);
+
+                    message = formatter.format(messageArguments);
+                    _message = message;
+                }
                 return message;
             }
 
@@ -44,10 +44,17 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
             AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class, Collection.class,"_resources");
 
 
+    private static final AtomicReferenceFieldUpdater<AbstractServerMessageImpl, ConvertedForm> _convertedFormsUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class, ConvertedForm.class, "_convertedForms");
+
+    /** Replaces the converted forms once the message has been deleted, so that none are added after */
+    private static final ConvertedForm DELETED = new ConvertedForm(null, null, null, 0L, null);
+
     private volatile int _referenceCount = 0;
     private final StoredMessage<T> _handle;
     private final Object _connectionReference;
     private volatile Collection<UUID> _resources;
+    private volatile ConvertedForm _convertedForms;
 
 
     public AbstractServerMessageImpl(StoredMessage<T> handle, Object connectionReference)
@@ -94,6 +101,8 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
             // by copying from other queues at the same time as it is being removed.
             _refCountUpdater.set(this,Integer.MIN_VALUE/2);
 
+            releaseConvertedForms();
+
             // must check if the handle is null since there may be cases where we decide to throw away a message
             // and the handle has not yet been constructed
             if (_handle != null)
@@ -111,6 +120,54 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
         }
     }
 
+    /**
+     * @return the form of this message of the given class held by a {@link MessageConversionCache}, or null if
+     *         there is none
+     */
+    <N extends ServerMessage> N getConvertedForm(final Class<N> type)
+    {
+        for (ConvertedForm form = _convertedForms; form != null && form != DELETED; form = form._next)
+        {
+            if (form._type == type)
+            {
+                return (N) form._message;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return false if the converted form was not added, because the message has been deleted or another form
+     *         of the given class has been added already
+     */
+    boolean addConvertedForm(final Class<? extends ServerMessage> type,
+                             final ServerMessage converted,
+                             final MessageConversionCache cache,
+                             final long size)
+    {
+        ConvertedForm current;
+        do
+        {
+            current = _convertedForms;
+            if (current == DELETED || getConvertedForm(type) != null)
+            {
+                return false;
+            }
+        }
+        while (!_convertedFormsUpdater.compareAndSet(this, current,
+                                                     new ConvertedForm(type, converted, cache, size, current)));
+        return true;
+    }
+
+    private void releaseConvertedForms()
+    {
+        ConvertedForm form = _convertedFormsUpdater.getAndSet(this, DELETED);
+        for (; form != null && form != DELETED; form = form._next)
+        {
+            form._cache.release(form._size);
+        }
+    }
+
     public String debugIdentity()
     {
         return "(HC:" + System.identityHashCode(this) + " ID:" + getMessageNumber() + " Ref:" + getReferenceCount() + ")";
@@ -179,6 +236,28 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
         return "Message[" + debugIdentity() + "]";
     }
 
+    private static final class ConvertedForm
+    {
+        private final Class<? extends ServerMessage> _type;
+        private final ServerMessage _message;
+        private final MessageConversionCache _cache;
+        private final long _size;
+        private final ConvertedForm _next;
+
+        private ConvertedForm(final Class<? extends ServerMessage> type,
+                              final ServerMessage message,
+                              final MessageConversionCache cache,
+                              final long size,
+                              final ConvertedForm next)
+        {
+            _type = type;
+            _message = message;
+            _cache = cache;
+            _size = size;
+            _next = next;
+        }
+    }
+
     private static class Reference<X extends AbstractServerMessageImpl<X,T>, T extends StorableMessageMetaData>
             implements MessageReference<X>
     {
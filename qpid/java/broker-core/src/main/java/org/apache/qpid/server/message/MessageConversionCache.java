@@ -0,0 +1,122 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.message;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.qpid.server.plugin.MessageConverter;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+
+/**
+ * Keeps the forms into which messages have been converted for delivery over a protocol other than the one they
+ * were published with, so that a message delivered to many consumers of another protocol is converted only once.
+ * <p>
+ * Each converted form is attached to the message it was converted from, and is released when the last reference
+ * to that message is released. The total size of the converted forms held is bounded: once it is reached, messages
+ * are converted afresh for each delivery until converted forms are released.
+ */
+public class MessageConversionCache
+{
+    private final long _maximumSize;
+    private final AtomicLong _size = new AtomicLong();
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+
+    public MessageConversionCache(final long maximumSize)
+    {
+        _maximumSize = maximumSize;
+    }
+
+    public <M extends ServerMessage, N extends ServerMessage> N convert(final MessageConverter<M, N> converter,
+                                                                      final M message,
+                                                                      final VirtualHostImpl vhost)
+    {
+        final Class<N> outputClass = converter.getOutputClass();
+        final AbstractServerMessageImpl<?, ?> cachingMessage =
+                message instanceof AbstractServerMessageImpl ? (AbstractServerMessageImpl<?, ?>) message : null;
+
+        if (cachingMessage != null)
+        {
+            final N cached = cachingMessage.getConvertedForm(outputClass);
+            if (cached != null)
+            {
+                _hits.incrementAndGet();
+                return cached;
+            }
+        }
+        _misses.incrementAndGet();
+
+        final N converted = converter.convert(message, vhost);
+
+        if (cachingMessage != null)
+        {
+            final long size = converted.getSize();
+            if (reserve(size) && !cachingMessage.addConvertedForm(outputClass, converted, this, size))
+            {
+                release(size);
+            }
+        }
+        return converted;
+    }
+
+    public long getHits()
+    {
+        return _hits.get();
+    }
+
+    public long getMisses()
+    {
+        return _misses.get();
+    }
+
+    /**
+     * @return the total size, in bytes, of the content of the converted forms currently held
+     */
+    public long getSize()
+    {
+        return _size.get();
+    }
+
+    public long getMaximumSize()
+    {
+        return _maximumSize;
+    }
+
+    private boolean reserve(final long size)
+    {
+        long current;
+        do
+        {
+            current = _size.get();
+            if (current + size > _maximumSize)
+            {
+                return false;
+            }
+        }
+        while (!_size.compareAndSet(current, current + size));
+        return true;
+    }
+
+    void release(final long size)
+    {
+        _size.addAndGet(-size);
+    }
+}
@@ -42,7 +42,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.security.auth.Subject;
@@ -93,6 +95,35 @@ public abstract class AbstractConfiguredObject<X extends ConfiguredObject<X>> im
         SECURE_VALUES = Collections.unmodifiableMap(secureValues);
     }
 
+    /** The types of context value which are immutable, and so may be cached and shared between callers */
+    private static final Set<Class> CACHEABLE_CONTEXT_VALUE_TYPES;
+
+    static
+    {
+        Set<Class> cacheableTypes = new HashSet<Class>(SECURE_VALUES.keySet());
+        cacheableTypes.add(Boolean.class);
+
+        CACHEABLE_CONTEXT_VALUE_TYPES = Collections.unmodifiableSet(cacheableTypes);
+    }
+
+    /** The system properties read while resolving a context value, by the thread resolving it */
+    private static final ThreadLocal<Map<String, String>> SYSTEM_PROPERTIES_READ = new ThreadLocal<>();
+
+    private static final Strings.Resolver SYSTEM_PROPERTIES_RESOLVER = new Strings.Resolver()
+    {
+        @Override
+        public String resolve(final String variable, final Strings.Resolver resolver)
+        {
+            String value = System.getProperty(variable);
+            Map<String, String> systemPropertiesRead = SYSTEM_PROPERTIES_READ.get();
+            if (systemPropertiesRead != null)
+            {
+                systemPropertiesRead.put(variable, value);
+            }
+            return value;
+        }
+    };
+
     private ConfigurationSecretEncrypter _encrypter;
 
     private enum DynamicState { UNINIT, OPENED, CLOSED };
@@ -159,6 +190,15 @@ public abstract class AbstractConfiguredObject<X extends ConfiguredObject<X>> im
 
     private final OwnAttributeResolver _attributeResolver = new OwnAttributeResolver(this);
 
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, ResolvedContextValue>> _resolvedContextValues =
+            new ConcurrentHashMap<>();
+    /**
+     * Incremented whenever an attribute of this object or of one of its ancestors changes. As context is inherited,
+     * and context values may refer to attributes, a change to an object may change the context values of its
+     * descendants.
+     */
+    private final AtomicLong _contextGeneration = new AtomicLong();
+
     @ManagedAttributeField( afterSet = "attainStateIfOpenedOrReopenFailed" )
     private State _desiredState;
     private boolean _openComplete;
@@ -390,6 +430,7 @@ public abstract class AbstractConfiguredObject<X extends ConfiguredObject<X>> im
 
             Object desiredValue = attribute.convert(value, this);
             field.getField().set(this, desiredValue);
+            invalidateResolvedContextValues();
 
             if(field.getPostSettingAction() != null)
             {
@@ -1119,6 +1160,8 @@ public abstract class AbstractConfiguredObject<X extends ConfiguredObject<X>> im
         _attributes.put(LAST_UPDATED_TIME, currentTime);
         _lastUpdatedTime = currentTime;
 
+        invalidateResolvedContextValues();
+
         synchronized (_changeListeners)
         {
             List<ConfigurationChangeListener> copy = new ArrayList<ConfigurationChangeListener>(_changeListeners);
@@ -1654,11 +1697,88 @@ public abstract class AbstractConfiguredObject<X extends ConfiguredObject<X>> im
         return null;
     }
 
+    /**
+     * Context values of immutable types are cached once resolved. A cached value is discarded once an attribute of
+     * the object or of one of its ancestors has changed, or once any system property read in resolving it has changed.
+     */
     @Override
     public final <T> T getContextValue(Class<T> clazz, String propertyName)
     {
+        ConcurrentMap<String, ResolvedContextValue> resolvedValues = _resolvedContextValues.get(clazz);
+        if (resolvedValues != null)
+        {
+            ResolvedContextValue resolvedValue = resolvedValues.get(propertyName);
+            if (resolvedValue != null && resolvedValue.isCurrent(_contextGeneration.get()))
+            {
+                Map<String, String> enclosingSystemPropertiesRead = SYSTEM_PROPERTIES_READ.get();
+                if (enclosingSystemPropertiesRead != null)
+                {
+                    resolvedValue.addSystemPropertiesRead(enclosingSystemPropertiesRead);
+                }
+                return (T) resolvedValue.getValue();
+            }
+        }
+
         AttributeValueConverter<T> converter = AttributeValueConverter.getConverter(clazz, clazz);
-        return converter.convert("${" + propertyName + "}", this);
+        if (!CACHEABLE_CONTEXT_VALUE_TYPES.contains(clazz) && !clazz.isEnum())
+        {
+            return converter.convert("${" + propertyName + "}", this);
+        }
+
+        // read before resolving, so that a change made while the value is being resolved discards it
+        long generation = _contextGeneration.get();
+        Map<String, String> systemPropertiesRead = new HashMap<>();
+        Map<String, String> enclosingSystemPropertiesRead = SYSTEM_PROPERTIES_READ.get();
+        SYSTEM_PROPERTIES_READ.set(systemPropertiesRead);
+        T value;
+        try
+        {
+            value = converter.convert("${" + propertyName + "}", this);
+        }
+        finally
+        {
+            if (enclosingSystemPropertiesRead == null)
+            {
+                SYSTEM_PROPERTIES_READ.remove();
+            }
+            else
+            {
+                enclosingSystemPropertiesRead.putAll(systemPropertiesRead);
+                SYSTEM_PROPERTIES_READ.set(enclosingSystemPropertiesRead);
+            }
+        }
+
+        if (resolvedValues == null)
+        {
+            resolvedValues = new ConcurrentHashMap<>();
+            ConcurrentMap<String, ResolvedContextValue> existing =
+                    _resolvedContextValues.putIfAbsent(clazz, resolvedValues);
+            if (existing != null)
+            {
+                resolvedValues = existing;
+            }
+        }
+        resolvedValues.put(propertyName, new ResolvedContextValue(value, generation, systemPropertiesRead));
+        return value;
+    }
+
+    /**
+     * Discards the context values resolved by this object and by its descendants, which inherit its context.
+     */
+    private void invalidateResolvedContextValues()
+    {
+        _contextGeneration.incrementAndGet();
+        _resolvedContextValues.clear();
+        for (Collection<ConfiguredObject<?>> children : _children.values())
+        {
+            for (ConfiguredObject<?> child : children)
+            {
+                if (child instanceof AbstractConfiguredObject)
+                {
+                    ((AbstractConfiguredObject<?>) child).invalidateResolvedContextValues();
+                }
+            }
+        }
     }
 
     @Override
@@ -1726,7 +1846,7 @@ public abstract class AbstractConfiguredObject<X extends ConfiguredObject<X>> im
                                   JSON_SUBSTITUTION_RESOLVER,
                                   getOwnAttributeResolver(object),
                                   new Strings.MapResolver(inheritedContext),
-                                  Strings.JAVA_SYS_PROPS_RESOLVER,
+                                  SYSTEM_PROPERTIES_RESOLVER,
                                   Strings.ENV_VARS_RESOLVER,
                                   object.getModel().getTypeRegistry().getDefaultContextResolver());
         }
@@ -1759,6 +1879,61 @@ public abstract class AbstractConfiguredObject<X extends ConfiguredObject<X>> im
     }
 
 
+    private static final class ResolvedContextValue
+    {
+        private final Object _value;
+        private final long _generation;
+        private final String[] _systemPropertyNames;
+        private final String[] _systemPropertyValues;
+
+        private ResolvedContextValue(final Object value,
+                                     final long generation,
+                                     final Map<String, String> systemPropertiesRead)
+        {
+            _value = value;
+            _generation = generation;
+            _systemPropertyNames = new String[systemPropertiesRead.size()];
+            _systemPropertyValues = new String[systemPropertiesRead.size()];
+            int i = 0;
+            for (Map.Entry<String, String> entry : systemPropertiesRead.entrySet())
+            {
+                _systemPropertyNames[i] = entry.getKey();
+                _systemPropertyValues[i] = entry.getValue();
+                i++;
+            }
+        }
+
+        private Object getValue()
+        {
+            return _value;
+        }
+
+        private boolean isCurrent(final long generation)
+        {
+            if (_generation != generation)
+            {
+                return false;
+            }
+            for (int i = 0; i < _systemPropertyNames.length; i++)
+            {
+                String value = System.getProperty(_systemPropertyNames[i]);
+                if (value == null ? _systemPropertyValues[i] != null : !value.equals(_systemPropertyValues[i]))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void addSystemPropertiesRead(final Map<String, String> systemPropertiesRead)
+        {
+            for (int i = 0; i < _systemPropertyNames.length; i++)
+            {
+                systemPropertiesRead.put(_systemPropertyNames[i], _systemPropertyValues[i]);
+            }
+        }
+    }
+
     private static final Strings.Resolver JSON_SUBSTITUTION_RESOLVER =
             Strings.createSubstitutionResolver("json:",
                                                new LinkedHashMap<String, String>()
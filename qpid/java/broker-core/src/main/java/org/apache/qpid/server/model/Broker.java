@@ -30,6 +30,7 @@ import org.apache.qpid.server.logging.LogRecorder;
 import org.apache.qpid.server.security.SecurityManager;
 import org.apache.qpid.server.security.SubjectCreator;
 import org.apache.qpid.server.stats.StatisticsGatherer;
+import org.apache.qpid.server.store.ResidentMessageContent;
 
 @ManagedObject( defaultType = "broker" )
 public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventLoggerProvider, StatisticsGatherer
@@ -54,6 +55,8 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
     String CONNECTION_CLOSE_WHEN_NO_ROUTE = "connection.closeWhenNoRoute";
 
     String BROKER_FLOW_TO_DISK_THRESHOLD = "broker.flowToDiskThreshold";
+    String BROKER_FLOW_TO_DISK_POLICY = "broker.flowToDiskPolicy";
+    String BROKER_FLOW_TO_DISK_CHECK_PERIOD = "broker.flowToDiskCheckPeriod";
     String BROKER_FAIL_STARTUP_WITH_ERRORED_CHILD = "broker.failStartupWithErroredChild";
 
     String STORE_FILESYSTEM_MAX_USAGE_PERCENT = "store.filesystem.maxUsagePercent";
@@ -78,6 +81,14 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
     @ManagedContextDefault(name = BROKER_FLOW_TO_DISK_THRESHOLD)
     long DEFAULT_FLOW_TO_DISK_THRESHOLD = (long)(0.4 * (double)Runtime.getRuntime().maxMemory());
 
+    /** One of the {@link org.apache.qpid.server.store.FlowToDiskManager.Policy} names */
+    @ManagedContextDefault(name = BROKER_FLOW_TO_DISK_POLICY)
+    String DEFAULT_FLOW_TO_DISK_POLICY = "NEWEST_FIRST";
+
+    /** Period, in milliseconds, of the broker wide memory check; zero or less disables it */
+    @ManagedContextDefault(name = BROKER_FLOW_TO_DISK_CHECK_PERIOD)
+    long DEFAULT_FLOW_TO_DISK_CHECK_PERIOD = 5000l;
+
     @ManagedContextDefault(name = CHANNEL_FLOW_CONTROL_ENFORCEMENT_TIMEOUT)
     long DEFAULT_CHANNEL_FLOW_CONTROL_ENFORCEMENT_TIMEOUT = 5000l;
 
@@ -135,6 +146,10 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
     @ManagedContextDefault(name = MESSAGE_COMPRESSION_THRESHOLD_SIZE)
     int DEFAULT_MESSAGE_COMPRESSION_THRESHOLD_SIZE = 102400;
 
+    String BROKER_STATISTICS_HISTOGRAMS_ENABLED = "broker.statisticsHistogramsEnabled";
+    @ManagedContextDefault(name = BROKER_STATISTICS_HISTOGRAMS_ENABLED)
+    boolean DEFAULT_STATISTICS_HISTOGRAMS_ENABLED = false;
+
     @ManagedAttribute
     String getConfidentialConfigurationEncryptionProvider();
 
@@ -153,6 +168,52 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
     @ManagedStatistic
     long getMessagesOut();
 
+    /** Median size, in bytes, of the messages received; 0 unless statistics histograms are enabled */
+    @ManagedStatistic
+    long getMessageSizeMedian();
+
+    /** 95th percentile size, in bytes, of the messages received; 0 unless statistics histograms are enabled */
+    @ManagedStatistic
+    long getMessageSize95thPercentile();
+
+    /** 99th percentile size, in bytes, of the messages received; 0 unless statistics histograms are enabled */
+    @ManagedStatistic
+    long getMessageSize99thPercentile();
+
+    /** Largest size, in bytes, of the messages received; 0 unless statistics histograms are enabled */
+    @ManagedStatistic
+    long getMaximumMessageSize();
+
+    /** Size, in bytes, of the message content held in memory across all virtual hosts, as of the last memory check */
+    @ManagedStatistic
+    long getResidentMessageBytes();
+
+    /** Total size, in bytes, of the message content flowed to disk to keep within the broker's memory budget */
+    @ManagedStatistic
+    long getEvictedMessageBytes();
+
+    /**
+     * Number of buffers taken from the pool of frame buffers by connections of the non-blocking transport. Like the
+     * other frame buffer pool statistics, reported only once a port using the NonBlocking transport has started.
+     */
+    @ManagedStatistic
+    long getFrameBuffersAcquired();
+
+    /** Number of buffers allocated by the pool of frame buffers of the non-blocking transport, having none free of the size required */
+    @ManagedStatistic
+    long getFrameBuffersAllocated();
+
+    /** Total capacity, in bytes, of the free buffers held by the pool of frame buffers of the non-blocking transport */
+    @ManagedStatistic
+    long getFrameBufferPoolBytes();
+
+    /** Number of operational log messages awaiting the writer thread; 0 unless operational logging is asynchronous */
+    @ManagedStatistic
+    long getOperationalLogQueueDepth();
+
+    /** Number of operational log messages discarded because the buffer of messages awaiting writing was full */
+    @ManagedStatistic
+    long getOperationalLogMessagesDropped();
 
     //children
     Collection<VirtualHostNode<?>> getVirtualHostNodes();
@@ -207,6 +268,9 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
 
     void setEventLogger(EventLogger eventLogger);
 
+    /** Count of the message content held in memory by the message stores of this broker's virtual hosts. */
+    ResidentMessageContent getResidentMessageContent();
+
     AuthenticationProvider<?> getManagementModeAuthenticationProvider();
 
     void assignTargetSizes();
@@ -21,7 +21,9 @@
 package org.apache.qpid.server.model;
 
 import java.util.Collection;
+import java.util.List;
 
+import org.apache.qpid.server.queue.QueueEntry;
 import org.apache.qpid.server.queue.QueueEntryVisitor;
 import org.apache.qpid.server.store.MessageDurability;
 
@@ -61,6 +63,10 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>
     @ManagedContextDefault(name = MAX_ASYNCHRONOUS_DELIVERIES )
     int DEFAULT_MAX_ASYNCHRONOUS_DELIVERIES = 80;
 
+    String QUEUE_MESSAGE_INDEX_ENABLED = "queue.messageIndexEnabled";
+    @ManagedContextDefault( name = QUEUE_MESSAGE_INDEX_ENABLED)
+    boolean DEFAULT_MESSAGE_INDEX_ENABLED = false;
+
     @ManagedAttribute
     Exchange getAlternateExchange();
 
@@ -165,6 +171,30 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>
 
     void visit(QueueEntryVisitor visitor);
 
+    /**
+     * @return the entry of the given message, or null if the message is not on the queue
+     */
+    QueueEntry getMessageOnTheQueue(long messageId);
+
+    /**
+     * @return the entries of those of the given messages which are on the queue
+     */
+    List<? extends QueueEntry> getMessagesOnTheQueue(Collection<Long> messageIds);
+
+    /**
+     * @return the entries of the messages on the queue numbered from the first to the last inclusive
+     */
+    List<? extends QueueEntry> getMessagesOnTheQueue(long fromMessageId, long toMessageId);
+
+    /**
+     * Pages through the messages on the queue in message number order. The page following a page begins after the
+     * last message of that page, however the queue has changed in between.
+     *
+     * @return up to the given number of entries of the messages on the queue numbered after the given message, none
+     *         if the number is not positive
+     */
+    List<? extends QueueEntry> getMessagesOnTheQueueAfter(long messageId, int count);
+
     int deleteAndReturnCount();
 
     void setNotificationListener(QueueNotificationListener listener);
@@ -217,5 +247,13 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>
     @ManagedStatistic
     long getOldestMessageAge();
 
+    /** Mean time, in microseconds, between asynchronous delivery being requested and starting */
+    @ManagedStatistic
+    long getAverageSchedulingLatency();
+
+    /** Longest time, in microseconds, between asynchronous delivery being requested and starting */
+    @ManagedStatistic
+    long getMaximumSchedulingLatency();
+
 
 }
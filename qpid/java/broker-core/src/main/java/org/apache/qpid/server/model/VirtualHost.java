@@ -41,6 +41,8 @@ public interface VirtualHost<X extends VirtualHost<X, Q, E>, Q extends Queue<?>,
     String STORE_TRANSACTION_OPEN_TIMEOUT_CLOSE = "storeTransactionOpenTimeoutClose";
     String STORE_TRANSACTION_OPEN_TIMEOUT_WARN  = "storeTransactionOpenTimeoutWarn";
     String HOUSE_KEEPING_THREAD_COUNT           = "houseKeepingThreadCount";
+    String DELIVERY_THREAD_COUNT                = "deliveryThreadCount";
+    String DELIVERY_SCHEDULER_POLICY            = "deliverySchedulerPolicy";
     String MODEL_VERSION                        = "modelVersion";
 
     @ManagedContextDefault( name = "queue.deadLetterQueueEnabled")
@@ -85,6 +87,30 @@ public interface VirtualHost<X extends VirtualHost<X, Q, E>, Q extends Queue<?>,
     @ManagedAttribute( defaultValue = "${virtualhost.housekeepingThreadCount}")
     int getHousekeepingThreadCount();
 
+    @ManagedContextDefault( name = "virtualhost.deliveryThreadCount")
+    public static final int DEFAULT_DELIVERY_THREAD_COUNT = Math.max(Runtime.getRuntime().availableProcessors(), 4);
+
+    @ManagedAttribute( defaultValue = "${virtualhost.deliveryThreadCount}")
+    int getDeliveryThreadCount();
+
+    @ManagedContextDefault( name = "virtualhost.deliverySchedulerPolicy")
+    public static final String DEFAULT_DELIVERY_SCHEDULER_POLICY = "WORK_STEALING";
+
+    @ManagedAttribute( defaultValue = "${virtualhost.deliverySchedulerPolicy}")
+    DeliverySchedulerPolicy getDeliverySchedulerPolicy();
+
+    String MESSAGE_CONVERSION_CACHE_SIZE = "virtualhost.messageConversionCacheSize";
+
+    /** Maximum total size, in bytes, of the converted forms of messages held for delivery to other protocols */
+    @ManagedContextDefault( name = MESSAGE_CONVERSION_CACHE_SIZE)
+    public static final long DEFAULT_MESSAGE_CONVERSION_CACHE_SIZE = (long)(0.05 * (double)Runtime.getRuntime().maxMemory());
+
+    String RECOVERY_THREAD_COUNT = "virtualhost.recoveryThreadCount";
+
+    /** Number of threads recovering queues in parallel when the message store is recovered asynchronously */
+    @ManagedContextDefault( name = RECOVERY_THREAD_COUNT)
+    public static final int DEFAULT_RECOVERY_THREAD_COUNT = Math.max(Runtime.getRuntime().availableProcessors(), 4);
+
     @DerivedAttribute( persist = true )
     String getModelVersion();
 
@@ -109,6 +135,74 @@ public interface VirtualHost<X extends VirtualHost<X, Q, E>, Q extends Queue<?>,
     @ManagedStatistic
     long getMessagesOut();
 
+    /** Number of deliveries to another protocol for which the converted form of the message was already held */
+    @ManagedStatistic
+    long getMessageConversionCacheHits();
+
+    /** Number of deliveries to another protocol for which the message had to be converted */
+    @ManagedStatistic
+    long getMessageConversionCacheMisses();
+
+    /** Total size, in bytes, of the converted forms of messages currently held */
+    @ManagedStatistic
+    long getMessageConversionCacheSize();
+
+    /** Number of queues whose messages have yet to be recovered from the message store */
+    @ManagedStatistic
+    long getRecoveringQueueCount();
+
+    /** Number of messages recovered from the message store */
+    @ManagedStatistic
+    long getRecoveredMessageCount();
+
+    /** Number of message instances recovered onto queues from the message store */
+    @ManagedStatistic
+    long getRecoveredQueueEntryCount();
+
+    /** Median size, in bytes, of the messages received; 0 unless statistics histograms are enabled */
+    @ManagedStatistic
+    long getMessageSizeMedian();
+
+    /** 95th percentile size, in bytes, of the messages received; 0 unless statistics histograms are enabled */
+    @ManagedStatistic
+    long getMessageSize95thPercentile();
+
+    /** 99th percentile size, in bytes, of the messages received; 0 unless statistics histograms are enabled */
+    @ManagedStatistic
+    long getMessageSize99thPercentile();
+
+    /** Largest size, in bytes, of the messages received; 0 unless statistics histograms are enabled */
+    @ManagedStatistic
+    long getMaximumMessageSize();
+
+    /**
+     * Median time, in milliseconds, from a message arriving to it being delivered from a queue;
+     * 0 unless statistics histograms are enabled
+     */
+    @ManagedStatistic
+    long getDeliveryLatencyMedian();
+
+    /**
+     * 95th percentile time, in milliseconds, from a message arriving to it being delivered from a queue;
+     * 0 unless statistics histograms are enabled
+     */
+    @ManagedStatistic
+    long getDeliveryLatency95thPercentile();
+
+    /**
+     * 99th percentile time, in milliseconds, from a message arriving to it being delivered from a queue;
+     * 0 unless statistics histograms are enabled
+     */
+    @ManagedStatistic
+    long getDeliveryLatency99thPercentile();
+
+    /**
+     * Longest time, in milliseconds, from a message arriving to it being delivered from a queue;
+     * 0 unless statistics histograms are enabled
+     */
+    @ManagedStatistic
+    long getMaximumDeliveryLatency();
+
     //children
     Collection<VirtualHostAlias> getAliases();
     Collection<Connection> getConnections();
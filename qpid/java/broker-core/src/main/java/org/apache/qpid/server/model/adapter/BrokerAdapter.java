@@ -24,6 +24,7 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.security.AccessControlException;
 import java.security.PrivilegedAction;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -41,8 +42,10 @@ import org.apache.qpid.common.QpidProperties;
 import org.apache.qpid.server.BrokerOptions;
 import org.apache.qpid.server.configuration.IllegalConfigurationException;
 import org.apache.qpid.server.configuration.updater.Task;
+import org.apache.qpid.server.logging.AsynchronousMessageLogger;
 import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.logging.LogRecorder;
+import org.apache.qpid.server.logging.MessageLogger;
 import org.apache.qpid.server.logging.messages.BrokerMessages;
 import org.apache.qpid.server.logging.messages.VirtualHostMessages;
 import org.apache.qpid.server.model.*;
@@ -55,6 +58,10 @@ import org.apache.qpid.server.security.access.Operation;
 import org.apache.qpid.server.security.auth.manager.SimpleAuthenticationManager;
 import org.apache.qpid.server.stats.StatisticsCounter;
 import org.apache.qpid.server.stats.StatisticsGatherer;
+import org.apache.qpid.server.stats.StatisticsHistogram;
+import org.apache.qpid.server.store.FlowToDiskManager;
+import org.apache.qpid.server.store.ResidentMessageContent;
+import org.apache.qpid.server.transport.FrameBufferPool;
 import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 import org.apache.qpid.util.SystemUtils;
 
@@ -63,6 +70,8 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
     private static final Logger LOGGER = Logger.getLogger(BrokerAdapter.class);
 
     private static final Pattern MODEL_VERSION_PATTERN = Pattern.compile("^\\d+\\.\\d+$");
+    private static final Collection<String> FRAME_BUFFER_POOL_STATISTICS =
+            Arrays.asList("frameBuffersAcquired", "frameBuffersAllocated", "frameBufferPoolBytes");
 
 
     public static final String MANAGEMENT_MODE_AUTHENTICATION = "MANAGEMENT_MODE_AUTHENTICATION";
@@ -80,7 +89,11 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
     private AuthenticationProvider<?> _managementModeAuthenticationProvider;
 
     private Timer _reportingTimer;
+    private Timer _flowToDiskTimer;
+    private final ResidentMessageContent _residentMessageContent = new ResidentMessageContent();
+    private final FlowToDiskManager _flowToDiskManager = new FlowToDiskManager(this);
     private final StatisticsCounter _messagesDelivered, _dataDelivered, _messagesReceived, _dataReceived;
+    private volatile StatisticsHistogram _messageSizes;
 
     /** Flags used to control the reporting of flow to disk. Protected by this */
     private boolean _totalMessageSizeExceedThresholdReported = false,  _totalMessageSizeWithinThresholdReported = true;
@@ -270,6 +283,7 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
         }
 
         initialiseStatisticsReporting();
+        initialiseFlowToDiskManagement();
 
         if (isManagementMode())
         {
@@ -295,6 +309,30 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
 
 
 
+    private void initialiseFlowToDiskManagement()
+    {
+        long period = getContextValue(Long.class, BROKER_FLOW_TO_DISK_CHECK_PERIOD);
+        if (period > 0L)
+        {
+            _flowToDiskTimer = new Timer("Flow-To-Disk", true);
+            _flowToDiskTimer.scheduleAtFixedRate(new TimerTask()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        _flowToDiskManager.checkMemory();
+                    }
+                    catch (RuntimeException e)
+                    {
+                        LOGGER.error("Error checking message memory use", e);
+                    }
+                }
+            }, period, period);
+        }
+    }
+
     @Override
     public String getBuildVersion()
     {
@@ -443,6 +481,11 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
     {
         super.onOpen();
         assignTargetSizes();
+
+        if (getContextValue(Boolean.class, BROKER_STATISTICS_HISTOGRAMS_ENABLED))
+        {
+            _messageSizes = new StatisticsHistogram();
+        }
     }
 
     public AuthenticationProvider<?> findAuthenticationProviderByName(String authenticationProviderName)
@@ -515,6 +558,96 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
         return getMessageDeliveryStatistics().getTotal();
     }
 
+    @Override
+    public long getMessageSizeMedian()
+    {
+        return getMessageSizeAtPercentile(50.0d);
+    }
+
+    @Override
+    public long getMessageSize95thPercentile()
+    {
+        return getMessageSizeAtPercentile(95.0d);
+    }
+
+    @Override
+    public long getMessageSize99thPercentile()
+    {
+        return getMessageSizeAtPercentile(99.0d);
+    }
+
+    @Override
+    public long getMaximumMessageSize()
+    {
+        StatisticsHistogram messageSizes = _messageSizes;
+        return messageSizes == null ? 0L : messageSizes.getMaximum();
+    }
+
+    @Override
+    public long getResidentMessageBytes()
+    {
+        return _flowToDiskManager.getResidentBytes();
+    }
+
+    @Override
+    public long getEvictedMessageBytes()
+    {
+        return _flowToDiskManager.getEvictedBytes();
+    }
+
+    @Override
+    public Map<String, Number> getStatistics()
+    {
+        Map<String, Number> statistics = super.getStatistics();
+        if (!FrameBufferPool.getSharedPool().isActive())
+        {
+            statistics.keySet().removeAll(FRAME_BUFFER_POOL_STATISTICS);
+        }
+        return statistics;
+    }
+
+    @Override
+    public long getFrameBuffersAcquired()
+    {
+        return FrameBufferPool.getSharedPool().getAcquiredCount();
+    }
+
+    @Override
+    public long getFrameBuffersAllocated()
+    {
+        return FrameBufferPool.getSharedPool().getAllocatedCount();
+    }
+
+    @Override
+    public long getFrameBufferPoolBytes()
+    {
+        return FrameBufferPool.getSharedPool().getPooledBytes();
+    }
+
+    @Override
+    public long getOperationalLogQueueDepth()
+    {
+        MessageLogger messageLogger = _eventLogger.getMessageLogger();
+        return messageLogger instanceof AsynchronousMessageLogger
+                ? ((AsynchronousMessageLogger) messageLogger).getQueueDepth()
+                : 0L;
+    }
+
+    @Override
+    public long getOperationalLogMessagesDropped()
+    {
+        MessageLogger messageLogger = _eventLogger.getMessageLogger();
+        return messageLogger instanceof AsynchronousMessageLogger
+                ? ((AsynchronousMessageLogger) messageLogger).getDroppedCount()
+                : 0L;
+    }
+
+    private long getMessageSizeAtPercentile(double percentile)
+    {
+        StatisticsHistogram messageSizes = _messageSizes;
+        return messageSizes == null ? 0L : messageSizes.getValueAtPercentile(percentile);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <C extends ConfiguredObject> C addChild(final Class<C> childClass, final Map<String, Object> attributes, final ConfiguredObject... otherParents)
@@ -734,6 +867,11 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
         {
             _reportingTimer.cancel();
         }
+
+        if (_flowToDiskTimer != null)
+        {
+            _flowToDiskTimer.cancel();
+        }
     }
 
     @Override
@@ -925,6 +1063,12 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
         return _eventLogger;
     }
 
+    @Override
+    public ResidentMessageContent getResidentMessageContent()
+    {
+        return _residentMessageContent;
+    }
+
     @Override
     public void setEventLogger(final EventLogger eventLogger)
     {
@@ -964,6 +1108,11 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
     {
         _messagesReceived.registerEvent(1L, timestamp);
         _dataReceived.registerEvent(messageSize, timestamp);
+        StatisticsHistogram messageSizes = _messageSizes;
+        if (messageSizes != null)
+        {
+            messageSizes.record(messageSize);
+        }
     }
 
     public StatisticsCounter getMessageReceiptStatistics()
@@ -992,6 +1141,11 @@ public class BrokerAdapter extends AbstractConfiguredObject<BrokerAdapter> imple
         _dataDelivered.reset();
         _messagesReceived.reset();
         _dataReceived.reset();
+        StatisticsHistogram messageSizes = _messageSizes;
+        if (messageSizes != null)
+        {
+            messageSizes.reset();
+        }
 
         for (VirtualHostNode<?> virtualHostNode : getChildren(VirtualHostNode.class))
         {
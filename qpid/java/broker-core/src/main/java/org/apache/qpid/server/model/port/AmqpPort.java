@@ -70,6 +70,21 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
     @ManagedContextDefault(name = OPEN_CONNECTIONS_WARN_PERCENT)
     int DEFAULT_OPEN_CONNECTIONS_WARN_PERCENT = 80;
 
+    String PORT_TRANSPORT_PROVIDER = "qpid.port.transport_provider";
+
+    @ManagedContextDefault(name = PORT_TRANSPORT_PROVIDER)
+    String DEFAULT_TRANSPORT_PROVIDER = "TCPandSSL";
+
+    String PORT_SELECTOR_THREADS = "qpid.port.nonblocking.selector_threads";
+
+    @ManagedContextDefault(name = PORT_SELECTOR_THREADS)
+    int DEFAULT_SELECTOR_THREADS = Runtime.getRuntime().availableProcessors();
+
+    String PORT_ENGINE_THREADS = "qpid.port.nonblocking.engine_threads";
+
+    @ManagedContextDefault(name = PORT_ENGINE_THREADS)
+    int DEFAULT_ENGINE_THREADS = 4 * Runtime.getRuntime().availableProcessors();
+
 
     @ManagedAttribute(defaultValue = "*")
     String getBindingAddress();
@@ -214,11 +214,20 @@ public class AmqpPortImpl extends AbstractClientAuthCapablePortWithAuthProvider<
 
             TransportProvider transportProvider = null;
             final HashSet<Transport> transportSet = new HashSet<Transport>(transports);
+            final String providerType = getTransportProviderType();
             for (TransportProviderFactory tpf : (new QpidServiceLoader()).instancesOf(TransportProviderFactory.class))
             {
                 if (tpf.getSupportedTransports().contains(transports))
                 {
-                    transportProvider = tpf.getTransportProvider(transportSet);
+                    if (tpf.getType().equals(providerType))
+                    {
+                        transportProvider = tpf.getTransportProvider(transportSet);
+                        break;
+                    }
+                    else if (transportProvider == null)
+                    {
+                        transportProvider = tpf.getTransportProvider(transportSet);
+                    }
                 }
             }
 
@@ -290,6 +299,22 @@ public class AmqpPortImpl extends AbstractClientAuthCapablePortWithAuthProvider<
             throw new IllegalConfigurationException(String.format("Cannot bind to port %d and binding address '%s'. Port is already is use.",
                     getPort(), bindingAddress == null || "".equals(bindingAddress) ? "*" : bindingAddress));
         }
+        getTransportProviderType();
+    }
+
+    private String getTransportProviderType()
+    {
+        final String providerType = getContextValue(String.class, PORT_TRANSPORT_PROVIDER);
+        for (TransportProviderFactory tpf : (new QpidServiceLoader()).instancesOf(TransportProviderFactory.class))
+        {
+            if (tpf.getType().equals(providerType))
+            {
+                return providerType;
+            }
+        }
+        throw new IllegalConfigurationException("Unknown transport provider '" + providerType
+                                                + "' set in context variable '" + PORT_TRANSPORT_PROVIDER
+                                                + "' of AMQP port '" + getName() + "'");
     }
 
     private SSLContext createSslContext()
@@ -23,9 +23,12 @@ package org.apache.qpid.server.protocol;
 
 import java.util.HashMap;
 import java.util.Map;
+
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.plugin.QpidServiceLoader;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 
 public class MessageConverterRegistry
 {
@@ -56,4 +59,15 @@ public class MessageConverterRegistry
         }
         return map == null ? null : map.get(to);
     }
+
+    /**
+     * Converts the message to the given class, reusing the form held by the virtual host's
+     * {@link MessageConversionCache} if the message has been converted to that class already.
+     */
+    public static <M extends ServerMessage, N extends ServerMessage> N convert(M message, Class<N> to, VirtualHostImpl vhost)
+    {
+        MessageConverter<M, N> converter = getConverter((Class<M>) message.getClass(), to);
+        MessageConversionCache cache = vhost == null ? null : vhost.getMessageConversionCache();
+        return cache == null ? converter.convert(message, vhost) : cache.convert(converter, message, vhost);
+    }
 }
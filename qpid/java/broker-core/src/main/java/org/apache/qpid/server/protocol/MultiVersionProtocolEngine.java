@@ -279,7 +279,7 @@ public class MultiVersionProtocolEngine implements ServerProtocolEngine
     private class SelfDelegateProtocolEngine implements ServerProtocolEngine
     {
         private final ByteBuffer _header = ByteBuffer.allocate(MINIMUM_REQUIRED_HEADER_BYTES);
-        private long _lastReadTime;
+        private long _lastReadTime = System.currentTimeMillis();
 
         public SocketAddress getRemoteAddress()
         {
@@ -326,6 +326,9 @@ public class MultiVersionProtocolEngine implements ServerProtocolEngine
 
 
                 ServerProtocolEngine newDelegate = null;
+                // an SSL context passed alongside the SSL transport means the network layer has not
+                // terminated TLS, so the plain AMQP protocol headers must not be accepted
+                final boolean sslRequired = _sslContext != null && _transport == Transport.SSL;
                 byte[] supportedReplyBytes = null;
                 byte[] defaultSupportedReplyBytes = null;
                 Protocol supportedReplyVersion = null;
@@ -344,7 +347,7 @@ public class MultiVersionProtocolEngine implements ServerProtocolEngine
                         {
                             equal = headerBytes[j] == compareBytes[j];
                         }
-                        if(equal)
+                        if(equal && !sslRequired)
                         {
                             newDelegate = _creators[i].newProtocolEngine(_broker,
                                                                          _network, _port, _transport, _id
@@ -369,8 +372,18 @@ public class MultiVersionProtocolEngine implements ServerProtocolEngine
                     }
                 }
 
+                if(newDelegate == null && sslRequired)
+                {
+                    if(_logger.isDebugEnabled())
+                    {
+                        _logger.debug("Non-SSL connection attempted on SSL only port, closing");
+                    }
+                    _delegate = new ClosedDelegateProtocolEngine();
+
+                    _network.close();
+                }
                 // If no delegate is found then send back a supported protocol version id
-                if(newDelegate == null)
+                else if(newDelegate == null)
                 {
                     //if a default reply was specified use its reply header instead of the most recent supported version
                     if(_defaultSupportedReply != null && !(_defaultSupportedReply == supportedReplyVersion))
@@ -26,15 +26,18 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -43,7 +46,6 @@ import javax.security.auth.Subject;
 
 import org.apache.log4j.Logger;
 
-import org.apache.qpid.pool.ReferenceCountingExecutorService;
 import org.apache.qpid.server.binding.BindingImpl;
 import org.apache.qpid.server.configuration.IllegalConfigurationException;
 import org.apache.qpid.server.connection.SessionPrincipal;
@@ -90,6 +92,7 @@ import org.apache.qpid.server.util.Deletable;
 import org.apache.qpid.server.util.MapValueConverter;
 import org.apache.qpid.server.util.ServerScopedRuntimeException;
 import org.apache.qpid.server.util.StateChangeListener;
+import org.apache.qpid.server.virtualhost.DeliveryScheduler;
 import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 import org.apache.qpid.transport.TransportException;
 
@@ -196,7 +199,9 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     private final AtomicLong _stateChangeCount = new AtomicLong(Long.MIN_VALUE);
 
-    private final Executor _asyncDelivery;
+    private final AtomicLong _schedulingLatencyTotal = new AtomicLong();
+    private final AtomicLong _schedulingCount = new AtomicLong();
+    private final AtomicLong _maximumSchedulingLatency = new AtomicLong();
     private AtomicInteger _deliveredMessages = new AtomicInteger();
     private AtomicBoolean _stopped = new AtomicBoolean(false);
 
@@ -246,13 +251,25 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     private final QueueRunner _queueRunner = new QueueRunner(this);
 
+    private final QueueEntryExpiryIndex _expiryIndex = new QueueEntryExpiryIndex();
+    /** The entries keyed by message number, or null unless the queue.messageIndexEnabled context variable is set */
+    private QueueEntryMessageIndex _messageIndex;
+    /** The time for which a check for expired entries is scheduled, or 0 if none is */
+    private final AtomicLong _nextExpiryCheck = new AtomicLong();
+    private final Runnable _expiryCheck = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            runExpiryCheck();
+        }
+    };
+
     protected AbstractQueue(Map<String, Object> attributes, VirtualHostImpl virtualHost)
     {
         super(parentsMap(virtualHost), attributes);
 
         _virtualHost = virtualHost;
-        _asyncDelivery = ReferenceCountingExecutorService.getInstance().acquireExecutorService();
-
     }
 
     @Override
@@ -448,6 +465,10 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
 
         _maxAsyncDeliveries = getContextValue(Integer.class, Queue.MAX_ASYNCHRONOUS_DELIVERIES);
+        if (Boolean.TRUE.equals(getContextValue(Boolean.class, Queue.QUEUE_MESSAGE_INDEX_ENABLED)))
+        {
+            _messageIndex = new QueueEntryMessageIndex();
+        }
         updateAlertChecks();
     }
 
@@ -498,15 +519,32 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     // ------ Getters and Setters
 
+    /**
+     * Runs the task on the delivery scheduler of the virtual host. The task is not run if the virtual host is
+     * unavailable, or once the queue has been stopped.
+     *
+     * @throws IllegalStateException if the queue is running but the virtual host has no delivery scheduler
+     */
     public void execute(Runnable runnable)
     {
+        if (_virtualHost.getState() == State.UNAVAILABLE)
+        {
+            return;
+        }
         try
         {
-
-            if (_virtualHost.getState() != State.UNAVAILABLE)
+            final DeliveryScheduler deliveryScheduler = _virtualHost.getDeliveryScheduler();
+            if (deliveryScheduler == null)
             {
-                _asyncDelivery.execute(runnable);
+                // the scheduler is started before the queues are created and shut down once they have stopped
+                if (!_stopped.get())
+                {
+                    throw new IllegalStateException("Virtual host " + _virtualHost.getName()
+                                                    + " has no delivery scheduler for running queue " + getName());
+                }
+                return;
             }
+            deliveryScheduler.execute(runnable);
         }
         catch (RejectedExecutionException ree)
         {
@@ -967,6 +1005,12 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
             // deal with any enqueues that occurred just as we cleared the queue
             enqueueFromPostRecoveryQueue();
+
+            long nextExpiration = _expiryIndex.getNextExpiration();
+            if (nextExpiration != 0L)
+            {
+                scheduleExpiryCheck(nextExpiration);
+            }
         }
     }
 
@@ -986,6 +1030,20 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         final QueueConsumer<?> exclusiveSub = _exclusiveSubscriber;
         final QueueEntry entry = getEntries().add(message);
         updateExpiration(entry);
+        if (_messageIndex != null)
+        {
+            _messageIndex.add(entry);
+        }
+
+        final long expiration = entry.getExpiration();
+        if (expiration != 0L)
+        {
+            _expiryIndex.add(entry);
+            if (!_recovering.get())
+            {
+                scheduleExpiryCheck(expiration);
+            }
+        }
 
         try
         {
@@ -1063,6 +1121,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
      */
     private void tryDeliverStraightThrough(final QueueEntry entry)
     {
+        DeliveryPass.begin();
         try
         {
             QueueConsumerList.ConsumerNode node = _consumerList.getMarkedNode();
@@ -1124,6 +1183,10 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                 _logger.info(errorMessage + ' ' + e.getMessage());
             }
         }
+        finally
+        {
+            DeliveryPass.end();
+        }
     }
 
     private void deliverToConsumer(final QueueConsumer<?> sub, final QueueEntry entry)
@@ -1230,6 +1293,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         setLastSeenEntry(sub, entry);
 
         _deliveredMessages.incrementAndGet();
+        _virtualHost.registerMessageDeliveryLatency(System.currentTimeMillis() - entry.getMessage().getArrivalTime());
 
         sub.send(entry, batch);
     }
@@ -1275,6 +1339,14 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     public void requeue(QueueEntry entry)
     {
+        // an entry found expired while acquired was dropped from the expiry index, so index it again
+        final long expiration = entry.getExpiration();
+        if (expiration != 0L && !entry.isDeleted())
+        {
+            _expiryIndex.add(entry);
+            scheduleExpiryCheck(expiration);
+        }
+
         QueueConsumerList.ConsumerNodeIterator subscriberIter = _consumerList.iterator();
         // iterate over all the subscribers, and if they are in advance of this queue entry then move them backwards
         while (subscriberIter.advance() && entry.isAvailable())
@@ -1295,6 +1367,14 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public void dequeue(QueueEntry entry)
     {
+        if (entry.getExpiration() != 0L)
+        {
+            _expiryIndex.remove(entry);
+        }
+        if (_messageIndex != null)
+        {
+            _messageIndex.remove(entry);
+        }
         decrementQueueCount();
         decrementQueueSize(entry);
         if (entry.acquiredByConsumer())
@@ -1449,6 +1529,31 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         return oldestMessageArrivalTime == 0 ? 0 : System.currentTimeMillis() - oldestMessageArrivalTime;
     }
 
+    @Override
+    public long getAverageSchedulingLatency()
+    {
+        long count = _schedulingCount.get();
+        return count == 0L ? 0L : TimeUnit.NANOSECONDS.toMicros(_schedulingLatencyTotal.get() / count);
+    }
+
+    @Override
+    public long getMaximumSchedulingLatency()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(_maximumSchedulingLatency.get());
+    }
+
+    void registerSchedulingLatency(final long latencyNanos)
+    {
+        _schedulingLatencyTotal.addAndGet(latencyNanos);
+        _schedulingCount.incrementAndGet();
+        long maximum;
+        while (latencyNanos > (maximum = _maximumSchedulingLatency.get())
+               && !_maximumSchedulingLatency.compareAndSet(maximum, latencyNanos))
+        {
+            // retry until the recorded maximum is at least this latency
+        }
+    }
+
     public boolean isDeleted()
     {
         return _deleted.get();
@@ -1540,8 +1645,13 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
 
 
+    @Override
     public List<QueueEntry> getMessagesOnTheQueue(final long fromMessageId, final long toMessageId)
     {
+        if (_messageIndex != null)
+        {
+            return _messageIndex.getRange(fromMessageId, toMessageId);
+        }
         return getMessagesOnTheQueue(new QueueEntryFilter()
         {
 
@@ -1558,8 +1668,13 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         });
     }
 
+    @Override
     public QueueEntry getMessageOnTheQueue(final long messageId)
     {
+        if (_messageIndex != null)
+        {
+            return _messageIndex.get(messageId);
+        }
         List<QueueEntry> entries = getMessagesOnTheQueue(new QueueEntryFilter()
         {
             private boolean _complete;
@@ -1578,6 +1693,62 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         return entries.isEmpty() ? null : entries.get(0);
     }
 
+    @Override
+    public List<QueueEntry> getMessagesOnTheQueue(final Collection<Long> messageIds)
+    {
+        if (_messageIndex != null)
+        {
+            return _messageIndex.get(messageIds);
+        }
+        final Set<Long> remainingIds = new HashSet<>(messageIds);
+        return getMessagesOnTheQueue(new QueueEntryFilter()
+        {
+            public boolean accept(QueueEntry entry)
+            {
+                return remainingIds.remove(entry.getMessage().getMessageNumber());
+            }
+
+            public boolean filterComplete()
+            {
+                return remainingIds.isEmpty();
+            }
+        });
+    }
+
+    @Override
+    public List<QueueEntry> getMessagesOnTheQueueAfter(final long messageId, final int count)
+    {
+        if (count <= 0)
+        {
+            return Collections.emptyList();
+        }
+        if (_messageIndex != null)
+        {
+            return _messageIndex.getAfter(messageId, count);
+        }
+
+        // without the index, the whole queue is walked keeping the lowest numbered messages seen
+        final NavigableMap<Long, QueueEntry> page = new TreeMap<>();
+        visit(new QueueEntryVisitor()
+        {
+            @Override
+            public boolean visit(final QueueEntry entry)
+            {
+                long entryMessageId = entry.getMessage().getMessageNumber();
+                if (entryMessageId > messageId && (page.size() < count || entryMessageId < page.lastKey()))
+                {
+                    page.put(entryMessageId, entry);
+                    if (page.size() > count)
+                    {
+                        page.pollLastEntry();
+                    }
+                }
+                return false;
+            }
+        });
+        return new ArrayList<>(page.values());
+    }
+
     public List<QueueEntry> getMessagesOnTheQueue(QueueEntryFilter filter)
     {
         ArrayList<QueueEntry> entryList = new ArrayList<QueueEntry>();
@@ -1793,10 +1964,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     protected void onClose()
     {
         super.onClose();
-        if (!_stopped.getAndSet(true))
-        {
-            ReferenceCountingExecutorService.getInstance().releaseExecutorService();
-        }
+        _stopped.set(true);
     }
 
     public void checkCapacity(AMQSessionModel channel)
@@ -1863,8 +2031,15 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     void flushConsumer(QueueConsumer<?> sub)
     {
-
-        flushConsumer(sub, Long.MAX_VALUE);
+        DeliveryPass.begin();
+        try
+        {
+            flushConsumer(sub, Long.MAX_VALUE);
+        }
+        finally
+        {
+            DeliveryPass.end();
+        }
     }
 
     boolean flushConsumer(QueueConsumer<?> sub, long iterations)
@@ -2085,7 +2260,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
      * consumers capable of delivering the remaining messages on the queue
      * then processQueue should stop to prevent spinning.
      *
-     * Since processQueue is runs in a fixed size Executor, it should not run
+     * Since processQueue runs on the virtual host's DeliveryScheduler, it should not run
      * indefinitely to prevent starving other tasks of CPU (e.g jobs to process
      * incoming messages may not be able to be scheduled in the thread pool
      * because all threads are working on clearing down large queues). To solve
@@ -2218,42 +2393,21 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     public void checkMessageStatus()
     {
-        QueueEntryIterator queueListIterator = getEntries().iterator();
+        expireEntries();
 
-        long totalSize = getContextValue(Long.class, QUEUE_ESTIMATED_MESSAGE_MEMORY_OVERHEAD) * getQueueDepthMessages();
+        long overhead = getContextValue(Long.class, QUEUE_ESTIMATED_MESSAGE_MEMORY_OVERHEAD);
         long targetSize = _targetQueueSize.get();
 
-        while (queueListIterator.advance())
+        // only walk the queue if the messages on it may need to flow to disk
+        if (getQueueDepthBytes() + overhead * getQueueDepthMessages() > targetSize)
         {
-            QueueEntry node = queueListIterator.getNode();
-            // Only process nodes that are not currently deleted and not dequeued
-            if (!node.isDeleted())
+            long totalSize = overhead * getQueueDepthMessages();
+            QueueEntryIterator queueListIterator = getEntries().iterator();
+            while (queueListIterator.advance())
             {
-                // If the node has expired then acquire it
-                if (node.expired())
-                {
-                    boolean acquiredForDequeueing = node.acquire();
-                    if(!acquiredForDequeueing && node.getDeliveredToConsumer())
-                    {
-                        QueueConsumer consumer = (QueueConsumer) node.getDeliveredConsumer();
-                        acquiredForDequeueing = node.removeAcquisitionFromConsumer(consumer);
-                        if(acquiredForDequeueing)
-                        {
-                            consumer.acquisitionRemoved(node);
-                        }
-                    }
-
-                    if(acquiredForDequeueing)
-                    {
-                        if (_logger.isDebugEnabled())
-                        {
-                            _logger.debug("Dequeuing expired node " + node);
-                        }
-                        // Then dequeue it.
-                        dequeueEntry(node);
-                    }
-                }
-                else
+                QueueEntry node = queueListIterator.getNode();
+                // Only process nodes that are not currently deleted and not dequeued
+                if (!node.isDeleted())
                 {
                     // There is a chance that the node could be deleted by
                     // the time the check actually occurs. So verify we
@@ -2268,12 +2422,99 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                         {
                             storedMessage.flowToDisk();
                         }
-                        checkForNotification(msg);
                     }
                 }
             }
         }
 
+        // message specific checks are made as each message is enqueued
+        checkForNotification(null);
+    }
+
+    /**
+     * Ensures that a check for expired entries is scheduled for no later than the given expiration.
+     */
+    private void scheduleExpiryCheck(final long expiration)
+    {
+        long scheduled;
+        while ((scheduled = _nextExpiryCheck.get()) == 0L || expiration < scheduled)
+        {
+            if (_nextExpiryCheck.compareAndSet(scheduled, expiration))
+            {
+                try
+                {
+                    // an entry expires once the time is after its expiration
+                    long delay = Math.max(0L, expiration - System.currentTimeMillis() + 1L);
+                    _virtualHost.scheduleTask(delay, _expiryCheck);
+                }
+                catch (RejectedExecutionException ree)
+                {
+                    _nextExpiryCheck.compareAndSet(expiration, 0L);
+                    if (!_stopped.get())
+                    {
+                        _logger.error("Unexpected rejected execution", ree);
+                        throw ree;
+                    }
+                }
+                break;
+            }
+        }
+    }
+
+    private void runExpiryCheck()
+    {
+        if (_stopped.get())
+        {
+            return;
+        }
+
+        try
+        {
+            expireEntries();
+        }
+        finally
+        {
+            // if no later check has since been scheduled, schedule one for the next entry to expire
+            long scheduled = _nextExpiryCheck.get();
+            if (scheduled <= System.currentTimeMillis())
+            {
+                _nextExpiryCheck.compareAndSet(scheduled, 0L);
+            }
+            long nextExpiration = _expiryIndex.getNextExpiration();
+            if (nextExpiration != 0L)
+            {
+                scheduleExpiryCheck(nextExpiration);
+            }
+        }
+    }
+
+    private void expireEntries()
+    {
+        QueueEntry node;
+        while ((node = _expiryIndex.pollExpired(System.currentTimeMillis())) != null)
+        {
+            boolean acquiredForDequeueing = node.acquire();
+            if(!acquiredForDequeueing && node.getDeliveredToConsumer())
+            {
+                QueueConsumer consumer = (QueueConsumer) node.getDeliveredConsumer();
+                acquiredForDequeueing = node.removeAcquisitionFromConsumer(consumer);
+                if(acquiredForDequeueing)
+                {
+                    consumer.acquisitionRemoved(node);
+                }
+            }
+
+            if(acquiredForDequeueing)
+            {
+                if (_logger.isDebugEnabled())
+                {
+                    _logger.debug("Dequeuing expired node " + node);
+                }
+                // Then dequeue it.
+                dequeueEntry(node);
+            }
+            // otherwise the entry is held, and is indexed again if it is released (see requeue)
+        }
     }
 
     @Override
@@ -0,0 +1,85 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounds the sharing of a queue entry's cached filterable to a single delivery pass.
+ * <p>
+ * Whilst a thread is delivering (running a queue, flushing a consumer or delivering a new entry straight through),
+ * the entries given a filterable are recorded, and their filterables are dropped when the outermost pass on the
+ * thread ends. At most {@link #MAX_ENTRIES} entries are recorded per pass; beyond that, and outside a pass, entries
+ * are evaluated without keeping a filterable. An entry left available after a pass therefore holds no cache.
+ */
+final class DeliveryPass
+{
+    static final int MAX_ENTRIES = 1024;
+
+    private static final ThreadLocal<DeliveryPass> CURRENT = new ThreadLocal<DeliveryPass>()
+    {
+        @Override
+        protected DeliveryPass initialValue()
+        {
+            return new DeliveryPass();
+        }
+    };
+
+    private final List<QueueEntryImpl> _entries = new ArrayList<>();
+    private int _depth;
+
+    private DeliveryPass()
+    {
+    }
+
+    static void begin()
+    {
+        CURRENT.get()._depth++;
+    }
+
+    static void end()
+    {
+        DeliveryPass pass = CURRENT.get();
+        if (--pass._depth == 0)
+        {
+            for (QueueEntryImpl entry : pass._entries)
+            {
+                entry.clearFilterable();
+            }
+            pass._entries.clear();
+        }
+    }
+
+    /**
+     * @return true if the entry may keep its filterable until the current pass ends
+     */
+    static boolean record(final QueueEntryImpl entry)
+    {
+        DeliveryPass pass = CURRENT.get();
+        if (pass._depth > 0 && pass._entries.size() < MAX_ENTRIES)
+        {
+            pass._entries.add(entry);
+            return true;
+        }
+        return false;
+    }
+}
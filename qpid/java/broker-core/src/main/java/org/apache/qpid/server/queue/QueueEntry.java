@@ -37,4 +37,9 @@ public interface QueueEntry extends MessageInstance, Comparable<QueueEntry>
 
 
     void setExpiration(long calculatedExpiration);
+
+    /**
+     * @return the time at which the entry expires, or 0 if it does not
+     */
+    long getExpiration();
 }
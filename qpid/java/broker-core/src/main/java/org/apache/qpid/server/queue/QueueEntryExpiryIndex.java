@@ -0,0 +1,92 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.qpid.server.queue;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The entries of a queue which have an expiration, ordered by it, so that the entries which have expired can be found
+ * without walking the queue.
+ * <p>
+ * Entries are ordered by expiration and then by their order on the queue. An entry is expected to be removed once it
+ * has been dequeued; one which is not is discarded when it falls due.
+ */
+final class QueueEntryExpiryIndex
+{
+    private static final Comparator<QueueEntry> EXPIRATION_ORDER = new Comparator<QueueEntry>()
+    {
+        @Override
+        public int compare(final QueueEntry entry, final QueueEntry other)
+        {
+            long expiration = entry.getExpiration();
+            long otherExpiration = other.getExpiration();
+            if (expiration != otherExpiration)
+            {
+                return expiration < otherExpiration ? -1 : 1;
+            }
+            return entry.compareTo(other);
+        }
+    };
+
+    private final ConcurrentNavigableMap<QueueEntry, Boolean> _entries =
+            new ConcurrentSkipListMap<QueueEntry, Boolean>(EXPIRATION_ORDER);
+
+    /**
+     * @param entry an entry with a non-zero expiration, which must not change while the entry is indexed
+     */
+    void add(QueueEntry entry)
+    {
+        _entries.put(entry, Boolean.TRUE);
+    }
+
+    void remove(QueueEntry entry)
+    {
+        _entries.remove(entry);
+    }
+
+    /**
+     * Removes and returns an entry which expired before the given time, skipping entries which have since been
+     * deleted.
+     *
+     * @return the entry, or null if no entry not yet deleted expired before the given time
+     */
+    QueueEntry pollExpired(long time)
+    {
+        Map.Entry<QueueEntry, Boolean> first;
+        while ((first = _entries.firstEntry()) != null && first.getKey().getExpiration() < time)
+        {
+            QueueEntry entry = first.getKey();
+            if (_entries.remove(entry) != null && !entry.isDeleted())
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the earliest expiration of the indexed entries, or 0 if there are none
+     */
+    long getNextExpiration()
+    {
+        Map.Entry<QueueEntry, Boolean> first = _entries.firstEntry();
+        return first == null ? 0L : first.getKey().getExpiration();
+    }
+}
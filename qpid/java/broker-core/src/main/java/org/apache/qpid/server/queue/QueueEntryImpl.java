@@ -30,6 +30,7 @@ import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.apache.log4j.Logger;
 
 import org.apache.qpid.server.consumer.ConsumerImpl;
+import org.apache.qpid.server.filter.CachingFilterable;
 import org.apache.qpid.server.filter.Filterable;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageInstance;
@@ -91,6 +92,9 @@ public abstract class QueueEntryImpl implements QueueEntry
     private static final AtomicIntegerFieldUpdater<QueueEntryImpl> _deliveryCountUpdater = AtomicIntegerFieldUpdater
                     .newUpdater(QueueEntryImpl.class, "_deliveryCount");
 
+    /** Shared by the consumers evaluating their selectors against this entry during one {@link DeliveryPass} */
+    private volatile CachingFilterable _filterable;
+
 
     public QueueEntryImpl(QueueEntryList queueEntryList)
     {
@@ -133,6 +137,12 @@ public abstract class QueueEntryImpl implements QueueEntry
         _expiration = expiration;
     }
 
+    @Override
+    public long getExpiration()
+    {
+        return _expiration;
+    }
+
     public InstanceProperties getInstanceProperties()
     {
         return new EntryInstanceProperties();
@@ -200,6 +210,11 @@ public abstract class QueueEntryImpl implements QueueEntry
     {
         boolean acquired = _stateUpdater.compareAndSet(this, AVAILABLE_STATE, state);
 
+        if(acquired)
+        {
+            _filterable = null;
+        }
+
         if(acquired && _stateChangeListeners != null)
         {
             notifyStateChange(State.AVAILABLE, State.ACQUIRED);
@@ -406,6 +421,7 @@ public abstract class QueueEntryImpl implements QueueEntry
 
         if(state != DELETED_STATE && _stateUpdater.compareAndSet(this,state,DELETED_STATE))
         {
+            _filterable = null;
             _queueEntryList.entryDeleted(this);
             onDelete();
             _message.release();
@@ -545,7 +561,21 @@ public abstract class QueueEntryImpl implements QueueEntry
     @Override
     public Filterable asFilterable()
     {
-        return Filterable.Factory.newInstance(getMessage(), getInstanceProperties());
+        CachingFilterable filterable = _filterable;
+        if(filterable == null)
+        {
+            filterable = new CachingFilterable(Filterable.Factory.newInstance(getMessage(), getInstanceProperties()));
+            if(DeliveryPass.record(this))
+            {
+                _filterable = filterable;
+            }
+        }
+        return filterable;
+    }
+
+    void clearFilterable()
+    {
+        _filterable = null;
     }
 
     public String toString()
@@ -576,6 +606,8 @@ public abstract class QueueEntryImpl implements QueueEntry
     public void setRedelivered()
     {
         _flags |= REDELIVERED_FLAG;
+        // selectors may refer to JMSRedelivered
+        _filterable = null;
     }
 
     private void setPersistent()
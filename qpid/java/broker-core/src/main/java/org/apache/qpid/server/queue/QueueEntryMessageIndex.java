@@ -0,0 +1,127 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+* contributor license agreements.  See the NOTICE file distributed with
+* this work for additional information regarding copyright ownership.
+* The ASF licenses this file to You under the Apache License, Version 2.0
+* (the "License"); you may not use this file except in compliance with
+* the License.  You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The entries of a queue keyed by the number of their message, so that management operations on particular messages,
+ * or on pages of messages, need not walk the queue.
+ * <p>
+ * A message is on a queue at most once at a time. An entry is expected to be removed once it has been dequeued; one
+ * which is not is skipped, and discarded, when next looked up.
+ */
+final class QueueEntryMessageIndex
+{
+    private final ConcurrentNavigableMap<Long, QueueEntry> _entries = new ConcurrentSkipListMap<Long, QueueEntry>();
+
+    void add(QueueEntry entry)
+    {
+        _entries.put(entry.getMessage().getMessageNumber(), entry);
+    }
+
+    void remove(QueueEntry entry)
+    {
+        _entries.remove(entry.getMessage().getMessageNumber(), entry);
+    }
+
+    /**
+     * @return the entry of the message, or null if the message is not on the queue
+     */
+    QueueEntry get(long messageNumber)
+    {
+        QueueEntry entry = _entries.get(messageNumber);
+        return isLive(messageNumber, entry) ? entry : null;
+    }
+
+    /**
+     * @return the entries of those of the given messages which are on the queue, in message number order
+     */
+    List<QueueEntry> get(Collection<Long> messageNumbers)
+    {
+        List<QueueEntry> entries = new ArrayList<QueueEntry>(messageNumbers.size());
+        for (Long messageNumber : new TreeSet<Long>(messageNumbers))
+        {
+            QueueEntry entry = get(messageNumber);
+            if (entry != null)
+            {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return the entries of the messages on the queue numbered from the first to the last inclusive, in message
+     * number order
+     */
+    List<QueueEntry> getRange(long firstMessageNumber, long lastMessageNumber)
+    {
+        List<QueueEntry> entries = new ArrayList<QueueEntry>();
+        if (firstMessageNumber <= lastMessageNumber)
+        {
+            for (QueueEntry entry : _entries.subMap(firstMessageNumber, true, lastMessageNumber, true).values())
+            {
+                if (isLive(entry.getMessage().getMessageNumber(), entry))
+                {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return up to the given number of entries of the messages on the queue numbered after the given number, in
+     * message number order
+     */
+    List<QueueEntry> getAfter(long messageNumber, int count)
+    {
+        List<QueueEntry> entries = new ArrayList<QueueEntry>(Math.min(count, 1024));
+        for (QueueEntry entry : _entries.tailMap(messageNumber, false).values())
+        {
+            if (entries.size() >= count)
+            {
+                break;
+            }
+            if (isLive(entry.getMessage().getMessageNumber(), entry))
+            {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private boolean isLive(long messageNumber, QueueEntry entry)
+    {
+        if (entry == null)
+        {
+            return false;
+        }
+        if (entry.isDeleted())
+        {
+            _entries.remove(messageNumber, entry);
+            return false;
+        }
+        return true;
+    }
+}
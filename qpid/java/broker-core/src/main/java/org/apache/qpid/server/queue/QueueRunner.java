@@ -55,6 +55,7 @@ public class QueueRunner implements Runnable
 
     private final AtomicLong _lastRunAgain = new AtomicLong();
     private final AtomicLong _lastRunTime = new AtomicLong();
+    private volatile long _scheduledTime;
 
     public QueueRunner(AbstractQueue queue)
     {
@@ -65,6 +66,7 @@ public class QueueRunner implements Runnable
     {
         if(_scheduled.compareAndSet(SCHEDULED,RUNNING))
         {
+            _queue.registerSchedulingLatency(System.nanoTime() - _scheduledTime);
             Subject.doAs(SecurityManager.getSystemTaskSubject("Queue Delivery"), new PrivilegedAction<Object>()
             {
                 @Override
@@ -72,6 +74,7 @@ public class QueueRunner implements Runnable
                 {
                     long runAgain = Long.MIN_VALUE;
                     _stateChange.set(false);
+                    DeliveryPass.begin();
                     try
                     {
                         runAgain = _queue.processQueue(QueueRunner.this);
@@ -90,6 +93,7 @@ public class QueueRunner implements Runnable
                     }
                     finally
                     {
+                        DeliveryPass.end();
                         _scheduled.compareAndSet(RUNNING, IDLE);
                         final long stateChangeCount = _queue.getStateChangeCount();
                         _lastRunAgain.set(runAgain);
@@ -98,7 +102,8 @@ public class QueueRunner implements Runnable
                         {
                             if(_scheduled.compareAndSet(IDLE, SCHEDULED))
                             {
-                                _queue.execute(QueueRunner.this);
+                                _scheduledTime = System.nanoTime();
+                                scheduleOnQueue();
                             }
                         }
                     }
@@ -118,9 +123,24 @@ public class QueueRunner implements Runnable
     {
         _stateChange.set(true);
         if(_scheduled.compareAndSet(IDLE, SCHEDULED))
+        {
+            _scheduledTime = System.nanoTime();
+            scheduleOnQueue();
+        }
+    }
+
+    private void scheduleOnQueue()
+    {
+        try
         {
             _queue.execute(this);
         }
+        catch (RuntimeException e)
+        {
+            // not scheduled after all, so a later execute may try again
+            _scheduled.compareAndSet(SCHEDULED, IDLE);
+            throw e;
+        }
     }
 
     public boolean isIdle()
@@ -63,6 +63,9 @@ public class SecurityManager
                                                      Collections.emptySet(),
                                                      Collections.emptySet());
 
+    /** The number of publish access checks cached, beyond which the cache is emptied rather than grown */
+    private static final int MAX_PUBLISH_ACCESS_CHECKS = 1024;
+
     private final boolean _managementMode;
     private final Broker<?> _broker;
 
@@ -429,6 +432,10 @@ public class SecurityManager
         if (check == null)
         {
             check = new PublishAccessCheck(new ObjectProperties(virtualHostName, exchangeName, routingKey, immediate));
+            if (_publishAccessCheckCache.size() >= MAX_PUBLISH_ACCESS_CHECKS)
+            {
+                _publishAccessCheckCache.clear();
+            }
             _publishAccessCheckCache.putIfAbsent(key, check);
         }
         if(!checkAllPlugins(check))
@@ -26,25 +26,31 @@ import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class collects statistics and counts the total, rate per second and
- * peak rate per second values for the events that are registered with it. 
+ * peak rate per second values for the events that are registered with it.
+ * <p>
+ * Registering an event takes no lock: the total and the count for the current
+ * sample period are held in striped adders, and the thread which first sees a
+ * new sample period moves the count of the previous one into the rate and peak.
+ * The total is always exact; an event registered by one thread while another is
+ * starting a new sample period may be counted in either of the two periods.
  */
 public class StatisticsCounter
 {
     private static final Logger _log = LoggerFactory.getLogger(StatisticsCounter.class);
-    
+
     public static final long DEFAULT_SAMPLE_PERIOD = Long.getLong("qpid.statistics.samplePeriod", 2000L); // 2s
 
     private static final String COUNTER = "counter";
     private static final AtomicLong _counterIds = new AtomicLong(0L);
-    
-    private long _peak = 0L;
-    private long _total = 0L;
-    private long _temp = 0L;
-    private long _last = 0L;
-    private long _rate = 0L;
-
-    private long _start;
-    
+
+    private final AtomicLong _peak = new AtomicLong();
+    private final StripedLongAdder _total = new StripedLongAdder();
+    private final StripedLongAdder _temp = new StripedLongAdder();
+    private final AtomicLong _last = new AtomicLong();
+    private volatile long _rate = 0L;
+
+    private volatile long _start;
+
     private final long _period;
     private final String _name;
 
@@ -52,7 +58,7 @@ public class StatisticsCounter
     {
         this(COUNTER);
     }
-    
+
     public StatisticsCounter(String name)
     {
         this(name, DEFAULT_SAMPLE_PERIOD);
@@ -64,7 +70,7 @@ public class StatisticsCounter
         _name = name + "-" + + _counterIds.incrementAndGet();
         reset();
     }
-    
+
     public void registerEvent()
     {
         registerEvent(1L);
@@ -78,24 +84,25 @@ public class StatisticsCounter
     public void registerEvent(long value, long timestamp)
     {
         long thisSample = (timestamp / _period);
-        synchronized (this)
+        long last = _last.get();
+        if (thisSample > last && _last.compareAndSet(last, thisSample))
         {
-            if (thisSample > _last)
+            long rate = _temp.sumThenReset();
+            _rate = rate;
+            long peak;
+            while (rate > (peak = _peak.get()) && !_peak.compareAndSet(peak, rate))
             {
-                _last = thisSample;
-                _rate = _temp;
-                _temp = 0L;
-                if (_rate > _peak)
-                {
-                    _peak = _rate;
-                }
+                // retry until the recorded peak is at least this rate
             }
-            
-            _total += value;
-            _temp += value;
+        }
+
+        if (value != 0L)
+        {
+            _total.add(value);
+            _temp.add(value);
         }
     }
-    
+
     /**
      * Update the current rate and peak - may reset rate to zero if a new
      * sample period has started.
@@ -106,22 +113,22 @@ public class StatisticsCounter
     }
 
     /**
-     * Reset 
+     * Reset
      */
     public void reset()
     {
         _log.info("Resetting statistics for counter: " + _name);
-        _peak = 0L;
+        _peak.set(0L);
         _rate = 0L;
-        _total = 0L;
+        _total.reset();
         _start = System.currentTimeMillis();
-        _last = _start / _period;
+        _last.set(_start / _period);
     }
 
     public double getPeak()
     {
         update();
-        return (double) _peak / ((double) _period / 1000.0d);
+        return (double) _peak.get() / ((double) _period / 1000.0d);
     }
 
     public double getRate()
@@ -132,7 +139,7 @@ public class StatisticsCounter
 
     public long getTotal()
     {
-        return _total;
+        return _total.sum();
     }
 
     public long getStart()
@@ -144,12 +151,12 @@ public class StatisticsCounter
     {
         return new Date(_start);
     }
-    
+
     public String getName()
     {
         return _name;
     }
-    
+
     public long getPeriod()
     {
         return _period;
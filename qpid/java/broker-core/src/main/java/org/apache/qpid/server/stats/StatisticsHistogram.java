@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.server.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative long values with a fixed memory footprint, from which the maximum and
+ * percentiles of the recorded values can be read.
+ * <p>
+ * As in an HDR histogram the buckets are log-linear: values below eight have a bucket each, and
+ * every power of two range above is divided into eight equal buckets, so that a value reported
+ * for a percentile is never more than an eighth above the recorded value it stands for. Recording a value takes
+ * no lock. Negative values are recorded as zero.
+ */
+public class StatisticsHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong _maximum = new AtomicLong();
+
+    public void record(long value)
+    {
+        if (value < 0L)
+        {
+            value = 0L;
+        }
+        _counts.incrementAndGet(bucketIndex(value));
+
+        long maximum;
+        while (value > (maximum = _maximum.get()) && !_maximum.compareAndSet(maximum, value))
+        {
+            // retry until the recorded maximum is at least this value
+        }
+    }
+
+    public long getCount()
+    {
+        long count = 0L;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            count += _counts.get(i);
+        }
+        return count;
+    }
+
+    public long getMaximum()
+    {
+        return _maximum.get();
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the highest value equivalent to the recorded value at the given percentile, or 0 if no values
+     *         have been recorded
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        long[] counts = new long[BUCKETS];
+        long total = 0L;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts[i] = _counts.get(i);
+            total += counts[i];
+        }
+        if (total == 0L)
+        {
+            return 0L;
+        }
+
+        double clamped = Math.min(Math.max(percentile, 0.0d), 100.0d);
+        long target = Math.max(1L, (long) Math.ceil(clamped / 100.0d * total));
+        long cumulative = 0L;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            cumulative += counts[i];
+            if (cumulative >= target)
+            {
+                return Math.min(highestEquivalentValue(i), getMaximum());
+            }
+        }
+        return getMaximum();
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            _counts.set(i, 0L);
+        }
+        _maximum.set(0L);
+    }
+
+    static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestEquivalentValue(int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = SUB_BUCKETS + (index & (SUB_BUCKETS - 1));
+        return ((subBucket + 1L) << shift) - 1L;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.server.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A lock-free sum of longs in the manner of the Java 8 {@code LongAdder}.
+ * <p>
+ * Updates go to a single base value until two threads are seen to contend for it, at which point a set of
+ * cells, each on its own cache line, is created and every thread thereafter adds to the cell selected by its
+ * thread id. Reads sum the base and the cells, so a sum taken while updates are in progress need not reflect
+ * all of them.
+ */
+final class StripedLongAdder
+{
+    /** Number of longs between two cells, so that each cell sits on a separate 64 byte cache line. */
+    private static final int CELL_STRIDE = 8;
+    private static final int STRIPES = stripesFor(Runtime.getRuntime().availableProcessors());
+
+    private static final AtomicReferenceFieldUpdater<StripedLongAdder, AtomicLongArray> CELLS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(StripedLongAdder.class, AtomicLongArray.class, "_cells");
+
+    private final AtomicLong _base = new AtomicLong();
+    private volatile AtomicLongArray _cells;
+
+    void add(long value)
+    {
+        AtomicLongArray cells = _cells;
+        if (cells == null)
+        {
+            long base = _base.get();
+            if (_base.compareAndSet(base, base + value))
+            {
+                return;
+            }
+            else if (STRIPES == 1)
+            {
+                _base.addAndGet(value);
+                return;
+            }
+            cells = createCells();
+        }
+        cells.addAndGet(cellIndex(), value);
+    }
+
+    long sum()
+    {
+        long sum = _base.get();
+        AtomicLongArray cells = _cells;
+        if (cells != null)
+        {
+            for (int i = 0; i < cells.length(); i += CELL_STRIDE)
+            {
+                sum += cells.get(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the sum and sets the base and each cell to zero. Additions made concurrently are either included
+     * in the returned sum or left for the next one, never lost.
+     */
+    long sumThenReset()
+    {
+        long sum = _base.getAndSet(0L);
+        AtomicLongArray cells = _cells;
+        if (cells != null)
+        {
+            for (int i = 0; i < cells.length(); i += CELL_STRIDE)
+            {
+                sum += cells.getAndSet(i, 0L);
+            }
+        }
+        return sum;
+    }
+
+    void reset()
+    {
+        sumThenReset();
+    }
+
+    private AtomicLongArray createCells()
+    {
+        CELLS_UPDATER.compareAndSet(this, null, new AtomicLongArray(STRIPES * CELL_STRIDE));
+        return _cells;
+    }
+
+    private static int cellIndex()
+    {
+        int hash = (int) Thread.currentThread().getId();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return (hash & (STRIPES - 1)) * CELL_STRIDE;
+    }
+
+    private static int stripesFor(int processors)
+    {
+        int stripes = 1;
+        while (stripes < processors)
+        {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -21,7 +21,6 @@
 package org.apache.qpid.server.store;
 
 import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
 import java.sql.Connection;
@@ -31,8 +30,11 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
@@ -66,8 +68,13 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     private static final int DB_VERSION = 8;
 
+    /** The largest number of transactions the committer writes and commits together */
+    private static final int MAX_COMMIT_GROUP_SIZE = Integer.getInteger("qpid.jdbcstore.maxCommitGroupSize", 256);
+
     private final AtomicLong _messageId = new AtomicLong(0);
 
+    private volatile JDBCCoalescingCommitter<PendingTransaction> _committer;
+
     private static final String CREATE_DB_VERSION_TABLE = "CREATE TABLE "+ DB_VERSION_TABLE_NAME + " ( version int not null )";
     private static final String INSERT_INTO_DB_VERSION = "INSERT INTO "+ DB_VERSION_TABLE_NAME + " ( version ) VALUES ( ? )";
     private static final String SELECT_FROM_DB_VERSION = "SELECT version FROM " + DB_VERSION_TABLE_NAME;
@@ -109,10 +116,53 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     protected final EventManager _eventManager = new EventManager();
 
+    private volatile ResidentMessageContent _residentMessageContent = new ResidentMessageContent();
+
     protected abstract boolean isMessageStoreOpen();
 
     protected abstract void checkMessageStoreOpen();
 
+    /**
+     * Counts the content held in memory by this store in that of the broker owning the parent; called as the store
+     * is opened.
+     */
+    protected void setResidentMessageContent(ConfiguredObject<?> parent)
+    {
+        _residentMessageContent = ResidentMessageContent.forParent(parent);
+    }
+
+    /**
+     * Starts the thread committing transactions; called as the store is opened.
+     */
+    protected void startCommitter(String name)
+    {
+        _committer = new JDBCCoalescingCommitter<>(name, new BatchingGroupWriter(), MAX_COMMIT_GROUP_SIZE);
+        _committer.start();
+    }
+
+    /**
+     * Commits the transactions awaiting commit and stops the committing thread; called as the store is closed.
+     */
+    protected void stopCommitter()
+    {
+        JDBCCoalescingCommitter<PendingTransaction> committer = _committer;
+        if (committer != null)
+        {
+            _committer = null;
+            committer.stop();
+        }
+    }
+
+    private JDBCCoalescingCommitter<PendingTransaction> getCommitter()
+    {
+        JDBCCoalescingCommitter<PendingTransaction> committer = _committer;
+        if (committer == null)
+        {
+            throw new IllegalStateException("Message store is not open");
+        }
+        return committer;
+    }
+
 
     protected void setMaximumMessageId()
     {
@@ -459,66 +509,60 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     private void removeMessage(long messageId)
     {
+        PendingTransaction removal = new PendingTransaction();
+        removal._messagesToRemove.add(messageId);
+        getCommitter().commit(removal, true);
+    }
+
+    private void removeMessages(Connection conn, List<Long> messageIds) throws SQLException
+    {
+        if (messageIds.isEmpty())
+        {
+            return;
+        }
+
+        PreparedStatement stmt = conn.prepareStatement(DELETE_FROM_META_DATA);
         try
         {
-            Connection conn = newConnection();
-            try
+            for (Long messageId : messageIds)
             {
-                PreparedStatement stmt = conn.prepareStatement(DELETE_FROM_META_DATA);
-                try
-                {
-                    stmt.setLong(1,messageId);
-                    int results = stmt.executeUpdate();
-                    stmt.close();
-
-                    if (results == 0)
-                    {
-                        if (getLogger().isDebugEnabled())
-                        {
-                            getLogger().debug("Message id " + messageId
-                                              + " not found (attempt to remove failed - probably application initiated rollback)");
-                        }
-                    }
+                stmt.setLong(1, messageId);
+                stmt.addBatch();
+            }
+            int[] results = stmt.executeBatch();
 
-                    if (getLogger().isDebugEnabled())
+            if (getLogger().isDebugEnabled())
+            {
+                for (int i = 0; i < results.length; i++)
+                {
+                    if (results[i] == 0)
                     {
-                        getLogger().debug("Deleted metadata for message " + messageId);
+                        getLogger().debug("Message id " + messageIds.get(i)
+                                          + " not found (attempt to remove failed - probably application initiated rollback)");
                     }
-
-                    stmt = conn.prepareStatement(DELETE_FROM_MESSAGE_CONTENT);
-                    stmt.setLong(1, messageId);
-                    results = stmt.executeUpdate();
-                }
-                finally
-                {
-                    stmt.close();
                 }
-                conn.commit();
+                getLogger().debug("Deleted metadata for messages " + messageIds);
             }
-            catch(SQLException e)
-            {
-                try
-                {
-                    conn.rollback();
-                }
-                catch(SQLException t)
-                {
-                    // ignore - we are re-throwing underlying exception
-                }
-
-                throw e;
+        }
+        finally
+        {
+            stmt.close();
+        }
 
-            }
-            finally
+        stmt = conn.prepareStatement(DELETE_FROM_MESSAGE_CONTENT);
+        try
+        {
+            for (Long messageId : messageIds)
             {
-                conn.close();
+                stmt.setLong(1, messageId);
+                stmt.addBatch();
             }
+            stmt.executeBatch();
         }
-        catch (SQLException e)
+        finally
         {
-            throw new StoreException("Error removing message with id " + messageId + " from database: " + e.getMessage(), e);
+            stmt.close();
         }
-
     }
 
     /**
@@ -584,97 +628,96 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         return new JDBCTransaction();
     }
 
-    private void enqueueMessage(ConnectionWrapper connWrapper, final TransactionLogResource queue, Long messageId) throws StoreException
+    private void enqueueMessages(Connection conn, List<QueueEntryRecord> enqueues) throws SQLException
     {
-        Connection conn = connWrapper.getConnection();
-
+        if (enqueues.isEmpty())
+        {
+            return;
+        }
 
+        PreparedStatement stmt = conn.prepareStatement(INSERT_INTO_QUEUE_ENTRY);
         try
         {
-            if (getLogger().isDebugEnabled())
+            for (QueueEntryRecord enqueue : enqueues)
             {
-                getLogger().debug("Enqueuing message "
-                                  + messageId
-                                  + " on queue "
-                                  + queue.getName()
-                                  + " with id " + queue.getId()
-                                  + " [Connection"
-                                  + conn
-                                  + "]");
-            }
+                if (getLogger().isDebugEnabled())
+                {
+                    getLogger().debug("Enqueuing message "
+                                      + enqueue.getMessageId()
+                                      + " on queue "
+                                      + enqueue.getQueue().getName()
+                                      + " with id " + enqueue.getQueue().getId()
+                                      + " [Connection"
+                                      + conn
+                                      + "]");
+                }
 
-            PreparedStatement stmt = conn.prepareStatement(INSERT_INTO_QUEUE_ENTRY);
-            try
-            {
-                stmt.setString(1, queue.getId().toString());
-                stmt.setLong(2,messageId);
-                stmt.executeUpdate();
+                stmt.setString(1, enqueue.getQueue().getId().toString());
+                stmt.setLong(2, enqueue.getMessageId());
+                stmt.addBatch();
             }
-            finally
-            {
-                stmt.close();
-            }
-
+            stmt.executeBatch();
         }
         catch (SQLException e)
         {
             getLogger().error("Failed to enqueue: " + e.getMessage(), e);
-            throw new StoreException("Error writing enqueued message with id " + messageId + " for queue " + queue.getName() + " with id " + queue.getId()
-                                     + " to database", e);
+            throw e;
+        }
+        finally
+        {
+            stmt.close();
         }
-
     }
 
-    private void dequeueMessage(ConnectionWrapper connWrapper, final TransactionLogResource  queue, Long messageId) throws StoreException
+    private void dequeueMessages(Connection conn, List<QueueEntryRecord> dequeues) throws SQLException
     {
+        if (dequeues.isEmpty())
+        {
+            return;
+        }
 
-        Connection conn = connWrapper.getConnection();
-
-
+        PreparedStatement stmt = conn.prepareStatement(DELETE_FROM_QUEUE_ENTRY);
         try
         {
-            PreparedStatement stmt = conn.prepareStatement(DELETE_FROM_QUEUE_ENTRY);
-            try
+            for (QueueEntryRecord dequeue : dequeues)
             {
-                stmt.setString(1, queue.getId().toString());
-                stmt.setLong(2, messageId);
-                int results = stmt.executeUpdate();
-
-
+                stmt.setString(1, dequeue.getQueue().getId().toString());
+                stmt.setLong(2, dequeue.getMessageId());
+                stmt.addBatch();
+            }
+            int[] results = stmt.executeBatch();
 
-                if(results != 1)
+            for (int i = 0; i < results.length; i++)
+            {
+                QueueEntryRecord dequeue = dequeues.get(i);
+                if (results[i] != 1 && results[i] != Statement.SUCCESS_NO_INFO)
                 {
-                    throw new StoreException("Unable to find message with id " + messageId + " on queue " + queue.getName()
-                                             + " with id " + queue.getId());
+                    throw new StoreException("Unable to find message with id " + dequeue.getMessageId()
+                                             + " on queue " + dequeue.getQueue().getName()
+                                             + " with id " + dequeue.getQueue().getId());
                 }
 
                 if (getLogger().isDebugEnabled())
                 {
-                    getLogger().debug("Dequeuing message " + messageId + " on queue " + queue.getName()
-                                      + " with id " + queue.getId());
+                    getLogger().debug("Dequeuing message " + dequeue.getMessageId() + " on queue "
+                                      + dequeue.getQueue().getName() + " with id " + dequeue.getQueue().getId());
                 }
             }
-            finally
-            {
-                stmt.close();
-            }
-
         }
         catch (SQLException e)
         {
             getLogger().error("Failed to dequeue: " + e.getMessage(), e);
-            throw new StoreException("Error deleting enqueued message with id " + messageId + " for queue " + queue.getName()
-                                     + " with id " + queue.getId() + " from database", e);
+            throw e;
+        }
+        finally
+        {
+            stmt.close();
         }
-
     }
 
-    private void removeXid(ConnectionWrapper connWrapper, long format, byte[] globalId, byte[] branchId)
+    private void removeXid(Connection conn, long format, byte[] globalId, byte[] branchId)
             throws StoreException
     {
-        Connection conn = connWrapper.getConnection();
-
-
         try
         {
             PreparedStatement stmt = conn.prepareStatement(DELETE_FROM_XIDS);
@@ -720,12 +763,9 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     }
 
-    private List<Runnable> recordXid(ConnectionWrapper connWrapper, long format, byte[] globalId, byte[] branchId,
-                                     Transaction.Record[] enqueues, Transaction.Record[] dequeues) throws StoreException
+    private void recordXid(Connection conn, long format, byte[] globalId, byte[] branchId,
+                           Transaction.Record[] enqueues, Transaction.Record[] dequeues) throws StoreException
     {
-        Connection conn = connWrapper.getConnection();
-
-
         try
         {
 
@@ -742,17 +782,6 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
                 stmt.close();
             }
 
-            List<Runnable> postActions = new ArrayList<>();
-            for(org.apache.qpid.server.store.Transaction.Record enqueue : enqueues)
-            {
-                StoredMessage storedMessage = enqueue.getMessage().getStoredMessage();
-                if(storedMessage instanceof StoredJDBCMessage)
-                {
-                    postActions.add(((StoredJDBCMessage) storedMessage).store(conn));
-                }
-            }
-
-
             stmt = conn.prepareStatement(INSERT_INTO_XID_ACTIONS);
 
             try
@@ -788,7 +817,6 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             {
                 stmt.close();
             }
-            return postActions;
         }
         catch (SQLException e)
         {
@@ -798,74 +826,50 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     }
 
-    private static final class ConnectionWrapper
+    private void storeMessages(Connection conn, Collection<StoredJDBCMessage<?>> messages) throws SQLException
     {
-        private final Connection _connection;
-
-        public ConnectionWrapper(Connection conn)
+        if (messages.isEmpty())
         {
-            _connection = conn;
+            return;
         }
 
-        public Connection getConnection()
-        {
-            return _connection;
-        }
-    }
-
-
-    private void commitTran(ConnectionWrapper connWrapper) throws StoreException
-    {
+        PreparedStatement metaDataStmt = conn.prepareStatement(INSERT_INTO_META_DATA);
         try
         {
-            Connection conn = connWrapper.getConnection();
-            conn.commit();
+            PreparedStatement contentStmt = conn.prepareStatement(INSERT_INTO_MESSAGE_CONTENT);
+            try
+            {
+                List<Long> messageIds = new ArrayList<>(messages.size());
+                for (StoredJDBCMessage<?> message : messages)
+                {
+                    if (message.addToBatch(metaDataStmt, contentStmt))
+                    {
+                        messageIds.add(message.getMessageNumber());
+                    }
+                }
 
-            if (getLogger().isDebugEnabled())
+                int[] results = metaDataStmt.executeBatch();
+                for (int i = 0; i < results.length; i++)
+                {
+                    if (results[i] == 0)
+                    {
+                        throw new StoreException("Unable to add meta data for message " + messageIds.get(i));
+                    }
+                }
+                contentStmt.executeBatch();
+            }
+            finally
             {
-                getLogger().debug("commit tran completed");
+                contentStmt.close();
             }
-
-            conn.close();
-        }
-        catch (SQLException e)
-        {
-            throw new StoreException("Error commit tx: " + e.getMessage(), e);
-        }
-    }
-
-    private StoreFuture commitTranAsync(ConnectionWrapper connWrapper) throws StoreException
-    {
-        commitTran(connWrapper);
-        return StoreFuture.IMMEDIATE_FUTURE;
-    }
-
-    private void abortTran(ConnectionWrapper connWrapper) throws StoreException
-    {
-        if (connWrapper == null)
-        {
-            throw new StoreException("Fatal internal error: transactional context is empty at abortTran");
-        }
-
-        if (getLogger().isDebugEnabled())
-        {
-            getLogger().debug("abort tran called: " + connWrapper.getConnection());
-        }
-
-        try
-        {
-            Connection conn = connWrapper.getConnection();
-            conn.rollback();
-            conn.close();
         }
-        catch (SQLException e)
+        finally
         {
-            throw new StoreException("Error aborting transaction: " + e.getMessage(), e);
+            metaDataStmt.close();
         }
-
     }
 
-    private void storeMetaData(Connection conn, long messageId, StorableMessageMetaData metaData)
+    private void addMetaDataToBatch(PreparedStatement stmt, long messageId, StorableMessageMetaData metaData)
             throws SQLException
     {
         if(getLogger().isDebugEnabled())
@@ -873,52 +877,20 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             getLogger().debug("Adding metadata for message " + messageId);
         }
 
-        PreparedStatement stmt = conn.prepareStatement(INSERT_INTO_META_DATA);
-        try
-        {
-            stmt.setLong(1,messageId);
-
-            final int bodySize = 1 + metaData.getStorableSize();
-            byte[] underlying = new byte[bodySize];
-            underlying[0] = (byte) metaData.getType().ordinal();
-            ByteBuffer buf = ByteBuffer.wrap(underlying);
-            buf.position(1);
-            buf = buf.slice();
+        stmt.setLong(1,messageId);
 
-            metaData.writeToBuffer(buf);
-            ByteArrayInputStream bis = new ByteArrayInputStream(underlying);
-            try
-            {
-                stmt.setBinaryStream(2,bis,underlying.length);
-                int result = stmt.executeUpdate();
-
-                if(result == 0)
-                {
-                    throw new StoreException("Unable to add meta data for message " +messageId);
-                }
-            }
-            finally
-            {
-                try
-                {
-                    bis.close();
-                }
-                catch (IOException e)
-                {
-
-                    throw new SQLException(e);
-                }
-            }
-
-        }
-        finally
-        {
-            stmt.close();
-        }
+        final int bodySize = 1 + metaData.getStorableSize();
+        byte[] underlying = new byte[bodySize];
+        underlying[0] = (byte) metaData.getType().ordinal();
+        ByteBuffer buf = ByteBuffer.wrap(underlying);
+        buf.position(1);
+        buf = buf.slice();
 
+        metaData.writeToBuffer(buf);
+        stmt.setBinaryStream(2, new ByteArrayInputStream(underlying), underlying.length);
+        stmt.addBatch();
     }
 
-
     private static class RecordImpl implements Transaction.Record, TransactionLogResource, EnqueueableMessage
     {
 
@@ -1028,38 +1000,16 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     protected abstract byte[] getBlobAsBytes(ResultSet rs, int col) throws SQLException;
 
-    private void addContent(Connection conn, long messageId, ByteBuffer src)
+    private void addContentToBatch(PreparedStatement stmt, long messageId, byte[] data) throws SQLException
     {
         if(getLogger().isDebugEnabled())
         {
             getLogger().debug("Adding content for message " + messageId);
         }
-        PreparedStatement stmt = null;
-
-        try
-        {
-            src = src.slice();
-
-            byte[] chunkData = new byte[src.limit()];
-            src.duplicate().get(chunkData);
-
-            stmt = conn.prepareStatement(INSERT_INTO_MESSAGE_CONTENT);
-            stmt.setLong(1,messageId);
-
-            ByteArrayInputStream bis = new ByteArrayInputStream(chunkData);
-            stmt.setBinaryStream(2, bis, chunkData.length);
-            stmt.executeUpdate();
-        }
-        catch (SQLException e)
-        {
-            JdbcUtils.closeConnection(conn, getLogger());
-            throw new StoreException("Error adding content for message " + messageId + ": " + e.getMessage(), e);
-        }
-        finally
-        {
-            JdbcUtils.closePreparedStatement(stmt, getLogger());
-        }
 
+        stmt.setLong(1,messageId);
+        stmt.setBinaryStream(2, new ByteArrayInputStream(data), data.length);
+        stmt.addBatch();
     }
 
     private int getContent(long messageId, int offset, ByteBuffer dst)
@@ -1163,23 +1113,16 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     }
 
 
+    /**
+     * Records the operations of a transaction, which are written to the database by the committer together with
+     * those of any other transactions committed at the same time.
+     */
     protected class JDBCTransaction implements Transaction
     {
-        private final ConnectionWrapper _connWrapper;
-        private int _storeSizeIncrease;
-        private final List<Runnable> _preCommitActions = new ArrayList<>();
-        private final List<Runnable> _postCommitActions = new ArrayList<>();
+        private final PendingTransaction _pendingTransaction = new PendingTransaction();
 
         protected JDBCTransaction()
         {
-            try
-            {
-                _connWrapper = new ConnectionWrapper(newConnection());
-            }
-            catch (SQLException e)
-            {
-                throw new StoreException(e);
-            }
         }
 
         @Override
@@ -1190,26 +1133,10 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             final StoredMessage storedMessage = message.getStoredMessage();
             if(storedMessage instanceof StoredJDBCMessage)
             {
-                _preCommitActions.add(new Runnable()
-                {
-                    @Override
-                    public void run()
-                    {
-                        try
-                        {
-                            _postCommitActions.add(((StoredJDBCMessage) storedMessage).store(_connWrapper.getConnection()));
-                            _storeSizeIncrease += storedMessage.getMetaData().getContentSize();
-                        }
-                        catch (SQLException e)
-                        {
-                            throw new StoreException("Exception on enqueuing message into message store" + _messageId,
-                                                     e);
-                        }
-                    }
-                });
+                _pendingTransaction._messagesToStore.add((StoredJDBCMessage<?>) storedMessage);
+                _pendingTransaction._storeSizeIncrease += storedMessage.getMetaData().getContentSize();
             }
-            AbstractJDBCMessageStore.this.enqueueMessage(_connWrapper, queue, message.getMessageNumber());
-
+            _pendingTransaction._enqueues.add(new QueueEntryRecord(queue, message.getMessageNumber()));
         }
 
         @Override
@@ -1217,70 +1144,179 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
-            AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper, queue, message.getMessageNumber());
+            _pendingTransaction._dequeues.add(new QueueEntryRecord(queue, message.getMessageNumber()));
         }
 
         @Override
         public void commitTran()
         {
             checkMessageStoreOpen();
-            doPreCommitActions();
-            AbstractJDBCMessageStore.this.commitTran(_connWrapper);
-            storedSizeChange(_storeSizeIncrease);
-            doPostCommitActions();
+            getCommitter().commit(_pendingTransaction, true);
         }
 
         @Override
         public StoreFuture commitTranAsync()
         {
             checkMessageStoreOpen();
-            doPreCommitActions();
-            StoreFuture storeFuture = AbstractJDBCMessageStore.this.commitTranAsync(_connWrapper);
-            storedSizeChange(_storeSizeIncrease);
-            doPostCommitActions();
-            return storeFuture;
+            return getCommitter().commit(_pendingTransaction, false);
         }
 
-        private void doPreCommitActions()
+        @Override
+        public void abortTran()
         {
-            for(Runnable action : _preCommitActions)
-            {
-                action.run();
-            }
-            _preCommitActions.clear();
+            checkMessageStoreOpen();
+            _pendingTransaction.clear();
+        }
+
+        @Override
+        public void removeXid(long format, byte[] globalId, byte[] branchId)
+        {
+            checkMessageStoreOpen();
+
+            _pendingTransaction._xidsToRemove.add(new XidRecord(format, globalId, branchId, null, null));
         }
 
-        private void doPostCommitActions()
+        @Override
+        public void recordXid(long format, byte[] globalId, byte[] branchId, Record[] enqueues, Record[] dequeues)
         {
-            for(Runnable action : _postCommitActions)
+            checkMessageStoreOpen();
+
+            for(Record enqueue : enqueues)
             {
-                action.run();
+                StoredMessage storedMessage = enqueue.getMessage().getStoredMessage();
+                if(storedMessage instanceof StoredJDBCMessage)
+                {
+                    _pendingTransaction._messagesToStore.add((StoredJDBCMessage<?>) storedMessage);
+                }
             }
-            _postCommitActions.clear();
+            _pendingTransaction._xidsToRecord.add(new XidRecord(format, globalId, branchId, enqueues, dequeues));
+        }
+    }
+
+    /**
+     * The changes of a transaction waiting to be written to the database by the committer.
+     */
+    private static final class PendingTransaction
+    {
+        private final List<StoredJDBCMessage<?>> _messagesToStore = new ArrayList<>();
+        private final List<QueueEntryRecord> _enqueues = new ArrayList<>();
+        private final List<QueueEntryRecord> _dequeues = new ArrayList<>();
+        private final List<XidRecord> _xidsToRecord = new ArrayList<>();
+        private final List<XidRecord> _xidsToRemove = new ArrayList<>();
+        private final List<Long> _messagesToRemove = new ArrayList<>();
+        private int _storeSizeIncrease;
+
+        private void clear()
+        {
+            _messagesToStore.clear();
+            _enqueues.clear();
+            _dequeues.clear();
+            _xidsToRecord.clear();
+            _xidsToRemove.clear();
+            _messagesToRemove.clear();
+            _storeSizeIncrease = 0;
         }
+    }
 
+    private static final class QueueEntryRecord
+    {
+        private final TransactionLogResource _queue;
+        private final long _messageId;
+
+        private QueueEntryRecord(final TransactionLogResource queue, final long messageId)
+        {
+            _queue = queue;
+            _messageId = messageId;
+        }
+
+        private TransactionLogResource getQueue()
+        {
+            return _queue;
+        }
+
+        private long getMessageId()
+        {
+            return _messageId;
+        }
+    }
+
+    private static final class XidRecord
+    {
+        private final long _format;
+        private final byte[] _globalId;
+        private final byte[] _branchId;
+        private final Transaction.Record[] _enqueues;
+        private final Transaction.Record[] _dequeues;
+
+        private XidRecord(final long format, final byte[] globalId, final byte[] branchId,
+                          final Transaction.Record[] enqueues, final Transaction.Record[] dequeues)
+        {
+            _format = format;
+            _globalId = globalId;
+            _branchId = branchId;
+            _enqueues = enqueues;
+            _dequeues = dequeues;
+        }
+    }
+
+    /**
+     * Writes the changes of a group of transactions using one batch per statement type. Message rows are inserted
+     * first and deleted last so that a message stored and removed within the same group is handled correctly.
+     */
+    private final class BatchingGroupWriter implements JDBCCoalescingCommitter.GroupWriter<PendingTransaction>
+    {
         @Override
-        public void abortTran()
+        public Connection newConnection() throws SQLException
         {
-            checkMessageStoreOpen();
-            _preCommitActions.clear();
-            AbstractJDBCMessageStore.this.abortTran(_connWrapper);
+            return AbstractJDBCMessageStore.this.newConnection();
         }
 
         @Override
-        public void removeXid(long format, byte[] globalId, byte[] branchId)
+        public void write(final Connection conn, final List<PendingTransaction> group) throws SQLException
         {
-            checkMessageStoreOpen();
+            Map<Long, StoredJDBCMessage<?>> messagesToStore = new LinkedHashMap<>();
+            List<QueueEntryRecord> enqueues = new ArrayList<>();
+            List<QueueEntryRecord> dequeues = new ArrayList<>();
+            List<Long> messagesToRemove = new ArrayList<>();
+            for (PendingTransaction txn : group)
+            {
+                for (StoredJDBCMessage<?> message : txn._messagesToStore)
+                {
+                    messagesToStore.put(message.getMessageNumber(), message);
+                }
+                enqueues.addAll(txn._enqueues);
+                dequeues.addAll(txn._dequeues);
+                messagesToRemove.addAll(txn._messagesToRemove);
+            }
 
-            AbstractJDBCMessageStore.this.removeXid(_connWrapper, format, globalId, branchId);
+            storeMessages(conn, messagesToStore.values());
+            for (PendingTransaction txn : group)
+            {
+                for (XidRecord xid : txn._xidsToRemove)
+                {
+                    removeXid(conn, xid._format, xid._globalId, xid._branchId);
+                }
+                for (XidRecord xid : txn._xidsToRecord)
+                {
+                    recordXid(conn, xid._format, xid._globalId, xid._branchId, xid._enqueues, xid._dequeues);
+                }
+            }
+            enqueueMessages(conn, enqueues);
+            dequeueMessages(conn, dequeues);
+            removeMessages(conn, messagesToRemove);
         }
 
         @Override
-        public void recordXid(long format, byte[] globalId, byte[] branchId, Record[] enqueues, Record[] dequeues)
+        public void committed(final PendingTransaction txn)
         {
-            checkMessageStoreOpen();
-
-            _postCommitActions.addAll(AbstractJDBCMessageStore.this.recordXid(_connWrapper, format, globalId, branchId, enqueues, dequeues));
+            for (StoredJDBCMessage<?> message : txn._messagesToStore)
+            {
+                message.markStored();
+            }
+            if (txn._storeSizeIncrease != 0)
+            {
+                storedSizeChange(txn._storeSizeIncrease);
+            }
         }
     }
 
@@ -1291,16 +1327,20 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         byte[] getData();
         void setData(byte[] data);
         boolean isHardRef();
+        void release();
     }
 
     private static final class MessageDataHardRef<T extends StorableMessageMetaData> implements MessageDataRef<T>
     {
         private final T _metaData;
+        private final ResidentMessageContent _residentMessageContent;
         private byte[] _data;
+        private boolean _released;
 
-        private MessageDataHardRef(final T metaData)
+        private MessageDataHardRef(final T metaData, final ResidentMessageContent residentMessageContent)
         {
             _metaData = metaData;
+            _residentMessageContent = residentMessageContent;
         }
 
         @Override
@@ -1316,8 +1356,12 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         }
 
         @Override
-        public void setData(final byte[] data)
+        public synchronized void setData(final byte[] data)
         {
+            if (!_released)
+            {
+                _residentMessageContent.added((data == null ? 0 : data.length) - (_data == null ? 0 : _data.length));
+            }
             _data = data;
         }
 
@@ -1326,6 +1370,16 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             return true;
         }
+
+        @Override
+        public synchronized void release()
+        {
+            if (!_released)
+            {
+                _released = true;
+                _residentMessageContent.released(_data == null ? 0 : _data.length);
+            }
+        }
     }
 
     private static final class MessageData<T extends StorableMessageMetaData>
@@ -1398,6 +1452,11 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             return false;
         }
+
+        @Override
+        public void release()
+        {
+        }
     }
 
     private class StoredJDBCMessage<T extends StorableMessageMetaData> implements StoredMessage<T>
@@ -1421,7 +1480,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
             if(!isRecovered)
             {
-                _messageDataRef = new MessageDataHardRef<>(metaData);
+                _messageDataRef = new MessageDataHardRef<>(metaData, _residentMessageContent);
             }
             else
             {
@@ -1575,6 +1634,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             int delta = getMetaData().getContentSize();
             AbstractJDBCMessageStore.this.removeMessage(_messageId);
             storedSizeChange(-delta);
+            _messageDataRef.release();
         }
 
         @Override
@@ -1586,73 +1646,46 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         @Override
         public boolean flowToDisk()
         {
-            try(Connection conn = newConnection())
+            PendingTransaction pendingTransaction = new PendingTransaction();
+            pendingTransaction._messagesToStore.add(this);
+            getCommitter().commit(pendingTransaction, true);
+            return true;
+        }
+
+        /**
+         * Adds the meta data and content of this message to the given batches, unless it has already been stored.
+         *
+         * @return true if the message was added
+         */
+        private synchronized boolean addToBatch(final PreparedStatement metaDataStmt,
+                                                final PreparedStatement contentStmt) throws SQLException
+        {
+            if (stored())
             {
-                store(conn);
-                conn.commit();
+                return false;
             }
-            catch (SQLException e)
+
+            if(getLogger().isDebugEnabled())
             {
-                throw new StoreException("Failed to flow to disk", e);
+                getLogger().debug("Storing message " + _messageId + " to store");
             }
+
+            byte[] data = _messageDataRef.getData();
+            addMetaDataToBatch(metaDataStmt, _messageId, _messageDataRef.getMetaData());
+            addContentToBatch(contentStmt, _messageId, data == null ? new byte[0] : data);
             return true;
         }
 
-        private synchronized Runnable store(final Connection conn) throws SQLException
+        /**
+         * Once the message has been committed to the database, its data need only be softly held.
+         */
+        private synchronized void markStored()
         {
             if (!stored())
             {
-                storeMetaData(conn, _messageId, _messageDataRef.getMetaData());
-                AbstractJDBCMessageStore.this.addContent(conn, _messageId,
-                                                               _messageDataRef.getData() == null
-                                                                       ? ByteBuffer.allocate(0)
-                                                                       : ByteBuffer.wrap(_messageDataRef.getData()));
-
-
-                if(getLogger().isDebugEnabled())
-                {
-                    getLogger().debug("Storing message " + _messageId + " to store");
-                }
-
                 MessageDataRef<T> hardRef = _messageDataRef;
-                MessageDataSoftRef<T> messageDataSoftRef;
-                MessageData<T> ref;
-                do
-                {
-                    messageDataSoftRef = new MessageDataSoftRef<>(hardRef.getMetaData(), hardRef.getData());
-                    ref = messageDataSoftRef.get();
-                }
-                while (ref == null);
-
-                _messageDataRef = messageDataSoftRef;
-
-                class Pointer implements Runnable
-                {
-                    private MessageData<T> _ref;
-
-                    Pointer(final MessageData<T> ref)
-                    {
-                        _ref = ref;
-                    }
-
-                    @Override
-                    public void run()
-                    {
-                        _ref = null;
-                    }
-                }
-                return new Pointer(ref);
-            }
-            else
-            {
-                return new Runnable()
-                {
-
-                    @Override
-                    public void run()
-                    {
-                    }
-                };
+                _messageDataRef = new MessageDataSoftRef<>(hardRef.getMetaData(), hardRef.getData());
+                hardRef.release();
             }
         }
 
@@ -0,0 +1,225 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.Broker;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.model.State;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.model.VirtualHostNode;
+import org.apache.qpid.server.queue.QueueEntry;
+import org.apache.qpid.server.queue.QueueEntryVisitor;
+
+/**
+ * Keeps the content of the messages held in memory by the message stores of a broker within a memory budget.
+ * <p>
+ * The stores count the content they hold in memory as it is added and released, in the broker's
+ * {@link ResidentMessageContent}, so each check only compares that count with the heap budget given by
+ * {@link Broker#BROKER_FLOW_TO_DISK_THRESHOLD}.
+ * Only when the budget is exceeded are the active queues of all the virtual hosts visited to find the messages whose
+ * content is in memory, counting a message enqueued on several queues once, and messages are flowed to disk in the
+ * order given by the {@link Policy} until the excess has been evicted. Queues keep flowing messages to disk against
+ * their own target sizes as before; this check catches the case where every queue is within its target but the
+ * broker as a whole is not.
+ */
+public class FlowToDiskManager
+{
+    private static final Logger LOGGER = Logger.getLogger(FlowToDiskManager.class);
+
+    public enum Policy
+    {
+        /** Evict the messages which arrived first. */
+        OLDEST_FIRST,
+        /** Evict the messages which arrived last, which sit furthest from the head of their queues. */
+        NEWEST_FIRST
+    }
+
+    private final Broker<?> _broker;
+    private final AtomicBoolean _checking = new AtomicBoolean();
+    private final AtomicLong _evictedBytes = new AtomicLong();
+    private final AtomicLong _evictedMessages = new AtomicLong();
+
+    public FlowToDiskManager(Broker<?> broker)
+    {
+        _broker = broker;
+    }
+
+    /**
+     * Flows messages to disk if the resident message content exceeds the budget. Does nothing if a check is already in
+     * progress.
+     */
+    public void checkMemory()
+    {
+        if (!_checking.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        try
+        {
+            long budget = _broker.getContextValue(Long.class, Broker.BROKER_FLOW_TO_DISK_THRESHOLD);
+            long residentBytes = getResidentBytes();
+            long excess = residentBytes - budget;
+            if (excess > 0L)
+            {
+                Policy policy = _broker.getContextValue(Policy.class, Broker.BROKER_FLOW_TO_DISK_POLICY);
+                long evicted = evict(findResidentMessages(), policy, excess);
+                if (LOGGER.isDebugEnabled())
+                {
+                    LOGGER.debug("Resident message content of " + residentBytes + " bytes exceeded budget by "
+                                 + excess + " bytes, flowed " + evicted + " bytes to disk");
+                }
+            }
+        }
+        finally
+        {
+            _checking.set(false);
+        }
+    }
+
+    /** Size, in bytes, of the message content held in memory which could be flowed to disk. */
+    public long getResidentBytes()
+    {
+        return _broker.getResidentMessageContent().getResidentBytes();
+    }
+
+    /** Total size, in bytes, of the messages flowed to disk to keep within budget. */
+    public long getEvictedBytes()
+    {
+        return _evictedBytes.get();
+    }
+
+    /** Number of messages flowed to disk to keep within budget. */
+    public long getEvictedMessages()
+    {
+        return _evictedMessages.get();
+    }
+
+    private List<ResidentMessage> findResidentMessages()
+    {
+        final Map<StoredMessage<?>, ResidentMessage> residentMessages = new IdentityHashMap<>();
+        QueueEntryVisitor visitor = new QueueEntryVisitor()
+        {
+            @Override
+            public boolean visit(final QueueEntry entry)
+            {
+                ServerMessage message = entry.getMessage();
+                if (message != null)
+                {
+                    StoredMessage<?> storedMessage = message.getStoredMessage();
+                    if (storedMessage.isInMemory() && !residentMessages.containsKey(storedMessage))
+                    {
+                        residentMessages.put(storedMessage, new ResidentMessage(storedMessage,
+                                                                                message.getSize(),
+                                                                                message.getArrivalTime()));
+                    }
+                }
+                return false;
+            }
+        };
+
+        for (VirtualHostNode<?> virtualHostNode : _broker.getVirtualHostNodes())
+        {
+            VirtualHost<?, ?, ?> virtualHost = virtualHostNode.getVirtualHost();
+            if (virtualHost != null && virtualHost.getState() == State.ACTIVE)
+            {
+                for (Queue<?> queue : virtualHost.getQueues())
+                {
+                    if (queue.getState() == State.ACTIVE)
+                    {
+                        queue.visit(visitor);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(residentMessages.values());
+    }
+
+    private long evict(List<ResidentMessage> residentMessages, Policy policy, long excess)
+    {
+        Comparator<ResidentMessage> order = policy == Policy.NEWEST_FIRST
+                ? Collections.reverseOrder(ResidentMessage.ARRIVAL_ORDER)
+                : ResidentMessage.ARRIVAL_ORDER;
+        Collections.sort(residentMessages, order);
+
+        long evicted = 0L;
+        for (ResidentMessage residentMessage : residentMessages)
+        {
+            if (evicted >= excess)
+            {
+                break;
+            }
+            StoredMessage<?> storedMessage = residentMessage.getStoredMessage();
+            if (storedMessage.isInMemory() && storedMessage.flowToDisk())
+            {
+                evicted += residentMessage.getSize();
+                _evictedBytes.addAndGet(residentMessage.getSize());
+                _evictedMessages.incrementAndGet();
+            }
+        }
+        return evicted;
+    }
+
+    private static final class ResidentMessage
+    {
+        private static final Comparator<ResidentMessage> ARRIVAL_ORDER = new Comparator<ResidentMessage>()
+        {
+            @Override
+            public int compare(final ResidentMessage m1, final ResidentMessage m2)
+            {
+                return m1._arrivalTime < m2._arrivalTime ? -1 : (m1._arrivalTime == m2._arrivalTime ? 0 : 1);
+            }
+        };
+
+        private final StoredMessage<?> _storedMessage;
+        private final long _size;
+        private final long _arrivalTime;
+
+        private ResidentMessage(final StoredMessage<?> storedMessage, final long size, final long arrivalTime)
+        {
+            _storedMessage = storedMessage;
+            _size = size;
+            _arrivalTime = arrivalTime;
+        }
+
+        private StoredMessage<?> getStoredMessage()
+        {
+            return _storedMessage;
+        }
+
+        private long getSize()
+        {
+            return _size;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Commits the work of concurrent transactions together, in a single JDBC transaction, from a dedicated thread.
+ * <p>
+ * Work handed to the committer is queued, and the commit thread takes everything queued since its last commit
+ * (up to a maximum group size) and has the {@link GroupWriter} write it to one connection before committing. While
+ * a group is being committed the next one accumulates, so the number of database round trips and commits falls as
+ * the load rises. Should a group fail, its work is retried one item at a time so that a single failing item does
+ * not cause the others to fail with it. Work is committed in the order it was handed to the committer.
+ *
+ * @param <W> the type of work committed
+ */
+final class JDBCCoalescingCommitter<W>
+{
+    private static final Logger LOGGER = Logger.getLogger(JDBCCoalescingCommitter.class);
+
+    interface GroupWriter<W>
+    {
+        Connection newConnection() throws SQLException;
+
+        /**
+         * Writes the given work to the connection. The connection is committed by the caller.
+         */
+        void write(Connection connection, List<W> group) throws SQLException;
+
+        /**
+         * Called, from the commit thread, once the transaction holding the given work has been committed.
+         */
+        void committed(W work);
+    }
+
+    private final CommitThread<W> _commitThread;
+
+    JDBCCoalescingCommitter(String name, GroupWriter<W> writer, int maxGroupSize)
+    {
+        _commitThread = new CommitThread<W>("Commit-Thread-" + name, writer, maxGroupSize);
+    }
+
+    void start()
+    {
+        _commitThread.start();
+    }
+
+    /**
+     * Stops accepting work, commits the work already queued and waits for the commit thread to finish.
+     */
+    void stop()
+    {
+        _commitThread.close();
+        if (Thread.currentThread() != _commitThread)
+        {
+            try
+            {
+                _commitThread.join();
+            }
+            catch (InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+                throw new StoreException("Commit thread has not shutdown", ie);
+            }
+        }
+    }
+
+    /**
+     * @param work the work to commit
+     * @param sync if true, waits for the work to be committed and rethrows any failure to commit it
+     * @return a future which completes once the work has been committed, or has failed to be
+     */
+    StoreFuture commit(W work, boolean sync)
+    {
+        JDBCCommitFuture<W> future = new JDBCCommitFuture<W>(work);
+        _commitThread.addJob(future);
+        if (sync)
+        {
+            future.waitForCompletion();
+        }
+        return future;
+    }
+
+    private static final class JDBCCommitFuture<W> implements StoreFuture
+    {
+        private final W _work;
+        private RuntimeException _exception;
+        private boolean _complete;
+
+        private JDBCCommitFuture(W work)
+        {
+            _work = work;
+        }
+
+        W getWork()
+        {
+            return _work;
+        }
+
+        synchronized void complete()
+        {
+            _complete = true;
+            notifyAll();
+        }
+
+        synchronized void abort(RuntimeException exception)
+        {
+            _complete = true;
+            _exception = exception;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized boolean isComplete()
+        {
+            return _complete;
+        }
+
+        /**
+         * @throws StoreException if the work could not be committed
+         */
+        @Override
+        public synchronized void waitForCompletion()
+        {
+            while (!_complete)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new StoreException(e);
+                }
+            }
+
+            if (_exception != null)
+            {
+                throw _exception;
+            }
+        }
+    }
+
+    private static final class CommitThread<W> extends Thread
+    {
+        private final Queue<JDBCCommitFuture<W>> _jobQueue = new ConcurrentLinkedQueue<JDBCCommitFuture<W>>();
+        private final Object _lock = new Object();
+        private final GroupWriter<W> _writer;
+        private final int _maxGroupSize;
+        private boolean _stopped;
+
+        private CommitThread(String name, GroupWriter<W> writer, int maxGroupSize)
+        {
+            super(name);
+            _writer = writer;
+            _maxGroupSize = maxGroupSize;
+        }
+
+        @Override
+        public void run()
+        {
+            while (true)
+            {
+                synchronized (_lock)
+                {
+                    while (!_stopped && _jobQueue.isEmpty())
+                    {
+                        try
+                        {
+                            _lock.wait();
+                        }
+                        catch (InterruptedException e)
+                        {
+                            // only stopped by close
+                        }
+                    }
+                    if (_stopped && _jobQueue.isEmpty())
+                    {
+                        return;
+                    }
+                }
+                processJobs();
+            }
+        }
+
+        private void processJobs()
+        {
+            List<JDBCCommitFuture<W>> group = new ArrayList<JDBCCommitFuture<W>>();
+            JDBCCommitFuture<W> job;
+            while (group.size() < _maxGroupSize && (job = _jobQueue.poll()) != null)
+            {
+                group.add(job);
+            }
+
+            try
+            {
+                commitGroup(group);
+            }
+            catch (RuntimeException e)
+            {
+                if (group.size() == 1)
+                {
+                    group.get(0).abort(e);
+                }
+                else
+                {
+                    if (LOGGER.isDebugEnabled())
+                    {
+                        LOGGER.debug("Failed to commit group of " + group.size()
+                                     + " transactions, committing each in turn", e);
+                    }
+                    for (JDBCCommitFuture<W> groupJob : group)
+                    {
+                        try
+                        {
+                            commitGroup(Collections.singletonList(groupJob));
+                        }
+                        catch (RuntimeException jobException)
+                        {
+                            groupJob.abort(jobException);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void commitGroup(List<JDBCCommitFuture<W>> group)
+        {
+            List<W> work = new ArrayList<W>(group.size());
+            for (JDBCCommitFuture<W> job : group)
+            {
+                work.add(job.getWork());
+            }
+
+            long startTime = 0;
+            if (LOGGER.isDebugEnabled())
+            {
+                startTime = System.currentTimeMillis();
+            }
+
+            try
+            {
+                Connection connection = _writer.newConnection();
+                try
+                {
+                    _writer.write(connection, work);
+                    connection.commit();
+                }
+                catch (SQLException | RuntimeException e)
+                {
+                    try
+                    {
+                        connection.rollback();
+                    }
+                    catch (SQLException t)
+                    {
+                        // ignore - we are re-throwing underlying exception
+                    }
+                    throw e;
+                }
+                finally
+                {
+                    connection.close();
+                }
+            }
+            catch (SQLException e)
+            {
+                throw new StoreException("Error commit tx: " + e.getMessage(), e);
+            }
+
+            if (LOGGER.isDebugEnabled())
+            {
+                long duration = System.currentTimeMillis() - startTime;
+                LOGGER.debug("Committed group of " + group.size() + " transactions in " + duration + " ms");
+            }
+
+            for (JDBCCommitFuture<W> job : group)
+            {
+                try
+                {
+                    _writer.committed(job.getWork());
+                    job.complete();
+                }
+                catch (RuntimeException e)
+                {
+                    job.abort(e);
+                }
+            }
+        }
+
+        private void addJob(JDBCCommitFuture<W> job)
+        {
+            synchronized (_lock)
+            {
+                if (_stopped)
+                {
+                    job.abort(new StoreException("Message store is closed"));
+                    return;
+                }
+                _jobQueue.add(job);
+                _lock.notify();
+            }
+        }
+
+        private void close()
+        {
+            synchronized (_lock)
+            {
+                _stopped = true;
+                _lock.notifyAll();
+            }
+        }
+    }
+}
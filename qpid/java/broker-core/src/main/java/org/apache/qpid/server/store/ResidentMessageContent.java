@@ -0,0 +1,79 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.qpid.server.model.Broker;
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.model.VirtualHostNode;
+
+/**
+ * Counts the bytes of message content held on the heap by message stores which could flow it to disk, that is the
+ * content for which {@link StoredMessage#isInMemory()} is true. Stores report content as it is added to such a
+ * message, and release it when the message is flowed to disk, stored or removed. Content read back from a store is
+ * only softly referenced and is not counted.
+ * <p>
+ * Each broker owns one count, shared by the message stores of its virtual hosts (see {@link #forParent}).
+ */
+public final class ResidentMessageContent
+{
+    private final AtomicLong _residentBytes = new AtomicLong();
+
+    /**
+     * Returns the count of the broker owning the given message store parent, or a count of its own for a store
+     * whose parent does not belong to a broker.
+     */
+    public static ResidentMessageContent forParent(ConfiguredObject<?> parent)
+    {
+        ConfiguredObject<?> ancestor = parent;
+        if (ancestor instanceof VirtualHost)
+        {
+            ancestor = ancestor.getParent(VirtualHostNode.class);
+        }
+        if (ancestor instanceof VirtualHostNode)
+        {
+            ancestor = ancestor.getParent(Broker.class);
+        }
+        ResidentMessageContent residentMessageContent = null;
+        if (ancestor instanceof Broker)
+        {
+            residentMessageContent = ((Broker<?>) ancestor).getResidentMessageContent();
+        }
+        return residentMessageContent == null ? new ResidentMessageContent() : residentMessageContent;
+    }
+
+    public void added(long bytes)
+    {
+        _residentBytes.addAndGet(bytes);
+    }
+
+    public void released(long bytes)
+    {
+        _residentBytes.addAndGet(-bytes);
+    }
+
+    public long getResidentBytes()
+    {
+        return _residentBytes.get();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.qpid.server.configuration.BrokerProperties;
+
+/**
+ * A pool of buffers for holding the frames sent on connections of the non-blocking transport until they have been
+ * written to the network.
+ * <p>
+ * Buffers are pooled in size classes, each a power of two from {@link #MIN_BUFFER_SIZE} up to {@link #MAX_BUFFER_SIZE},
+ * which is large enough to hold any 0-10 frame. A buffer acquired from the pool has the capacity of the smallest class
+ * holding the size requested; requests larger than the largest class are satisfied by unpooled buffers. Once the
+ * holder of a buffer has finished with it, for instance when a sender has written its content to the network, it
+ * releases the buffer back to the pool, which retains up to a fixed number of free buffers of each class.
+ * <p>
+ * The pool counts the buffers acquired, allocated, released and discarded so that the rate at which it allocates,
+ * and how much memory it holds, may be monitored.
+ */
+public final class FrameBufferPool
+{
+    public static final int MIN_BUFFER_SIZE = 64;
+    public static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+    private static final int MIN_SIZE_SHIFT = Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+
+    private static final FrameBufferPool SHARED_POOL =
+            new FrameBufferPool(Boolean.getBoolean(BrokerProperties.PROPERTY_FRAME_BUFFER_POOL_DIRECT),
+                                Integer.getInteger(BrokerProperties.PROPERTY_FRAME_BUFFER_POOL_MAX_BUFFERS,
+                                                   BrokerProperties.DEFAULT_FRAME_BUFFER_POOL_MAX_BUFFERS));
+
+    private final boolean _direct;
+    private final int _maxBuffersPerSize;
+    private final Queue<ByteBuffer>[] _free;
+    private final AtomicInteger[] _freeCounts;
+
+    private final AtomicLong _acquired = new AtomicLong();
+    private final AtomicLong _allocated = new AtomicLong();
+    private final AtomicLong _released = new AtomicLong();
+    private final AtomicLong _discarded = new AtomicLong();
+    private final AtomicLong _pooledBytes = new AtomicLong();
+    private volatile boolean _active;
+
+    /**
+     * @param direct whether the pool allocates direct rather than heap buffers
+     * @param maxBuffersPerSize the number of free buffers of each size class the pool retains
+     */
+    @SuppressWarnings("unchecked")
+    public FrameBufferPool(boolean direct, int maxBuffersPerSize)
+    {
+        _direct = direct;
+        _maxBuffersPerSize = maxBuffersPerSize;
+        int sizes = Integer.numberOfTrailingZeros(MAX_BUFFER_SIZE) - MIN_SIZE_SHIFT + 1;
+        _free = new Queue[sizes];
+        _freeCounts = new AtomicInteger[sizes];
+        for (int i = 0; i < sizes; i++)
+        {
+            _free[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+            _freeCounts[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * @return the pool shared by the non-blocking connections of the broker, which allocates direct buffers if the
+     * system property {@value BrokerProperties#PROPERTY_FRAME_BUFFER_POOL_DIRECT} is true
+     */
+    public static FrameBufferPool getSharedPool()
+    {
+        return SHARED_POOL;
+    }
+
+    /**
+     * Acquires a buffer able to hold the given number of bytes, cleared ready for them to be put into it.
+     */
+    public ByteBuffer acquire(int size)
+    {
+        _acquired.incrementAndGet();
+        int sizeClass = sizeClass(size);
+        if (sizeClass < 0)
+        {
+            return allocate(size);
+        }
+
+        ByteBuffer buffer = _free[sizeClass].poll();
+        if (buffer == null)
+        {
+            return allocate(MIN_BUFFER_SIZE << sizeClass);
+        }
+        _freeCounts[sizeClass].decrementAndGet();
+        _pooledBytes.addAndGet(-buffer.capacity());
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer acquired from this pool. The buffer must not be used by its holder once released.
+     */
+    public void release(ByteBuffer buffer)
+    {
+        _released.incrementAndGet();
+        int capacity = buffer.capacity();
+        int sizeClass = sizeClass(capacity);
+        if (sizeClass >= 0 && (MIN_BUFFER_SIZE << sizeClass) == capacity && buffer.isDirect() == _direct)
+        {
+            if (_freeCounts[sizeClass].incrementAndGet() <= _maxBuffersPerSize)
+            {
+                _pooledBytes.addAndGet(capacity);
+                _free[sizeClass].offer(buffer);
+                return;
+            }
+            _freeCounts[sizeClass].decrementAndGet();
+        }
+        _discarded.incrementAndGet();
+    }
+
+    private ByteBuffer allocate(int capacity)
+    {
+        _allocated.incrementAndGet();
+        return _direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private static int sizeClass(int size)
+    {
+        if (size > MAX_BUFFER_SIZE)
+        {
+            return -1;
+        }
+        else if (size <= MIN_BUFFER_SIZE)
+        {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SIZE_SHIFT;
+    }
+
+    public boolean isDirect()
+    {
+        return _direct;
+    }
+
+    /**
+     * Marks the pool as serving a transport. The broker publishes the statistics of the shared pool only once it is
+     * active, so that they are not reported, always zero, when no port uses the non-blocking transport.
+     */
+    public void activate()
+    {
+        _active = true;
+    }
+
+    public boolean isActive()
+    {
+        return _active;
+    }
+
+    /** @return the number of buffers acquired from the pool */
+    public long getAcquiredCount()
+    {
+        return _acquired.get();
+    }
+
+    /** @return the number of buffers the pool has allocated, because none of the size requested was free */
+    public long getAllocatedCount()
+    {
+        return _allocated.get();
+    }
+
+    /** @return the number of buffers released to the pool */
+    public long getReleasedCount()
+    {
+        return _released.get();
+    }
+
+    /** @return the number of released buffers the pool did not retain, being unpooled or of a size already fully held */
+    public long getDiscardedCount()
+    {
+        return _discarded.get();
+    }
+
+    /** @return the number of free buffers held by the pool */
+    public int getPooledBufferCount()
+    {
+        int count = 0;
+        for (AtomicInteger freeCount : _freeCounts)
+        {
+            count += freeCount.get();
+        }
+        return count;
+    }
+
+    /** @return the total capacity, in bytes, of the free buffers held by the pool */
+    public long getPooledBytes()
+    {
+        return _pooledBytes.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "FrameBufferPool[direct=" + _direct
+               + ", acquired=" + getAcquiredCount()
+               + ", allocated=" + getAllocatedCount()
+               + ", pooledBuffers=" + getPooledBufferCount()
+               + ", pooledBytes=" + getPooledBytes()
+               + "]";
+    }
+}
@@ -0,0 +1,608 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.security.Principal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.protocol.ServerProtocolEngine;
+import org.apache.qpid.transport.Sender;
+import org.apache.qpid.transport.SenderClosedException;
+import org.apache.qpid.transport.SenderException;
+import org.apache.qpid.transport.network.NetworkConnection;
+import org.apache.qpid.transport.network.Ticker;
+
+/**
+ * A connection whose socket channel is serviced by a {@link SelectorThread}.
+ * <p>
+ * The selector thread never calls the protocol engine itself, as the engine may block, for instance whilst a store
+ * commits, and so stall every connection of the selector. The bytes read, the idle ticks, the exceptions and the
+ * closing of the connection are instead handed to the engine in order, one at a time, by a thread of the engine
+ * executor shared by the connections of the port. Once the bytes read but not yet processed by the engine exceed the
+ * limit, the selector stops reading from the connection until the engine has caught up.
+ * <p>
+ * Any thread may send to the connection; the bytes are copied onto a queue and written by the selector
+ * thread once the connection is flushed. Successive sends are copied into the same buffer, taken from the
+ * shared {@link FrameBufferPool} and released to it once written. Read-only buffers are not copied: they
+ * are taken to be views of content which does not change, such as the body of a stored message, and are
+ * queued as they are. Threads other than the selector thread block (for at most the
+ * configured timeout) whilst the amount of unwritten data exceeds the limit, exerting the same back
+ * pressure as the ring buffer of the blocking {@code IoSender}.
+ */
+class NonBlockingConnection implements NetworkConnection, Sender<ByteBuffer>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(NonBlockingConnection.class);
+    private static final int MIN_WRITE_BUFFER_SIZE = 4096;
+    /** Number of pieces of work done for the engine before the thread is given up to other connections */
+    private static final int MAX_ENGINE_WORK_PER_RUN = 16;
+
+    private final SocketChannel _socketChannel;
+    private final ServerProtocolEngine _protocolEngine;
+    private final SelectorThread _selector;
+    private final Executor _engineExecutor;
+    private final Ticker _ticker;
+    private final int _maxPendingBytes;
+    private final int _maxUnprocessedBytes;
+    private final long _timeout;
+    private final SocketAddress _remoteAddress;
+    private final SocketAddress _localAddress;
+
+    private final Object _lock = new Object();
+    private final Deque<ByteBuffer> _pending = new ArrayDeque<>();
+    private long _pendingBytes;
+    /** The last of the pending buffers, if acquired from the pool and not yet handed to the socket, else null */
+    private ByteBuffer _appendBuffer;
+    private final FrameBufferPool _bufferPool = FrameBufferPool.getSharedPool();
+
+    private final AtomicBoolean _closed = new AtomicBoolean(false);
+    private final AtomicBoolean _scheduled = new AtomicBoolean(false);
+    private final AtomicBoolean _engineClosed = new AtomicBoolean(false);
+
+    private final Queue<Runnable> _engineWork = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean _engineWorkScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean _tickScheduled = new AtomicBoolean(false);
+    private final AtomicLong _unprocessedBytes = new AtomicLong();
+    private final Runnable _engineWorker = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            processEngineWork();
+        }
+    };
+
+    private volatile int _maxReadIdle;
+    private volatile int _maxWriteIdle;
+
+    private SelectionKey _selectionKey;
+    /** Whether the selector has stopped reading as the engine has fallen behind. Set only by the selector thread. */
+    private volatile boolean _readSuspended;
+
+    NonBlockingConnection(final SocketChannel socketChannel,
+                          final ServerProtocolEngine protocolEngine,
+                          final SelectorThread selector,
+                          final Executor engineExecutor,
+                          final Ticker ticker,
+                          final int maxPendingBytes,
+                          final int maxUnprocessedBytes,
+                          final long timeout)
+    {
+        _socketChannel = socketChannel;
+        _protocolEngine = protocolEngine;
+        _selector = selector;
+        _engineExecutor = engineExecutor;
+        _ticker = ticker;
+        _maxPendingBytes = maxPendingBytes;
+        _maxUnprocessedBytes = maxUnprocessedBytes;
+        _timeout = timeout;
+        _remoteAddress = socketChannel.socket().getRemoteSocketAddress();
+        _localAddress = socketChannel.socket().getLocalSocketAddress();
+    }
+
+    @Override
+    public Sender<ByteBuffer> getSender()
+    {
+        return this;
+    }
+
+    @Override
+    public void start()
+    {
+        _selector.addConnection(this);
+    }
+
+    @Override
+    public void setIdleTimeout(final int i)
+    {
+        // idle timeouts are governed by the ticker
+    }
+
+    @Override
+    public void send(final ByteBuffer msg)
+    {
+        checkNotAlreadyClosed();
+
+        if (!msg.hasRemaining())
+        {
+            return;
+        }
+
+        final int size = msg.remaining();
+        synchronized (_lock)
+        {
+            if (_pendingBytes + size > _maxPendingBytes && !_selector.isSelectorThread())
+            {
+                schedule();
+                awaitPendingBelowLimit();
+            }
+
+            if (msg.isReadOnly())
+            {
+                _pending.add(msg.duplicate());
+                msg.position(msg.limit());
+                _appendBuffer = null;
+            }
+            else if (_appendBuffer != null && _appendBuffer.capacity() - _appendBuffer.limit() >= size)
+            {
+                // the frames written by a protocol engine are small and written in quick succession, so are
+                // copied one after another into the same buffer
+                ByteBuffer append = _appendBuffer.duplicate();
+                append.position(append.limit());
+                append.limit(append.limit() + size);
+                append.put(msg);
+                _appendBuffer.limit(append.limit());
+            }
+            else
+            {
+                ByteBuffer copy = _bufferPool.acquire(Math.max(size, MIN_WRITE_BUFFER_SIZE));
+                copy.put(msg);
+                copy.flip();
+                _pending.add(copy);
+                _appendBuffer = copy;
+            }
+            _pendingBytes += size;
+        }
+    }
+
+    private void awaitPendingBelowLimit()
+    {
+        final long start = System.currentTimeMillis();
+        long elapsed = 0;
+        while (!_closed.get() && _pendingBytes > _maxPendingBytes && elapsed < _timeout)
+        {
+            try
+            {
+                _lock.wait(_timeout - elapsed);
+            }
+            catch (InterruptedException e)
+            {
+                // pass
+            }
+            elapsed = System.currentTimeMillis() - start;
+        }
+
+        checkNotAlreadyClosed();
+
+        if (_pendingBytes > _maxPendingBytes)
+        {
+            LOGGER.error("write timed out for socket " + _remoteAddress + ": " + _pendingBytes + " bytes pending");
+            close();
+            throw new SenderException(String.format("write timed out for socket %s", _remoteAddress));
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        boolean hasPending;
+        synchronized (_lock)
+        {
+            hasPending = !_pending.isEmpty();
+        }
+        if (hasPending)
+        {
+            schedule();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (_closed.compareAndSet(false, true))
+        {
+            synchronized (_lock)
+            {
+                _lock.notifyAll();
+            }
+            _scheduled.set(false);
+            schedule();
+        }
+    }
+
+    private void schedule()
+    {
+        if (_scheduled.compareAndSet(false, true))
+        {
+            _selector.schedule(this);
+        }
+    }
+
+    void clearScheduled()
+    {
+        _scheduled.set(false);
+    }
+
+    boolean isClosed()
+    {
+        return _closed.get();
+    }
+
+    /**
+     * Writes as much of the pending data as the socket will accept without blocking. Called only by the
+     * selector thread.
+     */
+    void doWrite() throws IOException
+    {
+        if (_selectionKey == null || !_selectionKey.isValid())
+        {
+            return;
+        }
+
+        ByteBuffer[] buffers;
+        synchronized (_lock)
+        {
+            if (_pending.isEmpty())
+            {
+                updateInterestOps(false);
+                return;
+            }
+            // the socket reads the buffers outside the lock, so nothing more may be appended to them
+            _appendBuffer = null;
+            buffers = _pending.toArray(new ByteBuffer[_pending.size()]);
+        }
+
+        long written = _socketChannel.write(buffers);
+
+        synchronized (_lock)
+        {
+            while (!_pending.isEmpty() && !_pending.peek().hasRemaining())
+            {
+                releaseBuffer(_pending.poll());
+            }
+            _pendingBytes -= written;
+            updateInterestOps(!_pending.isEmpty());
+            if (written > 0)
+            {
+                _lock.notifyAll();
+            }
+        }
+    }
+
+    private void updateInterestOps(boolean writePending)
+    {
+        _selectionKey.interestOps((_readSuspended ? 0 : SelectionKey.OP_READ)
+                                  | (writePending ? SelectionKey.OP_WRITE : 0));
+    }
+
+    /**
+     * Hands bytes read from the socket to the protocol engine. Called only by the selector thread.
+     *
+     * @return false if the engine has fallen behind, and the selector should stop reading from the connection
+     */
+    boolean received(final ByteBuffer buffer)
+    {
+        final int size = buffer.remaining();
+        _unprocessedBytes.addAndGet(size);
+        submitEngineWork(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    _protocolEngine.received(buffer);
+                }
+                finally
+                {
+                    if (_unprocessedBytes.addAndGet(-size) <= _maxUnprocessedBytes && _readSuspended)
+                    {
+                        schedule();
+                    }
+                }
+            }
+        });
+        if (_unprocessedBytes.get() > _maxUnprocessedBytes)
+        {
+            _readSuspended = true;
+            updateInterestOps(hasPending());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Resumes reading once the engine has caught up with the bytes already read. Called only by the selector thread.
+     */
+    void resumeReadingIfCaughtUp()
+    {
+        if (_readSuspended && _unprocessedBytes.get() <= _maxUnprocessedBytes
+            && _selectionKey != null && _selectionKey.isValid())
+        {
+            _readSuspended = false;
+            updateInterestOps(hasPending());
+        }
+    }
+
+    private boolean hasPending()
+    {
+        synchronized (_lock)
+        {
+            return !_pending.isEmpty();
+        }
+    }
+
+    /**
+     * Has the engine check its idle timeouts, unless a check is already outstanding. Called only by the selector
+     * thread.
+     */
+    void tick(final long currentTime)
+    {
+        if (_tickScheduled.compareAndSet(false, true))
+        {
+            submitEngineWork(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        _ticker.tick(currentTime);
+                    }
+                    finally
+                    {
+                        _tickScheduled.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Informs the protocol engine of an exception raised in servicing the connection.
+     */
+    void engineException(final Throwable throwable)
+    {
+        submitEngineWork(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (!_engineClosed.get())
+                {
+                    _protocolEngine.exception(throwable);
+                }
+            }
+        });
+    }
+
+    private void submitEngineWork(final Runnable work)
+    {
+        _engineWork.add(work);
+        if (_engineWorkScheduled.compareAndSet(false, true))
+        {
+            submitEngineWorker();
+        }
+    }
+
+    private void submitEngineWorker()
+    {
+        try
+        {
+            _engineExecutor.execute(_engineWorker);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // the port is closing, so its executor has been shut down: the work is done by this thread instead
+            processEngineWork();
+        }
+    }
+
+    private void processEngineWork()
+    {
+        Runnable work;
+        for (int done = 0; done < MAX_ENGINE_WORK_PER_RUN && (work = _engineWork.poll()) != null; done++)
+        {
+            try
+            {
+                work.run();
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.error("Unexpected exception in protocol engine for " + _remoteAddress, e);
+                if (!_engineClosed.get())
+                {
+                    try
+                    {
+                        _protocolEngine.exception(e);
+                    }
+                    catch (RuntimeException re)
+                    {
+                        LOGGER.debug("Exception informing protocol engine of exception", re);
+                    }
+                }
+                close();
+            }
+        }
+        _engineWorkScheduled.set(false);
+        // any work left is continued once the other connections have had their turn
+        if (!_engineWork.isEmpty() && _engineWorkScheduled.compareAndSet(false, true))
+        {
+            submitEngineWorker();
+        }
+    }
+
+    /**
+     * Closes the socket, making a best effort attempt to write any data still pending, and informs the
+     * protocol engine once it has processed the bytes already read. Called only by the selector thread.
+     */
+    void doClose()
+    {
+        _closed.set(true);
+        try
+        {
+            if (_selectionKey != null && _selectionKey.isValid())
+            {
+                doWrite();
+            }
+        }
+        catch (IOException e)
+        {
+            LOGGER.debug("Exception writing remaining data whilst closing " + _remoteAddress, e);
+        }
+        finally
+        {
+            if (_selectionKey != null)
+            {
+                _selectionKey.cancel();
+            }
+            try
+            {
+                _socketChannel.close();
+            }
+            catch (IOException e)
+            {
+                LOGGER.debug("Exception while closing socket " + _remoteAddress, e);
+            }
+            synchronized (_lock)
+            {
+                for (ByteBuffer buffer : _pending)
+                {
+                    releaseBuffer(buffer);
+                }
+                _pending.clear();
+                _appendBuffer = null;
+                _pendingBytes = 0;
+                _lock.notifyAll();
+            }
+            submitEngineWork(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (_engineClosed.compareAndSet(false, true))
+                    {
+                        _protocolEngine.closed();
+                    }
+                }
+            });
+        }
+    }
+
+    /** Releases the pending buffers copied into buffers from the pool, rather than duplicated from read-only ones */
+    private void releaseBuffer(ByteBuffer buffer)
+    {
+        if (!buffer.isReadOnly())
+        {
+            _bufferPool.release(buffer);
+        }
+    }
+
+    private void checkNotAlreadyClosed()
+    {
+        if (_closed.get())
+        {
+            throw new SenderClosedException(String.format("sender for socket %s is closed", _remoteAddress));
+        }
+    }
+
+    SocketChannel getSocketChannel()
+    {
+        return _socketChannel;
+    }
+
+    Ticker getTicker()
+    {
+        return _ticker;
+    }
+
+    void setSelectionKey(final SelectionKey selectionKey)
+    {
+        _selectionKey = selectionKey;
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress()
+    {
+        return _remoteAddress;
+    }
+
+    @Override
+    public SocketAddress getLocalAddress()
+    {
+        return _localAddress;
+    }
+
+    @Override
+    public void setMaxWriteIdle(final int sec)
+    {
+        _maxWriteIdle = sec;
+    }
+
+    @Override
+    public void setMaxReadIdle(final int sec)
+    {
+        _maxReadIdle = sec;
+    }
+
+    @Override
+    public Principal getPeerPrincipal()
+    {
+        // TLS is terminated by the protocol engine, which reports the peer principal itself
+        return null;
+    }
+
+    @Override
+    public int getMaxReadIdle()
+    {
+        return _maxReadIdle;
+    }
+
+    @Override
+    public int getMaxWriteIdle()
+    {
+        return _maxWriteIdle;
+    }
+}
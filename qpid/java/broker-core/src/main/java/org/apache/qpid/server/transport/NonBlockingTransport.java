@@ -0,0 +1,263 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import static org.apache.qpid.transport.ConnectionSettings.WILDCARD_ADDRESS;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.configuration.CommonProperties;
+import org.apache.qpid.protocol.ServerProtocolEngine;
+import org.apache.qpid.server.model.Broker;
+import org.apache.qpid.server.model.Protocol;
+import org.apache.qpid.server.model.Transport;
+import org.apache.qpid.server.model.port.AmqpPort;
+import org.apache.qpid.server.protocol.MultiVersionProtocolEngineFactory;
+import org.apache.qpid.transport.TransportException;
+import org.apache.qpid.transport.network.io.IdleTimeoutTicker;
+
+/**
+ * Accepting transport which multiplexes all the connections made to a port over a small, fixed pool
+ * of {@link SelectorThread}s using non-blocking socket channels, rather than dedicating a reader and a
+ * writer thread to every connection as {@link TCPandSSLTransport} does.
+ * <p>
+ * The selector threads only read and write. The protocol engines, which may block, run on a separate pool of
+ * {@link AmqpPort#PORT_ENGINE_THREADS} engine threads, each connection being processed by one thread at a time.
+ * <p>
+ * TLS is always terminated by the protocol engine (using an {@link javax.net.ssl.SSLEngine}), so the
+ * network layer deals only in plain bytes.
+ */
+class NonBlockingTransport implements AcceptingTransport
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(NonBlockingTransport.class);
+    private static final long THREAD_JOIN_TIMEOUT = 5000L;
+
+    private static final int TIMEOUT = Integer.getInteger(CommonProperties.IO_NETWORK_TRANSPORT_TIMEOUT_PROP_NAME,
+                                                          CommonProperties.IO_NETWORK_TRANSPORT_TIMEOUT_DEFAULT);
+    private static final int HANDSHAKE_TIMEOUT = Integer.getInteger(CommonProperties.HANDSHAKE_TIMEOUT_PROP_NAME,
+                                                                    CommonProperties.HANDSHAKE_TIMEOUT_DEFAULT);
+
+    private final Set<Transport> _transports;
+    private final SSLContext _sslContext;
+    private final AmqpPort<?> _port;
+    private final Set<Protocol> _supported;
+    private final Protocol _defaultSupportedProtocolReply;
+    private final AtomicInteger _nextSelector = new AtomicInteger();
+
+    private ServerSocketChannel _serverSocket;
+    private MultiVersionProtocolEngineFactory _protocolEngineFactory;
+    private SelectorThread[] _selectorThreads;
+    private ExecutorService _engineExecutor;
+
+    NonBlockingTransport(final Set<Transport> transports,
+                         final SSLContext sslContext,
+                         final AmqpPort<?> port,
+                         final Set<Protocol> supported,
+                         final Protocol defaultSupportedProtocolReply)
+    {
+        _transports = transports;
+        _sslContext = sslContext;
+        _port = port;
+        _supported = supported;
+        _defaultSupportedProtocolReply = defaultSupportedProtocolReply;
+    }
+
+    @Override
+    public void start()
+    {
+        FrameBufferPool.getSharedPool().activate();
+
+        String bindingAddress = _port.getBindingAddress();
+        if (WILDCARD_ADDRESS.equals(bindingAddress))
+        {
+            bindingAddress = null;
+        }
+        int port = _port.getPort();
+        InetSocketAddress bindingSocketAddress;
+        if ( bindingAddress == null )
+        {
+            bindingSocketAddress = new InetSocketAddress(port);
+        }
+        else
+        {
+            bindingSocketAddress = new InetSocketAddress(bindingAddress, port);
+        }
+
+        _protocolEngineFactory =
+                new MultiVersionProtocolEngineFactory(
+                        _port.getParent(Broker.class),
+                        _sslContext,
+                        _port.getWantClientAuth(),
+                        _port.getNeedClientAuth(),
+                        _supported,
+                        _defaultSupportedProtocolReply,
+                        _port,
+                        _transports.contains(Transport.TCP) ? Transport.TCP : Transport.SSL);
+
+        int threadCount = getThreadCount(AmqpPort.PORT_SELECTOR_THREADS, AmqpPort.DEFAULT_SELECTOR_THREADS);
+        _engineExecutor = Executors.newFixedThreadPool(getThreadCount(AmqpPort.PORT_ENGINE_THREADS,
+                                                                      AmqpPort.DEFAULT_ENGINE_THREADS),
+                                                       new EngineThreadFactory(_port.getName()));
+        try
+        {
+            _serverSocket = ServerSocketChannel.open();
+            _serverSocket.socket().setReuseAddress(true);
+            _serverSocket.socket().bind(bindingSocketAddress);
+            _serverSocket.configureBlocking(false);
+
+            _selectorThreads = new SelectorThread[threadCount];
+            for (int i = 0; i < threadCount; i++)
+            {
+                _selectorThreads[i] = new SelectorThread(String.format("Selector-%s-%d", _port.getName(), i),
+                                                         _port.getReceiveBufferSize());
+            }
+            _selectorThreads[0].acceptOn(_serverSocket, this);
+            for (SelectorThread selectorThread : _selectorThreads)
+            {
+                selectorThread.start();
+            }
+        }
+        catch (IOException e)
+        {
+            close();
+            throw new TransportException("Failed to start AMQP on port : " + _port, e);
+        }
+    }
+
+    private int getThreadCount(final String contextVariable, final int defaultThreadCount)
+    {
+        Integer threadCount = _port.getContextValue(Integer.class, contextVariable);
+        return threadCount == null || threadCount < 1 ? defaultThreadCount : threadCount;
+    }
+
+    void acceptConnection(final SocketChannel socketChannel) throws IOException
+    {
+        ServerProtocolEngine engine =
+                _protocolEngineFactory.newProtocolEngine(socketChannel.socket().getRemoteSocketAddress());
+
+        if (engine == null)
+        {
+            socketChannel.close();
+            return;
+        }
+
+        socketChannel.configureBlocking(false);
+        socketChannel.socket().setTcpNoDelay(_port.isTcpNoDelay());
+        socketChannel.socket().setSendBufferSize(_port.getSendBufferSize());
+        socketChannel.socket().setReceiveBufferSize(_port.getReceiveBufferSize());
+
+        SelectorThread selectorThread =
+                _selectorThreads[(_nextSelector.getAndIncrement() & Integer.MAX_VALUE) % _selectorThreads.length];
+
+        final IdleTimeoutTicker ticker = new IdleTimeoutTicker(engine, TIMEOUT);
+        NonBlockingConnection connection =
+                new NonBlockingConnection(socketChannel, engine, selectorThread, _engineExecutor, ticker,
+                                          2 * _port.getSendBufferSize(), 2 * _port.getReceiveBufferSize(), TIMEOUT);
+        ticker.setConnection(connection);
+        connection.setMaxReadIdle(HANDSHAKE_TIMEOUT);
+
+        engine.setNetworkConnection(connection, connection.getSender());
+
+        connection.start();
+    }
+
+    public int getAcceptingPort()
+    {
+        return _serverSocket == null ? -1 : _serverSocket.socket().getLocalPort();
+    }
+
+    @Override
+    public void close()
+    {
+        if (_selectorThreads != null)
+        {
+            for (SelectorThread selectorThread : _selectorThreads)
+            {
+                if (selectorThread != null)
+                {
+                    selectorThread.close();
+                }
+            }
+            // the selector threads hand the closing of their connections to the engines before they end
+            for (SelectorThread selectorThread : _selectorThreads)
+            {
+                if (selectorThread != null && selectorThread != Thread.currentThread())
+                {
+                    try
+                    {
+                        selectorThread.join(THREAD_JOIN_TIMEOUT);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+        if (_engineExecutor != null)
+        {
+            _engineExecutor.shutdown();
+        }
+        if (_serverSocket != null)
+        {
+            try
+            {
+                _serverSocket.close();
+            }
+            catch (IOException e)
+            {
+                LOGGER.debug("Exception while closing server socket for port " + _port, e);
+            }
+        }
+    }
+
+    private static final class EngineThreadFactory implements ThreadFactory
+    {
+        private final String _portName;
+        private final AtomicInteger _threadNumber = new AtomicInteger();
+
+        private EngineThreadFactory(final String portName)
+        {
+            _portName = portName;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, String.format("Engine-%s-%d", _portName, _threadNumber.getAndIncrement()));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
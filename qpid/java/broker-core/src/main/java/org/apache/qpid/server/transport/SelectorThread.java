@@ -0,0 +1,375 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread servicing the reads, writes and idle timeouts of many {@link NonBlockingConnection}s through
+ * a single {@link Selector}.
+ * <p>
+ * Bytes read from the network are handed to the protocol engines in slices of a buffer shared by all
+ * the connections of this thread. As with {@code IoReceiver}, a region of the buffer which has been
+ * passed to an engine is never overwritten; once more than half of the buffer is consumed a new buffer
+ * is allocated, so engines may safely retain the slices they are given.
+ * <p>
+ * The thread only moves bytes: the protocol engines are called by the engine executor of the port, through
+ * {@link NonBlockingConnection}, so an engine which blocks holds up only its own connection. A failure in
+ * servicing one connection closes that connection alone.
+ */
+class SelectorThread extends Thread
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SelectorThread.class);
+
+    /** Upper bound on how long the idle timeouts of the connections may go unchecked. */
+    private static final long MAX_TICK_INTERVAL = 1000L;
+
+    /** Number of consecutive reads performed for one connection before others are serviced. */
+    private static final int MAX_READS_PER_SELECT = 4;
+
+    private final Selector _selector;
+    private final Queue<NonBlockingConnection> _unregisteredConnections = new ConcurrentLinkedQueue<>();
+    private final Queue<NonBlockingConnection> _unscheduledConnections = new ConcurrentLinkedQueue<>();
+    private final Set<NonBlockingConnection> _connections = new HashSet<>();
+    private final int _bufferSize;
+    private final int _threshold;
+
+    private volatile boolean _closed;
+    private byte[] _readBuffer;
+    private int _readOffset;
+    private long _nextTickTime;
+    private NonBlockingTransport _acceptingTransport;
+
+    SelectorThread(final String name, final int bufferSize) throws IOException
+    {
+        super(name);
+        setDaemon(true);
+        _selector = Selector.open();
+        _bufferSize = bufferSize;
+        _threshold = bufferSize / 2;
+        _readBuffer = new byte[bufferSize];
+    }
+
+    void acceptOn(final ServerSocketChannel serverSocket, final NonBlockingTransport transport)
+            throws ClosedChannelException
+    {
+        _acceptingTransport = transport;
+        serverSocket.register(_selector, SelectionKey.OP_ACCEPT, serverSocket);
+    }
+
+    void addConnection(final NonBlockingConnection connection)
+    {
+        _unregisteredConnections.add(connection);
+        _selector.wakeup();
+    }
+
+    /**
+     * Requests that the selector thread writes the pending output of the connection, or closes it if
+     * it has been marked as closed.
+     */
+    void schedule(final NonBlockingConnection connection)
+    {
+        _unscheduledConnections.add(connection);
+        if (Thread.currentThread() != this)
+        {
+            _selector.wakeup();
+        }
+    }
+
+    boolean isSelectorThread()
+    {
+        return Thread.currentThread() == this;
+    }
+
+    void close()
+    {
+        _closed = true;
+        _selector.wakeup();
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            while (!_closed)
+            {
+                long timeout = Math.max(1L, _nextTickTime - System.currentTimeMillis());
+                _selector.select(timeout);
+
+                registerNewConnections();
+                processSelectedKeys();
+                processScheduledConnections();
+                processIdleTimeouts();
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOGGER.error("Unexpected exception in selector thread " + getName(), e);
+        }
+        finally
+        {
+            closeAllConnections();
+        }
+    }
+
+    private void registerNewConnections()
+    {
+        NonBlockingConnection connection;
+        while ((connection = _unregisteredConnections.poll()) != null)
+        {
+            try
+            {
+                SelectionKey key = connection.getSocketChannel().register(_selector, SelectionKey.OP_READ, connection);
+                connection.setSelectionKey(key);
+                _connections.add(connection);
+                _nextTickTime = 0L;
+                connection.flush();
+            }
+            catch (ClosedChannelException | RuntimeException e)
+            {
+                _connections.remove(connection);
+                connection.doClose();
+            }
+        }
+    }
+
+    private void processSelectedKeys()
+    {
+        Iterator<SelectionKey> iterator = _selector.selectedKeys().iterator();
+        while (iterator.hasNext())
+        {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+
+            if (!key.isValid())
+            {
+                continue;
+            }
+
+            if (key.attachment() instanceof ServerSocketChannel)
+            {
+                acceptConnections((ServerSocketChannel) key.attachment());
+                continue;
+            }
+
+            NonBlockingConnection connection = (NonBlockingConnection) key.attachment();
+            try
+            {
+                if (key.isReadable() && !read(connection))
+                {
+                    closeConnection(connection);
+                    continue;
+                }
+                if (key.isValid() && key.isWritable())
+                {
+                    connection.doWrite();
+                }
+            }
+            catch (IOException | RuntimeException e)
+            {
+                failConnection(connection, e);
+            }
+        }
+    }
+
+    private void acceptConnections(final ServerSocketChannel serverSocket)
+    {
+        SocketChannel socketChannel = null;
+        try
+        {
+            while ((socketChannel = serverSocket.accept()) != null)
+            {
+                _acceptingTransport.acceptConnection(socketChannel);
+                socketChannel = null;
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOGGER.error("Error accepting connection on " + serverSocket.socket().getLocalSocketAddress(), e);
+            if (socketChannel != null)
+            {
+                try
+                {
+                    socketChannel.close();
+                }
+                catch (IOException ioe)
+                {
+                    LOGGER.debug("Exception while closing socket", ioe);
+                }
+            }
+        }
+    }
+
+    private boolean read(final NonBlockingConnection connection) throws IOException
+    {
+        final SocketChannel socketChannel = connection.getSocketChannel();
+        for (int i = 0; i < MAX_READS_PER_SELECT && !connection.isClosed(); i++)
+        {
+            int read = socketChannel.read(ByteBuffer.wrap(_readBuffer, _readOffset, _bufferSize - _readOffset));
+            if (read == -1)
+            {
+                return false;
+            }
+            else if (read == 0)
+            {
+                break;
+            }
+
+            ByteBuffer received = ByteBuffer.wrap(_readBuffer, _readOffset, read);
+            _readOffset += read;
+            if (_readOffset > _threshold)
+            {
+                _readOffset = 0;
+                _readBuffer = new byte[_bufferSize];
+            }
+            if (!connection.received(received))
+            {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private void processScheduledConnections()
+    {
+        NonBlockingConnection connection;
+        while ((connection = _unscheduledConnections.poll()) != null)
+        {
+            connection.clearScheduled();
+            if (connection.isClosed())
+            {
+                closeConnection(connection);
+            }
+            else
+            {
+                try
+                {
+                    connection.resumeReadingIfCaughtUp();
+                    connection.doWrite();
+                }
+                catch (IOException | RuntimeException e)
+                {
+                    failConnection(connection, e);
+                }
+            }
+        }
+    }
+
+    private void processIdleTimeouts()
+    {
+        long currentTime = System.currentTimeMillis();
+        if (currentTime < _nextTickTime)
+        {
+            return;
+        }
+        long nextTickTime = currentTime + MAX_TICK_INTERVAL;
+        List<NonBlockingConnection> failed = null;
+        for (NonBlockingConnection connection : _connections)
+        {
+            try
+            {
+                int tick = connection.getTicker().getTimeToNextTick(currentTime);
+                if (tick <= 0)
+                {
+                    // the engine ticks on its own thread, so the time to its next tick is looked at again next time
+                    connection.tick(currentTime);
+                }
+                else
+                {
+                    nextTickTime = Math.min(nextTickTime, currentTime + tick);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.error("Unexpected exception checking the idle timeouts of " + connection.getRemoteAddress(), e);
+                connection.engineException(e);
+                if (failed == null)
+                {
+                    failed = new ArrayList<>();
+                }
+                failed.add(connection);
+            }
+        }
+        if (failed != null)
+        {
+            for (NonBlockingConnection connection : failed)
+            {
+                closeConnection(connection);
+            }
+        }
+        _nextTickTime = nextTickTime;
+    }
+
+    private void failConnection(final NonBlockingConnection connection, final Exception e)
+    {
+        if (!connection.isClosed())
+        {
+            connection.engineException(e);
+        }
+        closeConnection(connection);
+    }
+
+    private void closeConnection(final NonBlockingConnection connection)
+    {
+        _connections.remove(connection);
+        connection.doClose();
+    }
+
+    private void closeAllConnections()
+    {
+        for (NonBlockingConnection connection : new HashSet<>(_connections))
+        {
+            connection.close();
+            closeConnection(connection);
+        }
+        NonBlockingConnection connection;
+        while ((connection = _unregisteredConnections.poll()) != null)
+        {
+            connection.close();
+            connection.doClose();
+        }
+        try
+        {
+            _selector.close();
+        }
+        catch (IOException e)
+        {
+            LOGGER.debug("Exception while closing selector", e);
+        }
+    }
+}
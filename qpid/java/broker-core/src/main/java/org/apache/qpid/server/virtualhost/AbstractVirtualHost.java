@@ -56,6 +56,7 @@ import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.logging.messages.MessageStoreMessages;
 import org.apache.qpid.server.logging.messages.VirtualHostMessages;
 import org.apache.qpid.server.logging.subjects.MessageStoreLogSubject;
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.MessageNode;
@@ -74,6 +75,7 @@ import org.apache.qpid.server.queue.QueueEntry;
 import org.apache.qpid.server.security.SecurityManager;
 import org.apache.qpid.server.security.access.Operation;
 import org.apache.qpid.server.stats.StatisticsCounter;
+import org.apache.qpid.server.stats.StatisticsHistogram;
 import org.apache.qpid.server.store.ConfiguredObjectRecord;
 import org.apache.qpid.server.store.ConfiguredObjectRecordImpl;
 import org.apache.qpid.server.store.DurableConfigurationStore;
@@ -118,6 +120,8 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     private final SystemNodeRegistry _systemNodeRegistry = new SystemNodeRegistry();
 
     private final StatisticsCounter _messagesDelivered, _dataDelivered, _messagesReceived, _dataReceived;
+    private volatile StatisticsHistogram _messageSizes, _deliveryLatencies;
+    private volatile MessageConversionCache _messageConversionCache;
 
     private final Map<String, LinkRegistry> _linkRegistry = new HashMap<String, LinkRegistry>();
     private AtomicBoolean _blocked = new AtomicBoolean();
@@ -162,13 +166,21 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     @ManagedAttributeField
     private int _housekeepingThreadCount;
 
+    @ManagedAttributeField
+    private int _deliveryThreadCount;
+
+    @ManagedAttributeField
+    private DeliverySchedulerPolicy _deliverySchedulerPolicy;
+
+    private volatile DeliveryScheduler _deliveryScheduler;
+
 
     private boolean _useAsyncRecoverer;
 
     private MessageDestination _defaultDestination;
 
     private MessageStore _messageStore;
-    private MessageStoreRecoverer _messageStoreRecoverer;
+    private volatile MessageStoreRecoverer _messageStoreRecoverer;
     private final FileSystemSpaceChecker _fileSystemSpaceChecker = new FileSystemSpaceChecker();
     private int _fileSystemMaxUsagePercent;
 
@@ -230,6 +242,11 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
                 throw new IntegrityViolationException("Cannot delete default virtual host '" + getName() + "'");
             }
         }
+        if (changedAttributes.contains(DELIVERY_SCHEDULER_POLICY)
+            && ((VirtualHost<?,?,?>) proxyForValidation).getDeliverySchedulerPolicy() != getDeliverySchedulerPolicy())
+        {
+            throw new IllegalArgumentException("Cannot change the delivery scheduler policy");
+        }
     }
 
     @Override
@@ -297,6 +314,15 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
 
 
         _fileSystemMaxUsagePercent = getContextValue(Integer.class, Broker.STORE_FILESYSTEM_MAX_USAGE_PERCENT);
+
+        if (getContextValue(Boolean.class, Broker.BROKER_STATISTICS_HISTOGRAMS_ENABLED))
+        {
+            _messageSizes = new StatisticsHistogram();
+            _deliveryLatencies = new StatisticsHistogram();
+        }
+
+        _messageConversionCache =
+                new MessageConversionCache(getContextValue(Long.class, MESSAGE_CONVERSION_CACHE_SIZE));
     }
 
     private void checkVHostStateIsActive()
@@ -525,6 +551,37 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         return _houseKeepingTasks.getActiveCount();
     }
 
+    @Override
+    public DeliveryScheduler getDeliveryScheduler()
+    {
+        return _deliveryScheduler;
+    }
+
+    private void startDeliveryScheduler()
+    {
+        if (_deliveryScheduler == null)
+        {
+            if (getDeliverySchedulerPolicy() == DeliverySchedulerPolicy.SHARED)
+            {
+                _deliveryScheduler = new SharedDeliveryScheduler();
+            }
+            else
+            {
+                _deliveryScheduler = new WorkStealingDeliveryScheduler(getName(), getDeliveryThreadCount());
+            }
+        }
+    }
+
+    private void shutdownDeliveryScheduler()
+    {
+        DeliveryScheduler deliveryScheduler = _deliveryScheduler;
+        if (deliveryScheduler != null)
+        {
+            deliveryScheduler.close();
+            _deliveryScheduler = null;
+        }
+    }
+
     @Override
     public AMQQueue<?> getQueue(String name)
     {
@@ -690,6 +747,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         _dtxRegistry.close();
         closeMessageStore();
         shutdownHouseKeeping();
+        shutdownDeliveryScheduler();
 
         _eventLogger.message(VirtualHostMessages.CLOSED(getName()));
     }
@@ -731,9 +789,24 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     {
         _messagesReceived.registerEvent(1L, timestamp);
         _dataReceived.registerEvent(messageSize, timestamp);
+        StatisticsHistogram messageSizes = _messageSizes;
+        if (messageSizes != null)
+        {
+            messageSizes.record(messageSize);
+        }
         _broker.registerMessageReceived(messageSize, timestamp);
     }
 
+    @Override
+    public void registerMessageDeliveryLatency(long latency)
+    {
+        StatisticsHistogram deliveryLatencies = _deliveryLatencies;
+        if (deliveryLatencies != null)
+        {
+            deliveryLatencies.record(latency);
+        }
+    }
+
     public StatisticsCounter getMessageReceiptStatistics()
     {
         return _messagesReceived;
@@ -760,6 +833,16 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         _dataDelivered.reset();
         _messagesReceived.reset();
         _dataReceived.reset();
+        StatisticsHistogram messageSizes = _messageSizes;
+        if (messageSizes != null)
+        {
+            messageSizes.reset();
+        }
+        StatisticsHistogram deliveryLatencies = _deliveryLatencies;
+        if (deliveryLatencies != null)
+        {
+            deliveryLatencies.reset();
+        }
 
         for (AMQConnectionModel connection : _connectionRegistry.getConnections())
         {
@@ -1164,17 +1247,133 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         return getMessageDeliveryStatistics().getTotal();
     }
 
+    @Override
+    public long getMessageSizeMedian()
+    {
+        return getValueAtPercentile(_messageSizes, 50.0d);
+    }
+
+    @Override
+    public long getMessageSize95thPercentile()
+    {
+        return getValueAtPercentile(_messageSizes, 95.0d);
+    }
+
+    @Override
+    public long getMessageSize99thPercentile()
+    {
+        return getValueAtPercentile(_messageSizes, 99.0d);
+    }
+
+    @Override
+    public long getMaximumMessageSize()
+    {
+        StatisticsHistogram messageSizes = _messageSizes;
+        return messageSizes == null ? 0L : messageSizes.getMaximum();
+    }
+
+    @Override
+    public long getDeliveryLatencyMedian()
+    {
+        return getValueAtPercentile(_deliveryLatencies, 50.0d);
+    }
+
+    @Override
+    public long getDeliveryLatency95thPercentile()
+    {
+        return getValueAtPercentile(_deliveryLatencies, 95.0d);
+    }
+
+    @Override
+    public long getDeliveryLatency99thPercentile()
+    {
+        return getValueAtPercentile(_deliveryLatencies, 99.0d);
+    }
+
+    @Override
+    public long getMaximumDeliveryLatency()
+    {
+        StatisticsHistogram deliveryLatencies = _deliveryLatencies;
+        return deliveryLatencies == null ? 0L : deliveryLatencies.getMaximum();
+    }
+
+    @Override
+    public MessageConversionCache getMessageConversionCache()
+    {
+        return _messageConversionCache;
+    }
+
+    @Override
+    public long getMessageConversionCacheHits()
+    {
+        MessageConversionCache cache = _messageConversionCache;
+        return cache == null ? 0L : cache.getHits();
+    }
+
+    @Override
+    public long getMessageConversionCacheMisses()
+    {
+        MessageConversionCache cache = _messageConversionCache;
+        return cache == null ? 0L : cache.getMisses();
+    }
+
+    @Override
+    public long getMessageConversionCacheSize()
+    {
+        MessageConversionCache cache = _messageConversionCache;
+        return cache == null ? 0L : cache.getSize();
+    }
+
+    @Override
+    public long getRecoveringQueueCount()
+    {
+        MessageStoreRecoverer recoverer = _messageStoreRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveringQueueCount();
+    }
+
+    @Override
+    public long getRecoveredMessageCount()
+    {
+        MessageStoreRecoverer recoverer = _messageStoreRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveredMessageCount();
+    }
+
+    @Override
+    public long getRecoveredQueueEntryCount()
+    {
+        MessageStoreRecoverer recoverer = _messageStoreRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveredQueueEntryCount();
+    }
+
+    private static long getValueAtPercentile(StatisticsHistogram histogram, double percentile)
+    {
+        return histogram == null ? 0L : histogram.getValueAtPercentile(percentile);
+    }
+
     @Override
     public int getHousekeepingThreadCount()
     {
         return _housekeepingThreadCount;
     }
 
+    @Override
+    public int getDeliveryThreadCount()
+    {
+        return _deliveryThreadCount;
+    }
+
+    @Override
+    public DeliverySchedulerPolicy getDeliverySchedulerPolicy()
+    {
+        return _deliverySchedulerPolicy;
+    }
+
     @StateTransition( currentState = { State.UNINITIALIZED, State.ACTIVE, State.ERRORED }, desiredState = State.STOPPED )
     protected void doStop()
     {
         closeChildren();
         shutdownHouseKeeping();
+        shutdownDeliveryScheduler();
         closeMessageStore();
         setState(State.STOPPED);
     }
@@ -1401,6 +1600,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     private void onActivate()
     {
         _houseKeepingTasks = new ScheduledThreadPoolExecutor(getHousekeepingThreadCount(), new SuppressingInheritedAccessControlContextThreadFactory());
+        startDeliveryScheduler();
 
         MessageStore messageStore = getMessageStore();
         messageStore.openMessageStore(this);
@@ -1460,6 +1660,7 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     private void onRestart()
     {
         resetStatistics();
+        startDeliveryScheduler();
 
         final List<ConfiguredObjectRecord> records = new ArrayList<>();
 
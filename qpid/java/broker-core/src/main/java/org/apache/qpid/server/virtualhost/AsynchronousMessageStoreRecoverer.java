@@ -21,9 +21,8 @@
 package org.apache.qpid.server.virtualhost;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -31,6 +30,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
@@ -40,6 +40,7 @@ import org.apache.qpid.server.logging.subjects.MessageStoreLogSubject;
 import org.apache.qpid.server.message.EnqueueableMessage;
 import org.apache.qpid.server.message.MessageReference;
 import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.VirtualHost;
 import org.apache.qpid.server.plugin.MessageMetaDataType;
 import org.apache.qpid.server.queue.AMQQueue;
 import org.apache.qpid.server.queue.QueueEntry;
@@ -56,10 +57,19 @@ import org.apache.qpid.server.txn.ServerTransaction;
 import org.apache.qpid.transport.Xid;
 import org.apache.qpid.transport.util.Functions;
 
+/**
+ * Recovers the queues of a virtual host in parallel, on a pool of {@link VirtualHost#RECOVERY_THREAD_COUNT} threads,
+ * each queue becoming available for consumption as soon as its own messages have been recovered.
+ * <p>
+ * A message enqueued on several queues must be recovered as one message, so a reference to each message recovered
+ * is held, in a {@link RecoveredMessageMap}, until every queue it is enqueued on has recovered it. The instances of
+ * the messages on the queues are counted before recovery starts for that purpose. Once every queue has been recovered
+ * any message in the store but on no queue is removed.
+ */
 public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 {
     private static final Logger _logger = Logger.getLogger(AsynchronousMessageStoreRecoverer.class);
-    private AsynchronousRecoverer _asynchronousRecoverer;
+    private volatile AsynchronousRecoverer _asynchronousRecoverer;
 
     @Override
     public void recover(final VirtualHostImpl virtualHost)
@@ -78,6 +88,27 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         }
     }
 
+    @Override
+    public long getRecoveringQueueCount()
+    {
+        AsynchronousRecoverer recoverer = _asynchronousRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveringQueueCount();
+    }
+
+    @Override
+    public long getRecoveredMessageCount()
+    {
+        AsynchronousRecoverer recoverer = _asynchronousRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveredMessageCount();
+    }
+
+    @Override
+    public long getRecoveredQueueEntryCount()
+    {
+        AsynchronousRecoverer recoverer = _asynchronousRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveredQueueEntryCount();
+    }
+
     private static class AsynchronousRecoverer
     {
         public static final int THREAD_POOL_SHUTDOWN_TIMEOUT = 5000;
@@ -88,8 +119,11 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         private final long _maxMessageId;
         private final Set<AMQQueue<?>> _recoveringQueues = new CopyOnWriteArraySet<>();
         private final AtomicBoolean _recoveryComplete = new AtomicBoolean();
-        private final Map<Long, MessageReference<? extends ServerMessage<?>>> _recoveredMessages = new HashMap<>();
-        private final ExecutorService _queueRecoveryExecutor = Executors.newCachedThreadPool();
+        private final RecoveredMessageMap _recoveredMessages = new RecoveredMessageMap();
+        private final RecoveredMessageMap.MessageLoader _messageLoader = new StoredMessageLoader();
+        private final AtomicLong _recoveredMessageCount = new AtomicLong();
+        private final AtomicLong _recoveredQueueEntryCount = new AtomicLong();
+        private final ExecutorService _queueRecoveryExecutor;
         private AtomicBoolean _continueRecovery = new AtomicBoolean(true);
 
         private AsynchronousRecoverer(final VirtualHostImpl<?, ?, ?> virtualHost)
@@ -102,16 +136,43 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             _maxMessageId = _store.getNextMessageId();
             _recoveringQueues.addAll(_virtualHost.getQueues());
 
+            Integer threadCount = virtualHost.getContextValue(Integer.class, VirtualHost.RECOVERY_THREAD_COUNT);
+            _queueRecoveryExecutor = Executors.newFixedThreadPool(threadCount == null || threadCount < 1
+                                                                          ? VirtualHost.DEFAULT_RECOVERY_THREAD_COUNT
+                                                                          : threadCount);
         }
 
         public void recover()
         {
+            countMessageInstances();
             getStore().visitDistributedTransactions(new DistributedTransactionVisitor());
 
             for(AMQQueue<?> queue : _recoveringQueues)
             {
                 _queueRecoveryExecutor.submit(new QueueRecoveringTask(queue));
             }
+            // the tasks submitted still run, but the threads end once they have
+            _queueRecoveryExecutor.shutdown();
+
+            if (_recoveringQueues.isEmpty() && _recoveryComplete.compareAndSet(false, true))
+            {
+                completeRecovery();
+            }
+        }
+
+        long getRecoveringQueueCount()
+        {
+            return _recoveringQueues.size();
+        }
+
+        long getRecoveredMessageCount()
+        {
+            return _recoveredMessageCount.get();
+        }
+
+        long getRecoveredQueueEntryCount()
+        {
+            return _recoveredQueueEntryCount.get();
         }
 
         public VirtualHostImpl<?, ?, ?> getVirtualHost()
@@ -134,6 +195,27 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             return _logSubject;
         }
 
+        private void countMessageInstances()
+        {
+            final Set<UUID> queueIds = new HashSet<>();
+            for (AMQQueue<?> queue : _recoveringQueues)
+            {
+                queueIds.add(queue.getId());
+            }
+            getStore().visitMessageInstances(new MessageInstanceHandler()
+            {
+                @Override
+                public boolean handle(final UUID queueId, final long messageId)
+                {
+                    if (messageId < _maxMessageId && queueIds.contains(queueId))
+                    {
+                        _recoveredMessages.expectInstance(messageId);
+                    }
+                    return _continueRecovery.get();
+                }
+            });
+        }
+
         private boolean isRecovering(AMQQueue<?> queue)
         {
             return _recoveringQueues.contains(queue);
@@ -155,14 +237,10 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             }
         }
 
-        private synchronized void completeRecovery()
+        private void completeRecovery()
         {
             // at this point nothing should be writing to the map of recovered messages
-            for (Map.Entry<Long,MessageReference<? extends ServerMessage<?>>> entry : _recoveredMessages.entrySet())
-            {
-                entry.getValue().release();
-                entry.setValue(null); // free up any memory associated with the reference object
-            }
+            _recoveredMessages.releaseAll();
             final List<StoredMessage<?>> messagesToDelete = new ArrayList<>();
             getStore().visitMessages(new MessageHandler()
             {
@@ -171,7 +249,7 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                 {
 
                     long messageNumber = storedMessage.getMessageNumber();
-                    if(!_recoveredMessages.containsKey(messageNumber))
+                    if(!_recoveredMessages.contains(messageNumber))
                     {
                         messagesToDelete.add(storedMessage);
                     }
@@ -193,27 +271,9 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             _recoveredMessages.clear();
         }
 
-        private synchronized ServerMessage<?> getRecoveredMessage(final long messageId)
+        private ServerMessage<?> getRecoveredMessage(final long messageId)
         {
-            MessageReference<? extends ServerMessage<?>> ref = _recoveredMessages.get(messageId);
-            if (ref == null)
-            {
-                StoredMessage<?> message = _store.getMessage(messageId);
-                if(message != null)
-                {
-                    StorableMessageMetaData metaData = message.getMetaData();
-
-                    @SuppressWarnings("rawtypes")
-                    MessageMetaDataType type = metaData.getType();
-
-                    @SuppressWarnings("unchecked")
-                    ServerMessage<?> serverMessage = type.createMessage(message);
-
-                    ref = serverMessage.newReference();
-                    _recoveredMessages.put(messageId, ref);
-                }
-            }
-            return ref == null ? null : ref.getMessage();
+            return _recoveredMessages.getOrLoad(messageId, _messageLoader);
         }
 
         public void cancel()
@@ -321,12 +381,12 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                         }
 
                         final long messageId = record.getMessage().getMessageNumber();
-                        final ServerMessage<?> message = getRecoveredMessage(messageId);
+                        // the queue is recovered, so holds the message if it was recovered
+                        final QueueEntry entry = queue.getMessageOnTheQueue(messageId);
+                        final ServerMessage<?> message = entry == null ? null : entry.getMessage();
 
                         if (message != null)
                         {
-                            final QueueEntry entry = queue.getMessageOnTheQueue(messageId);
-
                             entry.acquire();
 
                             branch.dequeue(queue, message);
@@ -389,6 +449,30 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 
         }
 
+        private class StoredMessageLoader implements RecoveredMessageMap.MessageLoader
+        {
+            @Override
+            public MessageReference<? extends ServerMessage<?>> load(final long messageId)
+            {
+                StoredMessage<?> message = _store.getMessage(messageId);
+                if(message == null)
+                {
+                    return null;
+                }
+
+                StorableMessageMetaData metaData = message.getMetaData();
+
+                @SuppressWarnings("rawtypes")
+                MessageMetaDataType type = metaData.getType();
+
+                @SuppressWarnings("unchecked")
+                ServerMessage<?> serverMessage = type.createMessage(message);
+
+                _recoveredMessageCount.incrementAndGet();
+                return serverMessage.newReference();
+            }
+        }
+
         private class QueueRecoveringTask implements Runnable
         {
             private final AMQQueue<?> _queue;
@@ -442,7 +526,9 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                         }
 
                         _queue.recover(message);
+                        _recoveredMessages.instanceRecovered(messageId);
                         _recoveredCount++;
+                        _recoveredQueueEntryCount.incrementAndGet();
                     }
                     else
                     {
@@ -29,4 +29,13 @@ public interface MessageStoreRecoverer
      * completed, this method call has no effect.
      */
     void cancel();
+
+    /** @return the number of queues whose messages have yet to be recovered */
+    long getRecoveringQueueCount();
+
+    /** @return the number of messages recovered from the store so far */
+    long getRecoveredMessageCount();
+
+    /** @return the number of message instances recovered onto queues so far */
+    long getRecoveredQueueEntryCount();
 }
@@ -0,0 +1,301 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost;
+
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+
+/**
+ * The references to the messages recovered from a message store, keyed by message id, held so that a message
+ * enqueued on several queues is recovered as one message.
+ * <p>
+ * The instances of each message on the queues to be recovered are counted by {@link #expectInstance(long)} before
+ * recovery starts. Each instance recovered is reported by {@link #instanceRecovered(long)}, and the reference to the
+ * message is released as soon as its last instance has been recovered, from then on the queues holding the message.
+ * <p>
+ * The ids are hashed onto a fixed number of segments, each an open addressing table of primitive ids and references
+ * guarded by its own lock. Holding a reference costs three array slots rather than a boxed id and a hash map entry, and
+ * threads recovering different queues contend only when looking up ids in the same segment.
+ */
+final class RecoveredMessageMap
+{
+    private static final int SEGMENT_SHIFT = 6;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_SHIFT;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    interface MessageLoader
+    {
+        /**
+         * @return a new reference to the message with the given id, or null if the store does not hold it
+         */
+        MessageReference<? extends ServerMessage<?>> load(long messageId);
+    }
+
+    private final Segment[] _segments = new Segment[SEGMENT_COUNT];
+
+    RecoveredMessageMap()
+    {
+        for (int i = 0; i < SEGMENT_COUNT; i++)
+        {
+            _segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Gets the message with the given id, loading it with the given loader if it has not yet been recovered.
+     * Loads of the same id are serialised, so each message is loaded at most once.
+     */
+    @SuppressWarnings("unchecked")
+    ServerMessage<?> getOrLoad(long messageId, MessageLoader loader)
+    {
+        long hash = hash(messageId);
+        Segment segment = _segments[(int) (hash >>> (64 - SEGMENT_SHIFT))];
+        synchronized (segment)
+        {
+            int slot = segment.find(messageId, (int) hash);
+            Object held = slot < 0 ? null : segment.getRef(slot);
+            if (held == null || held == Segment.EXPECTED)
+            {
+                MessageReference<? extends ServerMessage<?>> ref = loader.load(messageId);
+                if (ref == null)
+                {
+                    return null;
+                }
+                if (slot < 0)
+                {
+                    segment.put(messageId, (int) hash, ref);
+                }
+                else
+                {
+                    segment.setRef(slot, ref);
+                }
+                return ref.getMessage();
+            }
+            else if (held == Segment.RELEASED)
+            {
+                throw new IllegalStateException("Message " + messageId + " looked up after recovery completed");
+            }
+            return ((MessageReference<? extends ServerMessage<?>>) held).getMessage();
+        }
+    }
+
+    /**
+     * Counts an instance of the message with the given id on a queue yet to be recovered.
+     */
+    void expectInstance(long messageId)
+    {
+        long hash = hash(messageId);
+        Segment segment = _segments[(int) (hash >>> (64 - SEGMENT_SHIFT))];
+        synchronized (segment)
+        {
+            int slot = segment.find(messageId, (int) hash);
+            if (slot < 0)
+            {
+                slot = segment.put(messageId, (int) hash, Segment.EXPECTED);
+            }
+            segment.incrementCount(slot);
+        }
+    }
+
+    /**
+     * Reports that an instance of the message with the given id has been recovered, releasing the reference to the
+     * message if it was the last instance expected.
+     */
+    @SuppressWarnings("unchecked")
+    void instanceRecovered(long messageId)
+    {
+        long hash = hash(messageId);
+        Segment segment = _segments[(int) (hash >>> (64 - SEGMENT_SHIFT))];
+        synchronized (segment)
+        {
+            int slot = segment.find(messageId, (int) hash);
+            if (slot >= 0 && segment.decrementCount(slot) == 0)
+            {
+                Object held = segment.getRef(slot);
+                if (held != Segment.EXPECTED && held != Segment.RELEASED)
+                {
+                    ((MessageReference<? extends ServerMessage<?>>) held).release();
+                    segment.setRef(slot, Segment.RELEASED);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the message with the given id has been recovered, whether or not its reference is still held
+     */
+    boolean contains(long messageId)
+    {
+        long hash = hash(messageId);
+        Segment segment = _segments[(int) (hash >>> (64 - SEGMENT_SHIFT))];
+        synchronized (segment)
+        {
+            int slot = segment.find(messageId, (int) hash);
+            return slot >= 0 && segment.getRef(slot) != Segment.EXPECTED;
+        }
+    }
+
+    /**
+     * Releases the references to every message still held, keeping the ids so that {@link #contains(long)} still answers
+     * whether a message was recovered.
+     */
+    void releaseAll()
+    {
+        for (Segment segment : _segments)
+        {
+            synchronized (segment)
+            {
+                segment.releaseAll();
+            }
+        }
+    }
+
+    void clear()
+    {
+        for (Segment segment : _segments)
+        {
+            synchronized (segment)
+            {
+                segment.clear();
+            }
+        }
+    }
+
+    private static long hash(long messageId)
+    {
+        // spreads consecutive ids over both the segments, selected by the high bits, and the slots, by the low bits
+        long hash = messageId * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    private static final class Segment
+    {
+        /** Held for a message whose instances have been counted but which has not yet been loaded */
+        static final Object EXPECTED = new Object();
+        /** Held for a message whose reference has been released */
+        static final Object RELEASED = new Object();
+
+        private long[] _ids = new long[INITIAL_SEGMENT_CAPACITY];
+        private Object[] _refs = new Object[INITIAL_SEGMENT_CAPACITY];
+        private int[] _counts = new int[INITIAL_SEGMENT_CAPACITY];
+        private int _size;
+
+        /** @return the slot holding the id, or -1 if it is not held */
+        int find(long messageId, int hash)
+        {
+            int mask = _ids.length - 1;
+            for (int i = hash & mask; _refs[i] != null; i = (i + 1) & mask)
+            {
+                if (_ids[i] == messageId)
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /** @return the reference held in the slot, {@link #EXPECTED} if not yet loaded, or {@link #RELEASED} */
+        Object getRef(int slot)
+        {
+            return _refs[slot];
+        }
+
+        void setRef(int slot, Object ref)
+        {
+            _refs[slot] = ref;
+        }
+
+        void incrementCount(int slot)
+        {
+            _counts[slot]++;
+        }
+
+        /** @return the number of instances still expected, or -1 if none were */
+        int decrementCount(int slot)
+        {
+            return _counts[slot] == 0 ? -1 : --_counts[slot];
+        }
+
+        /** @return the slot the id was put in */
+        int put(long messageId, int hash, Object ref)
+        {
+            if ((_size + 1) * 4 > _ids.length * 3)
+            {
+                resize();
+            }
+            _size++;
+            return insert(_ids, _refs, _counts, messageId, hash, ref, 0);
+        }
+
+        private static int insert(long[] ids, Object[] refs, int[] counts, long messageId, int hash, Object ref, int count)
+        {
+            int mask = ids.length - 1;
+            int i = hash & mask;
+            while (refs[i] != null)
+            {
+                i = (i + 1) & mask;
+            }
+            ids[i] = messageId;
+            refs[i] = ref;
+            counts[i] = count;
+            return i;
+        }
+
+        private void resize()
+        {
+            long[] ids = new long[_ids.length << 1];
+            Object[] refs = new Object[_refs.length << 1];
+            int[] counts = new int[_counts.length << 1];
+            for (int i = 0; i < _ids.length; i++)
+            {
+                if (_refs[i] != null)
+                {
+                    insert(ids, refs, counts, _ids[i], (int) hash(_ids[i]), _refs[i], _counts[i]);
+                }
+            }
+            _ids = ids;
+            _refs = refs;
+            _counts = counts;
+        }
+
+        @SuppressWarnings("unchecked")
+        void releaseAll()
+        {
+            for (int i = 0; i < _refs.length; i++)
+            {
+                Object ref = _refs[i];
+                if (ref != null && ref != EXPECTED && ref != RELEASED)
+                {
+                    ((MessageReference<? extends ServerMessage<?>>) ref).release();
+                    _refs[i] = RELEASED;
+                }
+            }
+        }
+
+        void clear()
+        {
+            _ids = new long[INITIAL_SEGMENT_CAPACITY];
+            _refs = new Object[INITIAL_SEGMENT_CAPACITY];
+            _counts = new int[INITIAL_SEGMENT_CAPACITY];
+            _size = 0;
+        }
+    }
+}
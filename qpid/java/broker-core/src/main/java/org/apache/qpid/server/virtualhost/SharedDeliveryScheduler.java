@@ -0,0 +1,69 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.qpid.pool.ReferenceCountingExecutorService;
+import org.apache.qpid.server.model.DeliverySchedulerPolicy;
+
+/**
+ * Runs delivery work on the single fixed size executor shared by every virtual host in the broker.
+ */
+class SharedDeliveryScheduler implements DeliveryScheduler
+{
+    private final ExecutorService _executor;
+    private final AtomicBoolean _closed = new AtomicBoolean();
+
+    SharedDeliveryScheduler()
+    {
+        _executor = ReferenceCountingExecutorService.getInstance().acquireExecutorService();
+    }
+
+    @Override
+    public void execute(final Runnable command)
+    {
+        _executor.execute(command);
+    }
+
+    @Override
+    public DeliverySchedulerPolicy getPolicy()
+    {
+        return DeliverySchedulerPolicy.SHARED;
+    }
+
+    @Override
+    public int getThreadCount()
+    {
+        return _executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) _executor).getCorePoolSize() : 0;
+    }
+
+    @Override
+    public void close()
+    {
+        if (_closed.compareAndSet(false, true))
+        {
+            ReferenceCountingExecutorService.getInstance().releaseExecutorService();
+        }
+    }
+}
@@ -58,6 +58,10 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 {
     private static final Logger _logger = Logger.getLogger(SynchronousMessageStoreRecoverer.class);
 
+    private volatile long _recoveringQueueCount;
+    private volatile long _recoveredMessageCount;
+    private volatile long _recoveredQueueEntryCount;
+
     @Override
     public void recover(VirtualHostImpl virtualHost)
     {
@@ -70,6 +74,7 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         Map<Long, StoredMessage<?>> unusedMessages = new HashMap<>();
 
 
+        _recoveringQueueCount = virtualHost.getQueues().size();
         eventLogger.message(logSubject, MessageStoreMessages.RECOVERY_START());
 
         store.visitMessages(new MessageVisitor(recoveredMessages, unusedMessages));
@@ -79,6 +84,7 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                                                                recoveredMessages, unusedMessages));
         for(Map.Entry<String,Integer> entry : queueRecoveries.entrySet())
         {
+            _recoveredQueueEntryCount += entry.getValue();
             eventLogger.message(logSubject, TransactionLogMessages.RECOVERED(entry.getValue(), entry.getKey()));
             eventLogger.message(logSubject, TransactionLogMessages.RECOVERY_COMPLETE(entry.getKey(), true));
             virtualHost.getQueue(entry.getKey()).completeRecovery();
@@ -93,6 +99,7 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                 q.completeRecovery();
             }
         }
+        _recoveringQueueCount = 0L;
 
         store.visitDistributedTransactions(new DistributedTransactionVisitor(virtualHost, store, eventLogger,
                                                                              logSubject, recoveredMessages, unusedMessages));
@@ -106,6 +113,8 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         }
         eventLogger.message(logSubject, TransactionLogMessages.RECOVERY_COMPLETE(null, false));
 
+        _recoveredMessageCount = recoveredMessages.size() - unusedMessages.size();
+
         eventLogger.message(logSubject,
                              MessageStoreMessages.RECOVERED(recoveredMessages.size() - unusedMessages.size()));
         eventLogger.message(logSubject, MessageStoreMessages.RECOVERY_COMPLETE());
@@ -119,6 +128,24 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         // No-op
     }
 
+    @Override
+    public long getRecoveringQueueCount()
+    {
+        return _recoveringQueueCount;
+    }
+
+    @Override
+    public long getRecoveredMessageCount()
+    {
+        return _recoveredMessageCount;
+    }
+
+    @Override
+    public long getRecoveredQueueEntryCount()
+    {
+        return _recoveredQueueEntryCount;
+    }
+
     private static class MessageVisitor implements MessageHandler
     {
 
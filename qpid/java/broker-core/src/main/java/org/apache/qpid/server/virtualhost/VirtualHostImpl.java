@@ -29,6 +29,7 @@ import org.apache.qpid.server.connection.IConnectionRegistry;
 import org.apache.qpid.server.exchange.ExchangeImpl;
 import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.logging.EventLoggerProvider;
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageSource;
 import org.apache.qpid.server.model.NoFactoryForTypeException;
@@ -98,6 +99,19 @@ public interface VirtualHostImpl< X extends VirtualHostImpl<X,Q,E>, Q extends AM
 
     int getHouseKeepingActiveCount();
 
+    DeliveryScheduler getDeliveryScheduler();
+
+    /**
+     * Records the time, in milliseconds, from a message arriving to it being delivered from a queue of this
+     * virtual host. Ignored unless statistics histograms are enabled.
+     */
+    void registerMessageDeliveryLatency(long latency);
+
+    /**
+     * @return the cache of the converted forms of messages, or null if the virtual host is not open
+     */
+    MessageConversionCache getMessageConversionCache();
+
     DtxRegistry getDtxRegistry();
 
     LinkRegistry getLinkRegistry(String remoteContainerId);
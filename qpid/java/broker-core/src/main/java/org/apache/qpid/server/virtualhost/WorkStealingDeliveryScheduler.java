@@ -0,0 +1,103 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost;
+
+import java.security.PrivilegedAction;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.security.auth.Subject;
+
+import org.apache.log4j.Logger;
+
+import org.apache.qpid.server.model.DeliverySchedulerPolicy;
+
+/**
+ * Runs delivery work on a pool private to the virtual host in which every thread has its own work queue.
+ * <p>
+ * A queue runner which reschedules itself at the end of its delivery budget is placed on the queue of
+ * the thread that ran it, behind the work already waiting there, whilst idle threads steal from the
+ * queues of busy ones. A few hot queues therefore cannot starve the rest, and work spreads across all
+ * the threads rather than contending on one shared queue.
+ */
+class WorkStealingDeliveryScheduler implements DeliveryScheduler
+{
+    private static final Logger _logger = Logger.getLogger(WorkStealingDeliveryScheduler.class);
+
+    private final ForkJoinPool _pool;
+
+    WorkStealingDeliveryScheduler(final String name, final int threadCount)
+    {
+        final AtomicInteger threadId = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = new ForkJoinPool.ForkJoinWorkerThreadFactory()
+        {
+            @Override
+            public ForkJoinWorkerThread newThread(final ForkJoinPool pool)
+            {
+                // as with the shared pool, threads must not inherit the access control context of their creator
+                return Subject.doAsPrivileged(null, new PrivilegedAction<ForkJoinWorkerThread>()
+                {
+                    @Override
+                    public ForkJoinWorkerThread run()
+                    {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        thread.setName("delivery-" + name + "-" + threadId.incrementAndGet());
+                        return thread;
+                    }
+                }, null);
+            }
+        };
+        Thread.UncaughtExceptionHandler exceptionHandler = new Thread.UncaughtExceptionHandler()
+        {
+            @Override
+            public void uncaughtException(final Thread t, final Throwable e)
+            {
+                _logger.error("Uncaught exception in delivery thread " + t.getName(), e);
+            }
+        };
+        _pool = new ForkJoinPool(threadCount, threadFactory, exceptionHandler, true);
+    }
+
+    @Override
+    public void execute(final Runnable command)
+    {
+        _pool.execute(command);
+    }
+
+    @Override
+    public DeliverySchedulerPolicy getPolicy()
+    {
+        return DeliverySchedulerPolicy.WORK_STEALING;
+    }
+
+    @Override
+    public int getThreadCount()
+    {
+        return _pool.getParallelism();
+    }
+
+    @Override
+    public void close()
+    {
+        _pool.shutdownNow();
+    }
+}
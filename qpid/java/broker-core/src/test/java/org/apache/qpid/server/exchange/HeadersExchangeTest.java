@@ -31,6 +31,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
 
@@ -39,6 +40,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import org.apache.qpid.common.AMQPFilterTypes;
+import org.apache.qpid.server.binding.BindingImpl;
 import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
 import org.apache.qpid.server.configuration.updater.TaskExecutor;
 import org.apache.qpid.server.logging.EventLogger;
@@ -234,6 +236,90 @@ public class HeadersExchangeTest extends TestCase
 
     }
 
+    public void testUnconditionalBindings() throws Exception
+    {
+        AMQQueue q1 = createAndBind("Q1");
+        AMQQueue q2 = createAndBind("Q2", "X-match=any");
+        AMQQueue q3 = createAndBind("Q3", "F0000");
+
+        routeAndTest(mockMessage(getArgsMapFromStrings("F0000")), q1, q2, q3);
+        routeAndTest(mockMessage(getArgsMapFromStrings("F0001")), q1, q2);
+        routeAndTest(mockMessage(getArgsMapFromStrings()), q1, q2);
+    }
+
+    public void testAllWithManyConstraints() throws Exception
+    {
+        AMQQueue q1 = createAndBind("Q1", "F0000=Aardvark", "F0001=Bear", "F0002", "F0003");
+
+        routeAndTest(mockMessage(getArgsMapFromStrings("F0000=Aardvark", "F0001=Bear", "F0002")));
+        routeAndTest(mockMessage(getArgsMapFromStrings("F0000=Aardvark", "F0001=Cat", "F0002", "F0003")));
+        routeAndTest(mockMessage(getArgsMapFromStrings("F0000=Aardvark", "F0001=Bear", "F0002", "F0003")), q1);
+        routeAndTest(mockMessage(getArgsMapFromStrings("F0000=Aardvark", "F0001=Bear", "F0002", "F0003", "F0004")),
+                     q1);
+    }
+
+    public void testReplaceBinding() throws Exception
+    {
+        AMQQueue q1 = createAndBind("Q1", "F0000=Aardvark");
+
+        routeAndTest(mockMessage(getArgsMapFromStrings("F0000=Aardvark")), q1);
+
+        _exchange.replaceBinding("Q1", q1, getArgsMapFromStrings("F0000=Bear"));
+
+        routeAndTest(mockMessage(getArgsMapFromStrings("F0000=Aardvark")));
+        routeAndTest(mockMessage(getArgsMapFromStrings("F0000=Bear")), q1);
+
+        _exchange.deleteBinding("Q1", q1);
+
+        routeAndTest(mockMessage(getArgsMapFromStrings("F0000=Bear")));
+    }
+
+    public void testRoutingAgreesWithBindingMatching() throws Exception
+    {
+        Random random = new Random(0);
+        String[] names = {"F0000", "F0001", "F0002", "F0003"};
+        String[] values = {null, "A", "B"};
+
+        for(int i = 0; i < 50; i++)
+        {
+            Map<String, Object> arguments = new HashMap<String, Object>();
+            for(String name : names)
+            {
+                if(random.nextBoolean())
+                {
+                    arguments.put(name, values[random.nextInt(values.length)]);
+                }
+            }
+            if(random.nextBoolean())
+            {
+                arguments.put("X-match", "any");
+            }
+            createAndBind("Q" + i, arguments);
+        }
+
+        for(int i = 0; i < 200; i++)
+        {
+            Map<String, Object> headers = new HashMap<String, Object>();
+            for(String name : names)
+            {
+                if(random.nextBoolean())
+                {
+                    headers.put(name, values[random.nextInt(values.length)]);
+                }
+            }
+            ServerMessage message = mockMessage(headers);
+            List<AMQQueue> expected = new ArrayList<AMQQueue>();
+            for(BindingImpl binding : _exchange.getBindings())
+            {
+                if(new HeadersBinding(binding).matches(message.getMessageHeader()))
+                {
+                    expected.add(binding.getAMQQueue());
+                }
+            }
+            routeAndTest(message, expected.toArray(new AMQQueue[expected.size()]));
+        }
+    }
+
     private ServerMessage mockMessage(final Map<String, Object> headerValues)
     {
         final AMQMessageHeader header = mock(AMQMessageHeader.class);
@@ -30,6 +30,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Assert;
 
@@ -467,6 +471,167 @@ public class TopicExchangeTest extends QpidTestCase
         _exchange.delete();
     }
 
+    public void testBindAndUnbindWhileRouting() throws Exception
+    {
+        final int keyCount = 200;
+        final AMQQueue<?> queue = createQueue("queue1");
+        final AMQQueue<?> stableQueue = createQueue("stableQueue");
+        _exchange.addBinding("stable.#", stableQueue, null);
+
+        final AtomicBoolean binding = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch routing = new CountDownLatch(1);
+        Thread router = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ServerMessage message = mock(ServerMessage.class);
+                try
+                {
+                    while (binding.get())
+                    {
+                        List<? extends BaseQueue> queues =
+                                _exchange.route(message, "stable.key", InstanceProperties.EMPTY);
+                        if (queues.size() != 1 || queues.get(0) != stableQueue)
+                        {
+                            throw new AssertionError("Unexpected route " + queues);
+                        }
+                        _exchange.route(message, "key0.a", InstanceProperties.EMPTY);
+                        routing.countDown();
+                    }
+                }
+                catch (Throwable t)
+                {
+                    failure.set(t);
+                    routing.countDown();
+                }
+            }
+        });
+        router.start();
+
+        try
+        {
+            assertTrue("Router did not start", routing.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < keyCount; i++)
+            {
+                _exchange.addBinding("key" + i + ".*", queue, null);
+                _exchange.addBinding("key" + i + ".#", stableQueue, null);
+            }
+            for (int i = 0; i < keyCount; i += 2)
+            {
+                _exchange.deleteBinding("key" + i + ".*", queue);
+            }
+        }
+        finally
+        {
+            binding.set(false);
+            router.join(10000);
+        }
+
+        assertNull("Unexpected failure " + failure.get(), failure.get());
+        assertEquals(1 + keyCount + keyCount / 2, _exchange.getBindingCount());
+        for (int i = 0; i < keyCount; i++)
+        {
+            assertEquals("Unexpected routes for key" + i + ".a",
+                         i % 2 == 0 ? 1 : 2,
+                         _exchange.route(mock(ServerMessage.class), "key" + i + ".a", InstanceProperties.EMPTY).size());
+        }
+    }
+
+    public void testBindingWithOtherKeyNotBlockedByBindingInProgress() throws Exception
+    {
+        final AMQQueue<?> queue = createQueue("queue1");
+        final AMQQueue<?> otherQueue = createQueue("queue2");
+        final CountDownLatch sameKeyBound = new CountDownLatch(1);
+        Thread sameKeyBinder = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                _exchange.addBinding("held.*", otherQueue, null);
+                sameKeyBound.countDown();
+            }
+        });
+
+        synchronized (_exchange.getBindingLock("held.*"))
+        {
+            sameKeyBinder.start();
+
+            final CountDownLatch otherKeyBound = new CountDownLatch(1);
+            Thread otherKeyBinder = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    _exchange.addBinding("other.*", queue, null);
+                    otherKeyBound.countDown();
+                }
+            });
+            otherKeyBinder.start();
+
+            assertTrue("Binding with another key should not wait", otherKeyBound.await(10, TimeUnit.SECONDS));
+            assertEquals("Unexpected routes for other key",
+                         1, _exchange.route(mock(ServerMessage.class), "other.a", InstanceProperties.EMPTY).size());
+            assertFalse("Binding with the same key should wait", sameKeyBound.await(100, TimeUnit.MILLISECONDS));
+        }
+
+        assertTrue("Binding with the same key should complete", sameKeyBound.await(10, TimeUnit.SECONDS));
+        assertEquals("Unexpected routes for held key",
+                     1, _exchange.route(mock(ServerMessage.class), "held.a", InstanceProperties.EMPTY).size());
+    }
+
+    public void testConcurrentBindingOnDifferentKeys() throws Exception
+    {
+        final int threadCount = 4;
+        final int keyCount = 100;
+        final AMQQueue<?> queue = createQueue("queue1");
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] binders = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++)
+        {
+            final int thread = t;
+            binders[t] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        for (int i = 0; i < keyCount; i++)
+                        {
+                            _exchange.addBinding("thread" + thread + ".key" + i, queue, null);
+                        }
+                    }
+                    catch (Throwable e)
+                    {
+                        failure.set(e);
+                    }
+                }
+            });
+            binders[t].start();
+        }
+        start.countDown();
+        for (Thread binder : binders)
+        {
+            binder.join(10000);
+        }
+
+        assertNull("Unexpected failure " + failure.get(), failure.get());
+        assertEquals(threadCount * keyCount, _exchange.getBindingCount());
+        for (int t = 0; t < threadCount; t++)
+        {
+            for (int i = 0; i < keyCount; i++)
+            {
+                assertEquals("Unexpected routes for thread" + t + ".key" + i, 1,
+                             _exchange.route(mock(ServerMessage.class), "thread" + t + ".key" + i,
+                                             InstanceProperties.EMPTY).size());
+            }
+        }
+    }
+
     private BindingImpl createBinding(UUID id,
                                       String bindingKey,
                                       AMQQueue queue,
@@ -18,7 +18,23 @@
  */
 package org.apache.qpid.server.filter;
 
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import junit.framework.TestCase;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.apache.qpid.common.AMQPFilterTypes;
+import org.apache.qpid.server.message.AMQMessageHeader;
 
 public class JMSSelectorFilterTest extends TestCase
 {
@@ -37,6 +53,130 @@ public class JMSSelectorFilterTest extends TestCase
         assertNotEqual(filter1, differentFilter);
     }
 
+    public void testCompiledSelectorsAgreeWithParsedSelectors() throws Exception
+    {
+        String[] selectors = {
+                "a = 'x'",
+                "'x' = a",
+                "a <> 'x'",
+                "b = 1",
+                "c = 1",
+                "d = 1.5",
+                "e = 2",
+                "flag = TRUE",
+                "flag",
+                "missing = 1",
+                "a IS NULL",
+                "a IS NOT NULL",
+                "missing IS NULL",
+                "a = 'x' OR b = 2 OR d > 1",
+                "missing = 1 OR a = 'y'",
+                "missing = 1 OR missing = 2",
+                "a = 'x' AND b = 1 AND missing IS NULL",
+                "missing = 1 AND a = 'x'",
+                "a = 'x' AND missing = 1",
+                "NOT (a = 'x' OR missing = 1)",
+                "NOT (a = 'y' AND (b = 1 OR c = 2))",
+                "a IN ('x', 'y') AND b BETWEEN 0 AND 5",
+                "JMSPriority = 4 OR JMSType = 'type'",
+                "JMSDeliveryMode = 'PERSISTENT' AND JMSRedelivered = FALSE"
+        };
+
+        List<Map<String, Object>> headerSets = new ArrayList<Map<String, Object>>();
+        headerSets.add(new HashMap<String, Object>());
+        Map<String, Object> headers = new HashMap<String, Object>();
+        headers.put("a", "x");
+        headers.put("b", 1);
+        headers.put("c", 1L);
+        headers.put("d", 1.5d);
+        headers.put("e", 2.0f);
+        headers.put("flag", true);
+        headerSets.add(headers);
+        headers = new HashMap<String, Object>();
+        headers.put("a", "y");
+        headers.put("b", 2L);
+        headers.put("c", (short) 2);
+        headers.put("d", 1);
+        headers.put("e", "2");
+        headers.put("flag", "true");
+        headerSets.add(headers);
+
+        for (String selector : selectors)
+        {
+            JMSSelectorFilter compiled = new JMSSelectorFilter(selector, true);
+            JMSSelectorFilter parsed = new JMSSelectorFilter(selector, false);
+            for (Map<String, Object> headerValues : headerSets)
+            {
+                for (boolean persistent : new boolean[] {false, true})
+                {
+                    Filterable message = createFilterable(headerValues, persistent);
+                    assertEquals("Unexpected outcome for selector " + selector + " and headers " + headerValues,
+                                 parsed.matches(message), compiled.matches(message));
+                }
+            }
+        }
+    }
+
+    public void testHeaderResolvedOncePerMessage() throws Exception
+    {
+        Map<String, Object> headerValues = new HashMap<String, Object>();
+        headerValues.put("a", "x");
+        Filterable message = createFilterable(headerValues, false);
+        CachingFilterable cachingFilterable = new CachingFilterable(message);
+
+        assertTrue(new JMSSelectorFilter("a = 'x'").matches(cachingFilterable));
+        assertFalse(new JMSSelectorFilter("a = 'y'").matches(cachingFilterable));
+        assertTrue(new JMSSelectorFilter("a IN ('x', 'z')").matches(cachingFilterable));
+
+        verify(message.getMessageHeader(), times(1)).getHeader("a");
+    }
+
+    public void testIdenticalSelectorsEvaluatedOncePerMessage() throws Exception
+    {
+        Map<String, Object> headerValues = new HashMap<String, Object>();
+        headerValues.put("a", "x");
+        Filterable message = createFilterable(headerValues, false);
+        CachingFilterable cachingFilterable = new CachingFilterable(message);
+
+        JMSSelectorFilter filter1 = new JMSSelectorFilter("a = 'x' AND JMSPriority = 4");
+        JMSSelectorFilter filter2 = new JMSSelectorFilter(new String("a = 'x' AND JMSPriority = 4"));
+        assertTrue(filter1.matches(cachingFilterable));
+        assertTrue(filter2.matches(cachingFilterable));
+
+        verify(message.getMessageHeader(), times(1)).getPriority();
+    }
+
+    public void testFilterManagersShareFilterForIdenticalSelector() throws Exception
+    {
+        Map<String, Object> arguments = new HashMap<String, Object>();
+        arguments.put(AMQPFilterTypes.JMS_SELECTOR.toString(), "a = 'x'");
+
+        FilterManager manager1 = FilterManagerFactory.createManager(arguments);
+        FilterManager manager2 = FilterManagerFactory.createManager(new HashMap<String, Object>(arguments));
+
+        assertSame(manager1.filters().next(), manager2.filters().next());
+    }
+
+    private Filterable createFilterable(final Map<String, Object> headerValues, final boolean persistent)
+    {
+        final AMQMessageHeader header = mock(AMQMessageHeader.class);
+        when(header.getHeader(anyString())).then(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable
+            {
+                return headerValues.get((String) invocation.getArguments()[0]);
+            }
+        });
+        when(header.getPriority()).thenReturn((byte) 4);
+        when(header.getType()).thenReturn("type");
+
+        Filterable filterable = mock(Filterable.class);
+        when(filterable.getMessageHeader()).thenReturn(header);
+        when(filterable.isPersistent()).thenReturn(persistent);
+        return filterable;
+    }
+
     private void assertEqualsAndHashCodeMatch(JMSSelectorFilter filter1, JMSSelectorFilter filter2)
     {
         String message = filter1 + " and " + filter2 + " should be equal";
@@ -0,0 +1,171 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.logging;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class AsynchronousMessageLoggerTest extends QpidTestCase
+{
+    private static final String TEST_HIERARCHY = "test.hierarchy";
+
+    private final UnitTestMessageLogger _underlyingLogger = new UnitTestMessageLogger();
+
+    public void testMessagesWrittenInOrder()
+    {
+        AsynchronousMessageLogger logger =
+                new AsynchronousMessageLogger(_underlyingLogger, 16, AsynchronousMessageLogger.OverflowPolicy.BLOCK);
+        logger.start();
+        for (int i = 0; i < 100; i++)
+        {
+            logger.message(createMessage("message" + i, null));
+        }
+        logger.stop();
+
+        List<Object> messages = _underlyingLogger.getLogMessages();
+        assertEquals("Unexpected number of messages written", 100, messages.size());
+        for (int i = 0; i < 100; i++)
+        {
+            assertTrue("Unexpected message " + messages.get(i), messages.get(i).toString().endsWith("message" + i));
+        }
+        assertEquals("Unexpected dropped count", 0, logger.getDroppedCount());
+    }
+
+    public void testMessagesDroppedWhenBufferFull()
+    {
+        AsynchronousMessageLogger logger =
+                new AsynchronousMessageLogger(_underlyingLogger, 2, AsynchronousMessageLogger.OverflowPolicy.DROP);
+
+        // the writer is not started, so the buffer fills
+        for (int i = 0; i < 5; i++)
+        {
+            logger.message(createMessage("message" + i, null));
+        }
+
+        assertEquals("Unexpected queue depth", 2, logger.getQueueDepth());
+        assertEquals("Unexpected dropped count", 3, logger.getDroppedCount());
+        assertTrue("Messages written before the writer started", _underlyingLogger.getLogMessages().isEmpty());
+
+        logger.stop();
+
+        assertEquals("Buffered messages not written on stop", 2, _underlyingLogger.getLogMessages().size());
+        assertEquals("Unexpected queue depth", 0, logger.getQueueDepth());
+    }
+
+    public void testMessageFormattedWhenWritten()
+    {
+        AsynchronousMessageLogger logger =
+                new AsynchronousMessageLogger(_underlyingLogger, 16, AsynchronousMessageLogger.OverflowPolicy.BLOCK);
+        AtomicInteger formatCount = new AtomicInteger();
+
+        logger.message(createMessage("message", formatCount));
+        assertEquals("Message formatted when logged", 0, formatCount.get());
+
+        logger.stop();
+        assertEquals("Message not formatted when written", 1, formatCount.get());
+        assertTrue("Message not written", _underlyingLogger.messageContains(0, "message"));
+    }
+
+    public void testMessageWrittenDirectlyOnceStopped()
+    {
+        AsynchronousMessageLogger logger =
+                new AsynchronousMessageLogger(_underlyingLogger, 16, AsynchronousMessageLogger.OverflowPolicy.BLOCK);
+        logger.start();
+        logger.stop();
+
+        logger.message(createMessage("message", null));
+
+        assertEquals("Message not written", 1, _underlyingLogger.getLogMessages().size());
+        assertEquals("Unexpected queue depth", 0, logger.getQueueDepth());
+    }
+
+    public void testNoMessageLostWhenStoppedWhileLogging() throws Exception
+    {
+        final AtomicInteger writtenCount = new AtomicInteger();
+        UnitTestMessageLogger underlyingLogger = new UnitTestMessageLogger()
+        {
+            @Override
+            public void rawMessage(final String message, final String logHierarchy)
+            {
+                writtenCount.incrementAndGet();
+            }
+        };
+        final AsynchronousMessageLogger logger =
+                new AsynchronousMessageLogger(underlyingLogger, 16, AsynchronousMessageLogger.OverflowPolicy.BLOCK);
+        logger.start();
+
+        final int threadCount = 4;
+        final int messagesPerThread = 1000;
+        final CountDownLatch started = new CountDownLatch(threadCount);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++)
+        {
+            threads[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    started.countDown();
+                    for (int j = 0; j < messagesPerThread; j++)
+                    {
+                        logger.message(createMessage("message" + j, null));
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        started.await();
+        logger.stop();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertEquals("Messages lost", threadCount * messagesPerThread, writtenCount.get());
+        assertEquals("Unexpected queue depth", 0, logger.getQueueDepth());
+    }
+
+    private LogMessage createMessage(final String text, final AtomicInteger formatCount)
+    {
+        return new LogMessage()
+        {
+            @Override
+            public String getLogHierarchy()
+            {
+                return TEST_HIERARCHY;
+            }
+
+            @Override
+            public String toString()
+            {
+                if (formatCount != null)
+                {
+                    formatCount.incrementAndGet();
+                }
+                return text;
+            }
+        };
+    }
+}
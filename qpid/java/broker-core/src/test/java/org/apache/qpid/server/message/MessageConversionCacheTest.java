@@ -0,0 +1,120 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.message;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.plugin.MessageConverter;
+import org.apache.qpid.server.store.MemoryMessageStore;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class MessageConversionCacheTest extends QpidTestCase
+{
+    private static final long CONVERTED_SIZE = 100L;
+
+    private MessageStore _messageStore;
+    private VirtualHostImpl _virtualHost;
+    private MessageConverter<InternalMessage, ServerMessage> _converter;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _messageStore = new MemoryMessageStore();
+        _messageStore.openMessageStore(mock(ConfiguredObject.class));
+        _virtualHost = mock(VirtualHostImpl.class);
+
+        _converter = mock(MessageConverter.class);
+        when(_converter.getOutputClass()).thenReturn(ServerMessage.class);
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            _messageStore.closeMessageStore();
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testConvertedFormReusedUntilMessageDeleted()
+    {
+        MessageConversionCache cache = new MessageConversionCache(1000L);
+        InternalMessage message = createMessage();
+        ServerMessage converted = createConvertedMessage(message);
+        MessageReference<InternalMessage> reference = message.newReference();
+
+        assertSame(converted, cache.convert(_converter, message, _virtualHost));
+        assertSame(converted, cache.convert(_converter, message, _virtualHost));
+        verify(_converter, times(1)).convert(message, _virtualHost);
+
+        assertEquals("Unexpected hits", 1L, cache.getHits());
+        assertEquals("Unexpected misses", 1L, cache.getMisses());
+        assertEquals("Unexpected size", CONVERTED_SIZE, cache.getSize());
+
+        reference.release();
+        assertEquals("Converted form not released with the message", 0L, cache.getSize());
+    }
+
+    public void testConvertedFormNotHeldBeyondMaximumSize()
+    {
+        MessageConversionCache cache = new MessageConversionCache(CONVERTED_SIZE + CONVERTED_SIZE / 2);
+        InternalMessage first = createMessage();
+        createConvertedMessage(first);
+        first.newReference();
+        InternalMessage second = createMessage();
+        createConvertedMessage(second);
+        second.newReference();
+
+        cache.convert(_converter, first, _virtualHost);
+        cache.convert(_converter, second, _virtualHost);
+        cache.convert(_converter, second, _virtualHost);
+
+        verify(_converter, times(2)).convert(second, _virtualHost);
+        assertEquals("Unexpected hits", 0L, cache.getHits());
+        assertEquals("Unexpected misses", 3L, cache.getMisses());
+        assertEquals("Unexpected size", CONVERTED_SIZE, cache.getSize());
+    }
+
+    private InternalMessage createMessage()
+    {
+        return InternalMessage.createStringMessage(_messageStore, mock(AMQMessageHeader.class), "");
+    }
+
+    private ServerMessage createConvertedMessage(final InternalMessage message)
+    {
+        ServerMessage converted = mock(ServerMessage.class);
+        when(converted.getSize()).thenReturn(CONVERTED_SIZE);
+        when(_converter.convert(message, _virtualHost)).thenReturn(converted);
+        return converted;
+    }
+}
@@ -119,6 +119,25 @@ public class AmqpPortImplTest extends QpidTestCase
         }
     }
 
+    public void testValidateOnCreateRejectsUnknownTransportProvider() throws Exception
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(AmqpPort.PORT, 0);
+        attributes.put(AmqpPort.NAME, getTestName());
+        attributes.put(AmqpPort.AUTHENTICATION_PROVIDER, AUTHENTICATION_PROVIDER_NAME);
+        attributes.put(AmqpPort.CONTEXT, Collections.singletonMap(AmqpPort.PORT_TRANSPORT_PROVIDER, "Unknown"));
+        _port = new AmqpPortImpl(attributes, _broker);
+        try
+        {
+            _port.create();
+            fail("Creation should fail due to unknown transport provider");
+        }
+        catch (IllegalConfigurationException e)
+        {
+            assertTrue("Unexpected exception message " + e.getMessage(), e.getMessage().contains("'Unknown'"));
+        }
+    }
+
     private ServerSocket openSocket() throws IOException
     {
         ServerSocket serverSocket = new ServerSocket();
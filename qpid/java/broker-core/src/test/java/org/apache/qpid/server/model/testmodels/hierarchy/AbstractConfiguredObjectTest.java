@@ -94,4 +94,28 @@ public class AbstractConfiguredObjectTest extends QpidTestCase
 
     }
 
+    public void testChildContextValueReflectsParentContextChange()
+    {
+        final String contextVariable = "myVariable";
+
+        Map<String, Object> carAttributes = new HashMap<>();
+        carAttributes.put(ConfiguredObject.NAME, "myCar");
+        carAttributes.put(ConfiguredObject.TYPE, TestKitCarImpl.TEST_KITCAR_TYPE);
+        carAttributes.put(ConfiguredObject.CONTEXT, Collections.singletonMap(contextVariable, "1"));
+
+        TestCar car = _model.getObjectFactory().create(TestCar.class, carAttributes);
+
+        Map<String, Object> engineAttributes = new HashMap<>();
+        engineAttributes.put(ConfiguredObject.NAME, "myEngine");
+        engineAttributes.put(ConfiguredObject.TYPE, TestElecEngineImpl.TEST_ELEC_ENGINE_TYPE);
+
+        TestEngine engine = (TestEngine) car.createChild(TestEngine.class, engineAttributes);
+
+        assertEquals(Integer.valueOf(1), engine.getContextValue(Integer.class, contextVariable));
+
+        car.setAttributes(Collections.<String, Object>singletonMap(ConfiguredObject.CONTEXT,
+                                                                   Collections.singletonMap(contextVariable, "2")));
+
+        assertEquals(Integer.valueOf(2), engine.getContextValue(Integer.class, contextVariable));
+    }
 }
@@ -431,6 +431,23 @@ public class AbstractConfiguredObjectTest extends QpidTestCase
         assertEquals(object.getContextValue(String.class, TestSingleton.TEST_CONTEXT_DEFAULT), "notdefault");
     }
 
+    public void testContextValueReflectsContextChange()
+    {
+        final String objectName = "myName";
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(ConfiguredObject.NAME, objectName);
+
+        TestSingleton object = _model.getObjectFactory().create(TestSingleton.class, attributes);
+
+        assertEquals("default", object.getContextValue(String.class, TestSingleton.TEST_CONTEXT_DEFAULT));
+
+        Map<String, String> context = Collections.singletonMap(TestSingleton.TEST_CONTEXT_DEFAULT, "changed");
+        object.setAttributes(Collections.<String, Object>singletonMap(ConfiguredObject.CONTEXT, context));
+
+        assertEquals("changed", object.getContextValue(String.class, TestSingleton.TEST_CONTEXT_DEFAULT));
+    }
+
     public void testDerivedAttributeValue()
     {
         final String objectName = "myName";
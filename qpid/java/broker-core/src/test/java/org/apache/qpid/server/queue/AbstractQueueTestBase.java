@@ -793,6 +793,120 @@ abstract class AbstractQueueTestBase extends QpidTestCase
     }
 
 
+    public void testExpiredEntriesDequeuedWhenDue() throws Exception
+    {
+        long now = System.currentTimeMillis();
+        ServerMessage laterMessage = createMessage(new Long(24));
+        when(laterMessage.getExpiration()).thenReturn(now + 60000l);
+        ServerMessage soonerMessage = createMessage(new Long(25));
+        when(soonerMessage.getExpiration()).thenReturn(now + 200l);
+        ServerMessage unexpiringMessage = createMessage(new Long(26));
+
+        _queue.enqueue(laterMessage, null);
+        _queue.enqueue(soonerMessage, null);
+        _queue.enqueue(unexpiringMessage, null);
+        assertEquals("Unexpected queue depth", 3, _queue.getQueueDepthMessages());
+
+        long timeout = System.currentTimeMillis() + 5000l;
+        while (_queue.getQueueDepthMessages() > 2 && System.currentTimeMillis() < timeout)
+        {
+            Thread.sleep(20l);
+        }
+        assertEquals("Expired entry was not dequeued", 2, _queue.getQueueDepthMessages());
+
+        final List<Long> remaining = new ArrayList<>();
+        _queue.visit(new QueueEntryVisitor()
+        {
+            @Override
+            public boolean visit(final QueueEntry entry)
+            {
+                if (!entry.isDeleted())
+                {
+                    remaining.add(entry.getMessage().getMessageNumber());
+                }
+                return false;
+            }
+        });
+        assertTrue("Unexpired entry was dequeued", remaining.contains(24l));
+        assertTrue("Unexpiring entry was dequeued", remaining.contains(26l));
+    }
+
+    public void testExpiredEntryDequeuedWhenReleased() throws Exception
+    {
+        ServerMessage message = createMessage(new Long(24));
+        when(message.getExpiration()).thenReturn(System.currentTimeMillis() + 200l);
+
+        final ArrayList<QueueEntry> queueEntries = new ArrayList<QueueEntry>();
+        _queue.enqueue(message, new EntryListAddingAction(queueEntries));
+        QueueEntry entry = queueEntries.get(0);
+        assertTrue("Could not acquire entry", entry.acquire());
+
+        // the expiry check finds the entry held, and leaves it on the queue
+        long timeout = System.currentTimeMillis() + 5000l;
+        while (!entry.expired() && System.currentTimeMillis() < timeout)
+        {
+            Thread.sleep(20l);
+        }
+        Thread.sleep(200l);
+        assertEquals("Held entry should not be dequeued", 1, _queue.getQueueDepthMessages());
+
+        entry.release();
+
+        timeout = System.currentTimeMillis() + 5000l;
+        while (_queue.getQueueDepthMessages() > 0 && System.currentTimeMillis() < timeout)
+        {
+            Thread.sleep(20l);
+        }
+        assertEquals("Released expired entry was not dequeued", 0, _queue.getQueueDepthMessages());
+    }
+
+    public void testGetMessagesOnTheQueueByMessageNumber() throws Exception
+    {
+        assertMessagesOnTheQueueByMessageNumber(_queue);
+    }
+
+    public void testGetMessagesOnTheQueueByMessageNumberWithMessageIndex() throws Exception
+    {
+        _queue.close();
+
+        Map<String,Object> attributes = new HashMap<String, Object>(_arguments);
+        attributes.put(Queue.ID, UUIDGenerator.generateRandomUUID());
+        attributes.put(Queue.NAME, _qname);
+        attributes.put(Queue.CONTEXT, Collections.singletonMap(Queue.QUEUE_MESSAGE_INDEX_ENABLED, "true"));
+        _queue = _virtualHost.createQueue(attributes);
+
+        assertMessagesOnTheQueueByMessageNumber(_queue);
+    }
+
+    private void assertMessagesOnTheQueueByMessageNumber(final AMQQueue<?> queue)
+    {
+        final ArrayList<QueueEntry> entries = new ArrayList<>();
+        for (long id = 10; id < 15; id++)
+        {
+            queue.enqueue(createMessage(id), new EntryListAddingAction(entries));
+        }
+
+        QueueEntry deleted = entries.get(2);
+        assertTrue("Entry could not be acquired", deleted.acquire());
+        deleted.delete();
+
+        assertSame("Unexpected entry", entries.get(1), queue.getMessageOnTheQueue(11l));
+        assertNull("Deleted entry found", queue.getMessageOnTheQueue(12l));
+        assertNull("Unknown message found", queue.getMessageOnTheQueue(99l));
+
+        assertEquals("Unexpected entries by id", Arrays.asList(entries.get(0), entries.get(3)),
+                     queue.getMessagesOnTheQueue(Arrays.asList(13l, 12l, 10l, 99l)));
+        assertEquals("Unexpected entries in range", Arrays.asList(entries.get(1), entries.get(3)),
+                     queue.getMessagesOnTheQueue(11l, 13l));
+        assertEquals("Unexpected first page", Arrays.asList(entries.get(0), entries.get(1)),
+                     queue.getMessagesOnTheQueueAfter(0l, 2));
+        assertEquals("Unexpected next page", Arrays.asList(entries.get(3), entries.get(4)),
+                     queue.getMessagesOnTheQueueAfter(11l, 2));
+        assertTrue("Unexpected last page", queue.getMessagesOnTheQueueAfter(14l, 2).isEmpty());
+        assertTrue("Unexpected empty page", queue.getMessagesOnTheQueueAfter(0l, 0).isEmpty());
+        assertTrue("Unexpected page of negative size", queue.getMessagesOnTheQueueAfter(0l, -1).isEmpty());
+    }
+
     public void testMaximumMessageTtl() throws Exception
     {
 
@@ -872,21 +986,13 @@ abstract class AbstractQueueTestBase extends QpidTestCase
 
     private long getExpirationOnQueue(final AMQQueue queue, long arrivalTime, long expiration)
     {
-        final List<QueueEntry> entries = new ArrayList<>();
+        final ArrayList<QueueEntry> entries = new ArrayList<>();
 
         ServerMessage message = createMessage(1l);
         when(message.getArrivalTime()).thenReturn(arrivalTime);
         when(message.getExpiration()).thenReturn(expiration);
-        queue.enqueue(message,null);
-        queue.visit(new QueueEntryVisitor()
-        {
-            @Override
-            public boolean visit(final QueueEntry entry)
-            {
-                entries.add(entry);
-                return true;
-            }
-        });
+        // the entry is captured as it is enqueued, as an entry which has already expired may be dequeued at once
+        queue.enqueue(message, new EntryListAddingAction(entries));
         assertEquals("Expected only one entry in the queue", 1, entries.size());
 
         Long entryExpiration =
@@ -40,6 +40,7 @@ import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
 import org.apache.qpid.server.model.Queue;
 import org.apache.qpid.server.security.SecurityManager;
 import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.virtualhost.DeliveryScheduler;
 import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 
 public class LastValueQueueListTest extends TestCase
@@ -68,6 +69,7 @@ public class LastValueQueueListTest extends TestCase
         when(virtualHost.getObjectFactory()).thenReturn(factory);
         when(virtualHost.getModel()).thenReturn(factory.getModel());
         when(virtualHost.getTaskExecutor()).thenReturn(CurrentThreadTaskExecutor.newStartedInstance());
+        when(virtualHost.getDeliveryScheduler()).thenReturn(mock(DeliveryScheduler.class));
         _queue = new LastValueQueueImpl(queueAttributes, virtualHost);
         _queue.open();
         _list = _queue.getEntries();
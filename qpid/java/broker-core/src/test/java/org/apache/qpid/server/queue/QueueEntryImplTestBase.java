@@ -30,6 +30,7 @@ import java.util.UUID;
 import junit.framework.TestCase;
 
 import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.filter.Filterable;
 import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.MessageInstance.EntryState;
@@ -40,6 +41,7 @@ import org.apache.qpid.server.model.ConfiguredObjectFactory;
 import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
 import org.apache.qpid.server.model.Queue;
 import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.virtualhost.DeliveryScheduler;
 import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 
 /**
@@ -80,6 +82,27 @@ public abstract class QueueEntryImplTestBase extends TestCase
         delete();
     }
 
+    public void testFilterableSharedOnlyWithinDeliveryPass()
+    {
+        assertNotSame("Filterable should not be kept outside a delivery pass",
+                      _queueEntry.asFilterable(), _queueEntry.asFilterable());
+
+        DeliveryPass.begin();
+        Filterable filterable;
+        try
+        {
+            filterable = _queueEntry.asFilterable();
+            assertSame("Filterable should be shared within a delivery pass", filterable, _queueEntry.asFilterable());
+        }
+        finally
+        {
+            DeliveryPass.end();
+        }
+
+        assertNotSame("Filterable should be dropped when the delivery pass ends",
+                      filterable, _queueEntry.asFilterable());
+    }
+
     /**
      * Tests release method for entry in acquired state.
      * <p>
@@ -245,6 +268,7 @@ public abstract class QueueEntryImplTestBase extends TestCase
         when(virtualHost.getObjectFactory()).thenReturn(factory);
         when(virtualHost.getModel()).thenReturn(factory.getModel());
         when(virtualHost.getTaskExecutor()).thenReturn(CurrentThreadTaskExecutor.newStartedInstance());
+        when(virtualHost.getDeliveryScheduler()).thenReturn(mock(DeliveryScheduler.class));
 
         StandardQueueImpl queue = new StandardQueueImpl(queueAttributes, virtualHost);
         queue.open();
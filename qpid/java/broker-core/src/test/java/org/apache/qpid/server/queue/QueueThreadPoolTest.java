@@ -20,13 +20,20 @@
  */
 package org.apache.qpid.server.queue;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.qpid.pool.ReferenceCountingExecutorService;
+import org.apache.qpid.server.model.DeliverySchedulerPolicy;
 import org.apache.qpid.server.model.Queue;
 import org.apache.qpid.server.model.UUIDGenerator;
+import org.apache.qpid.server.model.VirtualHost;
 import org.apache.qpid.server.util.BrokerTestHelper;
+import org.apache.qpid.server.virtualhost.TestMemoryVirtualHost;
 import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 import org.apache.qpid.test.utils.QpidTestCase;
 
@@ -47,29 +54,131 @@ public class QueueThreadPoolTest extends QpidTestCase
         super.tearDown();
     }
 
-    public void test() throws Exception
+    public void testSharedPolicy() throws Exception
     {
         int initialCount = ReferenceCountingExecutorService.getInstance().getReferenceCount();
-        VirtualHostImpl test = BrokerTestHelper.createVirtualHost("test");
+        VirtualHostImpl test = createVirtualHost(DeliverySchedulerPolicy.SHARED, 2);
 
         try
         {
-            Map<String,Object> attributes = new HashMap<String, Object>();
-            attributes.put(Queue.ID, UUIDGenerator.generateRandomUUID());
-            attributes.put(Queue.NAME, "test");
-            AMQQueue queue = test.createQueue(attributes);
+            AMQQueue queue = createQueue(test);
 
             assertFalse("Creation did not start Pool.", ReferenceCountingExecutorService.getInstance().getPool().isShutdown());
 
             assertEquals("References not increased", initialCount + 1, ReferenceCountingExecutorService.getInstance().getReferenceCount());
+            assertEquals("Unexpected policy", DeliverySchedulerPolicy.SHARED, test.getDeliveryScheduler().getPolicy());
+
+            assertDeliveryRunsOnSchedulerThread(queue, "pool-");
 
             queue.close();
+        }
+        finally
+        {
+            test.close();
+        }
+        assertEquals("References not decreased", initialCount , ReferenceCountingExecutorService.getInstance().getReferenceCount());
+    }
+
+    public void testWorkStealingPolicy() throws Exception
+    {
+        VirtualHostImpl test = createVirtualHost(DeliverySchedulerPolicy.WORK_STEALING, 3);
+
+        try
+        {
+            AMQQueue queue = createQueue(test);
+
+            assertEquals("Unexpected policy", DeliverySchedulerPolicy.WORK_STEALING, test.getDeliveryScheduler().getPolicy());
+            assertEquals("Unexpected thread count", 3, test.getDeliveryScheduler().getThreadCount());
+
+            assertDeliveryRunsOnSchedulerThread(queue, "delivery-" + getTestName());
+
+            queue.close();
+        }
+        finally
+        {
+            test.close();
+        }
+        assertNull("Scheduler not shut down", test.getDeliveryScheduler());
+    }
+
+    public void testPolicyCannotBeChanged() throws Exception
+    {
+        VirtualHostImpl test = createVirtualHost(DeliverySchedulerPolicy.WORK_STEALING, 2);
+        try
+        {
+            try
+            {
+                test.setAttributes(Collections.<String, Object>singletonMap(VirtualHost.DELIVERY_SCHEDULER_POLICY,
+                                                                            DeliverySchedulerPolicy.SHARED.name()));
+                fail("Exception not thrown");
+            }
+            catch (IllegalArgumentException e)
+            {
+                assertEquals("Unexpected exception message",
+                             "Cannot change the delivery scheduler policy", e.getMessage());
+            }
+            assertEquals("Unexpected policy", DeliverySchedulerPolicy.WORK_STEALING, test.getDeliverySchedulerPolicy());
+            assertEquals("Unexpected scheduler policy",
+                         DeliverySchedulerPolicy.WORK_STEALING,
+                         test.getDeliveryScheduler().getPolicy());
+        }
+        finally
+        {
+            test.close();
+        }
+    }
 
-            assertEquals("References not decreased", initialCount , ReferenceCountingExecutorService.getInstance().getReferenceCount());
+    public void testSchedulingLatencyRecorded() throws Exception
+    {
+        VirtualHostImpl test = createVirtualHost(DeliverySchedulerPolicy.WORK_STEALING, 1);
+        try
+        {
+            AbstractQueue<?> queue = (AbstractQueue<?>) createQueue(test);
+            queue.registerSchedulingLatency(TimeUnit.MICROSECONDS.toNanos(10));
+            queue.registerSchedulingLatency(TimeUnit.MICROSECONDS.toNanos(30));
+
+            assertEquals("Unexpected average latency", 20L, queue.getAverageSchedulingLatency());
+            assertEquals("Unexpected maximum latency", 30L, queue.getMaximumSchedulingLatency());
         }
         finally
         {
             test.close();
         }
     }
+
+    private void assertDeliveryRunsOnSchedulerThread(final AMQQueue<?> queue, final String threadNamePrefix)
+            throws InterruptedException
+    {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<String> threadName = new AtomicReference<>();
+        ((AbstractQueue<?>) queue).execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                threadName.set(Thread.currentThread().getName());
+                latch.countDown();
+            }
+        });
+        assertTrue("Task was not run", latch.await(10, TimeUnit.SECONDS));
+        assertTrue("Task ran on unexpected thread " + threadName.get(), threadName.get().startsWith(threadNamePrefix));
+    }
+
+    private VirtualHostImpl createVirtualHost(final DeliverySchedulerPolicy policy, final int threadCount)
+    {
+        Map<String,Object> attributes = new HashMap<String, Object>();
+        attributes.put(VirtualHost.TYPE, TestMemoryVirtualHost.VIRTUAL_HOST_TYPE);
+        attributes.put(VirtualHost.NAME, getTestName());
+        attributes.put(VirtualHost.DELIVERY_SCHEDULER_POLICY, policy.name());
+        attributes.put(VirtualHost.DELIVERY_THREAD_COUNT, threadCount);
+        return BrokerTestHelper.createVirtualHost(attributes);
+    }
+
+    private AMQQueue createQueue(final VirtualHostImpl virtualHost)
+    {
+        Map<String,Object> attributes = new HashMap<String, Object>();
+        attributes.put(Queue.ID, UUIDGenerator.generateRandomUUID());
+        attributes.put(Queue.NAME, "test");
+        return virtualHost.createQueue(attributes);
+    }
 }
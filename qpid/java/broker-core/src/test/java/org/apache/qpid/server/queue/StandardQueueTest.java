@@ -20,6 +20,12 @@
  */
 package org.apache.qpid.server.queue;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -32,10 +38,18 @@ import java.util.concurrent.TimeUnit;
 import org.apache.qpid.server.consumer.ConsumerImpl;
 import org.apache.qpid.server.consumer.ConsumerTarget;
 import org.apache.qpid.server.consumer.MockConsumer;
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerModel;
+import org.apache.qpid.server.model.ConfiguredObjectFactory;
+import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
 import org.apache.qpid.server.model.LifetimePolicy;
 import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.model.State;
+import org.apache.qpid.server.security.SecurityManager;
+import org.apache.qpid.server.virtualhost.DeliveryScheduler;
 import org.apache.qpid.server.virtualhost.VirtualHostImpl;
 
 public class StandardQueueTest extends AbstractQueueTestBase
@@ -241,6 +255,74 @@ public class StandardQueueTest extends AbstractQueueTestBase
     }
 
 
+    public void testDeliveryWithoutSchedulerFailsAndCanBeRetried() throws Exception
+    {
+        VirtualHostImpl virtualHost = createMockVirtualHost(State.ACTIVE);
+        StandardQueueImpl queue = createQueueOn(virtualHost);
+
+        try
+        {
+            queue.deliverAsync();
+            fail("Exception not thrown");
+        }
+        catch (IllegalStateException e)
+        {
+            // pass
+        }
+
+        DeliveryScheduler deliveryScheduler = mock(DeliveryScheduler.class);
+        when(virtualHost.getDeliveryScheduler()).thenReturn(deliveryScheduler);
+
+        queue.deliverAsync();
+        verify(deliveryScheduler).execute(any(QueueRunner.class));
+    }
+
+    public void testDeliveryWithoutSchedulerIgnoredOnceQueueStopped() throws Exception
+    {
+        VirtualHostImpl virtualHost = createMockVirtualHost(State.ACTIVE);
+        StandardQueueImpl queue = createQueueOn(virtualHost);
+        queue.close();
+
+        Runnable task = mock(Runnable.class);
+        queue.execute(task);
+        verify(task, never()).run();
+    }
+
+    public void testDeliveryNotScheduledWhenVirtualHostUnavailable() throws Exception
+    {
+        VirtualHostImpl virtualHost = createMockVirtualHost(State.UNAVAILABLE);
+        DeliveryScheduler deliveryScheduler = mock(DeliveryScheduler.class);
+        when(virtualHost.getDeliveryScheduler()).thenReturn(deliveryScheduler);
+        StandardQueueImpl queue = createQueueOn(virtualHost);
+
+        queue.deliverAsync();
+        verify(deliveryScheduler, never()).execute(any(Runnable.class));
+    }
+
+    private VirtualHostImpl createMockVirtualHost(final State state)
+    {
+        final VirtualHostImpl virtualHost = mock(VirtualHostImpl.class);
+        when(virtualHost.getName()).thenReturn("test");
+        when(virtualHost.getState()).thenReturn(state);
+        when(virtualHost.getSecurityManager()).thenReturn(mock(SecurityManager.class));
+        when(virtualHost.getEventLogger()).thenReturn(new EventLogger());
+        ConfiguredObjectFactory factory = new ConfiguredObjectFactoryImpl(BrokerModel.getInstance());
+        when(virtualHost.getObjectFactory()).thenReturn(factory);
+        when(virtualHost.getModel()).thenReturn(factory.getModel());
+        when(virtualHost.getTaskExecutor()).thenReturn(CurrentThreadTaskExecutor.newStartedInstance());
+        return virtualHost;
+    }
+
+    private StandardQueueImpl createQueueOn(final VirtualHostImpl virtualHost)
+    {
+        Map<String,Object> queueAttributes = new HashMap<String, Object>();
+        queueAttributes.put(Queue.ID, UUID.randomUUID());
+        queueAttributes.put(Queue.NAME, getTestName());
+        StandardQueueImpl queue = new StandardQueueImpl(queueAttributes, virtualHost);
+        queue.open();
+        return queue;
+    }
+
     private static class DequeuedQueue extends AbstractQueue
     {
 
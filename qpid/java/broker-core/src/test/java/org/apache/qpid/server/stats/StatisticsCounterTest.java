@@ -20,6 +20,8 @@
  */
 package org.apache.qpid.server.stats;
 
+import java.util.concurrent.CountDownLatch;
+
 import junit.framework.TestCase;
 
 /**
@@ -73,6 +75,50 @@ public class StatisticsCounterTest extends TestCase
         assertEquals(40, counter.getTotal());
     }
  
+    /**
+     * Test totals add up correctly when events are registered by several
+     * threads at once.
+     */
+    public void testTotalConcurrent() throws Exception
+    {
+        final StatisticsCounter counter = new StatisticsCounter("test", 10L);
+        final int threadCount = 8;
+        final int eventsPerThread = 100000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++)
+        {
+            threads[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int j = 0; j < eventsPerThread; j++)
+                    {
+                        counter.registerEvent(2L);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assertEquals(2L * threadCount * eventsPerThread, counter.getTotal());
+        assertTrue(counter.getPeak() > 0.0);
+    }
+
     /**
      * Test that the peak rate is reported correctly.
      */
@@ -0,0 +1,111 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.stats;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the {@link StatisticsHistogram} class.
+ */
+public class StatisticsHistogramTest extends TestCase
+{
+    public void testEmpty()
+    {
+        StatisticsHistogram histogram = new StatisticsHistogram();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMaximum());
+        assertEquals(0L, histogram.getValueAtPercentile(50.0));
+    }
+
+    /**
+     * Check that small values are reported exactly.
+     */
+    public void testSmallValues()
+    {
+        StatisticsHistogram histogram = new StatisticsHistogram();
+        for (int i = 1; i <= 4; i++)
+        {
+            histogram.record(i);
+        }
+        assertEquals(4L, histogram.getCount());
+        assertEquals(2L, histogram.getValueAtPercentile(50.0));
+        assertEquals(4L, histogram.getValueAtPercentile(100.0));
+        assertEquals(1L, histogram.getValueAtPercentile(0.0));
+        assertEquals(4L, histogram.getMaximum());
+    }
+
+    /**
+     * Check that the value reported for a percentile is within an eighth of the
+     * recorded value, and never exceeds the maximum.
+     */
+    public void testPercentilePrecision()
+    {
+        StatisticsHistogram histogram = new StatisticsHistogram();
+        for (long i = 1; i <= 100000L; i++)
+        {
+            histogram.record(i);
+        }
+        assertEquals(100000L, histogram.getCount());
+        assertWithinAnEighth(50000L, histogram.getValueAtPercentile(50.0));
+        assertWithinAnEighth(95000L, histogram.getValueAtPercentile(95.0));
+        assertWithinAnEighth(99000L, histogram.getValueAtPercentile(99.0));
+        assertEquals(100000L, histogram.getValueAtPercentile(100.0));
+        assertEquals(100000L, histogram.getMaximum());
+    }
+
+    public void testBucketBoundaries()
+    {
+        for (long value : new long[] {0L, 7L, 8L, 9L, 15L, 16L, 17L, 1023L, 1024L, Long.MAX_VALUE})
+        {
+            int index = StatisticsHistogram.bucketIndex(value);
+            assertTrue("Value " + value + " above its bucket",
+                       value <= StatisticsHistogram.highestEquivalentValue(index));
+            if (index > 0)
+            {
+                assertTrue("Value " + value + " below its bucket",
+                           value > StatisticsHistogram.highestEquivalentValue(index - 1));
+            }
+        }
+    }
+
+    public void testNegativeValuesRecordedAsZero()
+    {
+        StatisticsHistogram histogram = new StatisticsHistogram();
+        histogram.record(-5L);
+        assertEquals(1L, histogram.getCount());
+        assertEquals(0L, histogram.getValueAtPercentile(100.0));
+    }
+
+    public void testReset()
+    {
+        StatisticsHistogram histogram = new StatisticsHistogram();
+        histogram.record(1000L);
+        histogram.reset();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMaximum());
+    }
+
+    private void assertWithinAnEighth(long expected, long actual)
+    {
+        assertTrue("Expected about " + expected + " but got " + actual,
+                   actual >= expected && actual <= expected + expected / 8);
+    }
+}
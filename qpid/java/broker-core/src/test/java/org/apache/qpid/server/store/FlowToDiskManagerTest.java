@@ -0,0 +1,219 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.Broker;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.model.State;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.model.VirtualHostNode;
+import org.apache.qpid.server.queue.QueueEntry;
+import org.apache.qpid.server.queue.QueueEntryVisitor;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class FlowToDiskManagerTest extends QpidTestCase
+{
+    private Broker<?> _broker;
+    private List<Queue<?>> _queues;
+    private Map<Queue<?>, List<QueueEntry>> _queueEntries;
+    private long _residentBytes;
+    private FlowToDiskManager _manager;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _queues = new ArrayList<>();
+        _queueEntries = new HashMap<>();
+
+        VirtualHost<?, ?, ?> virtualHost = mock(VirtualHost.class);
+        when(virtualHost.getState()).thenReturn(State.ACTIVE);
+        doReturn(_queues).when(virtualHost).getQueues();
+        VirtualHostNode<?> virtualHostNode = mock(VirtualHostNode.class);
+        doReturn(virtualHost).when(virtualHostNode).getVirtualHost();
+
+        _broker = mock(Broker.class);
+        doReturn(Collections.singletonList(virtualHostNode)).when(_broker).getVirtualHostNodes();
+        setBudget(Long.MAX_VALUE, FlowToDiskManager.Policy.NEWEST_FIRST);
+
+        _manager = new FlowToDiskManager(_broker)
+        {
+            @Override
+            public long getResidentBytes()
+            {
+                return _residentBytes;
+            }
+        };
+    }
+
+    public void testQueuesNotVisitedWithinBudget()
+    {
+        Queue<?> queue = createQueue();
+        StoredMessage<?> message = createMessageOnQueue(100, 1L, queue);
+        _residentBytes = 200L;
+        setBudget(200L, FlowToDiskManager.Policy.NEWEST_FIRST);
+
+        _manager.checkMemory();
+
+        assertEquals("Unexpected evicted bytes", 0L, _manager.getEvictedBytes());
+        verify(queue, never()).visit(any(QueueEntryVisitor.class));
+        verify(message, never()).flowToDisk();
+    }
+
+    public void testOldestFirstEvictsUntilWithinBudget()
+    {
+        Queue<?> queue = createQueue();
+        StoredMessage<?> message1 = createMessageOnQueue(100, 1L, queue);
+        StoredMessage<?> message2 = createMessageOnQueue(100, 2L, queue);
+        StoredMessage<?> message3 = createMessageOnQueue(100, 3L, createQueue());
+        _residentBytes = 300L;
+        setBudget(150L, FlowToDiskManager.Policy.OLDEST_FIRST);
+
+        _manager.checkMemory();
+
+        verify(message1).flowToDisk();
+        verify(message2).flowToDisk();
+        verify(message3, never()).flowToDisk();
+        assertEquals("Unexpected evicted bytes", 200L, _manager.getEvictedBytes());
+        assertEquals("Unexpected evicted messages", 2L, _manager.getEvictedMessages());
+    }
+
+    public void testNewestFirstEvictsUntilWithinBudget()
+    {
+        Queue<?> queue = createQueue();
+        StoredMessage<?> message1 = createMessageOnQueue(100, 1L, queue);
+        StoredMessage<?> message2 = createMessageOnQueue(100, 2L, queue);
+        StoredMessage<?> message3 = createMessageOnQueue(100, 3L, queue);
+        _residentBytes = 300L;
+        setBudget(200L, FlowToDiskManager.Policy.NEWEST_FIRST);
+
+        _manager.checkMemory();
+
+        verify(message1, never()).flowToDisk();
+        verify(message2, never()).flowToDisk();
+        verify(message3).flowToDisk();
+        assertEquals("Unexpected evicted bytes", 100L, _manager.getEvictedBytes());
+    }
+
+    public void testMessageOnSeveralQueuesEvictedOnce()
+    {
+        Queue<?> queue1 = createQueue();
+        Queue<?> queue2 = createQueue();
+        StoredMessage<?> message1 = createMessageOnQueue(100, 1L, queue1);
+        addToQueue(message1, 100, 1L, queue2);
+        StoredMessage<?> message2 = createMessageOnQueue(100, 2L, queue2);
+        _residentBytes = 200L;
+        setBudget(50L, FlowToDiskManager.Policy.OLDEST_FIRST);
+
+        _manager.checkMemory();
+
+        verify(message1).flowToDisk();
+        verify(message2).flowToDisk();
+        assertEquals("Unexpected evicted bytes", 200L, _manager.getEvictedBytes());
+        assertEquals("Unexpected evicted messages", 2L, _manager.getEvictedMessages());
+    }
+
+    public void testMessagesAlreadyOnDiskAreNotEvicted()
+    {
+        Queue<?> queue = createQueue();
+        StoredMessage<?> message1 = createMessageOnQueue(100, 1L, queue);
+        when(message1.isInMemory()).thenReturn(false);
+        StoredMessage<?> message2 = createMessageOnQueue(100, 2L, queue);
+        _residentBytes = 100L;
+        setBudget(0L, FlowToDiskManager.Policy.OLDEST_FIRST);
+
+        _manager.checkMemory();
+
+        verify(message1, never()).flowToDisk();
+        verify(message2).flowToDisk();
+        assertEquals("Unexpected evicted bytes", 100L, _manager.getEvictedBytes());
+    }
+
+    private void setBudget(long budget, FlowToDiskManager.Policy policy)
+    {
+        when(_broker.getContextValue(Long.class, Broker.BROKER_FLOW_TO_DISK_THRESHOLD)).thenReturn(budget);
+        when(_broker.getContextValue(FlowToDiskManager.Policy.class, Broker.BROKER_FLOW_TO_DISK_POLICY)).thenReturn(policy);
+    }
+
+    private Queue<?> createQueue()
+    {
+        Queue<?> queue = mock(Queue.class);
+        when(queue.getState()).thenReturn(State.ACTIVE);
+        final List<QueueEntry> entries = new ArrayList<>();
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation)
+            {
+                QueueEntryVisitor visitor = (QueueEntryVisitor) invocation.getArguments()[0];
+                for (QueueEntry entry : entries)
+                {
+                    if (visitor.visit(entry))
+                    {
+                        break;
+                    }
+                }
+                return null;
+            }
+        }).when(queue).visit(any(QueueEntryVisitor.class));
+        _queues.add(queue);
+        _queueEntries.put(queue, entries);
+        return queue;
+    }
+
+    private StoredMessage<?> createMessageOnQueue(long size, long arrivalTime, Queue<?> queue)
+    {
+        StoredMessage<?> storedMessage = mock(StoredMessage.class);
+        when(storedMessage.isInMemory()).thenReturn(true);
+        when(storedMessage.flowToDisk()).thenReturn(true);
+        addToQueue(storedMessage, size, arrivalTime, queue);
+        return storedMessage;
+    }
+
+    private void addToQueue(StoredMessage<?> storedMessage, long size, long arrivalTime, Queue<?> queue)
+    {
+        ServerMessage message = mock(ServerMessage.class);
+        when(message.getStoredMessage()).thenReturn(storedMessage);
+        when(message.getSize()).thenReturn(size);
+        when(message.getArrivalTime()).thenReturn(arrivalTime);
+        QueueEntry entry = mock(QueueEntry.class);
+        when(entry.getMessage()).thenReturn(message);
+        _queueEntries.get(queue).add(entry);
+    }
+}
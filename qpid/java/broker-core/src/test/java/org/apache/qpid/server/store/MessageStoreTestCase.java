@@ -22,12 +22,14 @@ package org.apache.qpid.server.store;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
@@ -37,9 +39,11 @@ import org.hamcrest.Description;
 import org.mockito.ArgumentMatcher;
 
 import org.apache.qpid.server.message.EnqueueableMessage;
+import org.apache.qpid.server.model.Broker;
 import org.apache.qpid.server.model.ConfiguredObject;
 import org.apache.qpid.server.model.UUIDGenerator;
 import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.model.VirtualHostNode;
 import org.apache.qpid.server.store.Transaction.Record;
 import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
 import org.apache.qpid.server.store.handler.MessageHandler;
@@ -50,6 +54,7 @@ public abstract class MessageStoreTestCase extends QpidTestCase
 {
     private MessageStore _store;
     private ConfiguredObject<?> _parent;
+    private ResidentMessageContent _residentMessageContent;
 
     public void setUp() throws Exception
     {
@@ -57,6 +62,13 @@ public abstract class MessageStoreTestCase extends QpidTestCase
 
         _parent = createVirtualHost();
 
+        _residentMessageContent = new ResidentMessageContent();
+        Broker<?> broker = mock(Broker.class);
+        when(broker.getResidentMessageContent()).thenReturn(_residentMessageContent);
+        VirtualHostNode<?> virtualHostNode = mock(VirtualHostNode.class);
+        doReturn(broker).when(virtualHostNode).getParent(Broker.class);
+        doReturn(virtualHostNode).when(_parent).getParent(VirtualHostNode.class);
+
         _store = createMessageStore();
 
         _store.openMessageStore(_parent);
@@ -392,6 +404,28 @@ public abstract class MessageStoreTestCase extends QpidTestCase
         assertNull(retrievedMessageRef.get());
     }
 
+    public void testResidentContentReleasedWhenFlowedToDisk() throws Exception
+    {
+        long residentBefore = _residentMessageContent.getResidentBytes();
+        final StoredMessage<TestMessageMetaData> message = _store.addMessage(new TestMessageMetaData(1, 100));
+        message.addContent(0, ByteBuffer.allocate(100));
+        long residentAfterAdd = _residentMessageContent.getResidentBytes();
+
+        if (message.flowToDisk())
+        {
+            assertEquals("Content should be counted by the broker owning the store",
+                         residentBefore + 100, residentAfterAdd);
+            assertEquals("Unexpected resident content after flow to disk",
+                         residentBefore, _residentMessageContent.getResidentBytes());
+        }
+
+        ByteBuffer content = ByteBuffer.allocate(100);
+        assertEquals("Unexpected content length", 100, message.getContent(0, content));
+        message.remove();
+        assertEquals("Unexpected resident content after removal",
+                     residentBefore, _residentMessageContent.getResidentBytes());
+    }
+
 
     private TransactionLogResource createTransactionLogResource(UUID queueId)
     {
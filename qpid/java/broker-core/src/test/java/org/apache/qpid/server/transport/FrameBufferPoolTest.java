@@ -0,0 +1,102 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.nio.ByteBuffer;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class FrameBufferPoolTest extends QpidTestCase
+{
+    private final FrameBufferPool _pool = new FrameBufferPool(false, 2);
+
+    public void testAcquiredBufferHasCapacityOfSizeClass()
+    {
+        assertEquals(FrameBufferPool.MIN_BUFFER_SIZE, _pool.acquire(1).capacity());
+        assertEquals(FrameBufferPool.MIN_BUFFER_SIZE, _pool.acquire(FrameBufferPool.MIN_BUFFER_SIZE).capacity());
+        assertEquals(2 * FrameBufferPool.MIN_BUFFER_SIZE,
+                     _pool.acquire(FrameBufferPool.MIN_BUFFER_SIZE + 1).capacity());
+        assertEquals(4096, _pool.acquire(4000).capacity());
+        assertEquals(FrameBufferPool.MAX_BUFFER_SIZE, _pool.acquire(FrameBufferPool.MAX_BUFFER_SIZE).capacity());
+        assertEquals(5, _pool.getAllocatedCount());
+    }
+
+    public void testReleasedBufferReused()
+    {
+        ByteBuffer buffer = _pool.acquire(1000);
+        buffer.put(new byte[10]);
+        _pool.release(buffer);
+        assertEquals(1, _pool.getPooledBufferCount());
+        assertEquals(1024, _pool.getPooledBytes());
+
+        ByteBuffer reused = _pool.acquire(600);
+        assertSame(buffer, reused);
+        assertEquals("Reused buffer not cleared", 0, reused.position());
+        assertEquals(reused.capacity(), reused.limit());
+        assertEquals(2, _pool.getAcquiredCount());
+        assertEquals(1, _pool.getAllocatedCount());
+        assertEquals(0, _pool.getPooledBufferCount());
+        assertEquals(0, _pool.getPooledBytes());
+    }
+
+    public void testBuffersLargerThanSizeClassesNotPooled()
+    {
+        ByteBuffer buffer = _pool.acquire(FrameBufferPool.MAX_BUFFER_SIZE + 1);
+        assertEquals(FrameBufferPool.MAX_BUFFER_SIZE + 1, buffer.capacity());
+
+        _pool.release(buffer);
+        assertEquals(0, _pool.getPooledBufferCount());
+        assertEquals(1, _pool.getDiscardedCount());
+    }
+
+    public void testFreeBuffersRetainedUpToLimit()
+    {
+        ByteBuffer[] buffers = new ByteBuffer[3];
+        for (int i = 0; i < buffers.length; i++)
+        {
+            buffers[i] = _pool.acquire(100);
+        }
+        for (ByteBuffer buffer : buffers)
+        {
+            _pool.release(buffer);
+        }
+
+        assertEquals(3, _pool.getReleasedCount());
+        assertEquals(2, _pool.getPooledBufferCount());
+        assertEquals(1, _pool.getDiscardedCount());
+    }
+
+    public void testBuffersNotAcquiredFromPoolNotRetained()
+    {
+        _pool.release(ByteBuffer.allocate(100));
+        _pool.release(ByteBuffer.allocateDirect(128));
+
+        assertEquals(0, _pool.getPooledBufferCount());
+        assertEquals(2, _pool.getDiscardedCount());
+    }
+
+    public void testPoolInactiveUntilActivated()
+    {
+        assertFalse("New pool should be inactive", _pool.isActive());
+        _pool.activate();
+        assertTrue("Pool should be active", _pool.isActive());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.apache.qpid.protocol.ServerProtocolEngine;
+import org.apache.qpid.test.utils.QpidTestCase;
+import org.apache.qpid.transport.network.Ticker;
+
+public class SelectorThreadTest extends QpidTestCase
+{
+    private static final int TIMEOUT = 10000;
+
+    private SelectorThread _selectorThread;
+    private ExecutorService _engineExecutor;
+    private ServerSocketChannel _serverSocket;
+    private final List<Socket> _clientSockets = new ArrayList<>();
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _selectorThread = new SelectorThread("Selector-" + getTestName(), 8192);
+        _selectorThread.start();
+        _engineExecutor = Executors.newFixedThreadPool(2);
+        _serverSocket = ServerSocketChannel.open();
+        _serverSocket.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            for (Socket socket : _clientSockets)
+            {
+                socket.close();
+            }
+            _selectorThread.close();
+            _selectorThread.join(TIMEOUT);
+            _engineExecutor.shutdownNow();
+            _serverSocket.close();
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testBlockedEngineDoesNotHoldUpOtherConnections() throws Exception
+    {
+        final CountDownLatch blockedEngineEntered = new CountDownLatch(1);
+        final CountDownLatch releaseBlockedEngine = new CountDownLatch(1);
+        ServerProtocolEngine blockedEngine = mock(ServerProtocolEngine.class);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable
+            {
+                blockedEngineEntered.countDown();
+                releaseBlockedEngine.await(TIMEOUT, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        }).when(blockedEngine).received(any(ByteBuffer.class));
+        ServerProtocolEngine otherEngine = mock(ServerProtocolEngine.class);
+
+        Socket blockedClient = connect(blockedEngine, createTicker());
+        Socket otherClient = connect(otherEngine, createTicker());
+
+        try
+        {
+            blockedClient.getOutputStream().write(1);
+            assertTrue("Engine not called", blockedEngineEntered.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+            otherClient.getOutputStream().write(2);
+            verify(otherEngine, timeout(TIMEOUT)).received(any(ByteBuffer.class));
+        }
+        finally
+        {
+            releaseBlockedEngine.countDown();
+        }
+    }
+
+    public void testIdleTimeoutFailureClosesOnlyItsConnection() throws Exception
+    {
+        ServerProtocolEngine failingEngine = mock(ServerProtocolEngine.class);
+        Ticker failingTicker = mock(Ticker.class);
+        when(failingTicker.getTimeToNextTick(anyLong())).thenThrow(new IllegalStateException("Test"));
+        ServerProtocolEngine otherEngine = mock(ServerProtocolEngine.class);
+
+        Socket otherClient = connect(otherEngine, createTicker());
+        Socket failingClient = connect(failingEngine, failingTicker);
+        failingClient.setSoTimeout(TIMEOUT);
+
+        assertEquals("Failing connection not closed", -1, failingClient.getInputStream().read());
+        verify(failingEngine, timeout(TIMEOUT)).closed();
+
+        otherClient.getOutputStream().write(1);
+        verify(otherEngine, timeout(TIMEOUT)).received(any(ByteBuffer.class));
+    }
+
+    private Ticker createTicker()
+    {
+        Ticker ticker = mock(Ticker.class);
+        when(ticker.getTimeToNextTick(anyLong())).thenReturn(TIMEOUT);
+        return ticker;
+    }
+
+    private Socket connect(final ServerProtocolEngine engine, final Ticker ticker) throws Exception
+    {
+        Socket client = new Socket(InetAddress.getLoopbackAddress(), _serverSocket.socket().getLocalPort());
+        _clientSockets.add(client);
+        SocketChannel socketChannel = _serverSocket.accept();
+        socketChannel.configureBlocking(false);
+
+        NonBlockingConnection connection = new NonBlockingConnection(socketChannel, engine, _selectorThread,
+                                                                     _engineExecutor, ticker, 8192, 8192, TIMEOUT);
+        connection.start();
+        return client;
+    }
+}
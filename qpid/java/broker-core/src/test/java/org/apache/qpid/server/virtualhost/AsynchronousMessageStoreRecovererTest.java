@@ -0,0 +1,194 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+
+import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.queue.AMQQueue;
+import org.apache.qpid.server.store.MessageDurability;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.NullMessageStore;
+import org.apache.qpid.server.store.StorableMessageMetaData;
+import org.apache.qpid.server.store.StoreException;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.server.store.TestMessageMetaData;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.store.handler.MessageHandler;
+import org.apache.qpid.server.store.handler.MessageInstanceHandler;
+
+public class AsynchronousMessageStoreRecovererTest extends TestCase
+{
+    private static final int QUEUE_COUNT = 6;
+
+    private VirtualHostImpl _virtualHost;
+    private final Map<Long, StoredMessage<StorableMessageMetaData>> _storedMessages = new HashMap<>();
+    private final Map<UUID, List<Long>> _queueInstances = new HashMap<>();
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        _virtualHost = mock(VirtualHostImpl.class);
+        when(_virtualHost.getEventLogger()).thenReturn(new EventLogger());
+        when(_virtualHost.getName()).thenReturn("test");
+        when(_virtualHost.getContextValue(Integer.class, VirtualHost.RECOVERY_THREAD_COUNT)).thenReturn(2);
+        when(_virtualHost.getMessageStore()).thenReturn(new TestMessageStore());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testQueuesRecoveredInParallelShareMessages()
+    {
+        List<AMQQueue<?>> queues = new ArrayList<>();
+        for (int i = 0; i < QUEUE_COUNT; i++)
+        {
+            queues.add(createQueue("queue" + i));
+        }
+        when(_virtualHost.getQueues()).thenReturn((Collection) queues);
+
+        for (long messageId = 1; messageId <= 100; messageId++)
+        {
+            createStoredMessage(messageId);
+            for (AMQQueue<?> queue : queues)
+            {
+                _queueInstances.get(queue.getId()).add(messageId);
+            }
+        }
+        StoredMessage<StorableMessageMetaData> orphan = createStoredMessage(101);
+
+        AsynchronousMessageStoreRecoverer recoverer = new AsynchronousMessageStoreRecoverer();
+        recoverer.recover(_virtualHost);
+
+        verify(orphan, timeout(5000)).remove();
+        for (AMQQueue<?> queue : queues)
+        {
+            verify(queue).completeRecovery();
+            verify(queue, times(100)).recover(any(ServerMessage.class));
+        }
+        for (long messageId = 1; messageId <= 100; messageId++)
+        {
+            verify(_storedMessages.get(messageId), never()).remove();
+        }
+
+        assertEquals(0, recoverer.getRecoveringQueueCount());
+        assertEquals("Each message shared by the queues should be recovered once",
+                     100, recoverer.getRecoveredMessageCount());
+        assertEquals(100 * QUEUE_COUNT, recoverer.getRecoveredQueueEntryCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testOrphanedMessagesRemovedWhenThereAreNoQueues()
+    {
+        when(_virtualHost.getQueues()).thenReturn((Collection) Arrays.asList());
+        StoredMessage<StorableMessageMetaData> orphan = createStoredMessage(1);
+
+        AsynchronousMessageStoreRecoverer recoverer = new AsynchronousMessageStoreRecoverer();
+        recoverer.recover(_virtualHost);
+
+        verify(orphan, timeout(5000)).remove();
+        assertEquals(0, recoverer.getRecoveredMessageCount());
+    }
+
+    private AMQQueue<?> createQueue(String name)
+    {
+        AMQQueue<?> queue = mock(AMQQueue.class);
+        final UUID queueId = UUID.randomUUID();
+        when(queue.getMessageDurability()).thenReturn(MessageDurability.DEFAULT);
+        when(queue.getId()).thenReturn(queueId);
+        when(queue.getName()).thenReturn(name);
+        when(_virtualHost.getQueue(queueId)).thenReturn(queue);
+        when(_virtualHost.getQueue(eq(name))).thenReturn(queue);
+        _queueInstances.put(queueId, new ArrayList<Long>());
+        return queue;
+    }
+
+    private StoredMessage<StorableMessageMetaData> createStoredMessage(final long messageId)
+    {
+        TestMessageMetaData metaData = new TestMessageMetaData(messageId, 0);
+
+        @SuppressWarnings("unchecked")
+        final StoredMessage<StorableMessageMetaData> storedMessage = mock(StoredMessage.class);
+        when(storedMessage.getMessageNumber()).thenReturn(messageId);
+        when(storedMessage.getMetaData()).thenReturn(metaData);
+        _storedMessages.put(messageId, storedMessage);
+        return storedMessage;
+    }
+
+    private class TestMessageStore extends NullMessageStore
+    {
+        @Override
+        public void visitMessages(MessageHandler handler) throws StoreException
+        {
+            for (long messageId = 1; messageId <= _storedMessages.size(); messageId++)
+            {
+                if (!handler.handle(_storedMessages.get(messageId)))
+                {
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public void visitMessageInstances(TransactionLogResource queue, MessageInstanceHandler handler)
+                throws StoreException
+        {
+            for (Long messageId : _queueInstances.get(queue.getId()))
+            {
+                if (!handler.handle(queue.getId(), messageId))
+                {
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public StoredMessage<?> getMessage(final long messageId)
+        {
+            return _storedMessages.get(messageId);
+        }
+
+        @Override
+        public long getNextMessageId()
+        {
+            return _storedMessages.size() + 1;
+        }
+    }
+}
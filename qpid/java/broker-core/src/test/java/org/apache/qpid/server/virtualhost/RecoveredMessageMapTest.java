@@ -0,0 +1,143 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class RecoveredMessageMapTest extends QpidTestCase
+{
+    private final RecoveredMessageMap _map = new RecoveredMessageMap();
+    private final Map<Long, MessageReference<ServerMessage<?>>> _references = new HashMap<>();
+    private int _loads;
+
+    private final RecoveredMessageMap.MessageLoader _loader = new RecoveredMessageMap.MessageLoader()
+    {
+        @Override
+        public MessageReference<? extends ServerMessage<?>> load(final long messageId)
+        {
+            _loads++;
+            return _references.get(messageId);
+        }
+    };
+
+    public void testMessageLoadedOnce()
+    {
+        MessageReference<ServerMessage<?>> ref = createReference(7);
+
+        assertSame(ref.getMessage(), _map.getOrLoad(7, _loader));
+        assertSame(ref.getMessage(), _map.getOrLoad(7, _loader));
+        assertEquals(1, _loads);
+        assertTrue(_map.contains(7));
+    }
+
+    public void testUnknownMessageNotHeld()
+    {
+        assertNull(_map.getOrLoad(3, _loader));
+        assertFalse(_map.contains(3));
+    }
+
+    public void testHoldsManyMessages()
+    {
+        for (long messageId = 1; messageId <= 10000; messageId++)
+        {
+            createReference(messageId);
+            assertNotNull(_map.getOrLoad(messageId, _loader));
+        }
+        for (long messageId = 1; messageId <= 10000; messageId++)
+        {
+            assertTrue("Message " + messageId + " not held", _map.contains(messageId));
+            assertSame(_references.get(messageId).getMessage(), _map.getOrLoad(messageId, _loader));
+        }
+        assertFalse(_map.contains(10001));
+        assertEquals(10000, _loads);
+    }
+
+    public void testReleaseAllReleasesReferencesAndKeepsIds()
+    {
+        MessageReference<ServerMessage<?>> ref1 = createReference(1);
+        MessageReference<ServerMessage<?>> ref2 = createReference(2);
+        _map.getOrLoad(1, _loader);
+        _map.getOrLoad(2, _loader);
+
+        _map.releaseAll();
+
+        verify(ref1).release();
+        verify(ref2).release();
+        assertTrue(_map.contains(1));
+        assertTrue(_map.contains(2));
+
+        _map.clear();
+        assertFalse(_map.contains(1));
+    }
+
+    public void testReferenceReleasedWhenLastExpectedInstanceRecovered()
+    {
+        MessageReference<ServerMessage<?>> ref = createReference(5);
+        _map.expectInstance(5);
+        _map.expectInstance(5);
+        assertFalse("Message counted but not loaded should not be held", _map.contains(5));
+
+        _map.getOrLoad(5, _loader);
+        _map.instanceRecovered(5);
+        verify(ref, never()).release();
+
+        assertSame(ref.getMessage(), _map.getOrLoad(5, _loader));
+        _map.instanceRecovered(5);
+        verify(ref).release();
+        assertTrue(_map.contains(5));
+
+        _map.releaseAll();
+        verify(ref).release();
+        assertEquals(1, _loads);
+    }
+
+    public void testReferenceWithoutExpectedInstancesHeldUntilReleaseAll()
+    {
+        MessageReference<ServerMessage<?>> ref = createReference(9);
+        _map.getOrLoad(9, _loader);
+        _map.instanceRecovered(9);
+        verify(ref, never()).release();
+
+        _map.releaseAll();
+        verify(ref).release();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private MessageReference<ServerMessage<?>> createReference(long messageId)
+    {
+        ServerMessage message = mock(ServerMessage.class);
+        when(message.getMessageNumber()).thenReturn(messageId);
+        MessageReference ref = mock(MessageReference.class);
+        when(ref.getMessage()).thenReturn(message);
+        _references.put(messageId, ref);
+        return ref;
+    }
+}
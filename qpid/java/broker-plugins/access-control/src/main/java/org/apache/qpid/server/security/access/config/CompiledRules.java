@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.qpid.server.security.access.config;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.qpid.server.security.access.ObjectProperties;
+
+/**
+ * The enabled rules relevant to a subject for an operation on an object type, in rule order, compiled into an index
+ * on the name property of their actions.
+ * <p>
+ * A rule naming its object exactly, without the "*" wildcard, can only match an action on an object of that name, so
+ * the rules are partitioned into those requiring a particular name and those matching any name. An action is tested
+ * against the rules requiring its name merged in rule order with the rules matching any name, rather than against
+ * every rule for the operation.
+ */
+final class CompiledRules
+{
+    private final List<Rule> _rules;
+    private final Rule[] _anyNameRules;
+    private final Map<String, Rule[]> _namedRules = new HashMap<String, Rule[]>();
+
+    CompiledRules(List<Rule> rules)
+    {
+        _rules = Collections.unmodifiableList(rules);
+
+        List<Rule> anyNameRules = new ArrayList<Rule>();
+        Set<String> names = new LinkedHashSet<String>();
+        for (Rule rule : rules)
+        {
+            String name = getExactName(rule);
+            if (name == null)
+            {
+                anyNameRules.add(rule);
+            }
+            else
+            {
+                names.add(name);
+            }
+        }
+        _anyNameRules = anyNameRules.toArray(new Rule[anyNameRules.size()]);
+
+        for (String name : names)
+        {
+            List<Rule> candidates = new ArrayList<Rule>();
+            for (Rule rule : rules)
+            {
+                String ruleName = getExactName(rule);
+                if (ruleName == null || ruleName.equals(name))
+                {
+                    candidates.add(rule);
+                }
+            }
+            _namedRules.put(name, candidates.toArray(new Rule[candidates.size()]));
+        }
+    }
+
+    List<Rule> getRules()
+    {
+        return _rules;
+    }
+
+    /**
+     * @return the first rule, in rule order, matched by the action from the given address, or null if none matches
+     */
+    Rule findMatchingRule(ClientAction action, InetAddress addressOfClient)
+    {
+        ObjectProperties properties = action.getProperties();
+        Rule[] candidates = null;
+        if (properties != null && properties.getName() != null)
+        {
+            candidates = _namedRules.get(properties.getName());
+        }
+        if (candidates == null)
+        {
+            candidates = _anyNameRules;
+        }
+
+        for (Rule rule : candidates)
+        {
+            if (action.matches(rule.getAclAction(), addressOfClient))
+            {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private static String getExactName(Rule rule)
+    {
+        ObjectProperties properties = rule.getAction().getProperties();
+        String name = properties == null ? null : properties.getName();
+        if (StringUtils.isEmpty(name) || name.endsWith(ObjectProperties.WILD_CARD))
+        {
+            return null;
+        }
+        return name;
+    }
+}
@@ -22,7 +22,6 @@ import java.net.InetAddress;
 import java.security.Principal;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -32,6 +31,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.security.auth.Subject;
 
@@ -49,6 +49,10 @@ import org.apache.qpid.server.security.access.Permission;
 
 /**
  * Models the rule configuration for the access control plugin.
+ * <p>
+ * The rules relevant to each subject are compiled on first use into a {@link CompiledRules} index per operation and
+ * object type, and the outcome of the subject's publishes cached, see {@link SubjectRules}. Changing the rules
+ * discards the compiled rules and cached decisions of every subject.
  */
 public class RuleSet implements EventLoggerProvider
 {
@@ -64,9 +68,13 @@ public class RuleSet implements EventLoggerProvider
 
     private static final Integer _increment = 10;
 
+    private static final CompiledRules UNCONTROLLED = new CompiledRules(Collections.<Rule>emptyList());
+
     private final SortedMap<Integer, Rule> _rules = new TreeMap<Integer, Rule>();
-    private final Map<Subject, Map<Operation, Map<ObjectType, List<Rule>>>> _cache =
-                        new WeakHashMap<Subject, Map<Operation, Map<ObjectType, List<Rule>>>>();
+    private final Map<Subject, SubjectRules> _cache =
+                        Collections.synchronizedMap(new WeakHashMap<Subject, SubjectRules>());
+    private final AtomicLong _publishDecisionCacheHits = new AtomicLong();
+    private final AtomicLong _publishDecisionCacheMisses = new AtomicLong();
     private final Map<String, Boolean> _config = new HashMap<String, Boolean>();
     private final EventLoggerProvider _eventLogger;
 
@@ -100,10 +108,24 @@ public class RuleSet implements EventLoggerProvider
      */
     public List<Rule> getRules(final Subject subject, final Operation operation, final ObjectType objectType)
     {
-        final Map<ObjectType, List<Rule>> objects = getObjectToRuleCache(subject, operation);
+        CompiledRules compiledRules = getCompiledRules(getSubjectRules(subject), subject, operation, objectType);
+        List<Rule> rules = compiledRules == null ? null : compiledRules.getRules();
+        if(_logger.isDebugEnabled())
+        {
+            _logger.debug("Returning RuleList: " + rules);
+        }
+
+        return rules;
+    }
 
+    private CompiledRules getCompiledRules(final SubjectRules subjectRules,
+                                           final Subject subject,
+                                           final Operation operation,
+                                           final ObjectType objectType)
+    {
         // Lookup object type rules for the operation
-        if (!objects.containsKey(objectType))
+        CompiledRules compiledRules = subjectRules.getCompiledRules(operation, objectType);
+        if (compiledRules == null)
         {
             final Set<Principal> principals = subject.getPrincipals();
             boolean controlled = false;
@@ -124,28 +146,18 @@ public class RuleSet implements EventLoggerProvider
                 }
             }
 
-            // Return null if there are no rules at all for this operation and object type
-            if (filtered.isEmpty() && controlled == false)
-            {
-                filtered = null;
-            }
+            // No rules at all for this operation and object type are recorded as uncontrolled
+            compiledRules = filtered.isEmpty() && controlled == false ? UNCONTROLLED : new CompiledRules(filtered);
 
             // Save the rules we selected
-            objects.put(objectType, filtered);
+            subjectRules.setCompiledRules(operation, objectType, compiledRules);
             if(_logger.isDebugEnabled())
             {
                 _logger.debug("Cached " + objectType + " RulesList: " + filtered);
             }
         }
 
-        // Return the cached rules
-        List<Rule> rules = objects.get(objectType);
-        if(_logger.isDebugEnabled())
-        {
-            _logger.debug("Returning RuleList: " + rules);
-        }
-
-        return rules;
+        return compiledRules == UNCONTROLLED ? null : compiledRules;
     }
 
     public boolean isValidNumber(Integer number)
@@ -217,11 +229,13 @@ public class RuleSet implements EventLoggerProvider
     public void enableRule(int ruleNumber)
     {
         _rules.get(Integer.valueOf(ruleNumber)).enable();
+        _cache.clear();
     }
 
     public void disableRule(int ruleNumber)
     {
         _rules.get(Integer.valueOf(ruleNumber)).disable();
+        _cache.clear();
     }
 
     /** Return true if the name is well-formed (contains legal characters). */
@@ -282,7 +296,7 @@ public class RuleSet implements EventLoggerProvider
      * specific properties.
      *
      * Looks up the entire ruleset, which may be cached, for the user and operation and goes through the rules
-     * in order to find the first one that matches. Either defers if there are no rules, returns the result of
+     * in order to find the first one that matches, the outcome of a publish being cached for the subject. Either defers if there are no rules, returns the result of
      * the first match found, or denies access if there are no matching rules. Normally, it would be expected
      * to have a default deny or allow rule at the end of an access configuration however.
      */
@@ -295,8 +309,9 @@ public class RuleSet implements EventLoggerProvider
             _logger.debug("Checking action: " + action);
         }
 
-        // get the list of rules relevant for this request
-        List<Rule> rules = getRules(subject, operation, objectType);
+        // get the rules relevant for this request
+        SubjectRules subjectRules = getSubjectRules(subject);
+        CompiledRules rules = getCompiledRules(subjectRules, subject, operation, objectType);
         if (rules == null)
         {
             if(_logger.isDebugEnabled())
@@ -306,44 +321,73 @@ public class RuleSet implements EventLoggerProvider
             return getDefault();
         }
 
-        // Iterate through a filtered set of rules dealing with this identity and operation
-        for (Rule rule : rules)
+        Rule rule;
+        if (operation == Operation.PUBLISH && objectType == ObjectType.EXCHANGE)
         {
-            if(_logger.isDebugEnabled())
+            Object decision = subjectRules.getPublishDecision(properties, addressOfClient);
+            if (decision == null)
+            {
+                _publishDecisionCacheMisses.incrementAndGet();
+                rule = rules.findMatchingRule(action, addressOfClient);
+                subjectRules.putPublishDecision(properties, addressOfClient, rule);
+            }
+            else
             {
-                _logger.debug("Checking against rule: " + rule);
+                _publishDecisionCacheHits.incrementAndGet();
+                rule = SubjectRules.toRule(decision);
             }
+        }
+        else
+        {
+            rule = rules.findMatchingRule(action, addressOfClient);
+        }
 
-            if (action.matches(rule.getAclAction(), addressOfClient))
+        if (rule != null)
+        {
+            if(_logger.isDebugEnabled())
             {
-                Permission permission = rule.getPermission();
+                _logger.debug("Matched rule: " + rule);
+            }
 
-                switch (permission)
-                {
-                    case ALLOW_LOG:
-                        getEventLogger().message(AccessControlMessages.ALLOWED(
-                                action.getOperation().toString(),
-                                action.getObjectType().toString(),
-                                action.getProperties().toString()));
-                    case ALLOW:
-                        return Result.ALLOWED;
-                    case DENY_LOG:
-                        getEventLogger().message(AccessControlMessages.DENIED(
-                                action.getOperation().toString(),
-                                action.getObjectType().toString(),
-                                action.getProperties().toString()));
-                    case DENY:
-                        return Result.DENIED;
-                }
+            Permission permission = rule.getPermission();
 
-                return Result.DENIED;
+            switch (permission)
+            {
+                case ALLOW_LOG:
+                    getEventLogger().message(AccessControlMessages.ALLOWED(
+                            action.getOperation().toString(),
+                            action.getObjectType().toString(),
+                            action.getProperties().toString()));
+                case ALLOW:
+                    return Result.ALLOWED;
+                case DENY_LOG:
+                    getEventLogger().message(AccessControlMessages.DENIED(
+                            action.getOperation().toString(),
+                            action.getObjectType().toString(),
+                            action.getProperties().toString()));
+                case DENY:
+                    return Result.DENIED;
             }
+
+            return Result.DENIED;
         }
 
         // Defer to the next plugin of this type, if it exists
         return Result.DEFER;
     }
 
+    /** Number of publishes whose outcome was found in the cache of publish decisions */
+    public long getPublishDecisionCacheHits()
+    {
+        return _publishDecisionCacheHits.get();
+    }
+
+    /** Number of publishes checked against the rules because their outcome was not in the cache of publish decisions */
+    public long getPublishDecisionCacheMisses()
+    {
+        return _publishDecisionCacheMisses.get();
+    }
+
     /** Default deny. */
     public Result getDefault()
     {
@@ -418,24 +462,19 @@ public class RuleSet implements EventLoggerProvider
         return false;
     }
 
-    private Map<ObjectType, List<Rule>> getObjectToRuleCache(final Subject subject, final Operation operation)
+    private SubjectRules getSubjectRules(final Subject subject)
     {
-        // Lookup identity in cache and create empty operation map if required
-        Map<Operation, Map<ObjectType, List<Rule>>> operations = _cache.get(subject);
-        if (operations == null)
+        // Lookup identity in cache and create empty compiled rules if required
+        synchronized (_cache)
         {
-            operations = new EnumMap<Operation, Map<ObjectType, List<Rule>>>(Operation.class);
-            _cache.put(subject, operations);
-        }
-
-        // Lookup operation and create empty object type map if required
-        Map<ObjectType, List<Rule>> objects = operations.get(operation);
-        if (objects == null)
-        {
-            objects = new EnumMap<ObjectType, List<Rule>>(ObjectType.class);
-            operations.put(operation, objects);
+            SubjectRules subjectRules = _cache.get(subject);
+            if (subjectRules == null)
+            {
+                subjectRules = new SubjectRules();
+                _cache.put(subject, subjectRules);
+            }
+            return subjectRules;
         }
-        return objects;
     }
 
     public EventLogger getEventLogger()
@@ -0,0 +1,134 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.qpid.server.security.access.config;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.qpid.server.security.access.ObjectProperties;
+import org.apache.qpid.server.security.access.ObjectType;
+import org.apache.qpid.server.security.access.Operation;
+
+/**
+ * The rules of a {@link RuleSet} compiled for one subject, which for a messaging client identifies its connection,
+ * together with a cache of the rules matched by the subject's publishes.
+ * <p>
+ * Publishes are checked per message, so the rule matched by each publish, or the absence of one, is cached keyed by
+ * the properties of the publish and the client's address. The cache holds at most a fixed number of decisions and
+ * is emptied when full, so that routing keys unique to each message cannot grow it without bound.
+ */
+final class SubjectRules
+{
+    static final int MAX_PUBLISH_DECISIONS = 1024;
+
+    private static final int OBJECT_TYPE_COUNT = ObjectType.values().length;
+    private static final Object NO_MATCHING_RULE = new Object();
+
+    private final AtomicReferenceArray<CompiledRules> _compiledRules =
+            new AtomicReferenceArray<CompiledRules>(Operation.values().length * OBJECT_TYPE_COUNT);
+    private final ConcurrentMap<PublishDecisionKey, Object> _publishDecisions =
+            new ConcurrentHashMap<PublishDecisionKey, Object>();
+    private final AtomicInteger _publishDecisionCount = new AtomicInteger();
+
+    CompiledRules getCompiledRules(Operation operation, ObjectType objectType)
+    {
+        return _compiledRules.get(index(operation, objectType));
+    }
+
+    void setCompiledRules(Operation operation, ObjectType objectType, CompiledRules rules)
+    {
+        _compiledRules.set(index(operation, objectType), rules);
+    }
+
+    /**
+     * @return the rule cached as matched by a publish with the given properties, {@link #NO_MATCHING_RULE} if none was
+     * matched, or null if no decision is cached
+     */
+    Object getPublishDecision(ObjectProperties properties, InetAddress addressOfClient)
+    {
+        return _publishDecisions.get(new PublishDecisionKey(properties, addressOfClient));
+    }
+
+    void putPublishDecision(ObjectProperties properties, InetAddress addressOfClient, Rule matchedRule)
+    {
+        if (_publishDecisionCount.incrementAndGet() > MAX_PUBLISH_DECISIONS)
+        {
+            _publishDecisions.clear();
+            _publishDecisionCount.set(1);
+        }
+        _publishDecisions.put(new PublishDecisionKey(properties, addressOfClient),
+                              matchedRule == null ? NO_MATCHING_RULE : matchedRule);
+    }
+
+    static Rule toRule(Object publishDecision)
+    {
+        return publishDecision == NO_MATCHING_RULE ? null : (Rule) publishDecision;
+    }
+
+    int getPublishDecisionCount()
+    {
+        return _publishDecisions.size();
+    }
+
+    private static int index(Operation operation, ObjectType objectType)
+    {
+        return operation.ordinal() * OBJECT_TYPE_COUNT + objectType.ordinal();
+    }
+
+    private static final class PublishDecisionKey
+    {
+        private final ObjectProperties _properties;
+        private final InetAddress _addressOfClient;
+        private final int _hashCode;
+
+        PublishDecisionKey(ObjectProperties properties, InetAddress addressOfClient)
+        {
+            _properties = properties;
+            _addressOfClient = addressOfClient;
+            _hashCode = 31 * ObjectUtils.hashCode(properties) + ObjectUtils.hashCode(addressOfClient);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof PublishDecisionKey))
+            {
+                return false;
+            }
+            PublishDecisionKey key = (PublishDecisionKey) o;
+            return _hashCode == key._hashCode
+                   && ObjectUtils.equals(_properties, key._properties)
+                   && ObjectUtils.equals(_addressOfClient, key._addressOfClient);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return _hashCode;
+        }
+    }
+}
@@ -23,10 +23,19 @@ package org.apache.qpid.server.security.access.plugins;
 import org.apache.qpid.server.model.AccessControlProvider;
 import org.apache.qpid.server.model.ManagedAttribute;
 import org.apache.qpid.server.model.ManagedObject;
+import org.apache.qpid.server.model.ManagedStatistic;
 
 @ManagedObject( category = false, type="AclFile" )
 public interface ACLFileAccessControlProvider<X extends ACLFileAccessControlProvider<X>> extends AccessControlProvider<X>
 {
     @ManagedAttribute( mandatory = true, description = "File location" )
     String getPath();
+
+    /** Number of publishes whose outcome was found in the cache of publish decisions held for each connection */
+    @ManagedStatistic
+    long getPublishDecisionCacheHits();
+
+    /** Number of publishes checked against the rules because their outcome was not in the cache of publish decisions */
+    @ManagedStatistic
+    long getPublishDecisionCacheMisses();
 }
@@ -144,6 +144,20 @@ public class ACLFileAccessControlProviderImpl
         return _path;
     }
 
+    @Override
+    public long getPublishDecisionCacheHits()
+    {
+        DefaultAccessControl accessControl = _accessControl;
+        return accessControl == null ? 0L : accessControl.getPublishDecisionCacheHits();
+    }
+
+    @Override
+    public long getPublishDecisionCacheMisses()
+    {
+        DefaultAccessControl accessControl = _accessControl;
+        return accessControl == null ? 0L : accessControl.getPublishDecisionCacheMisses();
+    }
+
     @Override
     public <C extends ConfiguredObject> Collection<C> getChildren(Class<C> clazz)
     {
@@ -156,6 +156,16 @@ public class DefaultAccessControl implements AccessControl
         return _ruleSet.getDefault();
     }
 
+    public long getPublishDecisionCacheHits()
+    {
+        return _ruleSet == null ? 0L : _ruleSet.getPublishDecisionCacheHits();
+    }
+
+    public long getPublishDecisionCacheMisses()
+    {
+        return _ruleSet == null ? 0L : _ruleSet.getPublishDecisionCacheMisses();
+    }
+
     /**
      * Check if an operation is authorised by asking the  configuration object about the access
      * control rules granted to the current thread's {@link Subject}. If there is no current
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.server.security.access.config;
+
+import junit.framework.TestCase;
+
+import org.apache.qpid.server.security.access.ObjectProperties;
+import org.apache.qpid.server.security.access.Operation;
+import org.apache.qpid.server.security.access.Permission;
+
+public class SubjectRulesTest extends TestCase
+{
+    private final SubjectRules _subjectRules = new SubjectRules();
+
+    public void testPublishDecisionCached()
+    {
+        Rule rule = new Rule(1, Rule.ALL, new AclAction(Operation.PUBLISH), Permission.ALLOW);
+        _subjectRules.putPublishDecision(publishProperties("rk1"), null, rule);
+        _subjectRules.putPublishDecision(publishProperties("rk2"), null, null);
+
+        assertSame(rule, SubjectRules.toRule(_subjectRules.getPublishDecision(publishProperties("rk1"), null)));
+        Object noMatch = _subjectRules.getPublishDecision(publishProperties("rk2"), null);
+        assertNotNull("Absence of a matching rule not cached", noMatch);
+        assertNull(SubjectRules.toRule(noMatch));
+        assertNull(_subjectRules.getPublishDecision(publishProperties("rk3"), null));
+    }
+
+    public void testPublishDecisionsBounded()
+    {
+        for (int i = 0; i < SubjectRules.MAX_PUBLISH_DECISIONS * 3; i++)
+        {
+            _subjectRules.putPublishDecision(publishProperties("rk" + i), null, null);
+            assertTrue(_subjectRules.getPublishDecisionCount() <= SubjectRules.MAX_PUBLISH_DECISIONS);
+        }
+        assertNotNull(_subjectRules.getPublishDecision(publishProperties("rk" + (SubjectRules.MAX_PUBLISH_DECISIONS * 3 - 1)),
+                                                       null));
+    }
+
+    private ObjectProperties publishProperties(String routingKey)
+    {
+        return new ObjectProperties("test", "amq.direct", routingKey, false);
+    }
+}
@@ -21,13 +21,18 @@
 
 package org.apache.qpid.server.security.access.plugins;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import javax.security.auth.Subject;
 
 import org.apache.qpid.server.exchange.ExchangeImpl;
+import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.logging.EventLoggerProvider;
+import org.apache.qpid.server.logging.LogMessage;
 import org.apache.qpid.server.model.VirtualHost;
 import org.apache.qpid.server.queue.AMQQueue;
 import org.apache.qpid.server.security.Result;
@@ -473,4 +478,75 @@ public class RuleSetTest extends QpidTestCase
 
         assertEquals(Result.ALLOWED, _ruleSet.check(subjectInAllowedGroupAndOneOther,Operation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY));
     }
+
+    public void testPublishDecisionCached()
+    {
+        ObjectProperties allowed = new ObjectProperties("test", _exchangeName, "allowed", false);
+        ObjectProperties other = new ObjectProperties("test", _exchangeName, "other", false);
+        ObjectProperties ruleProperties = new ObjectProperties(_exchangeName);
+        ruleProperties.put(Property.ROUTING_KEY, "allowed");
+        _ruleSet.grant(1, TEST_USER, Permission.ALLOW, Operation.PUBLISH, ObjectType.EXCHANGE, ruleProperties);
+
+        assertEquals(Result.ALLOWED, _ruleSet.check(_testSubject, Operation.PUBLISH, ObjectType.EXCHANGE, allowed));
+        assertEquals(Result.ALLOWED, _ruleSet.check(_testSubject, Operation.PUBLISH, ObjectType.EXCHANGE, allowed));
+        assertEquals(Result.DEFER, _ruleSet.check(_testSubject, Operation.PUBLISH, ObjectType.EXCHANGE, other));
+        assertEquals(Result.DEFER, _ruleSet.check(_testSubject, Operation.PUBLISH, ObjectType.EXCHANGE, other));
+
+        assertEquals(2, _ruleSet.getPublishDecisionCacheHits());
+        assertEquals(2, _ruleSet.getPublishDecisionCacheMisses());
+    }
+
+    public void testRuleChangesDiscardCachedPublishDecisions()
+    {
+        ObjectProperties properties = new ObjectProperties("test", _exchangeName, "rk", false);
+        _ruleSet.grant(1, TEST_USER, Permission.ALLOW, Operation.PUBLISH, ObjectType.EXCHANGE, new ObjectProperties(_exchangeName));
+        assertEquals(Result.ALLOWED, _ruleSet.check(_testSubject, Operation.PUBLISH, ObjectType.EXCHANGE, properties));
+
+        _ruleSet.disableRule(1);
+        assertEquals(_ruleSet.getDefault(), _ruleSet.check(_testSubject, Operation.PUBLISH, ObjectType.EXCHANGE, properties));
+
+        _ruleSet.enableRule(1);
+        assertEquals(Result.ALLOWED, _ruleSet.check(_testSubject, Operation.PUBLISH, ObjectType.EXCHANGE, properties));
+
+        _ruleSet.grant(0, TEST_USER, Permission.DENY, Operation.PUBLISH, ObjectType.EXCHANGE, ObjectProperties.EMPTY);
+        assertEquals(Result.DENIED, _ruleSet.check(_testSubject, Operation.PUBLISH, ObjectType.EXCHANGE, properties));
+    }
+
+    /**
+     * Rules naming an object exactly are indexed by name; the first matching rule must still be determined by rule
+     * order across the exactly named rules and those with wildcarded or no names.
+     */
+    public void testNamedAndWildcardedRulesApplyInRuleOrder()
+    {
+        _ruleSet.grant(1, TEST_USER, Permission.ALLOW, Operation.PUBLISH, ObjectType.EXCHANGE, new ObjectProperties("amq.direct"));
+        _ruleSet.grant(2, TEST_USER, Permission.DENY, Operation.PUBLISH, ObjectType.EXCHANGE, new ObjectProperties("amq.*"));
+        _ruleSet.grant(3, TEST_USER, Permission.ALLOW, Operation.PUBLISH, ObjectType.EXCHANGE, new ObjectProperties("amq.topic"));
+        _ruleSet.grant(4, TEST_USER, Permission.ALLOW, Operation.PUBLISH, ObjectType.EXCHANGE, ObjectProperties.EMPTY);
+
+        assertEquals(Result.ALLOWED, checkPublish("amq.direct"));
+        assertEquals(Result.DENIED, checkPublish("amq.topic"));
+        assertEquals(Result.DENIED, checkPublish("amq.fanout"));
+        assertEquals(Result.ALLOWED, checkPublish("other"));
+    }
+
+    public void testLoggedPermissionLoggedOnEveryPublish()
+    {
+        EventLogger eventLogger = mock(EventLogger.class);
+        EventLoggerProvider eventLoggerProvider = mock(EventLoggerProvider.class);
+        when(eventLoggerProvider.getEventLogger()).thenReturn(eventLogger);
+        _ruleSet = new RuleSet(eventLoggerProvider);
+        _ruleSet.grant(1, TEST_USER, Permission.ALLOW_LOG, Operation.PUBLISH, ObjectType.EXCHANGE, ObjectProperties.EMPTY);
+
+        assertEquals(Result.ALLOWED, checkPublish(_exchangeName));
+        assertEquals(Result.ALLOWED, checkPublish(_exchangeName));
+
+        assertEquals(1, _ruleSet.getPublishDecisionCacheHits());
+        verify(eventLogger, times(2)).message(any(LogMessage.class));
+    }
+
+    private Result checkPublish(String exchangeName)
+    {
+        return _ruleSet.check(_testSubject, Operation.PUBLISH, ObjectType.EXCHANGE,
+                              new ObjectProperties("test", exchangeName, "rk", false));
+    }
 }
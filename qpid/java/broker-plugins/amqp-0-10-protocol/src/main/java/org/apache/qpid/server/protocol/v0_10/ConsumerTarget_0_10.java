@@ -36,7 +36,6 @@ import org.apache.qpid.server.logging.messages.ChannelMessages;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Exchange;
-import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.protocol.MessageConverterRegistry;
 import org.apache.qpid.server.queue.AMQQueue;
 import org.apache.qpid.server.queue.QueueConsumer;
@@ -211,11 +210,7 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
         }
         else
         {
-            MessageConverter converter =
-                    MessageConverterRegistry.getConverter(serverMsg.getClass(), MessageTransferMessage.class);
-
-
-            msg = (MessageTransferMessage) converter.convert(serverMsg, _session.getVirtualHost());
+            msg = MessageConverterRegistry.convert(serverMsg, MessageTransferMessage.class, _session.getVirtualHost());
         }
         DeliveryProperties origDeliveryProps = msg.getHeader() == null ? null : msg.getHeader().getDeliveryProperties();
         messageProps = msg.getHeader() == null ? null : msg.getHeader().getMessageProperties();
@@ -269,7 +264,8 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
             byte[] uncompressed = GZIPUtils.uncompressBufferToArray(body);
             if(uncompressed != null)
             {
-                messageProps.setContentEncoding(null);
+                messageProps = copyOf(messageProps);
+                messageProps.clearContentEncoding();
                 body = ByteBuffer.wrap(uncompressed);
             }
         }
@@ -282,10 +278,7 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
             byte[] compressed = GZIPUtils.compressBufferToArray(body);
             if(compressed != null)
             {
-                if(messageProps == null)
-                {
-                    messageProps = new MessageProperties();
-                }
+                messageProps = messageProps == null ? new MessageProperties() : copyOf(messageProps);
                 messageProps.setContentEncoding(GZIPUtils.GZIP_CONTENT_ENCODING);
                 body = ByteBuffer.wrap(compressed);
             }
@@ -345,6 +338,28 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
         return size;
     }
 
+    /**
+     * The message, and so its properties, may be shared with other deliveries, so properties which differ for this
+     * delivery are set on a copy.
+     */
+    private static MessageProperties copyOf(final MessageProperties messageProps)
+    {
+        MessageProperties copy = new MessageProperties(messageProps.getContentLength(),
+                                                       messageProps.getMessageId(),
+                                                       messageProps.getCorrelationId(),
+                                                       messageProps.getReplyTo(),
+                                                       messageProps.getContentType(),
+                                                       messageProps.getContentEncoding(),
+                                                       messageProps.getUserId(),
+                                                       messageProps.getAppId(),
+                                                       messageProps.getApplicationHeaders());
+        if(!messageProps.hasContentLength())
+        {
+            copy.clearContentLength();
+        }
+        return copy;
+    }
+
     void recordUnacknowledged(MessageInstance entry)
     {
         _unacknowledgedCount.incrementAndGet();
@@ -31,7 +31,6 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -184,6 +183,8 @@ public class AMQChannel
     private volatile boolean _rollingBack;
 
     private List<MessageInstance> _resendList = new ArrayList<MessageInstance>();
+
+    private final AcknowledgeVisitor _acknowledgeVisitor = new AcknowledgeVisitor();
     private static final
     AMQShortString IMMEDIATE_DELIVERY_REPLY_TEXT = new AMQShortString("Immediate delivery is not possible.");
 
@@ -916,26 +917,34 @@ public class AMQChannel
      */
     public void requeue()
     {
-        // we must create a new map since all the messages will get a new delivery tag when they are redelivered
-        Collection<MessageInstance> messagesToBeDelivered = _unacknowledgedMessageMap.cancelAllMessages();
-
-        if (!messagesToBeDelivered.isEmpty())
+        // the messages are removed from the map since they will get a new delivery tag when they are redelivered
+        if (_logger.isInfoEnabled())
         {
-            if (_logger.isInfoEnabled())
+            final int unackedCount = _unacknowledgedMessageMap.size();
+            if (unackedCount != 0)
             {
-                _logger.info("Requeuing " + messagesToBeDelivered.size() + " unacked messages. for " + toString());
+                _logger.info("Requeuing " + unackedCount + " unacked messages. for " + toString());
             }
-
         }
 
-        for (MessageInstance unacked : messagesToBeDelivered)
+        _unacknowledgedMessageMap.removeAll(new UnacknowledgedMessageMap.Visitor()
         {
-            // Mark message redelivered
-            unacked.setRedelivered();
+            @Override
+            public boolean callback(final long deliveryTag, final MessageInstance unacked)
+            {
+                // Mark message redelivered
+                unacked.setRedelivered();
 
-            // Ensure message is released for redelivery
-            unacked.release();
-        }
+                // Ensure message is released for redelivery
+                unacked.release();
+                return false;
+            }
+
+            @Override
+            public void visitComplete()
+            {
+            }
+        });
 
     }
 
@@ -998,79 +1007,24 @@ public class AMQChannel
      */
     public void resend()
     {
-
-
-        final Map<Long, MessageInstance> msgToRequeue = new LinkedHashMap<Long, MessageInstance>();
-        final Map<Long, MessageInstance> msgToResend = new LinkedHashMap<Long, MessageInstance>();
-
         if (_logger.isDebugEnabled())
         {
             _logger.debug("unacked map Size:" + _unacknowledgedMessageMap.size());
         }
 
         // Process the Unacked-Map.
-        // Marking messages who still have a consumer for to be resent
-        // and those that don't to be requeued.
-        _unacknowledgedMessageMap.visit(new ExtractResendAndRequeue(_unacknowledgedMessageMap,
-                                                                    msgToRequeue,
-                                                                    msgToResend
-        ));
-
+        // Resending messages who still have a consumer
+        // and requeuing those that don't.
+        final ExtractResendAndRequeue resendAndRequeue = new ExtractResendAndRequeue();
+        _unacknowledgedMessageMap.removeAll(resendAndRequeue);
 
-        // Process Messages to Resend
         if (_logger.isDebugEnabled())
         {
-            if (!msgToResend.isEmpty())
-            {
-                _logger.debug("Preparing (" + msgToResend.size() + ") message to resend.");
-            }
-            else
-            {
-                _logger.debug("No message to resend.");
-            }
-        }
-
-        for (Map.Entry<Long, MessageInstance> entry : msgToResend.entrySet())
-        {
-            MessageInstance message = entry.getValue();
-            long deliveryTag = entry.getKey();
-
-            //Amend the delivery counter as the client hasn't seen these messages yet.
-            message.decrementDeliveryCount();
-
-            // Without any details from the client about what has been processed we have to mark
-            // all messages in the unacked map as redelivered.
-            message.setRedelivered();
-
-            if (!message.resend())
-            {
-                msgToRequeue.put(deliveryTag, message);
-            }
-        } // for all messages
-        // } else !isSuspend
-
-        if (_logger.isInfoEnabled())
-        {
-            if (!msgToRequeue.isEmpty())
-            {
-                _logger.info("Preparing (" + msgToRequeue.size() + ") message to requeue to.");
-            }
+            _logger.debug("Resent (" + resendAndRequeue.getResent() + ") messages.");
         }
-
-        // Process Messages to Requeue at the front of the queue
-        for (Map.Entry<Long, MessageInstance> entry : msgToRequeue.entrySet())
+        if (_logger.isInfoEnabled() && resendAndRequeue.getRequeued() != 0)
         {
-            MessageInstance message = entry.getValue();
-            long deliveryTag = entry.getKey();
-
-            //Amend the delivery counter as the client hasn't seen these messages yet.
-            message.decrementDeliveryCount();
-
-            _unacknowledgedMessageMap.remove(deliveryTag);
-
-            message.setRedelivered();
-            message.release();
-
+            _logger.info("Requeued (" + resendAndRequeue.getRequeued() + ") messages.");
         }
     }
 
@@ -1085,15 +1039,7 @@ public class AMQChannel
      */
     public void acknowledgeMessage(long deliveryTag, boolean multiple)
     {
-        Collection<MessageInstance> ackedMessages = getAckedMessages(deliveryTag, multiple);
-        _transaction.dequeue(ackedMessages, new MessageAcknowledgeAction(ackedMessages));
-    }
-
-    private Collection<MessageInstance> getAckedMessages(long deliveryTag, boolean multiple)
-    {
-
-        return _unacknowledgedMessageMap.acknowledge(deliveryTag, multiple);
-
+        _unacknowledgedMessageMap.acknowledge(deliveryTag, multiple, _acknowledgeVisitor);
     }
 
     /**
@@ -1573,6 +1519,85 @@ public class AMQChannel
         }
     }
 
+    /**
+     * Dequeues the messages acknowledged by a basic.ack. A single message is dequeued on its own; several are gathered
+     * and dequeued together once all have been acknowledged. Only used by the thread processing the frames of the
+     * channel.
+     */
+    private class AcknowledgeVisitor implements UnacknowledgedMessageMap.Visitor
+    {
+        private MessageInstance _firstAcked;
+        private List<MessageInstance> _ackedMessages;
+
+        @Override
+        public boolean callback(final long deliveryTag, final MessageInstance message)
+        {
+            if (_firstAcked == null)
+            {
+                _firstAcked = message;
+            }
+            else
+            {
+                if (_ackedMessages == null)
+                {
+                    _ackedMessages = new ArrayList<>();
+                    _ackedMessages.add(_firstAcked);
+                }
+                _ackedMessages.add(message);
+            }
+            return false;
+        }
+
+        @Override
+        public void visitComplete()
+        {
+            final MessageInstance firstAcked = _firstAcked;
+            final List<MessageInstance> ackedMessages = _ackedMessages;
+            _firstAcked = null;
+            _ackedMessages = null;
+
+            if (ackedMessages != null)
+            {
+                _transaction.dequeue(ackedMessages, new MessageAcknowledgeAction(ackedMessages));
+            }
+            else if (firstAcked != null)
+            {
+                _transaction.dequeue(firstAcked.getOwningResource(),
+                                     firstAcked.getMessage(),
+                                     new SingleMessageAcknowledgeAction(firstAcked));
+            }
+        }
+    }
+
+    private class SingleMessageAcknowledgeAction implements ServerTransaction.Action
+    {
+        private final MessageInstance _ackedMessage;
+
+        public SingleMessageAcknowledgeAction(MessageInstance ackedMessage)
+        {
+            _ackedMessage = ackedMessage;
+        }
+
+        public void postCommit()
+        {
+            _ackedMessage.delete();
+        }
+
+        public void onRollback()
+        {
+            // explicit rollbacks resend the message after the rollback-ok is sent
+            if(_rollingBack)
+            {
+                _ackedMessage.unlockAcquisition();
+                _resendList.add(_ackedMessage);
+            }
+            else
+            {
+                _ackedMessage.release();
+            }
+        }
+    }
+
     private class WriteReturnAction implements ServerTransaction.Action
     {
         private final AMQConstant _errorCode;
@@ -2471,75 +2496,84 @@ public class AMQChannel
             _logger.debug("RECV[" + _channelId + "] BasicNack[" +" deliveryTag: " + deliveryTag + " multiple: " + multiple + " requeue: " + requeue + " ]");
         }
 
-        Map<Long, MessageInstance> nackedMessageMap = new LinkedHashMap<>();
-        _unacknowledgedMessageMap.collect(deliveryTag, multiple, nackedMessageMap);
+        _unacknowledgedMessageMap.collect(deliveryTag, multiple, new UnacknowledgedMessageMap.Visitor()
+        {
+            @Override
+            public boolean callback(final long messageDeliveryTag, final MessageInstance message)
+            {
+                nackMessage(messageDeliveryTag, message, requeue);
+                return false;
+            }
 
-        for(MessageInstance message : nackedMessageMap.values())
+            @Override
+            public void visitComplete()
+            {
+            }
+        });
+    }
+
+    private void nackMessage(final long deliveryTag, final MessageInstance message, final boolean requeue)
+    {
+        if (message == null)
+        {
+            _logger.warn("Ignoring nack request as message is null for tag:" + deliveryTag);
+        }
+        else
         {
 
-            if (message == null)
+            if (message.getMessage() == null)
             {
-                _logger.warn("Ignoring nack request as message is null for tag:" + deliveryTag);
+                _logger.warn("Message has already been purged, unable to nack.");
             }
             else
             {
+                if (_logger.isDebugEnabled())
+                {
+                    _logger.debug("Nack-ing: DT:" + deliveryTag
+                                  + "-" + message.getMessage() +
+                                  ": Requeue:" + requeue
+                                  +
+                                  " on channel:" + debugIdentity());
+                }
 
-                if (message.getMessage() == null)
+                if (requeue)
                 {
-                    _logger.warn("Message has already been purged, unable to nack.");
+                    message.decrementDeliveryCount();
+
+                    requeue(deliveryTag);
                 }
                 else
                 {
-                    if (_logger.isDebugEnabled())
-                    {
-                        _logger.debug("Nack-ing: DT:" + deliveryTag
-                                      + "-" + message.getMessage() +
-                                      ": Requeue:" + requeue
-                                      +
-                                      " on channel:" + debugIdentity());
-                    }
+                    message.reject();
 
-                    if (requeue)
-                    {
-                        message.decrementDeliveryCount();
-
-                        requeue(deliveryTag);
-                    }
-                    else
+                    final boolean maxDeliveryCountEnabled = isMaxDeliveryCountEnabled(deliveryTag);
+                    _logger.debug("maxDeliveryCountEnabled: "
+                                  + maxDeliveryCountEnabled
+                                  + " deliveryTag "
+                                  + deliveryTag);
+                    if (maxDeliveryCountEnabled)
                     {
-                        message.reject();
-
-                        final boolean maxDeliveryCountEnabled = isMaxDeliveryCountEnabled(deliveryTag);
-                        _logger.debug("maxDeliveryCountEnabled: "
-                                      + maxDeliveryCountEnabled
+                        final boolean deliveredTooManyTimes = isDeliveredTooManyTimes(deliveryTag);
+                        _logger.debug("deliveredTooManyTimes: "
+                                      + deliveredTooManyTimes
                                       + " deliveryTag "
                                       + deliveryTag);
-                        if (maxDeliveryCountEnabled)
+                        if (deliveredTooManyTimes)
                         {
-                            final boolean deliveredTooManyTimes = isDeliveredTooManyTimes(deliveryTag);
-                            _logger.debug("deliveredTooManyTimes: "
-                                          + deliveredTooManyTimes
-                                          + " deliveryTag "
-                                          + deliveryTag);
-                            if (deliveredTooManyTimes)
-                            {
-                                deadLetter(deliveryTag);
-                            }
-                            else
-                            {
-                                message.incrementDeliveryCount();
-                            }
+                            deadLetter(deliveryTag);
                         }
                         else
                         {
-                            requeue(deliveryTag);
+                            message.incrementDeliveryCount();
                         }
                     }
+                    else
+                    {
+                        requeue(deliveryTag);
+                    }
                 }
             }
-
         }
-
     }
 
     @Override
@@ -570,6 +570,44 @@ public class AMQProtocolEngine implements ServerProtocolEngine,
         }
     }
 
+    /**
+     * Writes frames which have already been encoded into a sequence of buffers, such as the frames of a
+     * message delivery interleaved with read-only views of the message content. Nothing is serialised whilst
+     * the lock is held, and read-only buffers reach the network layer without being copied.
+     *
+     * @param buffers the encoded frames, in the order they are to be written
+     */
+    public void writeBuffers(final ByteBuffer[] buffers)
+    {
+        long size = 0L;
+        for (ByteBuffer buf : buffers)
+        {
+            size += buf.remaining();
+        }
+
+        if(_logger.isDebugEnabled())
+        {
+            _logger.debug("SEND: " + buffers.length + " buffers, " + size + " bytes");
+        }
+
+        synchronized (this)
+        {
+            _writtenBytes += size;
+            for (ByteBuffer buf : buffers)
+            {
+                _sender.send(buf);
+            }
+            final long time = System.currentTimeMillis();
+            _lastIoTime = time;
+            _lastWriteTime.set(time);
+
+            if(!_deferFlush)
+            {
+                _sender.flush();
+            }
+        }
+    }
+
     public AMQShortString getContextKey()
     {
         return _contextKey;
@@ -20,46 +20,48 @@
  */
 package org.apache.qpid.server.protocol.v0_8;
 
-import java.util.Map;
-
 import org.apache.log4j.Logger;
 
 import org.apache.qpid.server.consumer.ConsumerImpl;
 import org.apache.qpid.server.message.MessageInstance;
 
+/**
+ * Passed to {@link UnacknowledgedMessageMap#removeAll(UnacknowledgedMessageMap.Visitor)} to resend each
+ * outstanding message to its consumer, or to requeue it if the consumer has gone or the message cannot be
+ * resent.
+ */
 public class ExtractResendAndRequeue implements UnacknowledgedMessageMap.Visitor
 {
     private static final Logger _log = Logger.getLogger(ExtractResendAndRequeue.class);
 
-    private final Map<Long, MessageInstance> _msgToRequeue;
-    private final Map<Long, MessageInstance> _msgToResend;
-    private final UnacknowledgedMessageMap _unacknowledgedMessageMap;
-
-    public ExtractResendAndRequeue(UnacknowledgedMessageMap unacknowledgedMessageMap,
-                                   Map<Long, MessageInstance> msgToRequeue,
-                                   Map<Long, MessageInstance> msgToResend)
-    {
-        _unacknowledgedMessageMap = unacknowledgedMessageMap;
-        _msgToRequeue = msgToRequeue;
-        _msgToResend = msgToResend;
-    }
+    private int _resent;
+    private int _requeued;
 
     public boolean callback(final long deliveryTag, MessageInstance message)
     {
-
+        // Without any details from the client about what has been processed we have to mark
+        // all messages in the unacked map as redelivered.
         message.setRedelivered();
         final ConsumerImpl consumer = message.getDeliveredConsumer();
         if (consumer != null)
         {
-            // Consumer exists
             if (!consumer.isClosed())
             {
-                _msgToResend.put(deliveryTag, message);
-            }
-            else // consumer has gone
-            {
-                _msgToRequeue.put(deliveryTag, message);
+                //Amend the delivery counter as the client hasn't seen these messages yet.
+                message.decrementDeliveryCount();
+
+                if (message.resend())
+                {
+                    _resent++;
+                    return false;
+                }
             }
+
+            //Amend the delivery counter as the client hasn't seen these messages yet.
+            message.decrementDeliveryCount();
+
+            message.release();
+            _requeued++;
         }
         else
         {
@@ -72,7 +74,15 @@ public class ExtractResendAndRequeue implements UnacknowledgedMessageMap.Visitor
 
     public void visitComplete()
     {
-        _unacknowledgedMessageMap.clear();
     }
 
+    public int getResent()
+    {
+        return _resent;
+    }
+
+    public int getRequeued()
+    {
+        return _requeued;
+    }
 }
@@ -34,14 +34,17 @@ import org.apache.qpid.framing.BasicCancelOkBody;
 import org.apache.qpid.framing.BasicContentHeaderProperties;
 import org.apache.qpid.framing.BasicGetOkBody;
 import org.apache.qpid.framing.BasicReturnBody;
+import org.apache.qpid.framing.ContentBody;
 import org.apache.qpid.framing.ContentHeaderBody;
+import org.apache.qpid.framing.EncodingUtils;
 import org.apache.qpid.framing.MessagePublishInfo;
 import org.apache.qpid.protocol.AMQVersionAwareProtocolSession;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageContentSource;
 import org.apache.qpid.server.message.ServerMessage;
-import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.protocol.MessageConverterRegistry;
+import org.apache.qpid.server.util.ServerScopedRuntimeException;
+import org.apache.qpid.util.BytesDataOutput;
 import org.apache.qpid.util.GZIPUtils;
 
 public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
@@ -50,6 +53,7 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
 
     private final AMQProtocolEngine _connection;
     private static final AMQShortString GZIP_ENCODING = AMQShortString.valueOf(GZIPUtils.GZIP_CONTENT_ENCODING);
+    private static final int CONTENT_FRAME_HEADER_SIZE = 1 + 2 + 4;
 
     public ProtocolOutputConverterImpl(AMQProtocolEngine connection)
     {
@@ -76,16 +80,10 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
         }
         else
         {
-            return getMessageConverter(serverMessage).convert(serverMessage, _connection.getVirtualHost());
+            return MessageConverterRegistry.convert(serverMessage, AMQMessage.class, _connection.getVirtualHost());
         }
     }
 
-    private <M extends ServerMessage> MessageConverter<M, AMQMessage> getMessageConverter(M message)
-    {
-        Class<M> clazz = (Class<M>) message.getClass();
-        return MessageConverterRegistry.getConverter(clazz, AMQMessage.class);
-    }
-
     private long writeMessageDelivery(AMQMessage message, int channelId, AMQBody deliverBody)
     {
         return writeMessageDelivery(message, message.getContentHeaderBody(), channelId, deliverBody);
@@ -183,89 +181,65 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
         else
         {
             int maxBodySize = (int) _connection.getMaxFrameSize() - AMQFrame.getFrameOverhead();
+            int frameCount = (bodySize + maxBodySize - 1) / maxBodySize;
 
+            // the encoded frames are interleaved with read-only views of the content, so that the body is
+            // handed to the network layer without being copied into the frames
+            ByteBuffer[] buffers = new ByteBuffer[2 * frameCount + 1];
 
             int capacity = bodySize > maxBodySize ? maxBodySize : bodySize;
 
-            int writtenSize = capacity;
-
-            AMQBody firstContentBody = new MessageContentSourceBody(message, 0, capacity);
-
-            CompositeAMQBodyBlock
-                    compositeBlock =
-                    new CompositeAMQBodyBlock(channelId, deliverBody, contentHeaderBody, firstContentBody);
-            writeFrame(compositeBlock);
-
-            while (writtenSize < bodySize)
+            SmallCompositeAMQBodyBlock leadingBlock = new SmallCompositeAMQBodyBlock(channelId, deliverBody,
+                                                                                     contentHeaderBody);
+            byte[] leadingBytes = new byte[(int) leadingBlock.getSize() + CONTENT_FRAME_HEADER_SIZE];
+            BytesDataOutput output = new BytesDataOutput(leadingBytes);
+            try
             {
-                capacity = bodySize - writtenSize > maxBodySize ? maxBodySize : bodySize - writtenSize;
-                MessageContentSourceBody body = new MessageContentSourceBody(message, writtenSize, capacity);
-                writtenSize += capacity;
-
-                writeFrame(new AMQFrame(channelId, body));
+                leadingBlock.writePayload(output);
+                writeContentFrameHeader(output, channelId, capacity);
+                buffers[0] = ByteBuffer.wrap(leadingBytes);
+
+                int writtenSize = 0;
+                int index = 1;
+                while (true)
+                {
+                    buffers[index++] = message.getContent(writtenSize, capacity).asReadOnlyBuffer();
+                    writtenSize += capacity;
+
+                    if (writtenSize == bodySize)
+                    {
+                        buffers[index] = ByteBuffer.wrap(new byte[] { AMQFrame.FRAME_END_BYTE });
+                        break;
+                    }
+
+                    capacity = bodySize - writtenSize > maxBodySize ? maxBodySize : bodySize - writtenSize;
+                    byte[] separatorBytes = new byte[1 + CONTENT_FRAME_HEADER_SIZE];
+                    output.setBuffer(separatorBytes);
+                    output.writeByte(AMQFrame.FRAME_END_BYTE);
+                    writeContentFrameHeader(output, channelId, capacity);
+                    buffers[index++] = ByteBuffer.wrap(separatorBytes);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new ServerScopedRuntimeException(e);
             }
+
+            _connection.writeBuffers(buffers);
         }
     }
 
-    private boolean isCompressed(final ContentHeaderBody contentHeaderBody)
+    private static void writeContentFrameHeader(final BytesDataOutput output, final int channelId, final int size)
+            throws IOException
     {
-        return GZIP_ENCODING.equals(contentHeaderBody.getProperties().getEncoding());
+        output.writeByte(ContentBody.TYPE);
+        EncodingUtils.writeUnsignedShort(output, channelId);
+        EncodingUtils.writeUnsignedInteger(output, size);
     }
 
-    private class MessageContentSourceBody implements AMQBody
+    private boolean isCompressed(final ContentHeaderBody contentHeaderBody)
     {
-        public static final byte TYPE = 3;
-        private final int _length;
-        private final MessageContentSource _message;
-        private final int _offset;
-
-        public MessageContentSourceBody(MessageContentSource message, int offset, int length)
-        {
-            _message = message;
-            _offset = offset;
-            _length = length;
-        }
-
-        public byte getFrameType()
-        {
-            return TYPE;
-        }
-
-        public int getSize()
-        {
-            return _length;
-        }
-
-        public void writePayload(DataOutput buffer) throws IOException
-        {
-            ByteBuffer buf = _message.getContent(_offset, _length);
-
-            if(buf.hasArray())
-            {
-                buffer.write(buf.array(), buf.arrayOffset()+buf.position(), buf.remaining());
-            }
-            else
-            {
-
-                byte[] data = new byte[_length];
-
-                buf.get(data);
-
-                buffer.write(data);
-            }
-        }
-
-        public void handle(int channelId, AMQVersionAwareProtocolSession amqProtocolSession) throws AMQException
-        {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public String toString()
-        {
-            return "[" + getClass().getSimpleName() + " offset: " + _offset + ", length: " + _length + "]";
-        }
-
+        return GZIP_ENCODING.equals(contentHeaderBody.getProperties().getEncoding());
     }
 
     public long writeGetOk(final ServerMessage msg,
@@ -420,48 +394,6 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
     }
 
 
-    public static final class CompositeAMQBodyBlock extends AMQDataBlock
-    {
-        public static final int OVERHEAD = 3 * AMQFrame.getFrameOverhead();
-
-        private final AMQBody _methodBody;
-        private final AMQBody _headerBody;
-        private final AMQBody _contentBody;
-        private final int _channel;
-
-
-        public CompositeAMQBodyBlock(int channel, AMQBody methodBody, AMQBody headerBody, AMQBody contentBody)
-        {
-            _channel = channel;
-            _methodBody = methodBody;
-            _headerBody = headerBody;
-            _contentBody = contentBody;
-        }
-
-        public long getSize()
-        {
-            return OVERHEAD + _methodBody.getSize() + _headerBody.getSize() + _contentBody.getSize();
-        }
-
-        public void writePayload(DataOutput buffer) throws IOException
-        {
-            AMQFrame.writeFrames(buffer, _channel, _methodBody, _headerBody, _contentBody);
-        }
-
-        @Override
-        public String toString()
-        {
-            StringBuilder builder = new StringBuilder();
-            builder.append("[").append(getClass().getSimpleName())
-                .append(" methodBody=").append(_methodBody)
-                .append(", headerBody=").append(_headerBody)
-                .append(", contentBody=").append(_contentBody)
-                .append(", channel=").append(_channel).append("]");
-            return builder.toString();
-        }
-
-    }
-
     public static final class SmallCompositeAMQBodyBlock extends AMQDataBlock
     {
         public static final int OVERHEAD = 2 * AMQFrame.getFrameOverhead();
@@ -20,8 +20,6 @@
  */
 package org.apache.qpid.server.protocol.v0_8;
 
-import java.util.Collection;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.qpid.AMQException;
@@ -48,7 +46,14 @@ public interface UnacknowledgedMessageMap
 
     MessageInstance remove(long deliveryTag);
 
-    Collection<MessageInstance> cancelAllMessages();
+    /**
+     * Removes each outstanding message, in delivery tag order, passing it to the visitor. The visitor is called
+     * without the map being locked, so may add messages to the map; messages added once the removal has started
+     * are not removed.
+     *
+     * @param visitor the visitor to which each removed message is passed
+     */
+    void removeAll(Visitor visitor);
 
     int size();
 
@@ -63,8 +68,20 @@ public interface UnacknowledgedMessageMap
      */
     Set<Long> getDeliveryTags();
 
-    Collection<MessageInstance> acknowledge(long deliveryTag, boolean multiple);
-    void collect(long key, boolean multiple, Map<Long, MessageInstance> msgs);
+    /**
+     * Removes the outstanding message with the given delivery tag, or if multiple is true every outstanding message
+     * up to and including it (all outstanding messages if the tag is zero), and passes each whose acquisition could
+     * be locked to the visitor in delivery tag order. When acknowledging multiple messages the visitor is called
+     * holding the lock of the map, so must not call back into it. The return value of the callback is ignored.
+     */
+    void acknowledge(long deliveryTag, boolean multiple, Visitor visitor);
+
+    /**
+     * Passes the outstanding message with the given delivery tag, or if multiple is true every outstanding
+     * message up to and including it (all outstanding messages if the tag is zero), to the visitor in delivery
+     * tag order. The messages are not removed, and the visitor is called without the map being locked.
+     */
+    void collect(long deliveryTag, boolean multiple, Visitor visitor);
 }
 
 
@@ -20,75 +20,142 @@
  */
 package org.apache.qpid.server.protocol.v0_8;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.List;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.qpid.server.message.MessageInstance;
 
+/**
+ * Holds the outstanding messages of a channel in a ring indexed by delivery tag.
+ * <p>
+ * The channel hands out delivery tags in increasing order, so the outstanding tags form a window which moves
+ * forward as messages are acknowledged; the message with tag {@code t} is held in slot {@code t} modulo the size
+ * of the ring. Adding, acknowledging (singly or up to a tag) and removing messages neither allocates nor boxes
+ * per message. The ring doubles in size when it is at least half full and the window no longer fits. When it is
+ * sparser than that, which happens when a client leaves an early delivery unacknowledged whilst acknowledging
+ * later ones, the oldest outstanding messages are moved to an overflow map instead, so that a single straggler
+ * cannot make the ring grow without bound.
+ */
 public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 {
+    private static final int MINIMUM_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final long NO_TAG = -1L;
+
     private final Object _lock = new Object();
 
-    private Map<Long, MessageInstance> _map;
+    private MessageInstance[] _ring;
 
-    private final int _prefetchLimit;
+    /** The ring holds the messages with tags from _first (inclusive) to _last (exclusive). */
+    private long _first;
+    private long _last;
+    private int _ringSize;
+
+    /** Messages moved out of the ring; every tag held is lower than _first. */
+    private final NavigableMap<Long, MessageInstance> _overflow = new TreeMap<>();
 
     public UnacknowledgedMessageMapImpl(int prefetchLimit)
     {
-        _prefetchLimit = prefetchLimit;
-        _map = new LinkedHashMap<>(prefetchLimit);
+        _ring = new MessageInstance[capacityFor(prefetchLimit)];
     }
 
-    public void collect(long deliveryTag, boolean multiple, Map<Long, MessageInstance> msgs)
+    public void collect(long deliveryTag, boolean multiple, Visitor visitor)
     {
         if (multiple)
         {
-            collect(deliveryTag, msgs);
+            final long limit = deliveryTag == 0L ? Long.MAX_VALUE : deliveryTag;
+            long tag = 0L;
+            while (true)
+            {
+                final MessageInstance message;
+                synchronized (_lock)
+                {
+                    tag = nextTag(tag, limit);
+                    if (tag == NO_TAG)
+                    {
+                        break;
+                    }
+                    message = getInternal(tag);
+                }
+                if (visitor.callback(tag, message) || tag == Long.MAX_VALUE)
+                {
+                    break;
+                }
+                tag++;
+            }
         }
         else
         {
-            final MessageInstance entry = get(deliveryTag);
-            if(entry != null)
+            final MessageInstance message = get(deliveryTag);
+            if (message != null)
             {
-                msgs.put(deliveryTag, entry);
+                visitor.callback(deliveryTag, message);
             }
         }
-
+        visitor.visitComplete();
     }
 
-    public void remove(Map<Long,MessageInstance> msgs)
+    public MessageInstance remove(long deliveryTag)
     {
         synchronized (_lock)
         {
-            for (Long deliveryTag : msgs.keySet())
-            {
-                remove(deliveryTag);
-            }
+            return removeInternal(deliveryTag);
         }
     }
 
-    public MessageInstance remove(long deliveryTag)
+    public void removeAll(Visitor visitor)
     {
+        final long limit;
         synchronized (_lock)
         {
+            limit = _last - 1;
+        }
 
-            MessageInstance message = _map.remove(deliveryTag);
-            return message;
+        long tag = 0L;
+        while (true)
+        {
+            final MessageInstance message;
+            synchronized (_lock)
+            {
+                tag = nextTag(tag, limit);
+                if (tag == NO_TAG)
+                {
+                    break;
+                }
+                message = removeInternal(tag);
+            }
+            if (visitor.callback(tag, message))
+            {
+                break;
+            }
+            tag++;
         }
+        visitor.visitComplete();
     }
 
     public void visit(Visitor visitor)
     {
         synchronized (_lock)
         {
-            Set<Map.Entry<Long, MessageInstance>> currentEntries = _map.entrySet();
-            for (Map.Entry<Long, MessageInstance> entry : currentEntries)
+            for (Map.Entry<Long, MessageInstance> entry : _overflow.entrySet())
+            {
+                if (visitor.callback(entry.getKey(), entry.getValue()))
+                {
+                    visitor.visitComplete();
+                    return;
+                }
+            }
+            for (long tag = _first; tag < _last; tag++)
             {
-                visitor.callback(entry.getKey().longValue(), entry.getValue());
+                final MessageInstance message = _ring[slot(tag)];
+                if (message != null && visitor.callback(tag, message))
+                {
+                    break;
+                }
             }
             visitor.visitComplete();
         }
@@ -98,17 +165,52 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            _map.put(deliveryTag, message);
-        }
-    }
+            if (!_overflow.isEmpty() && deliveryTag <= _overflow.lastKey())
+            {
+                _overflow.put(deliveryTag, message);
+                return;
+            }
 
-    public Collection<MessageInstance> cancelAllMessages()
-    {
-        synchronized (_lock)
-        {
-            Collection<MessageInstance> currentEntries = _map.values();
-            _map = new LinkedHashMap<>(_prefetchLimit);
-            return currentEntries;
+            if (_ringSize == 0)
+            {
+                _first = deliveryTag;
+                _last = deliveryTag + 1;
+            }
+            else if (deliveryTag < _first)
+            {
+                if (_last - deliveryTag > _ring.length)
+                {
+                    _overflow.put(deliveryTag, message);
+                    return;
+                }
+                _first = deliveryTag;
+            }
+            else if (deliveryTag >= _last)
+            {
+                while (_ringSize > 0 && deliveryTag + 1 - _first > _ring.length)
+                {
+                    if (_ringSize * 2 >= _ring.length && _ring.length < MAXIMUM_CAPACITY)
+                    {
+                        grow();
+                    }
+                    else
+                    {
+                        moveFirstToOverflow();
+                    }
+                }
+                if (_ringSize == 0)
+                {
+                    _first = deliveryTag;
+                }
+                _last = deliveryTag + 1;
+            }
+
+            final int slot = slot(deliveryTag);
+            if (_ring[slot] == null)
+            {
+                _ringSize++;
+            }
+            _ring[slot] = message;
         }
     }
 
@@ -116,7 +218,7 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            return _map.size();
+            return _ringSize + _overflow.size();
         }
     }
 
@@ -124,7 +226,16 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            _map.clear();
+            for (long tag = _first; tag < _last && _ringSize > 0; tag++)
+            {
+                if (_ring[slot(tag)] != null)
+                {
+                    _ring[slot(tag)] = null;
+                    _ringSize--;
+                }
+            }
+            _first = _last;
+            _overflow.clear();
         }
     }
 
@@ -132,47 +243,197 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            return _map.get(key);
+            return getInternal(key);
         }
     }
 
+    /**
+     * Returns a copy of the outstanding delivery tags, in order.
+     */
     public Set<Long> getDeliveryTags()
     {
         synchronized (_lock)
         {
-            return _map.keySet();
+            Set<Long> deliveryTags = new LinkedHashSet<>(_overflow.keySet());
+            for (long tag = _first; tag < _last; tag++)
+            {
+                if (_ring[slot(tag)] != null)
+                {
+                    deliveryTags.add(tag);
+                }
+            }
+            return deliveryTags;
         }
     }
 
-    public Collection<MessageInstance> acknowledge(long deliveryTag, boolean multiple)
+    public void acknowledge(long deliveryTag, boolean multiple, Visitor visitor)
     {
-        Map<Long, MessageInstance> ackedMessageMap = new LinkedHashMap<Long,MessageInstance>();
-        collect(deliveryTag, multiple, ackedMessageMap);
-        remove(ackedMessageMap);
-        List<MessageInstance> acknowledged = new ArrayList<>();
-        for(MessageInstance instance : ackedMessageMap.values())
+        if (multiple)
         {
-            if(instance.lockAcquisition())
+            final long limit = deliveryTag == 0L ? Long.MAX_VALUE : deliveryTag;
+            synchronized (_lock)
             {
-                acknowledged.add(instance);
+                if (!_overflow.isEmpty())
+                {
+                    final Iterator<Map.Entry<Long, MessageInstance>> overflowed =
+                            _overflow.headMap(limit, true).entrySet().iterator();
+                    while (overflowed.hasNext())
+                    {
+                        final Map.Entry<Long, MessageInstance> entry = overflowed.next();
+                        overflowed.remove();
+                        acknowledged(entry.getKey(), entry.getValue(), visitor);
+                    }
+                }
+                final long end = Math.min(_last - 1, limit);
+                for (long tag = _first; tag <= end; tag++)
+                {
+                    final int slot = slot(tag);
+                    final MessageInstance message = _ring[slot];
+                    if (message != null)
+                    {
+                        _ring[slot] = null;
+                        _ringSize--;
+                        acknowledged(tag, message, visitor);
+                    }
+                }
+                if (end >= _first)
+                {
+                    _first = end + 1;
+                    advanceFirst();
+                }
+            }
+        }
+        else
+        {
+            final MessageInstance message = remove(deliveryTag);
+            if (message != null)
+            {
+                acknowledged(deliveryTag, message, visitor);
             }
         }
-        return acknowledged;
+        visitor.visitComplete();
     }
 
-    private void collect(long key, Map<Long, MessageInstance> msgs)
+    private static void acknowledged(long tag, MessageInstance message, Visitor visitor)
     {
-        synchronized (_lock)
+        if (message.lockAcquisition())
+        {
+            visitor.callback(tag, message);
+        }
+    }
+
+    private MessageInstance getInternal(long tag)
+    {
+        if (tag >= _first && tag < _last)
         {
-            for (Map.Entry<Long, MessageInstance> entry : _map.entrySet())
+            return _ring[slot(tag)];
+        }
+        else if (tag < _first && !_overflow.isEmpty())
+        {
+            return _overflow.get(tag);
+        }
+        return null;
+    }
+
+    private MessageInstance removeInternal(long tag)
+    {
+        if (tag >= _first && tag < _last)
+        {
+            final int slot = slot(tag);
+            final MessageInstance message = _ring[slot];
+            if (message != null)
             {
-                msgs.put(entry.getKey(),entry.getValue());
-                if (entry.getKey() == key)
+                _ring[slot] = null;
+                _ringSize--;
+                if (tag == _first)
                 {
-                    break;
+                    advanceFirst();
                 }
             }
+            return message;
+        }
+        else if (tag < _first && !_overflow.isEmpty())
+        {
+            return _overflow.remove(tag);
         }
+        return null;
     }
 
+    /**
+     * Returns the lowest outstanding tag between from and to inclusive, or NO_TAG if there is none.
+     */
+    private long nextTag(long from, long to)
+    {
+        if (!_overflow.isEmpty())
+        {
+            final Long overflowed = _overflow.ceilingKey(from);
+            if (overflowed != null && overflowed <= to)
+            {
+                return overflowed;
+            }
+        }
+        final long end = Math.min(_last - 1, to);
+        for (long tag = Math.max(from, _first); tag <= end; tag++)
+        {
+            if (_ring[slot(tag)] != null)
+            {
+                return tag;
+            }
+        }
+        return NO_TAG;
+    }
+
+    /**
+     * Moves _first forward past any empty slots, or to _last if the ring is empty.
+     */
+    private void advanceFirst()
+    {
+        if (_ringSize == 0)
+        {
+            _first = _last;
+        }
+        else
+        {
+            while (_ring[slot(_first)] == null)
+            {
+                _first++;
+            }
+        }
+    }
+
+    private void moveFirstToOverflow()
+    {
+        final int slot = slot(_first);
+        _overflow.put(_first, _ring[slot]);
+        _ring[slot] = null;
+        _ringSize--;
+        _first++;
+        advanceFirst();
+    }
+
+    private void grow()
+    {
+        final MessageInstance[] ring = new MessageInstance[_ring.length * 2];
+        final int mask = ring.length - 1;
+        for (long tag = _first; tag < _last; tag++)
+        {
+            ring[(int) tag & mask] = _ring[slot(tag)];
+        }
+        _ring = ring;
+    }
+
+    private int slot(long tag)
+    {
+        return (int) tag & (_ring.length - 1);
+    }
+
+    private static int capacityFor(int prefetchLimit)
+    {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < prefetchLimit && capacity < MAXIMUM_CAPACITY)
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
 }
@@ -31,12 +31,12 @@ import org.apache.qpid.server.queue.QueueEntry;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
-import java.util.Map;
 
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -130,7 +130,7 @@ public class ExtractResendAndRequeueTest extends TestCase
      *
      * An active consumer that has acquired messages expects those messages to be reset when rollback is requested.
      *
-     * This test validates that the msgToResend map includes all the messages and none are left behind.
+     * This test validates that all the messages are resent and none are left behind.
      *
      * @throws AMQException the visit interface throws this
      */
@@ -138,26 +138,31 @@ public class ExtractResendAndRequeueTest extends TestCase
     {
         //We don't need the subscription object here.
         acquireMessages(_referenceList);
+        for (MessageInstance entry : _referenceList)
+        {
+            when(entry.resend()).thenReturn(true);
+        }
 
-        final Map<Long, MessageInstance> msgToRequeue = new LinkedHashMap<Long, MessageInstance>();
-        final Map<Long, MessageInstance> msgToResend = new LinkedHashMap<Long, MessageInstance>();
-
-        // requeueIfUnableToResend doesn't matter here.
-        _unacknowledgedMessageMap.visit(new ExtractResendAndRequeue(_unacknowledgedMessageMap, msgToRequeue,
-                                                                    msgToResend));
+        ExtractResendAndRequeue resendAndRequeue = new ExtractResendAndRequeue();
+        _unacknowledgedMessageMap.removeAll(resendAndRequeue);
 
-        assertEquals("Message count for resend not correct.", INITIAL_MSG_COUNT, msgToResend.size());
-        assertEquals("Message count for requeue not correct.", 0, msgToRequeue.size());
+        assertEquals("Message count for resend not correct.", INITIAL_MSG_COUNT, resendAndRequeue.getResent());
+        assertEquals("Message count for requeue not correct.", 0, resendAndRequeue.getRequeued());
         assertEquals("Map was not emptied", 0, _unacknowledgedMessageMap.size());
+        for (MessageInstance entry : _referenceList)
+        {
+            verify(entry).resend();
+            verify(entry, never()).release();
+        }
     }
 
     /**
      * This is the normal consumer close method.
      *
      * When a consumer that has acquired messages expects closes the messages that it has acquired should be removed from
-     * the unacknowledgedMap and placed in msgToRequeue
+     * the unacknowledgedMap and requeued
      *
-     * This test validates that the msgToRequeue map includes all the messages and none are left behind.
+     * This test validates that all the messages are requeued and none are left behind.
      *
      * @throws AMQException the visit interface throws this
      */
@@ -168,17 +173,35 @@ public class ExtractResendAndRequeueTest extends TestCase
         // Close subscription
         when(_consumer.isClosed()).thenReturn(true);
 
-        final Map<Long, MessageInstance> msgToRequeue = new LinkedHashMap<Long, MessageInstance>();
-        final Map<Long, MessageInstance> msgToResend = new LinkedHashMap<Long, MessageInstance>();
+        ExtractResendAndRequeue resendAndRequeue = new ExtractResendAndRequeue();
+        _unacknowledgedMessageMap.removeAll(resendAndRequeue);
 
-        // requeueIfUnableToResend doesn't matter here.
-        _unacknowledgedMessageMap.visit(new ExtractResendAndRequeue(_unacknowledgedMessageMap, msgToRequeue,
-                                                                    msgToResend));
-
-        assertEquals("Message count for resend not correct.", 0, msgToResend.size());
-        assertEquals("Message count for requeue not correct.", INITIAL_MSG_COUNT, msgToRequeue.size());
+        assertEquals("Message count for resend not correct.", 0, resendAndRequeue.getResent());
+        assertEquals("Message count for requeue not correct.", INITIAL_MSG_COUNT, resendAndRequeue.getRequeued());
         assertEquals("Map was not emptied", 0, _unacknowledgedMessageMap.size());
+        for (MessageInstance entry : _referenceList)
+        {
+            verify(entry, never()).resend();
+            verify(entry).release();
+        }
     }
 
+    /**
+     * Messages which cannot be resent to their still open consumer are requeued.
+     */
+    public void testRequeueWhenUnableToResend() throws AMQException
+    {
+        acquireMessages(_referenceList);
+
+        ExtractResendAndRequeue resendAndRequeue = new ExtractResendAndRequeue();
+        _unacknowledgedMessageMap.removeAll(resendAndRequeue);
 
+        assertEquals("Message count for resend not correct.", 0, resendAndRequeue.getResent());
+        assertEquals("Message count for requeue not correct.", INITIAL_MSG_COUNT, resendAndRequeue.getRequeued());
+        assertEquals("Map was not emptied", 0, _unacknowledgedMessageMap.size());
+        for (MessageInstance entry : _referenceList)
+        {
+            verify(entry).release();
+        }
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.protocol.v0_8;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.mockito.ArgumentCaptor;
+
+import org.apache.qpid.framing.AMQFrame;
+import org.apache.qpid.framing.AMQMethodBody;
+import org.apache.qpid.framing.AMQShortString;
+import org.apache.qpid.framing.BasicContentHeaderProperties;
+import org.apache.qpid.framing.ContentBody;
+import org.apache.qpid.framing.ContentHeaderBody;
+import org.apache.qpid.framing.MessagePublishInfo;
+import org.apache.qpid.framing.MethodRegistry;
+import org.apache.qpid.framing.ProtocolVersion;
+import org.apache.qpid.server.message.MessageContentSource;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class ProtocolOutputConverterImplTest extends QpidTestCase
+{
+    private static final int CHANNEL_ID = 3;
+    private static final int MAX_FRAME_SIZE = 100 + AMQFrame.getFrameOverhead();
+
+    private AMQProtocolEngine _connection;
+    private ProtocolOutputConverterImpl _converter;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _connection = mock(AMQProtocolEngine.class);
+        when(_connection.getMethodRegistry()).thenReturn(new MethodRegistry(ProtocolVersion.v0_91));
+        when(_connection.getMaxFrameSize()).thenReturn((long) MAX_FRAME_SIZE);
+        _converter = new ProtocolOutputConverterImpl(_connection);
+    }
+
+    public void testContentWrittenAsReadOnlyViewsOfMessageContent() throws Exception
+    {
+        byte[] content = new byte[250];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) i;
+        }
+
+        _converter.writeReturn(new MessagePublishInfo(AMQShortString.valueOf("exchange"), false, true,
+                                                      AMQShortString.valueOf("routingKey")),
+                               new ContentHeaderBody(new BasicContentHeaderProperties(), content.length),
+                               new ByteArrayContentSource(content),
+                               CHANNEL_ID,
+                               312,
+                               AMQShortString.valueOf("NO_ROUTE"));
+
+        ArgumentCaptor<ByteBuffer[]> captor = ArgumentCaptor.forClass(ByteBuffer[].class);
+        verify(_connection).writeBuffers(captor.capture());
+        ByteBuffer[] buffers = captor.getValue();
+
+        assertEquals("Unexpected number of buffers", 7, buffers.length);
+        for (int i = 1; i < buffers.length; i += 2)
+        {
+            assertTrue("Content buffer " + i + " is not a read-only view", buffers[i].isReadOnly());
+        }
+
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        for (ByteBuffer buffer : buffers)
+        {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            written.write(bytes);
+        }
+
+        ByteBuffer frames = ByteBuffer.wrap(written.toByteArray());
+        List<Byte> frameTypes = new ArrayList<Byte>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (frames.hasRemaining())
+        {
+            byte type = frames.get();
+            assertEquals("Unexpected channel", CHANNEL_ID, frames.getShort());
+            int size = frames.getInt();
+            assertTrue("Frame exceeds maximum frame size", size <= MAX_FRAME_SIZE - AMQFrame.getFrameOverhead());
+            byte[] payload = new byte[size];
+            frames.get(payload);
+            assertEquals("Missing frame end", AMQFrame.FRAME_END_BYTE, frames.get());
+
+            frameTypes.add(type);
+            if (type == ContentBody.TYPE)
+            {
+                body.write(payload);
+            }
+        }
+
+        assertEquals("Unexpected frames",
+                     Arrays.asList(AMQMethodBody.TYPE, ContentHeaderBody.TYPE,
+                                   ContentBody.TYPE, ContentBody.TYPE, ContentBody.TYPE),
+                     frameTypes);
+        assertTrue("Unexpected content", Arrays.equals(content, body.toByteArray()));
+    }
+
+    private static class ByteArrayContentSource implements MessageContentSource
+    {
+        private final byte[] _content;
+
+        private ByteArrayContentSource(final byte[] content)
+        {
+            _content = content;
+        }
+
+        @Override
+        public int getContent(final ByteBuffer buf, final int offset)
+        {
+            int size = Math.min(buf.remaining(), _content.length - offset);
+            buf.put(_content, offset, size);
+            return size;
+        }
+
+        @Override
+        public ByteBuffer getContent(final int offset, final int size)
+        {
+            return ByteBuffer.wrap(_content, offset, size);
+        }
+
+        @Override
+        public long getSize()
+        {
+            return _content.length;
+        }
+    }
+}
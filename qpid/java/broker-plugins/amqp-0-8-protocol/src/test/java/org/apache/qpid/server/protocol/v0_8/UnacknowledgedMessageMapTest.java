@@ -23,7 +23,10 @@ package org.apache.qpid.server.protocol.v0_8;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import junit.framework.TestCase;
 
@@ -37,7 +40,7 @@ public class UnacknowledgedMessageMapTest extends TestCase
         final int expectedSize = 5;
         MessageInstance[] msgs = populateMap(map,expectedSize);
         assertEquals(expectedSize,map.size());
-        Collection<MessageInstance> acknowledged = map.acknowledge(100, true);
+        Collection<MessageInstance> acknowledged = acknowledge(map, 100, true);
         assertEquals(expectedSize, acknowledged.size());
         assertEquals(0,map.size());
         for(int i = 0; i < expectedSize; i++)
@@ -54,7 +57,7 @@ public class UnacknowledgedMessageMapTest extends TestCase
         assertEquals(expectedSize,map.size());
 
 
-        acknowledged = map.acknowledge(100, true);
+        acknowledged = acknowledge(map, 100, true);
         assertEquals(expectedSize-2, acknowledged.size());
         assertEquals(0,map.size());
         for(int i = 0; i < expectedSize; i++)
@@ -64,6 +67,101 @@ public class UnacknowledgedMessageMapTest extends TestCase
 
     }
 
+    public void testMultipleAcknowledgeUpToDeliveryTag()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(4);
+        MessageInstance[] msgs = populateMap(map, 10);
+
+        Collection<MessageInstance> acknowledged = acknowledge(map, 5, true);
+        assertEquals(Arrays.asList(msgs).subList(0, 6), acknowledged);
+        assertEquals(4, map.size());
+        assertNull(map.get(5));
+        assertSame(msgs[6], map.get(6));
+
+        acknowledged = acknowledge(map, 8, false);
+        assertEquals(Arrays.asList(msgs[8]), acknowledged);
+        assertEquals(Arrays.asList(6L, 7L, 9L), new ArrayList<>(map.getDeliveryTags()));
+
+        acknowledged = acknowledge(map, 0, true);
+        assertEquals(Arrays.asList(msgs[6], msgs[7], msgs[9]), acknowledged);
+        assertEquals(0, map.size());
+    }
+
+    public void testUnacknowledgedStragglerDoesNotPreventLaterDeliveries()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(16);
+        MessageInstance straggler = createMessageInstance(1);
+        map.add(1L, straggler);
+
+        List<MessageInstance> later = new ArrayList<>();
+        for (long tag = 2; tag < 1000; tag++)
+        {
+            MessageInstance instance = createMessageInstance((int) tag);
+            later.add(instance);
+            map.add(tag, instance);
+            assertEquals(Arrays.asList(instance), acknowledge(map, tag, false));
+        }
+
+        assertEquals(1, map.size());
+        assertSame(straggler, map.get(1L));
+
+        MessageInstance last = createMessageInstance(1000);
+        map.add(1000L, last);
+        assertEquals(Arrays.asList(straggler, last), acknowledge(map, 1000, true));
+        assertEquals(0, map.size());
+    }
+
+    public void testRemoveAllVisitsInDeliveryTagOrder()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(4);
+        final MessageInstance[] msgs = populateMap(map, 40);
+        map.remove(10);
+        map.remove(0);
+
+        final List<Long> visited = new ArrayList<>();
+        map.removeAll(new UnacknowledgedMessageMap.Visitor()
+        {
+            @Override
+            public boolean callback(final long deliveryTag, final MessageInstance message)
+            {
+                assertSame(msgs[(int) deliveryTag], message);
+                visited.add(deliveryTag);
+                return false;
+            }
+
+            @Override
+            public void visitComplete()
+            {
+            }
+        });
+
+        assertEquals(38, visited.size());
+        assertEquals(Long.valueOf(1L), visited.get(0));
+        assertFalse(visited.contains(10L));
+        assertEquals(Long.valueOf(39L), visited.get(37));
+        assertEquals(0, map.size());
+    }
+
+    private List<MessageInstance> acknowledge(UnacknowledgedMessageMap map, long deliveryTag, boolean multiple)
+    {
+        final List<MessageInstance> acknowledged = new ArrayList<>();
+        map.acknowledge(deliveryTag, multiple, new UnacknowledgedMessageMap.Visitor()
+        {
+            @Override
+            public boolean callback(final long deliveryTag, final MessageInstance message)
+            {
+                acknowledged.add(message);
+                return false;
+            }
+
+            @Override
+            public void visitComplete()
+            {
+            }
+        });
+        return acknowledged;
+    }
+
     public MessageInstance[] populateMap(final UnacknowledgedMessageMap map, int size)
     {
         MessageInstance[] msgs = new MessageInstance[size];
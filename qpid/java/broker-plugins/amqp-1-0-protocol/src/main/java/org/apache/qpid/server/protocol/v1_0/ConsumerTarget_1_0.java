@@ -44,7 +44,6 @@ import org.apache.qpid.server.consumer.AbstractConsumerTarget;
 import org.apache.qpid.server.consumer.ConsumerImpl;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.ServerMessage;
-import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.protocol.AMQSessionModel;
 import org.apache.qpid.server.protocol.MessageConverterRegistry;
 import org.apache.qpid.server.txn.ServerTransaction;
@@ -135,8 +134,7 @@ class ConsumerTarget_1_0 extends AbstractConsumerTarget
         }
         else
         {
-            final MessageConverter converter = MessageConverterRegistry.getConverter(serverMessage.getClass(), Message_1_0.class);
-            message = (Message_1_0) converter.convert(serverMessage, _link.getVirtualHost());
+            message = MessageConverterRegistry.convert(serverMessage, Message_1_0.class, _link.getVirtualHost());
         }
 
         Transfer transfer = new Transfer();
@@ -147,7 +145,8 @@ class ConsumerTarget_1_0 extends AbstractConsumerTarget
         ByteBuffer payload;
         if(fragments.size() == 1)
         {
-            payload = fragments.get(0);
+            // the message may be shared with other deliveries, so the fragment itself must not be consumed
+            payload = fragments.get(0).duplicate();
         }
         else
         {
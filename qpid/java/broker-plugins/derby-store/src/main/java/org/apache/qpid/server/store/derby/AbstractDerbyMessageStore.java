@@ -67,6 +67,8 @@ public abstract class AbstractDerbyMessageStore extends AbstractJDBCMessageStore
             createOrOpenMessageStoreDatabase();
             setInitialSize();
             setMaximumMessageId();
+            setResidentMessageContent(parent);
+            startCommitter(parent.getName());
         }
     }
 
@@ -85,7 +87,14 @@ public abstract class AbstractDerbyMessageStore extends AbstractJDBCMessageStore
     {
         if (_messageStoreOpen.compareAndSet(true,  false))
         {
-            doClose();
+            try
+            {
+                stopCommitter();
+            }
+            finally
+            {
+                doClose();
+            }
         }
     }
 
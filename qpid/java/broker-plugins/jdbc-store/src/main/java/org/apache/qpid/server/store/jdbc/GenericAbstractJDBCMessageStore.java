@@ -46,6 +46,8 @@ public abstract class GenericAbstractJDBCMessageStore extends org.apache.qpid.se
 
             createOrOpenMessageStoreDatabase();
             setMaximumMessageId();
+            setResidentMessageContent(parent);
+            startCommitter(parent.getName());
         }
     }
 
@@ -75,7 +77,14 @@ public abstract class GenericAbstractJDBCMessageStore extends org.apache.qpid.se
             }
             finally
             {
-                doClose();
+                try
+                {
+                    stopCommitter();
+                }
+                finally
+                {
+                    doClose();
+                }
             }
 
         }
@@ -28,12 +28,26 @@ import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 
+import org.apache.qpid.server.message.EnqueueableMessage;
+import org.apache.qpid.server.model.UUIDGenerator;
 import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.store.MessageDurability;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.MessageStoreTestCase;
+import org.apache.qpid.server.store.StoreException;
+import org.apache.qpid.server.store.StoreFuture;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.server.store.TestMessageMetaData;
+import org.apache.qpid.server.store.Transaction;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.store.handler.MessageInstanceHandler;
 import org.apache.qpid.server.virtualhost.jdbc.JDBCVirtualHost;
 
 public class JDBCMessageStoreTest extends MessageStoreTestCase
@@ -63,6 +77,106 @@ public class JDBCMessageStoreTest extends MessageStoreTestCase
         assertTablesExist(expectedTables, false);
     }
 
+    public void testConcurrentAsynchronousCommits() throws Exception
+    {
+        final TransactionLogResource queue = createQueue("concurrent");
+        final int threadCount = 8;
+        final int transactionsPerThread = 50;
+        final List<StoreFuture> futures = new ArrayList<StoreFuture>();
+        final List<EnqueueableMessage> messages = new ArrayList<EnqueueableMessage>();
+        for (int i = 0; i < threadCount * transactionsPerThread; i++)
+        {
+            messages.add(createMessage());
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++)
+        {
+            final int firstMessage = i * transactionsPerThread;
+            threads[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int j = firstMessage; j < firstMessage + transactionsPerThread; j++)
+                    {
+                        Transaction txn = getStore().newTransaction();
+                        txn.enqueueMessage(queue, messages.get(j));
+                        StoreFuture future = txn.commitTranAsync();
+                        synchronized (futures)
+                        {
+                            futures.add(future);
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        for (StoreFuture future : futures)
+        {
+            future.waitForCompletion();
+        }
+
+        assertEquals("Unexpected number of committed transactions", messages.size(), futures.size());
+        assertEquals("Unexpected number of enqueued messages", messages.size(), getEnqueuedMessageIds(queue).size());
+
+        reopenStore();
+
+        assertEquals("Unexpected number of enqueued messages after reopening", messages.size(),
+                     getEnqueuedMessageIds(queue).size());
+    }
+
+    public void testFailedTransactionDoesNotAffectTransactionsCommittedWithIt() throws Exception
+    {
+        TransactionLogResource queue = createQueue("failing");
+        EnqueueableMessage message1 = createMessage();
+        EnqueueableMessage message2 = createMessage();
+        EnqueueableMessage notEnqueued = createMessage();
+
+        Transaction txn1 = getStore().newTransaction();
+        txn1.enqueueMessage(queue, message1);
+        Transaction txn2 = getStore().newTransaction();
+        txn2.dequeueMessage(queue, notEnqueued);
+        Transaction txn3 = getStore().newTransaction();
+        txn3.enqueueMessage(queue, message2);
+
+        StoreFuture future1 = txn1.commitTranAsync();
+        StoreFuture future2 = txn2.commitTranAsync();
+        StoreFuture future3 = txn3.commitTranAsync();
+
+        future1.waitForCompletion();
+        future3.waitForCompletion();
+        try
+        {
+            future2.waitForCompletion();
+            fail("Dequeue of a message not on the queue should fail");
+        }
+        catch (StoreException e)
+        {
+            // pass
+        }
+
+        Set<Long> enqueuedIds = getEnqueuedMessageIds(queue);
+        assertEquals("Unexpected number of enqueued messages", 2, enqueuedIds.size());
+        assertTrue("Message 1 not enqueued", enqueuedIds.contains(message1.getMessageNumber()));
+        assertTrue("Message 2 not enqueued", enqueuedIds.contains(message2.getMessageNumber()));
+    }
+
     @Override
     protected VirtualHost createVirtualHost()
     {
@@ -82,6 +196,75 @@ public class JDBCMessageStoreTest extends MessageStoreTestCase
         return new GenericJDBCMessageStore();
     }
 
+    private TransactionLogResource createQueue(final String name)
+    {
+        final UUID id = UUIDGenerator.generateRandomUUID();
+        return new TransactionLogResource()
+        {
+            @Override
+            public String getName()
+            {
+                return name;
+            }
+
+            @Override
+            public UUID getId()
+            {
+                return id;
+            }
+
+            @Override
+            public MessageDurability getMessageDurability()
+            {
+                return MessageDurability.DEFAULT;
+            }
+        };
+    }
+
+    private EnqueueableMessage createMessage()
+    {
+        final StoredMessage<TestMessageMetaData> storedMessage =
+                getStore().addMessage(new TestMessageMetaData(0, 0));
+        return new EnqueueableMessage()
+        {
+            @Override
+            public long getMessageNumber()
+            {
+                return storedMessage.getMessageNumber();
+            }
+
+            @Override
+            public boolean isPersistent()
+            {
+                return true;
+            }
+
+            @Override
+            public StoredMessage getStoredMessage()
+            {
+                return storedMessage;
+            }
+        };
+    }
+
+    private Set<Long> getEnqueuedMessageIds(final TransactionLogResource queue)
+    {
+        final Set<Long> enqueuedIds = new HashSet<Long>();
+        getStore().visitMessageInstances(new MessageInstanceHandler()
+        {
+            @Override
+            public boolean handle(final UUID queueId, final long messageId)
+            {
+                if (queueId.equals(queue.getId()))
+                {
+                    enqueuedIds.add(messageId);
+                }
+                return true;
+            }
+        });
+        return enqueuedIds;
+    }
+
     private void assertTablesExist(Set<String> expectedTables, boolean exists) throws SQLException
     {
         Set<String> existingTables = getTableNames();
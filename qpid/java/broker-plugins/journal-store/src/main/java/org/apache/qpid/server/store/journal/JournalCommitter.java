@@ -0,0 +1,291 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.log4j.Logger;
+
+import org.apache.qpid.server.store.StoreException;
+import org.apache.qpid.server.store.StoreFuture;
+
+/**
+ * Appends the work of concurrent transactions to the journal together, from a dedicated thread, forcing the journal
+ * to disk once for each group rather than once for each transaction.
+ * <p>
+ * Work handed to the committer is queued, and the commit thread takes everything queued since its last commit (up
+ * to a maximum group size) and has the {@link GroupWriter} append it to the journal as a single record. While a group
+ * is being written and forced the next one accumulates, so the number of forces falls as the load rises. Work is
+ * written in the order it was handed to the committer. Work the writer declares exclusive is written in a group of
+ * its own, after every group queued before it has been written.
+ *
+ * @param <W> the type of work committed
+ */
+final class JournalCommitter<W>
+{
+    private static final Logger LOGGER = Logger.getLogger(JournalCommitter.class);
+
+    interface GroupWriter<W>
+    {
+        /**
+         * Appends the given work to the journal, forcing it to disk if any of the work requires it.
+         */
+        void write(List<W> group);
+
+        /**
+         * @return true if the work must be written in a group of its own
+         */
+        boolean isExclusive(W work);
+    }
+
+    private final CommitThread<W> _commitThread;
+
+    JournalCommitter(String name, GroupWriter<W> writer, int maxGroupSize)
+    {
+        _commitThread = new CommitThread<W>("Journal-Commit-Thread-" + name, writer, maxGroupSize);
+    }
+
+    void start()
+    {
+        _commitThread.start();
+    }
+
+    /**
+     * Stops accepting work, writes the work already queued and waits for the commit thread to finish.
+     */
+    void stop()
+    {
+        _commitThread.close();
+        if (Thread.currentThread() != _commitThread)
+        {
+            try
+            {
+                _commitThread.join();
+            }
+            catch (InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+                throw new StoreException("Commit thread has not shutdown", ie);
+            }
+        }
+    }
+
+    /**
+     * @param work the work to commit
+     * @param sync if true, waits for the work to be written and rethrows any failure to write it
+     * @return a future which completes once the work has been written, or has failed to be
+     */
+    StoreFuture commit(W work, boolean sync)
+    {
+        JournalCommitFuture<W> future = new JournalCommitFuture<W>(work);
+        _commitThread.addJob(future);
+        if (sync)
+        {
+            future.waitForCompletion();
+        }
+        return future;
+    }
+
+    private static final class JournalCommitFuture<W> implements StoreFuture
+    {
+        private final W _work;
+        private RuntimeException _exception;
+        private boolean _complete;
+
+        private JournalCommitFuture(W work)
+        {
+            _work = work;
+        }
+
+        W getWork()
+        {
+            return _work;
+        }
+
+        synchronized void complete()
+        {
+            _complete = true;
+            notifyAll();
+        }
+
+        synchronized void abort(RuntimeException exception)
+        {
+            _complete = true;
+            _exception = exception;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized boolean isComplete()
+        {
+            return _complete;
+        }
+
+        /**
+         * @throws StoreException if the work could not be written
+         */
+        @Override
+        public synchronized void waitForCompletion()
+        {
+            while (!_complete)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new StoreException(e);
+                }
+            }
+
+            if (_exception != null)
+            {
+                throw _exception;
+            }
+        }
+    }
+
+    private static final class CommitThread<W> extends Thread
+    {
+        private final Queue<JournalCommitFuture<W>> _jobQueue = new ConcurrentLinkedQueue<JournalCommitFuture<W>>();
+        private final Object _lock = new Object();
+        private final GroupWriter<W> _writer;
+        private final int _maxGroupSize;
+        private boolean _stopped;
+
+        private CommitThread(String name, GroupWriter<W> writer, int maxGroupSize)
+        {
+            super(name);
+            _writer = writer;
+            _maxGroupSize = maxGroupSize;
+        }
+
+        @Override
+        public void run()
+        {
+            while (true)
+            {
+                synchronized (_lock)
+                {
+                    while (!_stopped && _jobQueue.isEmpty())
+                    {
+                        try
+                        {
+                            _lock.wait();
+                        }
+                        catch (InterruptedException e)
+                        {
+                            // only stopped by close
+                        }
+                    }
+                    if (_stopped && _jobQueue.isEmpty())
+                    {
+                        return;
+                    }
+                }
+                processJobs();
+            }
+        }
+
+        private void processJobs()
+        {
+            List<JournalCommitFuture<W>> group = new ArrayList<JournalCommitFuture<W>>();
+            JournalCommitFuture<W> job;
+            while (group.size() < _maxGroupSize && (job = _jobQueue.peek()) != null)
+            {
+                if (_writer.isExclusive(job.getWork()))
+                {
+                    if (group.isEmpty())
+                    {
+                        group.add(_jobQueue.poll());
+                    }
+                    break;
+                }
+                group.add(_jobQueue.poll());
+            }
+
+            List<W> work = new ArrayList<W>(group.size());
+            for (JournalCommitFuture<W> groupJob : group)
+            {
+                work.add(groupJob.getWork());
+            }
+
+            long startTime = 0;
+            if (LOGGER.isDebugEnabled())
+            {
+                startTime = System.currentTimeMillis();
+            }
+
+            try
+            {
+                _writer.write(work);
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.error("Failed to write group of " + group.size() + " transactions to the journal", e);
+                for (JournalCommitFuture<W> groupJob : group)
+                {
+                    groupJob.abort(e);
+                }
+                return;
+            }
+
+            if (LOGGER.isDebugEnabled())
+            {
+                long duration = System.currentTimeMillis() - startTime;
+                LOGGER.debug("Wrote group of " + group.size() + " transactions in " + duration + " ms");
+            }
+
+            for (JournalCommitFuture<W> groupJob : group)
+            {
+                groupJob.complete();
+            }
+        }
+
+        private void addJob(JournalCommitFuture<W> job)
+        {
+            synchronized (_lock)
+            {
+                if (_stopped)
+                {
+                    job.abort(new StoreException("Message store is closed"));
+                    return;
+                }
+                _jobQueue.add(job);
+                _lock.notify();
+            }
+        }
+
+        private void close()
+        {
+            synchronized (_lock)
+            {
+                _stopped = true;
+                _lock.notifyAll();
+            }
+        }
+    }
+}
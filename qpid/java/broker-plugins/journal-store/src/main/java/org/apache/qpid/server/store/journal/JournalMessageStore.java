@@ -0,0 +1,1788 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.journal;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import org.apache.qpid.server.message.EnqueueableMessage;
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.plugin.MessageMetaDataType;
+import org.apache.qpid.server.store.Event;
+import org.apache.qpid.server.store.EventListener;
+import org.apache.qpid.server.store.EventManager;
+import org.apache.qpid.server.store.FileBasedSettings;
+import org.apache.qpid.server.store.MessageDurability;
+import org.apache.qpid.server.store.MessageMetaDataTypeRegistry;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.ResidentMessageContent;
+import org.apache.qpid.server.store.SizeMonitoringSettings;
+import org.apache.qpid.server.store.StorableMessageMetaData;
+import org.apache.qpid.server.store.StoreException;
+import org.apache.qpid.server.store.StoreFuture;
+import org.apache.qpid.server.store.StoredMemoryMessage;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.server.store.Transaction;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.store.Xid;
+import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
+import org.apache.qpid.server.store.handler.MessageHandler;
+import org.apache.qpid.server.store.handler.MessageInstanceHandler;
+import org.apache.qpid.util.FileUtils;
+
+/**
+ * A message store which appends every change to a journal of preallocated segment files, rather than updating
+ * records in place.
+ * <p>
+ * The changes of concurrently committing transactions are appended by the {@link JournalCommitter} as a single
+ * checksummed record, and the segment is forced once for the whole group. The store keeps the position in the journal
+ * of each live message, queue entry and distributed transaction in memory: the journal is replayed into this index
+ * when the store is opened, and message content which has flowed to disk, or which was recovered, is read back
+ * through the segment's mapping rather than copied onto the heap.
+ * <p>
+ * Removals are appended as tombstones. A background task compacts segments whose records are mostly dead by
+ * appending their live records, and any tombstones still needed to hide older records, to the head of the journal,
+ * and then deleting them.
+ */
+public class JournalMessageStore implements MessageStore
+{
+    private static final Logger LOGGER = Logger.getLogger(JournalMessageStore.class);
+
+    public static final String SEGMENT_SIZE = "qpid.journalstore.segmentSize";
+    public static final String MAX_COMMIT_GROUP_SIZE = "qpid.journalstore.maxCommitGroupSize";
+    public static final String COMPACTION_THRESHOLD = "qpid.journalstore.compactionThreshold";
+    public static final String COMPACTION_INTERVAL = "qpid.journalstore.compactionInterval";
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024L * 1024L;
+    public static final int DEFAULT_MAX_COMMIT_GROUP_SIZE = 256;
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 50;
+    public static final long DEFAULT_COMPACTION_INTERVAL = 10000L;
+
+    private static final String LOCK_FILE_NAME = "journal.lck";
+
+    static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAX_RETAINED_WRITE_BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_RELOCATION_SIZE = 1024 * 1024;
+
+    private static final byte MESSAGE = 1;
+    private static final byte ENQUEUE = 2;
+    private static final byte DEQUEUE = 3;
+    private static final byte REMOVE_MESSAGE = 4;
+    private static final byte RECORD_XID = 5;
+    private static final byte REMOVE_XID = 6;
+
+    private static final int ENTRY_SIZE = 1 + 16 + 8;
+    private static final int ENTRY_RECORD_SIZE = 16 + 8;
+
+    private final AtomicBoolean _messageStoreOpen = new AtomicBoolean();
+    private final AtomicLong _messageId = new AtomicLong();
+    private final EventManager _eventManager = new EventManager();
+
+    private final ConcurrentMap<Long, MessageRecord> _messages = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UUID, ConcurrentNavigableMap<Long, JournalSegment>> _queueEntries =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<Xid, XidRecord> _xids = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, JournalSegment> _segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong _liveBytes = new AtomicLong();
+
+    private ConfiguredObject<?> _parent;
+    private volatile ResidentMessageContent _residentMessageContent = new ResidentMessageContent();
+    private File _storeDirectory;
+    private RandomAccessFile _lockFile;
+    private FileLock _lock;
+
+    private long _segmentSize;
+    private int _compactionThreshold;
+    private long _persistentSizeLowThreshold;
+    private long _persistentSizeHighThreshold;
+    private boolean _limitBusted;
+
+    private JournalCommitter<PendingWork> _committer;
+    private ScheduledExecutorService _compactionExecutor;
+
+    private volatile JournalSegment _currentSegment;
+    private long _nextSegmentNumber;
+    private ByteBuffer _writeBuffer;
+
+    @Override
+    public void openMessageStore(final ConfiguredObject<?> parent)
+    {
+        if (_messageStoreOpen.compareAndSet(false, true))
+        {
+            _parent = parent;
+            _residentMessageContent = ResidentMessageContent.forParent(parent);
+            _storeDirectory = new File(((FileBasedSettings) parent).getStorePath());
+            if (!_storeDirectory.isDirectory() && !_storeDirectory.mkdirs())
+            {
+                _messageStoreOpen.set(false);
+                throw new StoreException("Cannot create journal directory " + _storeDirectory.getAbsolutePath());
+            }
+
+            _segmentSize = Math.min(getContextValue(parent, Long.class, SEGMENT_SIZE, DEFAULT_SEGMENT_SIZE),
+                                    (long) Integer.MAX_VALUE);
+            _compactionThreshold =
+                    getContextValue(parent, Integer.class, COMPACTION_THRESHOLD, DEFAULT_COMPACTION_THRESHOLD);
+            int maxCommitGroupSize =
+                    getContextValue(parent, Integer.class, MAX_COMMIT_GROUP_SIZE, DEFAULT_MAX_COMMIT_GROUP_SIZE);
+            long compactionInterval =
+                    getContextValue(parent, Long.class, COMPACTION_INTERVAL, DEFAULT_COMPACTION_INTERVAL);
+
+            if (parent instanceof SizeMonitoringSettings)
+            {
+                final SizeMonitoringSettings sizeMonitorSettings = (SizeMonitoringSettings) parent;
+                _persistentSizeHighThreshold = sizeMonitorSettings.getStoreOverfullSize();
+                _persistentSizeLowThreshold = sizeMonitorSettings.getStoreUnderfullSize();
+
+                if (_persistentSizeLowThreshold > _persistentSizeHighThreshold || _persistentSizeLowThreshold < 0l)
+                {
+                    _persistentSizeLowThreshold = _persistentSizeHighThreshold;
+                }
+            }
+
+            try
+            {
+                lockStoreDirectory();
+                recover();
+            }
+            catch (RuntimeException e)
+            {
+                closeSegments();
+                releaseStoreDirectory();
+                _messageStoreOpen.set(false);
+                throw e;
+            }
+
+            _committer = new JournalCommitter<>(parent.getName(), new JournalWriter(), maxCommitGroupSize);
+            _committer.start();
+
+            _compactionExecutor = Executors.newSingleThreadScheduledExecutor(new CompactionThreadFactory(parent.getName()));
+            _compactionExecutor.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        compact();
+                    }
+                    catch (RuntimeException e)
+                    {
+                        LOGGER.error("Failed to compact journal " + _storeDirectory.getAbsolutePath(), e);
+                    }
+                }
+            }, compactionInterval, compactionInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static <T> T getContextValue(ConfiguredObject<?> parent, Class<T> type, String name, T defaultValue)
+    {
+        return parent.getContextKeys(false).contains(name) ? parent.getContextValue(type, name) : defaultValue;
+    }
+
+    @Override
+    public void upgradeStoreStructure() throws StoreException
+    {
+        checkMessageStoreOpen();
+    }
+
+    @Override
+    public void closeMessageStore()
+    {
+        if (_messageStoreOpen.compareAndSet(true, false))
+        {
+            try
+            {
+                _compactionExecutor.shutdown();
+                try
+                {
+                    _compactionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                _committer.stop();
+            }
+            finally
+            {
+                closeSegments();
+                releaseStoreDirectory();
+            }
+        }
+    }
+
+    private void lockStoreDirectory()
+    {
+        File lockFile = new File(_storeDirectory, LOCK_FILE_NAME);
+        try
+        {
+            _lockFile = new RandomAccessFile(lockFile, "rw");
+            _lock = _lockFile.getChannel().tryLock();
+        }
+        catch (IOException e)
+        {
+            throw new StoreException("Cannot lock journal directory " + _storeDirectory.getAbsolutePath(), e);
+        }
+        if (_lock == null)
+        {
+            throw new StoreException("Cannot lock journal directory " + _storeDirectory.getAbsolutePath()
+                                     + ", it is in use by another broker");
+        }
+    }
+
+    private void releaseStoreDirectory()
+    {
+        try
+        {
+            if (_lock != null)
+            {
+                _lock.release();
+                _lock = null;
+            }
+            if (_lockFile != null)
+            {
+                _lockFile.close();
+                _lockFile = null;
+            }
+        }
+        catch (IOException e)
+        {
+            LOGGER.warn("Cannot release lock on journal directory " + _storeDirectory.getAbsolutePath(), e);
+        }
+    }
+
+    private void closeSegments()
+    {
+        for (JournalSegment segment : _segments.values())
+        {
+            try
+            {
+                segment.close();
+            }
+            catch (StoreException e)
+            {
+                LOGGER.warn("Cannot close " + segment, e);
+            }
+        }
+        _segments.clear();
+        _currentSegment = null;
+    }
+
+    private void checkMessageStoreOpen()
+    {
+        if (!_messageStoreOpen.get())
+        {
+            throw new IllegalStateException("Message store is not open");
+        }
+    }
+
+    /**
+     * Replays every segment in the store directory, oldest first, into the index of live records. Each segment is
+     * read up to the end of its last complete record; a record torn by a failure while it was being written fails its
+     * checksum and ends the segment. The store never appends to a recovered segment.
+     */
+    private void recover()
+    {
+        File[] files = _storeDirectory.listFiles(new FileFilter()
+        {
+            @Override
+            public boolean accept(File file)
+            {
+                return file.isFile() && file.getName().endsWith(JournalSegment.FILE_SUFFIX);
+            }
+        });
+
+        SortedMap<Long, File> segmentFiles = new TreeMap<>();
+        for (File file : files == null ? new File[0] : files)
+        {
+            String name = file.getName();
+            try
+            {
+                segmentFiles.put(Long.parseLong(name.substring(0, name.length() - JournalSegment.FILE_SUFFIX.length())),
+                                 file);
+            }
+            catch (NumberFormatException e)
+            {
+                LOGGER.warn("Ignoring unexpected file " + file.getAbsolutePath() + " in journal directory");
+            }
+        }
+
+        for (Map.Entry<Long, File> entry : segmentFiles.entrySet())
+        {
+            JournalSegment segment = JournalSegment.open(entry.getValue(), entry.getKey());
+            _segments.put(segment.getNumber(), segment);
+            segment.seal(replay(segment));
+            _nextSegmentNumber = segment.getNumber() + 1;
+        }
+
+        if (LOGGER.isInfoEnabled())
+        {
+            LOGGER.info("Recovered " + _messages.size() + " messages and " + _xids.size()
+                        + " distributed transactions from " + _segments.size() + " journal segments in "
+                        + _storeDirectory.getAbsolutePath());
+        }
+    }
+
+    /**
+     * @return the position in the segment following its last complete record
+     */
+    private long replay(JournalSegment segment)
+    {
+        long position = JournalSegment.HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= segment.getCapacity())
+        {
+            ByteBuffer header = segment.read(position, RECORD_HEADER_SIZE);
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > segment.getCapacity())
+            {
+                break;
+            }
+
+            ByteBuffer body = segment.read(position + RECORD_HEADER_SIZE, length);
+            if (checksum(body) != checksum)
+            {
+                LOGGER.warn("Discarding incomplete record at position " + position + " of " + segment);
+                break;
+            }
+
+            long bodyPosition = position + RECORD_HEADER_SIZE;
+            while (body.hasRemaining())
+            {
+                int opOffset = body.position();
+                readOp(body).apply(segment, bodyPosition + opOffset);
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private static int checksum(ByteBuffer buffer)
+    {
+        CRC32 crc = new CRC32();
+        if (buffer.hasArray())
+        {
+            crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        else
+        {
+            ByteBuffer source = buffer.duplicate();
+            byte[] chunk = new byte[Math.min(8192, source.remaining())];
+            while (source.hasRemaining())
+            {
+                int length = Math.min(chunk.length, source.remaining());
+                source.get(chunk, 0, length);
+                crc.update(chunk, 0, length);
+            }
+        }
+        return (int) crc.getValue();
+    }
+
+    private JournalOp readOp(ByteBuffer body)
+    {
+        byte type = body.get();
+        switch (type)
+        {
+            case MESSAGE:
+                long messageId = body.getLong();
+                ByteBuffer metaData = slice(body, body.getInt());
+                ByteBuffer content = slice(body, body.getInt());
+                return new MessageOp(messageId, metaData, content);
+            case ENQUEUE:
+                return new EnqueueOp(readUUID(body), body.getLong());
+            case DEQUEUE:
+                return new DequeueOp(readUUID(body), body.getLong(), body.getLong());
+            case REMOVE_MESSAGE:
+                return new RemoveMessageOp(body.getLong(), body.getLong());
+            case RECORD_XID:
+                Xid xid = readXid(body);
+                RecordImpl[] enqueues = readRecords(body);
+                RecordImpl[] dequeues = readRecords(body);
+                return new RecordXidOp(xid, enqueues, dequeues);
+            case REMOVE_XID:
+                return new RemoveXidOp(readXid(body), body.getLong());
+            default:
+                throw new StoreException("Unknown journal operation " + type);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length)
+    {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    private static UUID readUUID(ByteBuffer buffer)
+    {
+        long mostSignificantBits = buffer.getLong();
+        return new UUID(mostSignificantBits, buffer.getLong());
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static Xid readXid(ByteBuffer buffer)
+    {
+        long format = buffer.getLong();
+        byte[] globalId = readBytes(buffer);
+        return new Xid(format, globalId, readBytes(buffer));
+    }
+
+    private static RecordImpl[] readRecords(ByteBuffer buffer)
+    {
+        RecordImpl[] records = new RecordImpl[buffer.getInt()];
+        for (int i = 0; i < records.length; i++)
+        {
+            UUID queueId = readUUID(buffer);
+            records[i] = new RecordImpl(queueId, buffer.getLong());
+        }
+        return records;
+    }
+
+    @Override
+    public long getNextMessageId()
+    {
+        return _messageId.incrementAndGet();
+    }
+
+    @Override
+    public String getStoreLocation()
+    {
+        return ((FileBasedSettings) _parent).getStorePath();
+    }
+
+    @Override
+    public File getStoreLocationAsFile()
+    {
+        return new File(getStoreLocation());
+    }
+
+    @Override
+    public void addEventListener(final EventListener eventListener, final Event... events)
+    {
+        _eventManager.addEventListener(eventListener, events);
+    }
+
+    @Override
+    public <T extends StorableMessageMetaData> StoredMessage<T> addMessage(final T metaData)
+    {
+        checkMessageStoreOpen();
+
+        long messageId = getNextMessageId();
+        if (metaData.isPersistent())
+        {
+            return new StoredJournalMessage<>(messageId, metaData);
+        }
+        return new StoredMemoryMessage<>(messageId, metaData);
+    }
+
+    @Override
+    public StoredMessage<?> getMessage(final long messageId)
+    {
+        checkMessageStoreOpen();
+
+        return _messages.containsKey(messageId) ? new StoredJournalMessage<>(messageId) : null;
+    }
+
+    @Override
+    public boolean isPersistent()
+    {
+        return true;
+    }
+
+    @Override
+    public Transaction newTransaction()
+    {
+        checkMessageStoreOpen();
+
+        return new JournalTransaction();
+    }
+
+    @Override
+    public void visitMessages(final MessageHandler handler) throws StoreException
+    {
+        checkMessageStoreOpen();
+
+        for (Long messageId : _messages.keySet())
+        {
+            if (!handler.handle(new StoredJournalMessage<>(messageId)))
+            {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void visitMessageInstances(final MessageInstanceHandler handler) throws StoreException
+    {
+        checkMessageStoreOpen();
+
+        for (Map.Entry<UUID, ConcurrentNavigableMap<Long, JournalSegment>> entries : _queueEntries.entrySet())
+        {
+            if (!visitMessageInstances(entries.getKey(), entries.getValue(), handler))
+            {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void visitMessageInstances(final TransactionLogResource queue, final MessageInstanceHandler handler)
+            throws StoreException
+    {
+        checkMessageStoreOpen();
+
+        ConcurrentNavigableMap<Long, JournalSegment> entries = _queueEntries.get(queue.getId());
+        if (entries != null)
+        {
+            visitMessageInstances(queue.getId(), entries, handler);
+        }
+    }
+
+    private boolean visitMessageInstances(UUID queueId,
+                                          ConcurrentNavigableMap<Long, JournalSegment> entries,
+                                          MessageInstanceHandler handler)
+    {
+        for (Long messageId : entries.keySet())
+        {
+            if (!handler.handle(queueId, messageId))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void visitDistributedTransactions(final DistributedTransactionHandler handler) throws StoreException
+    {
+        checkMessageStoreOpen();
+
+        for (Map.Entry<Xid, XidRecord> entry : _xids.entrySet())
+        {
+            Xid xid = entry.getKey();
+            XidRecord record = entry.getValue();
+            if (!handler.handle(xid.getFormat(), xid.getGlobalId(), xid.getBranchId(),
+                                record._enqueues, record._dequeues))
+            {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void onDelete(final ConfiguredObject<?> parent)
+    {
+        if (isMessageStoreOpen())
+        {
+            throw new IllegalStateException("Cannot delete the store as store is still open");
+        }
+
+        FileBasedSettings fileBasedSettings = (FileBasedSettings) parent;
+        String storePath = fileBasedSettings.getStorePath();
+
+        if (storePath != null)
+        {
+            if (LOGGER.isDebugEnabled())
+            {
+                LOGGER.debug("Deleting store " + storePath);
+            }
+
+            File storeFile = new File(storePath);
+            if (!FileUtils.delete(storeFile, true))
+            {
+                LOGGER.info("Failed to delete the store at location " + storePath);
+            }
+        }
+    }
+
+    private boolean isMessageStoreOpen()
+    {
+        return _messageStoreOpen.get();
+    }
+
+    /**
+     * @return the number of bytes of the journal holding records which are still live
+     */
+    long getLiveBytes()
+    {
+        return _liveBytes.get();
+    }
+
+    /**
+     * @return the number of segments making up the journal
+     */
+    int getSegmentCount()
+    {
+        return _segments.size();
+    }
+
+    /**
+     * Compacts every segment, other than the one being written, in which the proportion of live bytes has fallen to
+     * the compaction threshold, oldest first.
+     */
+    synchronized void compact()
+    {
+        for (JournalSegment segment : _segments.values())
+        {
+            if (!isMessageStoreOpen())
+            {
+                return;
+            }
+
+            long writtenBytes = segment.getWritePosition() - JournalSegment.HEADER_SIZE;
+            if (segment.isSealed()
+                && segment != _currentSegment
+                && segment.getLiveBytes() * 100L <= writtenBytes * _compactionThreshold)
+            {
+                compact(segment);
+            }
+        }
+    }
+
+    /**
+     * Appends the records of the segment which are still needed to the head of the journal and deletes the segment.
+     * Whether a record is still needed is decided again by the commit thread as it appends it, since it may have
+     * died in the meantime.
+     */
+    private void compact(JournalSegment segment)
+    {
+        List<JournalOp> relocations = new ArrayList<>();
+        int relocationSize = 0;
+        long position = JournalSegment.HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= segment.getWritePosition())
+        {
+            int length = segment.read(position, RECORD_HEADER_SIZE).getInt();
+            ByteBuffer body = segment.read(position + RECORD_HEADER_SIZE, length);
+            while (body.hasRemaining())
+            {
+                JournalOp op = readOp(body);
+                if (op.isNeededAfterCompacting(segment))
+                {
+                    relocations.add(op);
+                    relocationSize += op.getSize();
+                    if (relocationSize >= MAX_RELOCATION_SIZE)
+                    {
+                        relocate(segment, relocations);
+                        relocations = new ArrayList<>();
+                        relocationSize = 0;
+                    }
+                }
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        if (!relocations.isEmpty())
+        {
+            relocate(segment, relocations);
+        }
+
+        if (segment.getLiveBytes() == 0L)
+        {
+            _segments.remove(segment.getNumber());
+            if (!segment.delete())
+            {
+                LOGGER.warn("Failed to delete compacted " + segment);
+            }
+            else if (LOGGER.isDebugEnabled())
+            {
+                LOGGER.debug("Deleted compacted " + segment);
+            }
+        }
+    }
+
+    private void relocate(JournalSegment segment, List<JournalOp> relocations)
+    {
+        PendingWork work = new PendingWork();
+        work._compactedSegment = segment;
+        work._ops.addAll(relocations);
+        _committer.commit(work, true);
+    }
+
+    private void addLiveBytes(JournalSegment segment, long delta)
+    {
+        segment.addLiveBytes(delta);
+        _liveBytes.addAndGet(delta);
+    }
+
+    private void messageIdSeen(long messageId)
+    {
+        // ids are allocated above any id in the journal, so this only takes effect during recovery
+        if (messageId > _messageId.get())
+        {
+            _messageId.set(messageId);
+        }
+    }
+
+    private void checkStoreSize()
+    {
+        if (_persistentSizeHighThreshold > 0)
+        {
+            long size = _liveBytes.get();
+            if (!_limitBusted && size > _persistentSizeHighThreshold)
+            {
+                _limitBusted = true;
+                _eventManager.notifyEvent(Event.PERSISTENT_MESSAGE_SIZE_OVERFULL);
+            }
+            else if (_limitBusted && size < _persistentSizeLowThreshold)
+            {
+                _limitBusted = false;
+                _eventManager.notifyEvent(Event.PERSISTENT_MESSAGE_SIZE_UNDERFULL);
+            }
+        }
+    }
+
+    /**
+     * Writes groups of pending work to the journal. Runs on the commit thread, which is therefore the only thread
+     * appending to the journal or changing the index of live records once the store is open.
+     */
+    private final class JournalWriter implements JournalCommitter.GroupWriter<PendingWork>
+    {
+        @Override
+        public void write(final List<PendingWork> group)
+        {
+            List<StoredJournalMessage<?>> claimedMessages = new ArrayList<>();
+            List<JournalOp> ops = new ArrayList<>();
+            boolean force = false;
+            for (PendingWork work : group)
+            {
+                for (StoredJournalMessage<?> message : work._messagesToStore)
+                {
+                    if (message.claimForWrite())
+                    {
+                        claimedMessages.add(message);
+                        ops.add(message.createMessageOp());
+                    }
+                }
+                for (JournalOp op : work._ops)
+                {
+                    if (work._compactedSegment == null || op.isNeededAfterCompacting(work._compactedSegment))
+                    {
+                        ops.add(op);
+                    }
+                }
+                force |= work._requiresForce;
+            }
+
+            if (ops.isEmpty())
+            {
+                return;
+            }
+
+            long bodySize = 0L;
+            for (JournalOp op : ops)
+            {
+                bodySize += op.getSize();
+            }
+            if (bodySize > Integer.MAX_VALUE - RECORD_HEADER_SIZE - JournalSegment.HEADER_SIZE)
+            {
+                releaseClaims(claimedMessages);
+                throw new StoreException("Journal record of " + bodySize + " bytes is too large");
+            }
+
+            JournalSegment segment = null;
+            try
+            {
+                segment = getSegmentFor(RECORD_HEADER_SIZE + (int) bodySize);
+
+                ByteBuffer buffer = getWriteBuffer(RECORD_HEADER_SIZE + (int) bodySize);
+                buffer.position(RECORD_HEADER_SIZE);
+                for (JournalOp op : ops)
+                {
+                    op.writeTo(buffer, segment);
+                }
+                buffer.flip();
+                buffer.putInt(0, (int) bodySize);
+                buffer.putInt(4, checksum(ByteBuffer.wrap(buffer.array(), RECORD_HEADER_SIZE, (int) bodySize)));
+
+                long position = segment.append(buffer);
+                if (force)
+                {
+                    segment.force();
+                }
+
+                long opPosition = position + RECORD_HEADER_SIZE;
+                for (JournalOp op : ops)
+                {
+                    op.apply(segment, opPosition);
+                    opPosition += op.getSize();
+                }
+            }
+            catch (IOException | RuntimeException e)
+            {
+                // nothing more is appended to a segment once a write to it has failed
+                if (segment != null)
+                {
+                    segment.seal(segment.getWritePosition());
+                }
+                releaseClaims(claimedMessages);
+                throw e instanceof StoreException
+                        ? (StoreException) e
+                        : new StoreException("Failed to write to journal " + _storeDirectory.getAbsolutePath(), e);
+            }
+
+            for (StoredJournalMessage<?> message : claimedMessages)
+            {
+                message.stored();
+            }
+            checkStoreSize();
+        }
+
+        @Override
+        public boolean isExclusive(final PendingWork work)
+        {
+            return work._compactedSegment != null;
+        }
+
+        private void releaseClaims(List<StoredJournalMessage<?>> claimedMessages)
+        {
+            for (StoredJournalMessage<?> message : claimedMessages)
+            {
+                message.releaseClaim();
+            }
+        }
+
+        private JournalSegment getSegmentFor(int recordSize)
+        {
+            JournalSegment segment = _currentSegment;
+            if (segment == null || segment.getRemaining() < recordSize)
+            {
+                if (segment != null)
+                {
+                    segment.seal(segment.getWritePosition());
+                }
+                long capacity = Math.max(_segmentSize, (long) JournalSegment.HEADER_SIZE + recordSize);
+                segment = JournalSegment.create(_storeDirectory, _nextSegmentNumber++, capacity);
+                _segments.put(segment.getNumber(), segment);
+                _currentSegment = segment;
+            }
+            return segment;
+        }
+
+        private ByteBuffer getWriteBuffer(int size)
+        {
+            if (size > MAX_RETAINED_WRITE_BUFFER_SIZE)
+            {
+                return ByteBuffer.allocate(size);
+            }
+            if (_writeBuffer == null || _writeBuffer.capacity() < size)
+            {
+                _writeBuffer = ByteBuffer.allocate(Math.max(size, 64 * 1024));
+            }
+            _writeBuffer.clear();
+            _writeBuffer.limit(size);
+            return _writeBuffer;
+        }
+    }
+
+    private class JournalTransaction implements Transaction
+    {
+        private final PendingWork _pendingWork = new PendingWork();
+
+        @Override
+        public void enqueueMessage(final TransactionLogResource queue, final EnqueueableMessage message)
+        {
+            checkMessageStoreOpen();
+
+            final StoredMessage storedMessage = message.getStoredMessage();
+            if (storedMessage instanceof StoredJournalMessage)
+            {
+                _pendingWork.addMessageToStore((StoredJournalMessage<?>) storedMessage);
+            }
+            _pendingWork._ops.add(new EnqueueOp(queue.getId(), message.getMessageNumber()));
+        }
+
+        @Override
+        public void dequeueMessage(final TransactionLogResource queue, final EnqueueableMessage message)
+        {
+            checkMessageStoreOpen();
+
+            _pendingWork._ops.add(new DequeueOp(queue.getId(), message.getMessageNumber(), -1L));
+        }
+
+        @Override
+        public void commitTran()
+        {
+            checkMessageStoreOpen();
+            _committer.commit(_pendingWork, true);
+        }
+
+        @Override
+        public StoreFuture commitTranAsync()
+        {
+            checkMessageStoreOpen();
+            return _committer.commit(_pendingWork, false);
+        }
+
+        @Override
+        public void abortTran()
+        {
+            checkMessageStoreOpen();
+            _pendingWork.clear();
+        }
+
+        @Override
+        public void removeXid(final long format, final byte[] globalId, final byte[] branchId)
+        {
+            checkMessageStoreOpen();
+
+            _pendingWork._ops.add(new RemoveXidOp(new Xid(format, globalId, branchId), -1L));
+        }
+
+        @Override
+        public void recordXid(final long format,
+                              final byte[] globalId,
+                              final byte[] branchId,
+                              final Record[] enqueues,
+                              final Record[] dequeues)
+        {
+            checkMessageStoreOpen();
+
+            for (Record enqueue : enqueues)
+            {
+                StoredMessage storedMessage = enqueue.getMessage().getStoredMessage();
+                if (storedMessage instanceof StoredJournalMessage)
+                {
+                    _pendingWork.addMessageToStore((StoredJournalMessage<?>) storedMessage);
+                }
+            }
+            _pendingWork._ops.add(new RecordXidOp(new Xid(format, globalId, branchId),
+                                                  toRecords(enqueues),
+                                                  toRecords(dequeues)));
+        }
+
+        private RecordImpl[] toRecords(Record[] records)
+        {
+            RecordImpl[] recordImpls = new RecordImpl[records.length];
+            for (int i = 0; i < records.length; i++)
+            {
+                recordImpls[i] = new RecordImpl(records[i].getResource().getId(),
+                                                records[i].getMessage().getMessageNumber());
+            }
+            return recordImpls;
+        }
+    }
+
+    /**
+     * The changes of a transaction, a message flowing to disk or a removal waiting to be written by the committer, or
+     * the records of a segment being compacted.
+     */
+    private static final class PendingWork
+    {
+        private final List<StoredJournalMessage<?>> _messagesToStore = new ArrayList<>();
+        private final List<JournalOp> _ops = new ArrayList<>();
+        private JournalSegment _compactedSegment;
+        private boolean _requiresForce = true;
+
+        private void addMessageToStore(StoredJournalMessage<?> message)
+        {
+            message.queuedForStore();
+            _messagesToStore.add(message);
+        }
+
+        private void clear()
+        {
+            _messagesToStore.clear();
+            _ops.clear();
+        }
+    }
+
+    private static final class MessageRecord
+    {
+        private final JournalSegment _segment;
+        private final long _metaDataPosition;
+        private final int _metaDataLength;
+        private final int _contentLength;
+        private final int _size;
+
+        private MessageRecord(JournalSegment segment,
+                              long metaDataPosition,
+                              int metaDataLength,
+                              int contentLength,
+                              int size)
+        {
+            _segment = segment;
+            _metaDataPosition = metaDataPosition;
+            _metaDataLength = metaDataLength;
+            _contentLength = contentLength;
+            _size = size;
+        }
+
+        private ByteBuffer readMetaData()
+        {
+            return _segment.read(_metaDataPosition, _metaDataLength);
+        }
+
+        private ByteBuffer readContent()
+        {
+            return _segment.read(_metaDataPosition + _metaDataLength + 4, _contentLength);
+        }
+    }
+
+    private static final class XidRecord
+    {
+        private final JournalSegment _segment;
+        private final int _size;
+        private final RecordImpl[] _enqueues;
+        private final RecordImpl[] _dequeues;
+
+        private XidRecord(JournalSegment segment, int size, RecordImpl[] enqueues, RecordImpl[] dequeues)
+        {
+            _segment = segment;
+            _size = size;
+            _enqueues = enqueues;
+            _dequeues = dequeues;
+        }
+    }
+
+    /**
+     * An operation recorded in the journal.
+     */
+    private abstract class JournalOp
+    {
+        abstract int getSize();
+
+        /**
+         * Serializes the operation, which is being appended to the given segment.
+         */
+        abstract void writeTo(ByteBuffer buffer, JournalSegment segment);
+
+        /**
+         * Applies the operation, written to the given position of the segment, to the index of live records.
+         */
+        abstract void apply(JournalSegment segment, long position);
+
+        /**
+         * @return true if the operation, read from the given segment, must be appended again before the segment
+         * can be deleted
+         */
+        abstract boolean isNeededAfterCompacting(JournalSegment segment);
+    }
+
+    /**
+     * An operation removing an earlier record. A tombstone records the segment holding the record it removes, so that
+     * compaction need only carry it forward while that segment exists.
+     */
+    private abstract class TombstoneOp extends JournalOp
+    {
+        private long _targetSegment;
+
+        TombstoneOp(long targetSegment)
+        {
+            _targetSegment = targetSegment;
+        }
+
+        /**
+         * @return the segment holding the live record removed by the operation, or null if it has none, or it is being
+         * written in the same group as the operation
+         */
+        abstract JournalSegment findTarget();
+
+        /**
+         * @return true if the record removed by the operation is live again, having been written after it
+         */
+        abstract boolean isTargetLive();
+
+        void writeTargetTo(ByteBuffer buffer, JournalSegment segment)
+        {
+            if (_targetSegment < 0L)
+            {
+                JournalSegment target = findTarget();
+                _targetSegment = target == null ? segment.getNumber() : target.getNumber();
+            }
+            buffer.putLong(_targetSegment);
+        }
+
+        @Override
+        boolean isNeededAfterCompacting(final JournalSegment segment)
+        {
+            return _targetSegment != segment.getNumber()
+                   && _segments.containsKey(_targetSegment)
+                   && !isTargetLive();
+        }
+    }
+
+    private final class MessageOp extends JournalOp
+    {
+        private final long _messageId;
+        private final ByteBuffer _metaData;
+        private final ByteBuffer _content;
+
+        private MessageOp(long messageId, ByteBuffer metaData, ByteBuffer content)
+        {
+            _messageId = messageId;
+            _metaData = metaData;
+            _content = content;
+        }
+
+        @Override
+        int getSize()
+        {
+            return 1 + 8 + 4 + _metaData.remaining() + 4 + _content.remaining();
+        }
+
+        @Override
+        void writeTo(final ByteBuffer buffer, final JournalSegment segment)
+        {
+            buffer.put(MESSAGE);
+            buffer.putLong(_messageId);
+            buffer.putInt(_metaData.remaining());
+            buffer.put(_metaData.duplicate());
+            buffer.putInt(_content.remaining());
+            buffer.put(_content.duplicate());
+        }
+
+        @Override
+        void apply(final JournalSegment segment, final long position)
+        {
+            MessageRecord record =
+                    new MessageRecord(segment, position + 1 + 8 + 4, _metaData.remaining(), _content.remaining(), getSize());
+            MessageRecord previous = _messages.put(_messageId, record);
+            if (previous != null)
+            {
+                addLiveBytes(previous._segment, -previous._size);
+            }
+            addLiveBytes(segment, record._size);
+            messageIdSeen(_messageId);
+        }
+
+        @Override
+        boolean isNeededAfterCompacting(final JournalSegment segment)
+        {
+            MessageRecord record = _messages.get(_messageId);
+            return record != null && record._segment == segment;
+        }
+    }
+
+    private final class EnqueueOp extends JournalOp
+    {
+        private final UUID _queueId;
+        private final long _messageId;
+
+        private EnqueueOp(UUID queueId, long messageId)
+        {
+            _queueId = queueId;
+            _messageId = messageId;
+        }
+
+        @Override
+        int getSize()
+        {
+            return ENTRY_SIZE;
+        }
+
+        @Override
+        void writeTo(final ByteBuffer buffer, final JournalSegment segment)
+        {
+            buffer.put(ENQUEUE);
+            buffer.putLong(_queueId.getMostSignificantBits());
+            buffer.putLong(_queueId.getLeastSignificantBits());
+            buffer.putLong(_messageId);
+        }
+
+        @Override
+        void apply(final JournalSegment segment, final long position)
+        {
+            ConcurrentNavigableMap<Long, JournalSegment> entries = _queueEntries.get(_queueId);
+            if (entries == null)
+            {
+                entries = new ConcurrentSkipListMap<>();
+                _queueEntries.put(_queueId, entries);
+            }
+            JournalSegment previous = entries.put(_messageId, segment);
+            if (previous != null)
+            {
+                addLiveBytes(previous, -ENTRY_SIZE);
+            }
+            addLiveBytes(segment, ENTRY_SIZE);
+        }
+
+        @Override
+        boolean isNeededAfterCompacting(final JournalSegment segment)
+        {
+            ConcurrentNavigableMap<Long, JournalSegment> entries = _queueEntries.get(_queueId);
+            return entries != null && entries.get(_messageId) == segment;
+        }
+    }
+
+    private final class DequeueOp extends TombstoneOp
+    {
+        private final UUID _queueId;
+        private final long _messageId;
+
+        private DequeueOp(UUID queueId, long messageId, long targetSegment)
+        {
+            super(targetSegment);
+            _queueId = queueId;
+            _messageId = messageId;
+        }
+
+        @Override
+        int getSize()
+        {
+            return ENTRY_SIZE + 8;
+        }
+
+        @Override
+        void writeTo(final ByteBuffer buffer, final JournalSegment segment)
+        {
+            buffer.put(DEQUEUE);
+            buffer.putLong(_queueId.getMostSignificantBits());
+            buffer.putLong(_queueId.getLeastSignificantBits());
+            buffer.putLong(_messageId);
+            writeTargetTo(buffer, segment);
+        }
+
+        @Override
+        void apply(final JournalSegment segment, final long position)
+        {
+            ConcurrentNavigableMap<Long, JournalSegment> entries = _queueEntries.get(_queueId);
+            if (entries != null)
+            {
+                JournalSegment previous = entries.remove(_messageId);
+                if (previous != null)
+                {
+                    addLiveBytes(previous, -ENTRY_SIZE);
+                }
+                if (entries.isEmpty())
+                {
+                    _queueEntries.remove(_queueId);
+                }
+            }
+        }
+
+        @Override
+        JournalSegment findTarget()
+        {
+            ConcurrentNavigableMap<Long, JournalSegment> entries = _queueEntries.get(_queueId);
+            return entries == null ? null : entries.get(_messageId);
+        }
+
+        @Override
+        boolean isTargetLive()
+        {
+            return findTarget() != null;
+        }
+    }
+
+    private final class RemoveMessageOp extends TombstoneOp
+    {
+        private final long _messageId;
+
+        private RemoveMessageOp(long messageId, long targetSegment)
+        {
+            super(targetSegment);
+            _messageId = messageId;
+        }
+
+        @Override
+        int getSize()
+        {
+            return 1 + 8 + 8;
+        }
+
+        @Override
+        void writeTo(final ByteBuffer buffer, final JournalSegment segment)
+        {
+            buffer.put(REMOVE_MESSAGE);
+            buffer.putLong(_messageId);
+            writeTargetTo(buffer, segment);
+        }
+
+        @Override
+        void apply(final JournalSegment segment, final long position)
+        {
+            MessageRecord previous = _messages.remove(_messageId);
+            if (previous != null)
+            {
+                addLiveBytes(previous._segment, -previous._size);
+            }
+            messageIdSeen(_messageId);
+        }
+
+        @Override
+        JournalSegment findTarget()
+        {
+            MessageRecord record = _messages.get(_messageId);
+            return record == null ? null : record._segment;
+        }
+
+        @Override
+        boolean isTargetLive()
+        {
+            return _messages.containsKey(_messageId);
+        }
+    }
+
+    private final class RecordXidOp extends JournalOp
+    {
+        private final Xid _xid;
+        private final RecordImpl[] _enqueues;
+        private final RecordImpl[] _dequeues;
+
+        private RecordXidOp(Xid xid, RecordImpl[] enqueues, RecordImpl[] dequeues)
+        {
+            _xid = xid;
+            _enqueues = enqueues;
+            _dequeues = dequeues;
+        }
+
+        @Override
+        int getSize()
+        {
+            return 1 + getXidSize(_xid)
+                   + 4 + _enqueues.length * ENTRY_RECORD_SIZE
+                   + 4 + _dequeues.length * ENTRY_RECORD_SIZE;
+        }
+
+        @Override
+        void writeTo(final ByteBuffer buffer, final JournalSegment segment)
+        {
+            buffer.put(RECORD_XID);
+            writeXid(buffer, _xid);
+            writeRecords(buffer, _enqueues);
+            writeRecords(buffer, _dequeues);
+        }
+
+        @Override
+        void apply(final JournalSegment segment, final long position)
+        {
+            XidRecord previous = _xids.put(_xid, new XidRecord(segment, getSize(), _enqueues, _dequeues));
+            if (previous != null)
+            {
+                addLiveBytes(previous._segment, -previous._size);
+            }
+            addLiveBytes(segment, getSize());
+        }
+
+        @Override
+        boolean isNeededAfterCompacting(final JournalSegment segment)
+        {
+            XidRecord record = _xids.get(_xid);
+            return record != null && record._segment == segment;
+        }
+
+        private void writeRecords(ByteBuffer buffer, RecordImpl[] records)
+        {
+            buffer.putInt(records.length);
+            for (RecordImpl record : records)
+            {
+                buffer.putLong(record.getId().getMostSignificantBits());
+                buffer.putLong(record.getId().getLeastSignificantBits());
+                buffer.putLong(record.getMessageNumber());
+            }
+        }
+    }
+
+    private final class RemoveXidOp extends TombstoneOp
+    {
+        private final Xid _xid;
+
+        private RemoveXidOp(Xid xid, long targetSegment)
+        {
+            super(targetSegment);
+            _xid = xid;
+        }
+
+        @Override
+        int getSize()
+        {
+            return 1 + getXidSize(_xid) + 8;
+        }
+
+        @Override
+        void writeTo(final ByteBuffer buffer, final JournalSegment segment)
+        {
+            buffer.put(REMOVE_XID);
+            writeXid(buffer, _xid);
+            writeTargetTo(buffer, segment);
+        }
+
+        @Override
+        void apply(final JournalSegment segment, final long position)
+        {
+            XidRecord previous = _xids.remove(_xid);
+            if (previous != null)
+            {
+                addLiveBytes(previous._segment, -previous._size);
+            }
+        }
+
+        @Override
+        JournalSegment findTarget()
+        {
+            XidRecord record = _xids.get(_xid);
+            return record == null ? null : record._segment;
+        }
+
+        @Override
+        boolean isTargetLive()
+        {
+            return _xids.containsKey(_xid);
+        }
+    }
+
+    private static int getXidSize(Xid xid)
+    {
+        return 8 + 4 + xid.getGlobalId().length + 4 + xid.getBranchId().length;
+    }
+
+    private static void writeXid(ByteBuffer buffer, Xid xid)
+    {
+        buffer.putLong(xid.getFormat());
+        buffer.putInt(xid.getGlobalId().length);
+        buffer.put(xid.getGlobalId());
+        buffer.putInt(xid.getBranchId().length);
+        buffer.put(xid.getBranchId());
+    }
+
+    private class StoredJournalMessage<T extends StorableMessageMetaData> implements StoredMessage<T>
+    {
+        private final long _messageId;
+
+        private volatile T _metaData;
+        private volatile byte[] _content;
+        private volatile boolean _inMemory;
+        private volatile boolean _queuedForStore;
+        private volatile boolean _stored;
+        // only accessed by the commit thread
+        private boolean _claimed;
+
+        StoredJournalMessage(long messageId, T metaData)
+        {
+            _messageId = messageId;
+            _metaData = metaData;
+            _inMemory = true;
+        }
+
+        /**
+         * Creates a message already in the journal, whose meta data is read from the journal when first needed.
+         */
+        StoredJournalMessage(long messageId)
+        {
+            _messageId = messageId;
+            _queuedForStore = true;
+            _stored = true;
+        }
+
+        @Override
+        public T getMetaData()
+        {
+            T metaData = _metaData;
+            if (metaData == null)
+            {
+                checkMessageStoreOpen();
+
+                ByteBuffer buffer = getRecord().readMetaData();
+                MessageMetaDataType<?> type = MessageMetaDataTypeRegistry.fromOrdinal(buffer.get());
+                @SuppressWarnings("unchecked")
+                T recoveredMetaData = (T) type.createMetaData(buffer.slice());
+                metaData = recoveredMetaData;
+                _metaData = metaData;
+            }
+            return metaData;
+        }
+
+        @Override
+        public long getMessageNumber()
+        {
+            return _messageId;
+        }
+
+        @Override
+        public void addContent(final int offsetInMessage, ByteBuffer src)
+        {
+            src = src.slice();
+            byte[] data = _content;
+
+            if (data == null)
+            {
+                data = new byte[src.remaining()];
+                src.duplicate().get(data);
+            }
+            else
+            {
+                byte[] oldData = data;
+                data = new byte[oldData.length + src.remaining()];
+
+                System.arraycopy(oldData, 0, data, 0, oldData.length);
+                src.duplicate().get(data, oldData.length, src.remaining());
+            }
+            _content = data;
+            contentAdded(src.remaining());
+        }
+
+        @Override
+        public int getContent(final int offsetInMessage, final ByteBuffer dst)
+        {
+            ByteBuffer content = getContent(offsetInMessage, dst.remaining());
+            if (content == null)
+            {
+                return 0;
+            }
+            int length = content.remaining();
+            dst.put(content);
+            return length;
+        }
+
+        @Override
+        public ByteBuffer getContent(final int offsetInMessage, final int size)
+        {
+            ByteBuffer content;
+            byte[] data = _content;
+            if (data != null)
+            {
+                content = ByteBuffer.wrap(data);
+            }
+            else if (_stored)
+            {
+                checkMessageStoreOpen();
+                content = getRecord().readContent();
+            }
+            else
+            {
+                return null;
+            }
+
+            content.position(Math.min(offsetInMessage, content.limit()));
+            content.limit(Math.min(content.limit(), content.position() + size));
+            return content.slice();
+        }
+
+        @Override
+        public void remove()
+        {
+            if (LOGGER.isDebugEnabled())
+            {
+                LOGGER.debug("REMOVE called on message: " + _messageId);
+            }
+            checkMessageStoreOpen();
+
+            releaseContent();
+            if (_queuedForStore)
+            {
+                PendingWork removal = new PendingWork();
+                removal._ops.add(new RemoveMessageOp(_messageId, -1L));
+                removal._requiresForce = false;
+                _committer.commit(removal, true);
+            }
+        }
+
+        @Override
+        public boolean isInMemory()
+        {
+            return _inMemory;
+        }
+
+        @Override
+        public boolean flowToDisk()
+        {
+            if (!_stored)
+            {
+                PendingWork pendingWork = new PendingWork();
+                pendingWork.addMessageToStore(this);
+                _committer.commit(pendingWork, true);
+            }
+            releaseContent();
+            return true;
+        }
+
+        private synchronized void contentAdded(int bytes)
+        {
+            if (_inMemory)
+            {
+                _residentMessageContent.added(bytes);
+            }
+        }
+
+        /**
+         * Drops the content held in memory, which is from then on read from the journal.
+         */
+        private synchronized void releaseContent()
+        {
+            if (_inMemory)
+            {
+                _inMemory = false;
+                byte[] content = _content;
+                _residentMessageContent.released(content == null ? 0 : content.length);
+            }
+            _content = null;
+        }
+
+        private MessageRecord getRecord()
+        {
+            MessageRecord record = _messages.get(_messageId);
+            if (record == null)
+            {
+                throw new StoreException("Message " + _messageId + " is not in the journal");
+            }
+            return record;
+        }
+
+        private void queuedForStore()
+        {
+            _queuedForStore = true;
+        }
+
+        /**
+         * @return true if the message is to be written in the group being written, having not already been written
+         */
+        private boolean claimForWrite()
+        {
+            if (_stored || _claimed)
+            {
+                return false;
+            }
+            _claimed = true;
+            return true;
+        }
+
+        private void releaseClaim()
+        {
+            _claimed = false;
+        }
+
+        private void stored()
+        {
+            _stored = true;
+        }
+
+        private MessageOp createMessageOp()
+        {
+            T metaData = _metaData;
+            ByteBuffer metaDataBuffer = ByteBuffer.allocate(1 + metaData.getStorableSize());
+            metaDataBuffer.put((byte) metaData.getType().ordinal());
+            metaData.writeToBuffer(metaDataBuffer);
+            metaDataBuffer.flip();
+
+            byte[] content = _content;
+            return new MessageOp(_messageId,
+                                 metaDataBuffer,
+                                 content == null ? ByteBuffer.allocate(0) : ByteBuffer.wrap(content));
+        }
+    }
+
+    private static class RecordImpl implements Transaction.Record, TransactionLogResource, EnqueueableMessage
+    {
+        private final long _messageNumber;
+        private final UUID _queueId;
+
+        public RecordImpl(UUID queueId, long messageNumber)
+        {
+            _messageNumber = messageNumber;
+            _queueId = queueId;
+        }
+
+        @Override
+        public TransactionLogResource getResource()
+        {
+            return this;
+        }
+
+        @Override
+        public EnqueueableMessage getMessage()
+        {
+            return this;
+        }
+
+        @Override
+        public long getMessageNumber()
+        {
+            return _messageNumber;
+        }
+
+        @Override
+        public boolean isPersistent()
+        {
+            return true;
+        }
+
+        @Override
+        public StoredMessage getStoredMessage()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getName()
+        {
+            return _queueId.toString();
+        }
+
+        @Override
+        public UUID getId()
+        {
+            return _queueId;
+        }
+
+        @Override
+        public MessageDurability getMessageDurability()
+        {
+            return MessageDurability.DEFAULT;
+        }
+    }
+
+    private static final class CompactionThreadFactory implements ThreadFactory
+    {
+        private final String _name;
+
+        private CompactionThreadFactory(String name)
+        {
+            _name = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "Journal-Compaction-Thread-" + _name);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
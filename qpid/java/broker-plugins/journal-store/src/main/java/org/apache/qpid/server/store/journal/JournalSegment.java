@@ -0,0 +1,251 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.qpid.server.store.StoreException;
+
+/**
+ * One file of a journal. A segment is created at its full size, so that appending to it does not change the length
+ * of the file and forcing it need not write the file's metadata, and is written sequentially from its header to its
+ * end, after which the journal moves on to a new segment. Its content is read through a read-only mapping of the file,
+ * made when the segment is created or opened so that buffers read from it stay valid after the segment is closed.
+ * <p>
+ * The segment counts the bytes of the records it holds which are still live, that is which would be needed to
+ * recover the store, so that mostly dead segments may be compacted.
+ */
+final class JournalSegment
+{
+    static final String FILE_SUFFIX = ".jnl";
+
+    static final int MAGIC = 0x514A4E4C;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+
+    private final long _number;
+    private final File _file;
+    private final long _capacity;
+    private final FileChannel _channel;
+    private final AtomicLong _liveBytes = new AtomicLong();
+
+    private volatile long _writePosition;
+    private final MappedByteBuffer _mapping;
+    private volatile boolean _sealed;
+
+    private JournalSegment(long number, File file, long capacity, FileChannel channel, long writePosition)
+            throws IOException
+    {
+        _number = number;
+        _file = file;
+        _capacity = capacity;
+        _channel = channel;
+        _writePosition = writePosition;
+        _mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity);
+    }
+
+    /**
+     * Creates a new segment of the given size, writing its header.
+     */
+    static JournalSegment create(File directory, long number, long capacity)
+    {
+        File file = new File(directory, fileName(number));
+        try
+        {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try
+            {
+                raf.setLength(capacity);
+                FileChannel channel = raf.getChannel();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining())
+                {
+                    channel.write(header, header.position());
+                }
+                return new JournalSegment(number, file, capacity, channel, HEADER_SIZE);
+            }
+            catch (IOException | RuntimeException e)
+            {
+                raf.close();
+                throw e;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new StoreException("Cannot create journal segment " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Opens an existing segment for reading. The segment is sealed: nothing more is written to it.
+     */
+    static JournalSegment open(File file, long number)
+    {
+        try
+        {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try
+            {
+                FileChannel channel = raf.getChannel();
+                JournalSegment segment = new JournalSegment(number, file, channel.size(), channel, channel.size());
+                segment._sealed = true;
+                ByteBuffer header = segment.read(0, HEADER_SIZE);
+                if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                {
+                    throw new StoreException("File " + file.getAbsolutePath() + " is not a journal segment");
+                }
+                return segment;
+            }
+            catch (IOException | RuntimeException e)
+            {
+                raf.close();
+                throw e;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new StoreException("Cannot open journal segment " + file.getAbsolutePath(), e);
+        }
+    }
+
+    static String fileName(long number)
+    {
+        return String.format("%020d%s", number, FILE_SUFFIX);
+    }
+
+    long getNumber()
+    {
+        return _number;
+    }
+
+    long getCapacity()
+    {
+        return _capacity;
+    }
+
+    long getWritePosition()
+    {
+        return _writePosition;
+    }
+
+    long getRemaining()
+    {
+        return _sealed ? 0L : _capacity - _writePosition;
+    }
+
+    boolean isSealed()
+    {
+        return _sealed;
+    }
+
+    /**
+     * Seals the segment, once it is full or once a write to it has failed, at the position written up to. A recovered
+     * segment is sealed at the end of its last complete record.
+     */
+    void seal(long position)
+    {
+        _writePosition = position;
+        _sealed = true;
+    }
+
+    /**
+     * Appends the given buffer, which must fit in the remaining capacity of the segment.
+     *
+     * @return the position in the segment at which the buffer was written
+     */
+    long append(ByteBuffer buffer) throws IOException
+    {
+        long position = _writePosition;
+        long writePosition = position;
+        while (buffer.hasRemaining())
+        {
+            writePosition += _channel.write(buffer, writePosition);
+        }
+        _writePosition = writePosition;
+        return position;
+    }
+
+    void force() throws IOException
+    {
+        _channel.force(false);
+    }
+
+    /**
+     * @return a read-only buffer over the given range of the segment
+     */
+    ByteBuffer read(long position, int length)
+    {
+        ByteBuffer buffer = _mapping.duplicate();
+        buffer.position((int) position);
+        buffer.limit((int) position + length);
+        return buffer.slice();
+    }
+
+    long getLiveBytes()
+    {
+        return _liveBytes.get();
+    }
+
+    void addLiveBytes(long delta)
+    {
+        _liveBytes.addAndGet(delta);
+    }
+
+    void close()
+    {
+        try
+        {
+            _channel.close();
+        }
+        catch (IOException e)
+        {
+            throw new StoreException("Cannot close journal segment " + _file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Closes and deletes the segment.
+     *
+     * @return true if the file was deleted
+     */
+    boolean delete()
+    {
+        close();
+        return _file.delete();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "JournalSegment[" + _file.getName()
+               + ", written=" + _writePosition
+               + ", live=" + _liveBytes.get()
+               + (_sealed ? ", sealed" : "")
+               + "]";
+    }
+}
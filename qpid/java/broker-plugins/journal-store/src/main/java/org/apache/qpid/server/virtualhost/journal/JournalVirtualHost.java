@@ -0,0 +1,56 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost.journal;
+
+import org.apache.qpid.server.exchange.ExchangeImpl;
+import org.apache.qpid.server.model.ManagedAttribute;
+import org.apache.qpid.server.model.ManagedContextDefault;
+import org.apache.qpid.server.queue.AMQQueue;
+import org.apache.qpid.server.store.FileBasedSettings;
+import org.apache.qpid.server.store.SizeMonitoringSettings;
+import org.apache.qpid.server.store.journal.JournalMessageStore;
+import org.apache.qpid.server.virtualhost.VirtualHostImpl;
+
+public interface JournalVirtualHost<X extends JournalVirtualHost<X>> extends VirtualHostImpl<X,AMQQueue<?>,ExchangeImpl<?>>, FileBasedSettings, SizeMonitoringSettings
+{
+    String STORE_PATH = "storePath";
+
+    @ManagedContextDefault( name = JournalMessageStore.SEGMENT_SIZE)
+    public static final long DEFAULT_SEGMENT_SIZE = JournalMessageStore.DEFAULT_SEGMENT_SIZE;
+
+    @ManagedContextDefault( name = JournalMessageStore.MAX_COMMIT_GROUP_SIZE)
+    public static final int DEFAULT_MAX_COMMIT_GROUP_SIZE = JournalMessageStore.DEFAULT_MAX_COMMIT_GROUP_SIZE;
+
+    @ManagedContextDefault( name = JournalMessageStore.COMPACTION_THRESHOLD)
+    public static final int DEFAULT_COMPACTION_THRESHOLD = JournalMessageStore.DEFAULT_COMPACTION_THRESHOLD;
+
+    @ManagedContextDefault( name = JournalMessageStore.COMPACTION_INTERVAL)
+    public static final long DEFAULT_COMPACTION_INTERVAL = JournalMessageStore.DEFAULT_COMPACTION_INTERVAL;
+
+    @ManagedAttribute(mandatory = true, defaultValue = "${qpid.work_dir}${file.separator}${this:name}${file.separator}messages")
+    String getStorePath();
+
+    @ManagedAttribute(mandatory = true, defaultValue = "0")
+    Long getStoreUnderfullSize();
+
+    @ManagedAttribute(mandatory = true, defaultValue = "0")
+    Long getStoreOverfullSize();
+}
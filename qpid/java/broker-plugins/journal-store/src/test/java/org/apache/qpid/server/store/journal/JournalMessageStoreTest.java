@@ -0,0 +1,404 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.journal;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.qpid.server.message.EnqueueableMessage;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.store.MessageDurability;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.MessageStoreTestCase;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.server.store.TestMessageMetaData;
+import org.apache.qpid.server.store.Transaction;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.store.handler.MessageInstanceHandler;
+import org.apache.qpid.server.virtualhost.journal.JournalVirtualHost;
+import org.apache.qpid.util.FileUtils;
+
+public class JournalMessageStoreTest extends MessageStoreTestCase
+{
+    private static final long SEGMENT_SIZE = 4096L;
+
+    private String _storeLocation;
+    private final TransactionLogResource _queue = createQueue();
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            getStore().closeMessageStore();
+            deleteStoreIfExists();
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testOnDelete() throws Exception
+    {
+        File location = new File(_storeLocation);
+        assertTrue("Store does not exist at " + _storeLocation, location.exists());
+
+        getStore().closeMessageStore();
+        assertTrue("Store does not exist at " + _storeLocation, location.exists());
+
+        JournalVirtualHost<?> mockVH = mock(JournalVirtualHost.class);
+        when(mockVH.getStorePath()).thenReturn(_storeLocation);
+
+        getStore().onDelete(mockVH);
+        assertFalse("Store exists at " + _storeLocation, location.exists());
+    }
+
+    public void testContentRecoveredAfterReopen() throws Exception
+    {
+        byte[] content = createContent(1000);
+        StoredMessage<TestMessageMetaData> message = addMessage(content);
+        enqueue(message);
+
+        reopenStore();
+
+        StoredMessage<?> recoveredMessage = getStore().getMessage(message.getMessageNumber());
+        assertNotNull("Message not recovered", recoveredMessage);
+        assertFalse("Recovered message should not be held in memory", recoveredMessage.isInMemory());
+        assertEquals("Unexpected content size", content.length, recoveredMessage.getMetaData().getContentSize());
+        assertContent(content, recoveredMessage);
+    }
+
+    public void testFlowToDisk() throws Exception
+    {
+        byte[] content = createContent(100);
+        StoredMessage<TestMessageMetaData> message = addMessage(content);
+        assertTrue("New message should be held in memory", message.isInMemory());
+
+        assertTrue("Message did not flow to disk", message.flowToDisk());
+
+        assertFalse("Message should no longer be held in memory", message.isInMemory());
+        assertContent(content, message);
+        assertNotNull("Message flowed to disk not in store", getStore().getMessage(message.getMessageNumber()));
+
+        message.remove();
+        assertNull("Removed message still in store", getStore().getMessage(message.getMessageNumber()));
+    }
+
+    public void testCompactionDeletesDeadSegments() throws Exception
+    {
+        List<StoredMessage<TestMessageMetaData>> messages = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+        {
+            StoredMessage<TestMessageMetaData> message = addMessage(createContent(100));
+            enqueue(message);
+            messages.add(message);
+        }
+
+        StoredMessage<TestMessageMetaData> survivor = messages.remove(0);
+        for (StoredMessage<TestMessageMetaData> message : messages)
+        {
+            Transaction transaction = getStore().newTransaction();
+            transaction.dequeueMessage(_queue, createEnqueueableMessage(message));
+            transaction.commitTran();
+            message.remove();
+        }
+
+        JournalMessageStore store = (JournalMessageStore) getStore();
+        int segmentCount = store.getSegmentCount();
+        assertTrue("Expected the journal to span several segments but it has " + segmentCount, segmentCount > 3);
+
+        store.compact();
+
+        assertTrue("Expected compaction to delete segments, but " + store.getSegmentCount() + " of "
+                   + segmentCount + " remain", store.getSegmentCount() < segmentCount / 2);
+
+        reopenStore();
+
+        final List<Long> enqueuedIds = new ArrayList<>();
+        getStore().visitMessageInstances(new MessageInstanceHandler()
+        {
+            @Override
+            public boolean handle(final UUID queueId, final long messageId)
+            {
+                enqueuedIds.add(messageId);
+                return true;
+            }
+        });
+        assertEquals("Unexpected entries after compaction",
+                     Collections.singletonList(survivor.getMessageNumber()), enqueuedIds);
+        assertContent(createContent(100), getStore().getMessage(survivor.getMessageNumber()));
+        assertNull("Dead message recovered", getStore().getMessage(messages.get(0).getMessageNumber()));
+    }
+
+    public void testCompactionRelocatesLiveMessages() throws Exception
+    {
+        List<StoredMessage<TestMessageMetaData>> survivors = new ArrayList<>();
+        List<StoredMessage<TestMessageMetaData>> dead = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+        {
+            StoredMessage<TestMessageMetaData> message = addMessage(createContent(100 + i));
+            enqueue(message);
+            (i % 5 == 0 ? survivors : dead).add(message);
+        }
+        for (StoredMessage<TestMessageMetaData> message : dead)
+        {
+            dequeue(message);
+            message.remove();
+        }
+
+        JournalMessageStore store = (JournalMessageStore) getStore();
+        int segmentCount = store.getSegmentCount();
+        store.compact();
+        assertTrue("Expected compaction to delete segments, but " + store.getSegmentCount() + " of "
+                   + segmentCount + " remain", store.getSegmentCount() < segmentCount);
+
+        assertLiveMessages(survivors);
+        reopenStore();
+        assertLiveMessages(survivors);
+        assertNull("Dead message recovered", getStore().getMessage(dead.get(0).getMessageNumber()));
+    }
+
+    public void testCorruptTailRecordDiscardedOnRecovery() throws Exception
+    {
+        StoredMessage<TestMessageMetaData> first = addMessage(createContent(100));
+        enqueue(first);
+        StoredMessage<TestMessageMetaData> second = addMessage(createContent(200));
+        enqueue(second);
+        getStore().closeMessageStore();
+
+        File segmentFile = getNewestSegmentFile();
+        long[] lastRecord = findLastRecord(segmentFile);
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "rw"))
+        {
+            long position = lastRecord[0] + JournalMessageStore.RECORD_HEADER_SIZE + lastRecord[1] / 2;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+
+        reopenStore();
+
+        assertLiveMessages(Collections.singletonList(first));
+        assertNull("Message of corrupt record recovered", getStore().getMessage(second.getMessageNumber()));
+    }
+
+    public void testRecoveryAfterPartialWrite() throws Exception
+    {
+        StoredMessage<TestMessageMetaData> first = addMessage(createContent(100));
+        enqueue(first);
+        StoredMessage<TestMessageMetaData> torn = addMessage(createContent(300));
+        enqueue(torn);
+        getStore().closeMessageStore();
+
+        // a segment is preallocated, so the part of a record never written reads as zeroes
+        File segmentFile = getNewestSegmentFile();
+        long[] lastRecord = findLastRecord(segmentFile);
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "rw"))
+        {
+            int writtenLength = (int) lastRecord[1] / 2;
+            file.seek(lastRecord[0] + JournalMessageStore.RECORD_HEADER_SIZE + writtenLength);
+            file.write(new byte[(int) lastRecord[1] - writtenLength]);
+        }
+
+        reopenStore();
+        assertLiveMessages(Collections.singletonList(first));
+
+        StoredMessage<TestMessageMetaData> later = addMessage(createContent(150));
+        enqueue(later);
+        reopenStore();
+
+        assertLiveMessages(Arrays.asList(first, later));
+    }
+
+    private StoredMessage<TestMessageMetaData> addMessage(byte[] content)
+    {
+        StoredMessage<TestMessageMetaData> message =
+                getStore().addMessage(new TestMessageMetaData(getStore().getNextMessageId(), content.length));
+        message.addContent(0, ByteBuffer.wrap(content));
+        return message;
+    }
+
+    private void enqueue(StoredMessage<TestMessageMetaData> message)
+    {
+        Transaction transaction = getStore().newTransaction();
+        transaction.enqueueMessage(_queue, createEnqueueableMessage(message));
+        transaction.commitTran();
+    }
+
+    private void dequeue(StoredMessage<TestMessageMetaData> message)
+    {
+        Transaction transaction = getStore().newTransaction();
+        transaction.dequeueMessage(_queue, createEnqueueableMessage(message));
+        transaction.commitTran();
+    }
+
+    /**
+     * Asserts that exactly the given messages are enqueued in the store, in order, and that their content is intact.
+     */
+    private void assertLiveMessages(List<StoredMessage<TestMessageMetaData>> expected)
+    {
+        final List<Long> enqueuedIds = new ArrayList<>();
+        getStore().visitMessageInstances(new MessageInstanceHandler()
+        {
+            @Override
+            public boolean handle(final UUID queueId, final long messageId)
+            {
+                enqueuedIds.add(messageId);
+                return true;
+            }
+        });
+
+        List<Long> expectedIds = new ArrayList<>();
+        for (StoredMessage<TestMessageMetaData> message : expected)
+        {
+            expectedIds.add(message.getMessageNumber());
+        }
+        assertEquals("Unexpected entries", expectedIds, enqueuedIds);
+
+        for (StoredMessage<TestMessageMetaData> message : expected)
+        {
+            StoredMessage<?> stored = getStore().getMessage(message.getMessageNumber());
+            assertNotNull("Message " + message.getMessageNumber() + " not found", stored);
+            assertContent(createContent(message.getMetaData().getContentSize()), stored);
+        }
+    }
+
+    private File getNewestSegmentFile()
+    {
+        File[] segmentFiles = new File(_storeLocation).listFiles(new FileFilter()
+        {
+            @Override
+            public boolean accept(final File file)
+            {
+                return file.getName().endsWith(JournalSegment.FILE_SUFFIX);
+            }
+        });
+        assertNotNull("Store directory not found", segmentFiles);
+        assertTrue("No journal segments found", segmentFiles.length > 0);
+        Arrays.sort(segmentFiles);
+        return segmentFiles[segmentFiles.length - 1];
+    }
+
+    /**
+     * @return the position of the last record in the segment and the length of its body
+     */
+    private static long[] findLastRecord(File segmentFile) throws IOException
+    {
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "r"))
+        {
+            long[] lastRecord = null;
+            long position = JournalSegment.HEADER_SIZE;
+            while (position + JournalMessageStore.RECORD_HEADER_SIZE <= file.length())
+            {
+                file.seek(position);
+                int length = file.readInt();
+                if (length <= 0)
+                {
+                    break;
+                }
+                lastRecord = new long[] { position, length };
+                position += JournalMessageStore.RECORD_HEADER_SIZE + length;
+            }
+            assertNotNull("No records found in " + segmentFile, lastRecord);
+            return lastRecord;
+        }
+    }
+
+    private EnqueueableMessage createEnqueueableMessage(StoredMessage<TestMessageMetaData> message)
+    {
+        EnqueueableMessage enqueueableMessage = mock(EnqueueableMessage.class);
+        when(enqueueableMessage.isPersistent()).thenReturn(true);
+        when(enqueueableMessage.getMessageNumber()).thenReturn(message.getMessageNumber());
+        when(enqueueableMessage.getStoredMessage()).thenReturn((StoredMessage) message);
+        return enqueueableMessage;
+    }
+
+    private void assertContent(byte[] expected, StoredMessage<?> message)
+    {
+        ByteBuffer content = ByteBuffer.allocate(expected.length + 1);
+        assertEquals("Unexpected content length", expected.length, message.getContent(0, content));
+        content.flip();
+        assertEquals("Unexpected content", ByteBuffer.wrap(expected), content);
+    }
+
+    private static byte[] createContent(int length)
+    {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++)
+        {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+
+    private static TransactionLogResource createQueue()
+    {
+        TransactionLogResource queue = mock(TransactionLogResource.class);
+        when(queue.getId()).thenReturn(UUID.randomUUID());
+        when(queue.getName()).thenReturn("testQueue");
+        when(queue.getMessageDurability()).thenReturn(MessageDurability.DEFAULT);
+        return queue;
+    }
+
+    @Override
+    protected VirtualHost createVirtualHost()
+    {
+        _storeLocation = TMP_FOLDER + File.separator + getTestName();
+        deleteStoreIfExists();
+
+        final JournalVirtualHost<?> parent = mock(JournalVirtualHost.class);
+        when(parent.getStorePath()).thenReturn(_storeLocation);
+        when(parent.getContextKeys(false)).thenReturn(Collections.singleton(JournalMessageStore.SEGMENT_SIZE));
+        when(parent.getContextValue(Long.class, JournalMessageStore.SEGMENT_SIZE)).thenReturn(SEGMENT_SIZE);
+        return parent;
+    }
+
+    private void deleteStoreIfExists()
+    {
+        if (_storeLocation != null)
+        {
+            File location = new File(_storeLocation);
+            if (location.exists())
+            {
+                FileUtils.delete(location, true);
+            }
+        }
+    }
+
+    @Override
+    protected MessageStore createMessageStore()
+    {
+        return new JournalMessageStore();
+    }
+}
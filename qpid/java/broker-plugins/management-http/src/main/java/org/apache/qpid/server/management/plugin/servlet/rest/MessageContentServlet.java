@@ -55,7 +55,11 @@ public class MessageContentServlet extends AbstractServlet
         Queue queue = getQueueFromRequest(request);
         String path[] = getPathInfoElements(request);
         MessageFinder finder = new MessageFinder(Long.parseLong(path[2]));
-        queue.visit(finder);
+        QueueEntry entry = queue.getMessageOnTheQueue(Long.parseLong(path[2]));
+        if (entry != null)
+        {
+            finder.visit(entry);
+        }
         if(finder.isFound())
         {
             response.setContentType(finder.getMimeType());
@@ -51,6 +51,10 @@ public class MessageServlet extends AbstractServlet
 {
     private static final Logger LOGGER = Logger.getLogger(MessageServlet.class);
 
+    private static final String AFTER_ID_PARAM = "afterId";
+    private static final String COUNT_PARAM = "count";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     public MessageServlet()
     {
         super();
@@ -76,7 +80,11 @@ public class MessageServlet extends AbstractServlet
         Queue queue = getQueueFromRequest(request);
         String path[] = getPathInfoElements(request);
         MessageFinder messageFinder = new MessageFinder(Long.parseLong(path[2]));
-        queue.visit(messageFinder);
+        QueueEntry entry = queue.getMessageOnTheQueue(Long.parseLong(path[2]));
+        if (entry != null)
+        {
+            messageFinder.visit(entry);
+        }
 
         response.setStatus(HttpServletResponse.SC_OK);
 
@@ -95,6 +103,13 @@ public class MessageServlet extends AbstractServlet
     {
         Queue queue = getQueueFromRequest(request);
 
+        String afterId = request.getParameter(AFTER_ID_PARAM);
+        if (afterId != null)
+        {
+            getMessagePage(request, response, queue, afterId);
+            return;
+        }
+
         int first = -1;
         int last = -1;
         String range = request.getHeader("Range");
@@ -125,6 +140,53 @@ public class MessageServlet extends AbstractServlet
         mapper.writeValue(writer, messages);
     }
 
+    /**
+     * Writes the page of messages numbered after the given message, in message number order. The next page is
+     * requested with the id of the last message of the page. A malformed id, or a count that is not a positive
+     * number, is answered with a bad request.
+     */
+    private void getMessagePage(HttpServletRequest request, HttpServletResponse response, Queue<?> queue,
+                                String afterIdParam) throws IOException
+    {
+        long afterId;
+        int count;
+        String countParam = request.getParameter(COUNT_PARAM);
+        try
+        {
+            afterId = Long.parseLong(afterIdParam);
+            count = countParam == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(countParam);
+        }
+        catch (NumberFormatException e)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                               "Invalid " + AFTER_ID_PARAM + " '" + afterIdParam + "' or " + COUNT_PARAM + " '" + countParam + "'");
+            return;
+        }
+        if (count <= 0)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, COUNT_PARAM + " must be positive: " + count);
+            return;
+        }
+
+        final List<Map<String, Object>> messages = new ArrayList<Map<String, Object>>();
+        for (QueueEntry entry : queue.getMessagesOnTheQueueAfter(afterId, count))
+        {
+            messages.add(convertToObject(entry, false));
+        }
+
+        response.setContentType("application/json");
+        response.setStatus(HttpServletResponse.SC_OK);
+
+        response.setHeader("Cache-Control","no-cache");
+        response.setHeader("Pragma","no-cache");
+        response.setDateHeader ("Expires", 0);
+
+        final Writer writer = getOutputWriter(request,response);
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(SerializationConfig.Feature.INDENT_OUTPUT, true);
+        mapper.writeValue(writer, messages);
+    }
+
     private Queue<?> getQueueFromRequest(HttpServletRequest request)
     {
         // TODO - validation that there is a vhost and queue and only those in the path
@@ -169,10 +231,10 @@ public class MessageServlet extends AbstractServlet
 
     private abstract static class QueueEntryTransaction implements VirtualHost.TransactionalOperation
     {
-        private final Queue _sourceQueue;
-        private final List _messageIds;
+        private final Queue<?> _sourceQueue;
+        private final List<?> _messageIds;
 
-        protected QueueEntryTransaction(Queue sourceQueue, List messageIds)
+        protected QueueEntryTransaction(Queue<?> sourceQueue, List<?> messageIds)
         {
             _sourceQueue = sourceQueue;
             _messageIds = messageIds;
@@ -181,25 +243,20 @@ public class MessageServlet extends AbstractServlet
         @Override
         public void withinTransaction(final VirtualHost.Transaction txn)
         {
-
-            _sourceQueue.visit(new QueueEntryVisitor()
+            // ids posted as JSON are read as Integers where they fit
+            final List<Long> messageIds = new ArrayList<Long>(_messageIds.size());
+            for (Object messageId : _messageIds)
             {
+                messageIds.add(((Number) messageId).longValue());
+            }
 
-                public boolean visit(final QueueEntry entry)
+            for (QueueEntry entry : _sourceQueue.getMessagesOnTheQueue(messageIds))
+            {
+                if (entry.getMessage() != null)
                 {
-                    final ServerMessage message = entry.getMessage();
-                    if(message != null)
-                    {
-                        final long messageId = message.getMessageNumber();
-                        if (_messageIds.remove(messageId) || (messageId <= (long) Integer.MAX_VALUE
-                                                              && _messageIds.remove(Integer.valueOf((int)messageId))))
-                        {
-                            updateEntry(entry, txn);
-                        }
-                    }
-                    return _messageIds.isEmpty();
+                    updateEntry(entry, txn);
                 }
-            });
+            }
         }
 
 
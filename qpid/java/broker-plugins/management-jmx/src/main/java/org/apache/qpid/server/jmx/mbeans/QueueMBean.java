@@ -429,9 +429,7 @@ public class QueueMBean extends AMQManagedObject implements ManagedQueue, QueueN
 
     private QueueEntry getMessage(long messageId)
     {
-        GetMessageVisitor visitor = new GetMessageVisitor(messageId);
-        _queue.visit(visitor);
-        return visitor.getEntry();
+        return _queue.getMessageOnTheQueue(messageId);
     }
 
     public void deleteMessageFromTop() throws IOException, JMException
@@ -509,27 +507,14 @@ public class QueueMBean extends AMQManagedObject implements ManagedQueue, QueueN
         {
             public void withinTransaction(final VirtualHost.Transaction txn)
             {
-                _queue.visit(new QueueEntryVisitor()
+                for (QueueEntry entry : _queue.getMessagesOnTheQueue(fromMessageId, toMessageId))
                 {
-
-                    public boolean visit(final QueueEntry entry)
+                    final ServerMessage message = entry.getMessage();
+                    if (message != null && !message.isReferenced((TransactionLogResource) destinationQueue))
                     {
-                        final ServerMessage message = entry.getMessage();
-                        if(message != null)
-                        {
-                            final long messageId = message.getMessageNumber();
-
-                            if ((messageId >= fromMessageId)
-                                && (messageId <= toMessageId)
-                                && !(message.isReferenced((TransactionLogResource)destinationQueue)))
-                            {
-                                txn.move(entry, destinationQueue);
-                            }
-
-                        }
-                        return false;
+                        txn.move(entry, destinationQueue);
                     }
-                });
+                }
             }
         });
     }
@@ -542,24 +527,13 @@ public class QueueMBean extends AMQManagedObject implements ManagedQueue, QueueN
         {
             public void withinTransaction(final VirtualHost.Transaction txn)
             {
-                _queue.visit(new QueueEntryVisitor()
+                for (QueueEntry entry : _queue.getMessagesOnTheQueue(fromMessageId, toMessageId))
                 {
-                    public boolean visit(final QueueEntry entry)
+                    if (entry.getMessage() != null)
                     {
-                        final ServerMessage message = entry.getMessage();
-                        if(message != null)
-                        {
-                            final long messageId = message.getMessageNumber();
-
-                            if ((messageId >= fromMessageId)
-                                && (messageId <= toMessageId))
-                            {
-                                txn.dequeue(entry);
-                            }
-                        }
-                        return false;
+                        txn.dequeue(entry);
                     }
-                });
+                }
             }
         });
     }
@@ -582,27 +556,14 @@ public class QueueMBean extends AMQManagedObject implements ManagedQueue, QueueN
         {
             public void withinTransaction(final VirtualHost.Transaction txn)
             {
-                _queue.visit(new QueueEntryVisitor()
+                for (QueueEntry entry : _queue.getMessagesOnTheQueue(fromMessageId, toMessageId))
                 {
-
-                    public boolean visit(final QueueEntry entry)
+                    final ServerMessage message = entry.getMessage();
+                    if (message != null && !message.isReferenced((TransactionLogResource) destinationQueue))
                     {
-                        final ServerMessage message = entry.getMessage();
-                        if(message != null)
-                        {
-                            final long messageId = message.getMessageNumber();
-
-                            if ((messageId >= fromMessageId)
-                                && (messageId <= toMessageId)
-                                && !(message.isReferenced((TransactionLogResource)destinationQueue)))
-                            {
-                                txn.copy(entry, destinationQueue);
-                            }
-
-                        }
-                        return false;
+                        txn.copy(entry, destinationQueue);
                     }
-                });
+                }
             }
         });
     }
@@ -628,33 +589,6 @@ public class QueueMBean extends AMQManagedObject implements ManagedQueue, QueueN
     }
 
 
-    protected static class GetMessageVisitor implements QueueEntryVisitor
-    {
-
-        private final long _messageNumber;
-        private QueueEntry _entry;
-
-        public GetMessageVisitor(long messageId)
-        {
-            _messageNumber = messageId;
-        }
-
-        public boolean visit(QueueEntry entry)
-        {
-            if(entry.getMessage().getMessageNumber() == _messageNumber)
-            {
-                _entry = entry;
-                return true;
-            }
-            return false;
-        }
-
-        public QueueEntry getEntry()
-        {
-            return _entry;
-        }
-    }
-
     @Override
     public void notifyClients(NotificationCheck notification, Queue queue, String notificationMsg)
     {
@@ -174,6 +174,10 @@ public class AMQConnection extends Closeable implements Connection, QueueConnect
     //By default it's async publish
     private String _syncPublish = "";
 
+    // Indicates the number of messages sent with a completion listener that
+    // may await acceptance by the broker on each session
+    private int _asyncPublishWindow;
+
     // Indicates whether to use the old map message format or the
     // new amqp-0-10 encoded format.
     private boolean _useLegacyMapMessageFormat;
@@ -292,6 +296,16 @@ public class AMQConnection extends Closeable implements Connection, QueueConnect
             _syncPublish = System.getProperty((ClientProperties.SYNC_PUBLISH_PROP_NAME),_syncPublish);
         }
 
+        if (connectionURL.getOption(ConnectionURL.OPTIONS_ASYNC_PUBLISH_WINDOW) != null)
+        {
+            _asyncPublishWindow = Integer.parseInt(connectionURL.getOption(ConnectionURL.OPTIONS_ASYNC_PUBLISH_WINDOW));
+        }
+        else
+        {
+            _asyncPublishWindow = Integer.getInteger(ClientProperties.ASYNC_PUBLISH_WINDOW_PROP_NAME,
+                                                     ClientProperties.DEFAULT_ASYNC_PUBLISH_WINDOW);
+        }
+
         if (connectionURL.getOption(ConnectionURL.OPTIONS_USE_LEGACY_MAP_MESSAGE_FORMAT) != null)
         {
             _useLegacyMapMessageFormat =  Boolean.parseBoolean(
@@ -1523,6 +1537,11 @@ public class AMQConnection extends Closeable implements Connection, QueueConnect
         return _syncPublish;
     }
 
+    public int getAsyncPublishWindow()
+    {
+        return _asyncPublishWindow;
+    }
+
     public boolean isMessageCompressionDesired()
     {
         return _compressMessages;
@@ -271,7 +271,8 @@ public class AMQConnectionDelegate_8_0 implements AMQConnectionDelegate
                         boolean success = false;
                         try
                         {
-                            createChannelOverWire(channelId, transacted);
+                            session.setPublishConfirmsSelected(
+                                    createChannelOverWire(channelId, transacted, "all".equals(_conn.getSyncPublish())));
                             session.setPrefetchLimits(prefetchHigh, 0);
                             success = true;
                         }
@@ -319,7 +320,11 @@ public class AMQConnectionDelegate_8_0 implements AMQConnectionDelegate
         return createXASession((int) _conn.getMaxPrefetch(), (int) _conn.getMaxPrefetch() / 2);
     }
 
-    private void createChannelOverWire(int channelId, boolean transacted)
+    /**
+     * @param confirms whether to put the channel into confirm mode, should the broker support it
+     * @return true if the channel was put into confirm mode
+     */
+    private boolean createChannelOverWire(int channelId, boolean transacted, boolean confirms)
             throws AMQException, FailoverException
     {
         ChannelOpenBody channelOpenBody = _conn.getProtocolHandler().getMethodRegistry().createChannelOpenBody(null);
@@ -336,18 +341,26 @@ public class AMQConnectionDelegate_8_0 implements AMQConnectionDelegate
 
             _conn.getProtocolHandler().syncWrite(body.generateFrame(channelId), TxSelectOkBody.class);
         }
-        boolean useConfirms = (_confirmedPublishSupported || (!transacted && _confirmedPublishNonTransactionalSupported))
-                              && "all".equals(_conn.getSyncPublish());
+        boolean useConfirms = confirms && isConfirmedPublishSupported(transacted);
         if(useConfirms)
         {
-            if (_logger.isDebugEnabled())
-            {
-                _logger.debug("Issuing ConfirmSelect for " + channelId);
-            }
-            ConfirmSelectBody body = new ConfirmSelectBody(false);
+            selectPublishConfirms(channelId);
+        }
+        return useConfirms;
+    }
 
-            _conn.getProtocolHandler().syncWrite(body.generateFrame(channelId), ConfirmSelectOkBody.class);
+    /**
+     * Puts the channel into confirm mode, so that the broker confirms every message subsequently published on it.
+     */
+    void selectPublishConfirms(int channelId) throws AMQException, FailoverException
+    {
+        if (_logger.isDebugEnabled())
+        {
+            _logger.debug("Issuing ConfirmSelect for " + channelId);
         }
+        ConfirmSelectBody body = new ConfirmSelectBody(false);
+
+        _conn.getProtocolHandler().syncWrite(body.generateFrame(channelId), ConfirmSelectOkBody.class);
     }
 
     public void failoverPrep()
@@ -372,18 +385,19 @@ public class AMQConnectionDelegate_8_0 implements AMQConnectionDelegate
             // if virtual host is not blocked, then broker does not send flow command
             // that's why we need to reset the flow control flag
             s.setFlowControl(true);
-            reopenChannel(s.getChannelId(), s.getDefaultPrefetchHigh(), s.getDefaultPrefetchLow(), s.isTransacted());
+            s.setPublishConfirmsSelected(reopenChannel(s.getChannelId(), s.getDefaultPrefetchHigh(), s.getDefaultPrefetchLow(),
+                                                       s.isTransacted(), s.isPublishConfirmsSelected()));
             s.setPrefetchLimits(s.getDefaultPrefetchHigh(), 0);
             s.resubscribe();
         }
     }
 
-    private void reopenChannel(int channelId, int prefetchHigh, int prefetchLow, boolean transacted)
+    private boolean reopenChannel(int channelId, int prefetchHigh, int prefetchLow, boolean transacted, boolean confirms)
     throws AMQException, FailoverException
     {
         try
         {
-            createChannelOverWire(channelId, transacted);
+            return createChannelOverWire(channelId, transacted, confirms);
         }
         catch (AMQException e)
         {
@@ -526,6 +540,11 @@ public class AMQConnectionDelegate_8_0 implements AMQConnectionDelegate
         return _confirmedPublishNonTransactionalSupported;
     }
 
+    boolean isConfirmedPublishSupported(boolean transacted)
+    {
+        return _confirmedPublishSupported || (!transacted && _confirmedPublishNonTransactionalSupported);
+    }
+
 
     private static class ReceiverClosedWaiter implements Receiver<ByteBuffer>
     {
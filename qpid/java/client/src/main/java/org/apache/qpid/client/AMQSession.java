@@ -69,7 +69,7 @@ import org.apache.qpid.client.message.JMSTextMessage;
 import org.apache.qpid.client.message.MessageFactoryRegistry;
 import org.apache.qpid.client.message.UnprocessedMessage;
 import org.apache.qpid.client.messaging.address.Node;
-import org.apache.qpid.client.util.FlowControllingBlockingQueue;
+import org.apache.qpid.client.util.PrefetchBuffer;
 import org.apache.qpid.common.AMQPFilterTypes;
 import org.apache.qpid.configuration.ClientProperties;
 import org.apache.qpid.exchange.ExchangeDefaults;
@@ -117,6 +117,8 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
     /** Immediate message prefetch default. */
     public static final String IMMEDIATE_PREFETCH_DEFAULT = "false";
 
+    private static final long SYNC_OP_TIMEOUT = ClientProperties.getSyncOperationTimeout();
+
     private final boolean _declareQueues =
         Boolean.parseBoolean(System.getProperty(ClientProperties.QPID_DECLARE_QUEUES_PROP_NAME, "true"));
 
@@ -169,7 +171,7 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
     private final Lock _subscriberDetails = new ReentrantLock(true);
     private final Lock _subscriberAccess = new ReentrantLock(true);
 
-    private final FlowControllingBlockingQueue _queue;
+    private final PrefetchBuffer<Dispatchable> _queue;
 
     private final AtomicLong _highestDeliveryTag = new AtomicLong(-1);
     private final AtomicLong _rollbackMark = new AtomicLong(-1);
@@ -252,6 +254,9 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
     /** Has failover occured on this session with outstanding actions to commit? */
     private boolean _failedOverDirty;
 
+    /** Holds the messages sent on this session which the broker has yet to accept. */
+    private final PublishCompletionTracker _publishCompletionTracker;
+
     /** Holds the highest received delivery tag. */
     protected AtomicLong getHighestDeliveryTag()
     {
@@ -432,12 +437,19 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
         _messageFactoryRegistry = messageFactoryRegistry;
         _prefetchHighMark = defaultPrefetchHighMark;
         _prefetchLowMark = defaultPrefetchLowMark;
+        _publishCompletionTracker =
+                new PublishCompletionTracker(con == null ? ClientProperties.DEFAULT_ASYNC_PUBLISH_WINDOW
+                                                         : con.getAsyncPublishWindow(),
+                                             SYNC_OP_TIMEOUT,
+                                             PublishCompletionTracker.createListenerExecutor(
+                                                     "CompletionListener-" + channelId
+                                                     + (con == null ? "" : "-Conn-" + con.getConnectionNumber())));
 
         if (_acknowledgeMode == NO_ACKNOWLEDGE)
         {
             _queue =
-                    new FlowControllingBlockingQueue(_prefetchHighMark, _prefetchLowMark,
-                                                     new FlowControllingBlockingQueue.ThresholdListener()
+                    new PrefetchBuffer<Dispatchable>(_prefetchHighMark, _prefetchLowMark,
+                                                     new PrefetchBuffer.ThresholdListener()
                                                      {
                                                          private final AtomicBoolean _suspendState = new AtomicBoolean();
 
@@ -501,7 +513,7 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
         }
         else
         {
-            _queue = new FlowControllingBlockingQueue(_prefetchHighMark, null);
+            _queue = new PrefetchBuffer<Dispatchable>(_prefetchHighMark, null);
         }
 
         // Add creation logging to tie in with the existing close logging
@@ -822,6 +834,12 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
         if (!setClosed())
         {
             setClosing(true);
+            // Give messages sent with a completion listener the chance to be accepted before the session goes
+            if (!_publishCompletionTracker.awaitCompletion(timeout > 0 ? timeout : SYNC_OP_TIMEOUT))
+            {
+                _logger.warn("Closing session " + _channelId + " with " + _publishCompletionTracker.getPendingCount()
+                             + " messages not yet accepted by the broker");
+            }
             synchronized (getFailoverMutex())
             {
                 // We must close down all producers and consumers in an orderly fashion. This is the only method
@@ -865,6 +883,8 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
                     finally
                     {
                         _connection.deregisterSession(_channelId);
+                        _publishCompletionTracker.failAll(
+                                new JMSException("Session closed before the broker accepted the message"));
                     }
                 }
             }
@@ -914,11 +934,26 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
                 }
 
                 _connection.deregisterSession(_channelId);
+                failPendingPublishes(amqe);
                 closeProducersAndConsumers(amqe);
             }
         }
     }
 
+    /**
+     * Fails the messages sent on this session which the broker has yet to accept.
+     */
+    void failPendingPublishes(AMQException cause)
+    {
+        _publishCompletionTracker.failAll(toJMSException("Session closed before the broker accepted the message: "
+                                                         + cause.getMessage(), cause));
+    }
+
+    PublishCompletionTracker getPublishCompletionTracker()
+    {
+        return _publishCompletionTracker;
+    }
+
     protected void stopDispatcherThread()
     {
         if (_dispatcherThread != null)
@@ -2276,6 +2311,7 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
     {
         setClosed();
         _connection.deregisterSession(_channelId);
+        _publishCompletionTracker.failAll(new JMSException("Session closed before the broker accepted the message"));
         markClosedProducersAndConsumers();
 
     }
@@ -2294,7 +2330,7 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
                 Dispatchable disp;
                 try
                 {
-                    disp = (Dispatchable) _queue.take();
+                    disp = _queue.take();
                 }
                 catch (InterruptedException e)
                 {
@@ -2346,7 +2382,7 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
                 Dispatchable disp;
                 try
                 {
-                    disp = (Dispatchable) _queue.take();
+                    disp = _queue.take();
                 }
                 catch (InterruptedException e)
                 {
@@ -2426,7 +2462,7 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
      *
      * @throws AMQException If the session cannot be started for any reason.
      * TODO  This should be controlled by _stopped as it pairs with the stop method fixme or check the
-     * FlowControlledBlockingQueue _queue to see if we have flow controlled. will result in sending Flow messages
+     * PrefetchBuffer _queue to see if we have flow controlled. will result in sending Flow messages
      * for each subsequent call to flow.. only need to do this if we have called stop.
      */
     void start() throws AMQException
@@ -3165,7 +3201,7 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
 
     private void rejectMessagesForConsumerTag(int consumerTag, boolean requeue, boolean rejectAllConsumers)
     {
-        Iterator messages = _queue.iterator();
+        Iterator<Dispatchable> messages = _queue.iterator();
         if (_logger.isDebugEnabled())
         {
             _logger.debug("Rejecting messages from _queue for Consumer tag(" + consumerTag + ") (PDispatchQ) requeue:"
@@ -3182,7 +3218,12 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
         }
         while (messages.hasNext())
         {
-            UnprocessedMessage message = (UnprocessedMessage) messages.next();
+            Dispatchable dispatchable = messages.next();
+            if (!(dispatchable instanceof UnprocessedMessage))
+            {
+                continue;
+            }
+            UnprocessedMessage message = (UnprocessedMessage) dispatchable;
 
             if (rejectAllConsumers || (message.getConsumerTag() == consumerTag))
             {
@@ -3469,7 +3510,7 @@ public abstract class AMQSession<C extends BasicMessageConsumer, P extends Basic
             try
             {
                 Dispatchable disp;
-                while (((disp = (Dispatchable) _queue.take()) != null) && !_closed.get())
+                while (((disp = _queue.take()) != null) && !_closed.get())
                 {
                     disp.dispatch(AMQSession.this);
                 }
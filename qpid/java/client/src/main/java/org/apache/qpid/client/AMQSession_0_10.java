@@ -940,6 +940,15 @@ public class AMQSession_0_10 extends AMQSession<BasicMessageConsumer_0_10, Basic
     {
         try
         {
+            AMQException exception;
+            synchronized (_currentExceptionLock)
+            {
+                exception = _currentException;
+            }
+            if (exception != null)
+            {
+                failPendingPublishes(exception);
+            }
             super.closed(null);
             if (flushTask != null)
             {
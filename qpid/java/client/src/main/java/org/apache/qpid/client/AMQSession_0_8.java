@@ -99,6 +99,9 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
     private FlowControlIndicator _flowControl = new FlowControlIndicator();
     private final AtomicBoolean _creditChanged = new AtomicBoolean();
 
+    /** Whether the channel is in confirm mode, so that the broker confirms every message published on it. */
+    private volatile boolean _publishConfirmsSelected;
+
     /**
      * Creates a new session on a connection.
      *
@@ -1466,6 +1469,78 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
         }
     }
 
+    boolean isPublishConfirmsSelected()
+    {
+        return _publishConfirmsSelected;
+    }
+
+    void setPublishConfirmsSelected(boolean publishConfirmsSelected)
+    {
+        _publishConfirmsSelected = publishConfirmsSelected;
+    }
+
+    /**
+     * Puts the channel into confirm mode, unless it is already or the broker cannot confirm publishes on it.
+     *
+     * @return true if the channel is in confirm mode
+     */
+    boolean selectPublishConfirms() throws AMQException, FailoverException
+    {
+        if (!_publishConfirmsSelected)
+        {
+            AMQConnectionDelegate_8_0 delegate = (AMQConnectionDelegate_8_0) getAMQConnection().getDelegate();
+            if (delegate.isConfirmedPublishSupported(isTransacted()))
+            {
+                delegate.selectPublishConfirms(getChannelId());
+                _publishConfirmsSelected = true;
+            }
+        }
+        return _publishConfirmsSelected;
+    }
+
+    /**
+     * Called when the broker confirms, or rejects, the publish with the given delivery tag, or if multiple, every
+     * publish up to and including it.
+     */
+    public void publishConfirmed(long deliveryTag, boolean multiple, boolean accepted)
+    {
+        if (accepted)
+        {
+            getPublishCompletionTracker().complete(deliveryTag, multiple);
+        }
+        else
+        {
+            getPublishCompletionTracker().fail(deliveryTag, multiple,
+                    new JMSException("The message was not accepted by the server (e.g. because the address was no longer valid)"));
+        }
+    }
+
+    /**
+     * Called when a publish on the channel in confirm mode could not be written. Whether or not the broker received
+     * it, and so which delivery tags it gives the publishes that follow, is unknown, so the session is closed, failing
+     * the sends outstanding on it.
+     */
+    void publishSequenceLost(Throwable cause)
+    {
+        try
+        {
+            closed(cause);
+        }
+        catch (JMSException e)
+        {
+            _logger.warn("Failed to close session after a publish could not be written", e);
+        }
+    }
+
+    @Override
+    void resubscribe() throws AMQException
+    {
+        // the new channel numbers publishes afresh, and cannot confirm those published on the old one
+        getPublishCompletionTracker().failAll(
+                new JMSException("Fail-over interrupted send. Status of the send is uncertain."));
+        super.resubscribe();
+    }
+
     void checkFlowControl() throws InterruptedException, JMSException
     {
         long expiryTime = 0L;
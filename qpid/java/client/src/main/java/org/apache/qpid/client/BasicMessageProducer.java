@@ -39,6 +39,7 @@ import org.slf4j.Logger;
 import org.apache.qpid.AMQException;
 import org.apache.qpid.client.message.AbstractJMSMessage;
 import org.apache.qpid.client.message.MessageConverter;
+import org.apache.qpid.jms.CompletionListener;
 import org.apache.qpid.transport.TransportException;
 import org.apache.qpid.util.UUIDGen;
 import org.apache.qpid.util.UUIDs;
@@ -323,7 +324,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
 
         synchronized (_connection.getFailoverMutex())
         {
-            sendImpl(_destination, message, _deliveryMode, _messagePriority, _timeToLive, _mandatory, _immediate);
+            sendImpl(_destination, message, _deliveryMode, _messagePriority, _timeToLive, _mandatory, _immediate, null);
         }
     }
 
@@ -334,7 +335,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
 
         synchronized (_connection.getFailoverMutex())
         {
-            sendImpl(_destination, message, deliveryMode, _messagePriority, _timeToLive, _mandatory, _immediate);
+            sendImpl(_destination, message, deliveryMode, _messagePriority, _timeToLive, _mandatory, _immediate, null);
         }
     }
 
@@ -344,7 +345,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         checkInitialDestination();
         synchronized (_connection.getFailoverMutex())
         {
-            sendImpl(_destination, message, deliveryMode, _messagePriority, _timeToLive, _mandatory, immediate);
+            sendImpl(_destination, message, deliveryMode, _messagePriority, _timeToLive, _mandatory, immediate, null);
         }
     }
 
@@ -354,7 +355,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         checkInitialDestination();
         synchronized (_connection.getFailoverMutex())
         {
-            sendImpl(_destination, message, deliveryMode, priority, timeToLive, _mandatory, _immediate);
+            sendImpl(_destination, message, deliveryMode, priority, timeToLive, _mandatory, _immediate, null);
         }
     }
 
@@ -371,7 +372,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
                                 ? _defaultMandatoryTopicValue
                                 : _defaultMandatoryValue
                             : _mandatory,
-                     _immediate);
+                     _immediate, null);
         }
     }
 
@@ -389,7 +390,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
                                 ? _defaultMandatoryTopicValue
                                 : _defaultMandatoryValue
                             : _mandatory,
-                    _immediate);
+                    _immediate, null);
         }
     }
 
@@ -401,7 +402,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         synchronized (_connection.getFailoverMutex())
         {
             validateDestination(destination);
-            sendImpl((AMQDestination) destination, message, deliveryMode, priority, timeToLive, mandatory, _immediate);
+            sendImpl((AMQDestination) destination, message, deliveryMode, priority, timeToLive, mandatory, _immediate, null);
         }
     }
 
@@ -413,7 +414,55 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         synchronized (_connection.getFailoverMutex())
         {
             validateDestination(destination);
-            sendImpl((AMQDestination) destination, message, deliveryMode, priority, timeToLive, mandatory, immediate);
+            sendImpl((AMQDestination) destination, message, deliveryMode, priority, timeToLive, mandatory, immediate, null);
+        }
+    }
+
+    public void send(Message message, CompletionListener completionListener) throws JMSException
+    {
+        send(message, _deliveryMode, _messagePriority, _timeToLive, completionListener);
+    }
+
+    public void send(Message message, int deliveryMode, int priority, long timeToLive,
+                     CompletionListener completionListener) throws JMSException
+    {
+        checkPreConditions();
+        checkInitialDestination();
+        checkCompletionListener(completionListener);
+        // wait for the window to open before taking the mutex, so as not to hold up failover
+        _session.getPublishCompletionTracker().awaitCapacity();
+        synchronized (_connection.getFailoverMutex())
+        {
+            sendImpl(_destination, message, deliveryMode, priority, timeToLive, _mandatory, _immediate,
+                     completionListener);
+        }
+    }
+
+    public void send(Destination destination, Message message, CompletionListener completionListener)
+            throws JMSException
+    {
+        send(destination, message, _deliveryMode, _messagePriority, _timeToLive, completionListener);
+    }
+
+    public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive,
+                     CompletionListener completionListener) throws JMSException
+    {
+        checkPreConditions();
+        checkDestination(destination);
+        checkCompletionListener(completionListener);
+        // wait for the window to open before taking the mutex, so as not to hold up failover
+        _session.getPublishCompletionTracker().awaitCapacity();
+        synchronized (_connection.getFailoverMutex())
+        {
+            validateDestination(destination);
+            sendImpl((AMQDestination) destination, message, deliveryMode, priority, timeToLive,
+                    _mandatory == null
+                            ? destination instanceof Topic
+                                ? _defaultMandatoryTopicValue
+                                : _defaultMandatoryValue
+                            : _mandatory,
+                     _immediate,
+                     completionListener);
         }
     }
 
@@ -501,11 +550,13 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
      * @param timeToLive
      * @param mandatory
      * @param immediate
+     * @param completionListener notified once the broker has accepted the message, or null to send the message
+     *                           as the publish mode of the producer dictates
      *
      * @throws JMSException
      */
     protected void sendImpl(AMQDestination destination, Message origMessage, int deliveryMode, int priority, long timeToLive,
-                            boolean mandatory, boolean immediate) throws JMSException
+                            boolean mandatory, boolean immediate, CompletionListener completionListener) throws JMSException
     {
         checkTemporaryDestination(destination);
         origMessage.setJMSDestination(destination);
@@ -525,7 +576,8 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
 
         try
         {
-            sendMessage(destination, origMessage, message, messageId, deliveryMode, priority, timeToLive, mandatory, immediate);
+            sendMessage(destination, origMessage, message, messageId, deliveryMode, priority, timeToLive, mandatory, immediate,
+                        completionListener);
         }
         catch (TransportException e)
         {
@@ -551,9 +603,14 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         }
     }
 
+    /**
+     * @param completionListener if not null, the message is sent without waiting for the broker to accept it, and
+     *                           the listener, registered with the session's {@link PublishCompletionTracker}, is
+     *                           notified once it has
+     */
     abstract void sendMessage(AMQDestination destination, Message origMessage, AbstractJMSMessage message,
                               UUID messageId, int deliveryMode, int priority, long timeToLive, boolean mandatory,
-                              boolean immediate) throws JMSException;
+                              boolean immediate, CompletionListener completionListener) throws JMSException;
 
     private void checkTemporaryDestination(AMQDestination destination) throws InvalidDestinationException
     {
@@ -575,6 +632,14 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         }
     }
 
+    private void checkCompletionListener(CompletionListener completionListener)
+    {
+        if (completionListener == null)
+        {
+            throw new IllegalArgumentException("Completion listener must not be null");
+        }
+    }
+
     private void checkPreConditions() throws JMSException
     {
         checkNotClosed();
@@ -39,6 +39,7 @@ import org.apache.qpid.client.message.AMQMessageDelegate_0_10;
 import org.apache.qpid.client.message.AbstractJMSMessage;
 import org.apache.qpid.client.message.QpidMessageProperties;
 import org.apache.qpid.client.messaging.address.Link.Reliability;
+import org.apache.qpid.jms.CompletionListener;
 import org.apache.qpid.transport.DeliveryProperties;
 import org.apache.qpid.transport.Header;
 import org.apache.qpid.transport.MessageAcceptMode;
@@ -46,6 +47,8 @@ import org.apache.qpid.transport.MessageAcquireMode;
 import org.apache.qpid.transport.MessageDeliveryMode;
 import org.apache.qpid.transport.MessageDeliveryPriority;
 import org.apache.qpid.transport.MessageProperties;
+import org.apache.qpid.transport.MessageTransfer;
+import org.apache.qpid.transport.Method;
 import org.apache.qpid.transport.Option;
 import org.apache.qpid.util.GZIPUtils;
 import org.apache.qpid.util.Strings;
@@ -106,7 +109,7 @@ public class BasicMessageProducer_0_10 extends BasicMessageProducer
      */
     void sendMessage(AMQDestination destination, Message origMessage, AbstractJMSMessage message,
                      UUID messageId, int deliveryMode, int priority, long timeToLive, boolean mandatory,
-                     boolean immediate) throws JMSException
+                     boolean immediate, CompletionListener completionListener) throws JMSException
     {
         message.prepareForSending();
 
@@ -232,7 +235,8 @@ public class BasicMessageProducer_0_10 extends BasicMessageProducer
             // if true, we need to sync the delivery of this message
             boolean sync = false;
 
-            sync = ( (getPublishMode() == PublishMode.SYNC_PUBLISH_ALL) ||
+            sync = completionListener == null &&
+                   ( (getPublishMode() == PublishMode.SYNC_PUBLISH_ALL) ||
                      (getPublishMode() == PublishMode.SYNC_PUBLISH_PERSISTENT &&
                          deliveryMode == DeliveryMode.PERSISTENT)
                    );  
@@ -242,18 +246,28 @@ public class BasicMessageProducer_0_10 extends BasicMessageProducer
             
 
             ByteBuffer buffer = data == null ? ByteBuffer.allocate(0) : data.slice();
-            
-            ssn.messageTransfer(destination.getExchangeName() == null ? "" : destination.getExchangeName().toString(), 
-                                MessageAcceptMode.NONE,
-                                MessageAcquireMode.PRE_ACQUIRED,
-                                new Header(deliveryProp, messageProps),
-                    buffer, sync ? SYNC : NONE, unreliable ? UNRELIABLE : NONE);
-            if (sync)
+
+            // the sync flag asks the broker to report completion of the transfer without waiting to be asked
+            MessageTransfer transfer =
+                    new MessageTransfer(destination.getExchangeName() == null ? "" : destination.getExchangeName().toString(),
+                                        MessageAcceptMode.NONE,
+                                        MessageAcquireMode.PRE_ACQUIRED,
+                                        new Header(deliveryProp, messageProps),
+                                        buffer, sync || completionListener != null ? SYNC : NONE,
+                                        unreliable ? UNRELIABLE : NONE);
+            if (completionListener == null)
             {
-                ssn.sync();
-                ((AMQSession_0_10) getSession()).getCurrentException();
+                ssn.invoke(transfer);
+                if (sync)
+                {
+                    ssn.sync();
+                    ((AMQSession_0_10) getSession()).getCurrentException();
+                }
+            }
+            else
+            {
+                sendAsynchronously(ssn, transfer, origMessage, completionListener, unreliable);
             }
-            
         }
         catch (Exception e)
         {
@@ -264,6 +278,44 @@ public class BasicMessageProducer_0_10 extends BasicMessageProducer
         }
     }
 
+    /**
+     * Sends the transfer, notifying the listener once the broker completes it. The session holds on to the transfer
+     * until then, and resends it should the connection fail over. Unreliable transfers are not resent, so the
+     * listener is notified as soon as they have been sent.
+     */
+    private void sendAsynchronously(org.apache.qpid.transport.Session ssn, MessageTransfer transfer, Message message,
+                                    CompletionListener completionListener, boolean unreliable) throws JMSException
+    {
+        final PublishCompletionTracker tracker = getSession().getPublishCompletionTracker();
+        final long sequence = tracker.add(message, completionListener);
+        if (!unreliable)
+        {
+            transfer.setCompletionListener(new Method.CompletionListener()
+            {
+                @Override
+                public void onComplete(final Method method)
+                {
+                    tracker.complete(sequence, false);
+                }
+            });
+        }
+
+        try
+        {
+            ssn.invoke(transfer);
+        }
+        catch (RuntimeException e)
+        {
+            tracker.cancel(sequence);
+            throw e;
+        }
+
+        if (unreliable)
+        {
+            tracker.complete(sequence, false);
+        }
+    }
+
     @Override
     public boolean isBound(AMQDestination destination) throws JMSException
     {
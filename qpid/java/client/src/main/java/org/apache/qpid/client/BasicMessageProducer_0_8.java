@@ -52,6 +52,7 @@ import org.apache.qpid.framing.ContentHeaderBody;
 import org.apache.qpid.framing.ExchangeDeclareBody;
 import org.apache.qpid.framing.FieldTable;
 import org.apache.qpid.framing.MethodRegistry;
+import org.apache.qpid.jms.CompletionListener;
 import org.apache.qpid.util.GZIPUtils;
 
 public class BasicMessageProducer_0_8 extends BasicMessageProducer
@@ -101,7 +102,7 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
 
     void sendMessage(AMQDestination destination, Message origMessage, AbstractJMSMessage message,
                      UUID messageId, int deliveryMode,int priority, long timeToLive, boolean mandatory,
-                     boolean immediate) throws JMSException
+                     boolean immediate, CompletionListener completionListener) throws JMSException
     {
 
 
@@ -248,19 +249,66 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
             throw jmse;
         }
 
-        AMQConnectionDelegate_8_0 connectionDelegate80 = (AMQConnectionDelegate_8_0) (getConnection().getDelegate());
-
-        boolean useConfirms = getPublishMode() == PublishMode.SYNC_PUBLISH_ALL
-                              && (connectionDelegate80.isConfirmedPublishSupported()
-                               || (!getSession().isTransacted() && connectionDelegate80.isConfirmedPublishNonTransactionalSupported()));
+        final AMQSession_0_8 session = getSession();
+        final boolean syncPublish = completionListener == null && getPublishMode() == PublishMode.SYNC_PUBLISH_ALL;
+        boolean useConfirms;
+        try
+        {
+            useConfirms = (syncPublish || completionListener != null)
+                          ? session.selectPublishConfirms()
+                          : session.isPublishConfirmsSelected();
+        }
+        catch (AMQException e)
+        {
+            throw new JMSAMQException("Unable to select publisher confirms for the send: " + e.getMessage(), e);
+        }
+        catch (FailoverException e)
+        {
+            throw new JMSAMQException("Fail-over interrupted send. Status of the send is uncertain.", e);
+        }
 
         if(!useConfirms)
         {
             getConnection().getProtocolHandler().writeFrame(compositeFrame);
+            if (completionListener != null)
+            {
+                // the broker cannot confirm publishes on this channel, so there is nothing more to wait for
+                completionListener.onCompletion(origMessage);
+            }
+        }
+        else if (completionListener != null)
+        {
+            // every publish on a channel in confirm mode is numbered, in order, by the broker
+            PublishCompletionTracker tracker = session.getPublishCompletionTracker();
+            long deliveryTag = tracker.add(origMessage, completionListener);
+            try
+            {
+                getConnection().getProtocolHandler().writeFrame(compositeFrame);
+            }
+            catch (RuntimeException e)
+            {
+                tracker.cancel(deliveryTag);
+                session.publishSequenceLost(e);
+                throw e;
+            }
+        }
+        else if (!syncPublish)
+        {
+            session.getPublishCompletionTracker().skip();
+            try
+            {
+                getConnection().getProtocolHandler().writeFrame(compositeFrame);
+            }
+            catch (RuntimeException e)
+            {
+                session.publishSequenceLost(e);
+                throw e;
+            }
         }
         else
         {
-            final PublishConfirmMessageListener frameListener = new PublishConfirmMessageListener(getChannelId());
+            final PublishConfirmMessageListener frameListener =
+                    new PublishConfirmMessageListener(getChannelId(), session.getPublishCompletionTracker().skip());
             try
             {
 
@@ -281,6 +329,11 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
                 throw new JMSAMQException("Fail-over interrupted send. Status of the send is uncertain.", e);
 
             }
+            catch (RuntimeException e)
+            {
+                session.publishSequenceLost(e);
+                throw e;
+            }
         }
     }
 
@@ -351,16 +404,20 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
 
     private static class PublishConfirmMessageListener extends BlockingMethodFrameListener
     {
+        private final long _deliveryTag;
         private boolean _rejected;
 
         /**
-         * Creates a new method listener, that filters incoming method to just those that match the specified channel id.
+         * Creates a new method listener, that filters incoming method to just those that match the specified channel id
+         * and confirm the publish with the given delivery tag.
          *
          * @param channelId The channel id to filter incoming methods with.
+         * @param deliveryTag The delivery tag the broker confirms the publish with.
          */
-        public PublishConfirmMessageListener(final int channelId)
+        public PublishConfirmMessageListener(final int channelId, final long deliveryTag)
         {
             super(channelId);
+            _deliveryTag = deliveryTag;
         }
 
         @Override
@@ -368,12 +425,18 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
         {
             if (frame instanceof BasicAckBody)
             {
-                return true;
+                BasicAckBody ack = (BasicAckBody) frame;
+                return confirms(ack.getDeliveryTag(), ack.getMultiple());
             }
             else if (frame instanceof BasicNackBody)
             {
-                _rejected = true;
-                return true;
+                BasicNackBody nack = (BasicNackBody) frame;
+                if (confirms(nack.getDeliveryTag(), nack.getMultiple()))
+                {
+                    _rejected = true;
+                    return true;
+                }
+                return false;
             }
             else
             {
@@ -381,6 +444,11 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
             }
         }
 
+        private boolean confirms(final long deliveryTag, final boolean multiple)
+        {
+            return deliveryTag == _deliveryTag || (multiple && deliveryTag > _deliveryTag);
+        }
+
         public boolean isRejected()
         {
             return _rejected;
@@ -0,0 +1,300 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.jms.CompletionListener;
+import org.apache.qpid.thread.Threading;
+
+/**
+ * Tracks the messages a session has sent which the broker has yet to accept, and notifies their completion
+ * listeners once it has, or once the sends have failed.
+ * <p>
+ * Each tracked send is given a sequence number, counting from one. On an AMQP 0-8/0-9/0-9-1 channel in confirm mode
+ * every publish consumes a sequence number, so that the numbers match the delivery tags the broker confirms;
+ * {@link #skip()} accounts for publishes that are not tracked. Senders call {@link #awaitCapacity()}, before taking
+ * the connection's failover mutex, so that no more than the window size of sends are outstanding.
+ * <p>
+ * Completions arrive on the connection's I/O thread, on AMQP 0-10 while the transport session's command lock is held.
+ * Listeners are therefore never called on the completing thread: the completed sends are removed under the tracker's
+ * lock and handed, in order, to the listener executor, so that a listener may itself send, and wait for capacity,
+ * without blocking the thread that has to deliver the completions it is waiting for.
+ */
+final class PublishCompletionTracker
+{
+    private static final Logger _logger = LoggerFactory.getLogger(PublishCompletionTracker.class);
+    private static final long LISTENER_THREAD_KEEP_ALIVE = 60000L;
+
+    private final NavigableMap<Long, PendingPublish> _pending = new TreeMap<Long, PendingPublish>();
+    private final int _window;
+    private final long _timeout;
+    private final Executor _listenerExecutor;
+    private long _lastSequence;
+
+    /**
+     * @param window the maximum number of sends tracked at once
+     * @param timeout how long, in milliseconds, {@link #awaitCapacity()} waits for an earlier send to complete
+     * @param listenerExecutor runs the listener notifications, in the order they are submitted
+     */
+    PublishCompletionTracker(int window, long timeout, Executor listenerExecutor)
+    {
+        _window = Math.max(1, window);
+        _timeout = timeout;
+        _listenerExecutor = listenerExecutor;
+    }
+
+    /**
+     * Creates an executor which notifies listeners on a single daemon thread of the given name. The thread is started
+     * on the first completion and exits once it has been idle for a minute.
+     */
+    static Executor createListenerExecutor(final String threadName)
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                                                             LISTENER_THREAD_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                                                             new LinkedBlockingQueue<Runnable>(),
+                                                             new ThreadFactory()
+                                                             {
+                                                                 @Override
+                                                                 public Thread newThread(final Runnable r)
+                                                                 {
+                                                                     try
+                                                                     {
+                                                                         Thread thread = Threading.getThreadFactory().createThread(r);
+                                                                         thread.setName(threadName);
+                                                                         thread.setDaemon(true);
+                                                                         return thread;
+                                                                     }
+                                                                     catch (Exception e)
+                                                                     {
+                                                                         throw new RuntimeException("Failed to create thread", e);
+                                                                     }
+                                                                 }
+                                                             });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Waits for an earlier send to complete if the window is full.
+     *
+     * @throws JMSException if no earlier send completes within the timeout
+     */
+    synchronized void awaitCapacity() throws JMSException
+    {
+        long deadline = System.currentTimeMillis() + _timeout;
+        while (_pending.size() >= _window)
+        {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0L)
+            {
+                throw new JMSException("Timed out waiting for the broker to accept " + _pending.size()
+                                       + " outstanding messages");
+            }
+            try
+            {
+                wait(remaining);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new JMSException("Interrupted waiting for the broker to accept outstanding messages");
+            }
+        }
+    }
+
+    /**
+     * @return the sequence number of the send
+     */
+    synchronized long add(Message message, CompletionListener listener)
+    {
+        long sequence = ++_lastSequence;
+        _pending.put(sequence, new PendingPublish(message, listener));
+        return sequence;
+    }
+
+    /**
+     * Consumes a sequence number for a send which is not tracked.
+     *
+     * @return the sequence number of the send
+     */
+    synchronized long skip()
+    {
+        return ++_lastSequence;
+    }
+
+    /**
+     * Stops tracking a send that failed before reaching the broker, without notifying its listener.
+     */
+    synchronized void cancel(long sequence)
+    {
+        if (_pending.remove(sequence) != null)
+        {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Completes the send with the given sequence number, or if multiple, every send up to and including it.
+     */
+    synchronized void complete(long sequence, boolean multiple)
+    {
+        notifyListeners(remove(sequence, multiple), null);
+    }
+
+    synchronized void fail(long sequence, boolean multiple, Exception exception)
+    {
+        notifyListeners(remove(sequence, multiple), exception);
+    }
+
+    /**
+     * Fails every tracked send, and numbers subsequent sends from one again.
+     */
+    synchronized void failAll(Exception exception)
+    {
+        List<PendingPublish> removed = new ArrayList<PendingPublish>(_pending.values());
+        _pending.clear();
+        _lastSequence = 0L;
+        notifyAll();
+        notifyListeners(removed, exception);
+    }
+
+    /**
+     * Waits for every tracked send to complete.
+     *
+     * @return true if no sends remain outstanding
+     */
+    synchronized boolean awaitCompletion(long timeout)
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+        long remaining;
+        while (!_pending.isEmpty() && (remaining = deadline - System.currentTimeMillis()) > 0L)
+        {
+            try
+            {
+                wait(remaining);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return _pending.isEmpty();
+    }
+
+    synchronized int getPendingCount()
+    {
+        return _pending.size();
+    }
+
+    private synchronized List<PendingPublish> remove(long sequence, boolean multiple)
+    {
+        List<PendingPublish> removed;
+        if (multiple)
+        {
+            NavigableMap<Long, PendingPublish> completed = _pending.headMap(sequence, true);
+            removed = new ArrayList<PendingPublish>(completed.values());
+            completed.clear();
+        }
+        else
+        {
+            PendingPublish publish = _pending.remove(sequence);
+            removed = publish == null
+                    ? Collections.<PendingPublish>emptyList()
+                    : Collections.singletonList(publish);
+        }
+        if (!removed.isEmpty())
+        {
+            notifyAll();
+        }
+        return removed;
+    }
+
+    /**
+     * Submits the notification of the given sends to the listener executor. Called with the tracker's lock held, so
+     * that notifications are submitted in the order the sends were removed; the listeners themselves run later,
+     * without it.
+     */
+    private void notifyListeners(final List<PendingPublish> publishes, final Exception exception)
+    {
+        if (!publishes.isEmpty())
+        {
+            _listenerExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    callListeners(publishes, exception);
+                }
+            });
+        }
+    }
+
+    private void callListeners(List<PendingPublish> publishes, Exception exception)
+    {
+        for (PendingPublish publish : publishes)
+        {
+            try
+            {
+                if (exception == null)
+                {
+                    publish._listener.onCompletion(publish._message);
+                }
+                else
+                {
+                    publish._listener.onException(publish._message, exception);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                _logger.warn("Completion listener threw an exception", e);
+            }
+        }
+    }
+
+    private static final class PendingPublish
+    {
+        private final Message _message;
+        private final CompletionListener _listener;
+
+        private PendingPublish(Message message, CompletionListener listener)
+        {
+            _message = message;
+            _listener = listener;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.qpid.AMQException;
 import org.apache.qpid.client.AMQConnection;
 import org.apache.qpid.client.AMQSession;
+import org.apache.qpid.client.AMQSession_0_8;
 import org.apache.qpid.client.ConnectionTuneParameters;
 import org.apache.qpid.client.handler.ClientMethodDispatcherImpl;
 import org.apache.qpid.client.message.UnprocessedMessage;
@@ -466,6 +467,16 @@ public class AMQProtocolSession implements AMQVersionAwareProtocolSession
         session.setFlowControl(active);
     }
 
+    public void publishConfirmed(final int channelId, final long deliveryTag, final boolean multiple,
+                                 final boolean accepted)
+    {
+        final AMQSession session = getSession(channelId);
+        if (session instanceof AMQSession_0_8)
+        {
+            ((AMQSession_0_8) session).publishConfirmed(deliveryTag, multiple, accepted);
+        }
+    }
+
     public void methodFrameReceived(final int channel, final AMQMethodBody amqMethodBody) throws AMQException
     {
         _protocolHandler.methodBodyReceived(channel, amqMethodBody);
@@ -0,0 +1,212 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client.util;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Holds the messages prefetched by a session until its dispatcher takes them, emitting events when the number held
+ * rises to a high threshold and falls back below a low one so that the caller may take action (e.g. flow control) to
+ * prevent the buffer growing (much) further. The buffer itself is not bounded, so the caller is not obliged to react
+ * to the events.
+ * <p>
+ * Adding and taking take no locks. Items may be added by any thread, but only a single thread may take them. A taker
+ * finding the buffer empty parks until an item is added, and an adder unparks it only if it is parked.
+ * <p>
+ * The number of items added and the number taken are counted separately, each by the side which changes it, so the
+ * adding and taking threads do not contend on a shared count. Threshold events are edge triggered: one is emitted
+ * each time the buffer crosses a threshold rather than on every change, however many items cross it together. Only a
+ * thread which may have crossed a threshold takes the listener's monitor, under which it changes the threshold state
+ * and emits the event, so the listener sees the events one at a time, alternating, in the order of the crossings.
+ *
+ * @param <E> the type of item held
+ */
+public class PrefetchBuffer<E>
+{
+    public interface ThresholdListener
+    {
+        void aboveThreshold(int currentValue);
+
+        void underThreshold(int currentValue);
+    }
+
+    private final Queue<E> _queue = new ConcurrentLinkedQueue<E>();
+
+    private final int _highThreshold;
+    private final int _lowThreshold;
+    private final ThresholdListener _listener;
+
+    private final AtomicLong _added = new AtomicLong();
+    /** Written only by the taking thread */
+    private final AtomicLong _taken = new AtomicLong();
+    /** Items removed through the iterator rather than taken */
+    private final AtomicLong _removed = new AtomicLong();
+    /** Written only with the listener's monitor held */
+    private volatile boolean _aboveThreshold;
+
+    private volatile Thread _waiter;
+
+    public PrefetchBuffer(int threshold, ThresholdListener listener)
+    {
+        this(threshold, threshold, listener);
+    }
+
+    /**
+     * @param highThreshold the number of items at which {@link ThresholdListener#aboveThreshold(int)} is emitted, or
+     *                      zero to emit no events
+     * @param lowThreshold  the number of items below which {@link ThresholdListener#underThreshold(int)} is emitted
+     *                      once the buffer has been above its high threshold
+     */
+    public PrefetchBuffer(int highThreshold, int lowThreshold, ThresholdListener listener)
+    {
+        _highThreshold = highThreshold;
+        _lowThreshold = lowThreshold;
+        _listener = highThreshold == 0 ? null : listener;
+    }
+
+    public void add(E item)
+    {
+        _queue.add(item);
+        Thread waiter = _waiter;
+        if (waiter != null)
+        {
+            LockSupport.unpark(waiter);
+        }
+
+        long added = _added.incrementAndGet();
+        if (_listener != null && !_aboveThreshold && added - _taken.get() - _removed.get() >= _highThreshold)
+        {
+            checkThresholds();
+        }
+    }
+
+    /**
+     * Takes the oldest item, waiting for one to be added if the buffer is empty. Must only be called by one thread.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public E take() throws InterruptedException
+    {
+        E item = _queue.poll();
+        if (item == null)
+        {
+            _waiter = Thread.currentThread();
+            try
+            {
+                while ((item = _queue.poll()) == null)
+                {
+                    if (Thread.interrupted())
+                    {
+                        throw new InterruptedException();
+                    }
+                    LockSupport.park(this);
+                }
+            }
+            finally
+            {
+                _waiter = null;
+            }
+        }
+
+        _taken.set(_taken.get() + 1);
+        if (_listener != null && _aboveThreshold)
+        {
+            checkThresholds();
+        }
+        return item;
+    }
+
+    public boolean isEmpty()
+    {
+        return _queue.isEmpty();
+    }
+
+    public int size()
+    {
+        return (int) Math.max(0L, _added.get() - _taken.get() - _removed.get());
+    }
+
+    /**
+     * Returns an iterator over the items held. Items removed through the iterator are no longer counted towards the
+     * thresholds.
+     */
+    public Iterator<E> iterator()
+    {
+        final Iterator<E> iterator = _queue.iterator();
+        return new Iterator<E>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next()
+            {
+                return iterator.next();
+            }
+
+            @Override
+            public void remove()
+            {
+                iterator.remove();
+                _removed.incrementAndGet();
+                if (_listener != null && _aboveThreshold)
+                {
+                    checkThresholds();
+                }
+            }
+        };
+    }
+
+    // Each side changes its count before reading the threshold state, and the state is changed before the counts are
+    // read again, so a crossing one side misses is seen by the other. The counts are read again after each event, as
+    // further crossings may have been missed while the listener ran.
+    private void checkThresholds()
+    {
+        synchronized (_listener)
+        {
+            while (true)
+            {
+                int size = size();
+                if (!_aboveThreshold && size >= _highThreshold)
+                {
+                    _aboveThreshold = true;
+                    _listener.aboveThreshold(size);
+                }
+                else if (_aboveThreshold && size < _lowThreshold)
+                {
+                    _aboveThreshold = false;
+                    _listener.underThreshold(size);
+                }
+                else
+                {
+                    break;
+                }
+            }
+        }
+    }
+}
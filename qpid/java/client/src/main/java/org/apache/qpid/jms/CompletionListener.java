@@ -0,0 +1,50 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.jms;
+
+import javax.jms.Message;
+
+/**
+ * Notified when a message sent asynchronously with one of the
+ * {@link MessageProducer#send(javax.jms.Message, CompletionListener)} methods has been accepted by the broker, or
+ * has failed to be.
+ * <p>
+ * Listeners are generally called from the thread receiving from the broker, so must not block, and must not use the
+ * session of the producer which sent the message. Where the broker cannot confirm messages, the listener is called
+ * once the message has been sent.
+ */
+public interface CompletionListener
+{
+    /**
+     * Called once the broker has accepted the message. For a persistent message sent outside a transaction this
+     * means the message has been stored.
+     * @param message the message that was sent
+     */
+    void onCompletion(Message message);
+
+    /**
+     * Called if the message could not be sent, or if it is not known whether it was accepted, for instance
+     * because the connection failed over before the broker confirmed it.
+     * @param message the message that was sent
+     * @param exception the reason the send failed
+     */
+    void onException(Message message, Exception exception);
+}
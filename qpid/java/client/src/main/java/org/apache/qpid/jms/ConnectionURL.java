@@ -36,6 +36,7 @@ public interface ConnectionURL
     public static final String OPTIONS_MAXPREFETCH = "maxprefetch";
     public static final String OPTIONS_SYNC_ACK = "sync_ack";
     public static final String OPTIONS_SYNC_PUBLISH = "sync_publish";
+    public static final String OPTIONS_ASYNC_PUBLISH_WINDOW = "async_publish_window";
     public static final String OPTIONS_USE_LEGACY_MAP_MESSAGE_FORMAT = "use_legacy_map_msg_format";
     public static final String OPTIONS_USE_LEGACY_STREAM_MESSAGE_FORMAT = "use_legacy_stream_msg_format";
     public static final String OPTIONS_BROKERLIST = "brokerlist";
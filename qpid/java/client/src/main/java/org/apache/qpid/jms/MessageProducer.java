@@ -36,4 +36,20 @@ public interface MessageProducer extends javax.jms.MessageProducer
                      int priority, long timeToLive, boolean mandatory, boolean immediate)
             throws JMSException;
 
+    /**
+     * Sends a message without waiting for the broker to accept it. The listener is notified once it has been,
+     * or once the send has failed. At most the connection's asynchronous publish window of messages may await
+     * acceptance on a session; sending more blocks until earlier messages are accepted. The message must not be
+     * changed until the listener has been notified.
+     */
+    void send(Message message, CompletionListener completionListener) throws JMSException;
+
+    void send(Message message, int deliveryMode, int priority, long timeToLive,
+              CompletionListener completionListener) throws JMSException;
+
+    void send(Destination destination, Message message, CompletionListener completionListener)
+            throws JMSException;
+
+    void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive,
+              CompletionListener completionListener) throws JMSException;
 }
@@ -20,9 +20,23 @@
  */
 package org.apache.qpid.client;
 
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Message;
+import javax.jms.Session;
+
 import org.apache.qpid.AMQException;
 import org.apache.qpid.client.transport.TestNetworkConnection;
+import org.apache.qpid.jms.CompletionListener;
 import org.apache.qpid.framing.AMQShortString;
+import org.apache.qpid.framing.BasicAckBody;
+import org.apache.qpid.framing.BasicNackBody;
 import org.apache.qpid.framing.QueueDeclareOkBody;
 import org.apache.qpid.test.utils.QpidTestCase;
 import org.apache.qpid.transport.network.NetworkConnection;
@@ -70,4 +84,86 @@ public class AMQSession_0_8Test extends QpidTestCase
 
         assertEquals("Unexpected queue name", testQueueName, queue.getAMQQueueName());
     }
+
+    public void testPublishConfirmsCompleteTrackedSends() throws Exception
+    {
+        AMQSession_0_8 session = new AMQSession_0_8(_connection, 1, false, Session.AUTO_ACKNOWLEDGE, 1, 1);
+        _connection.registerSession(1, session);
+
+        final List<Message> completed = Collections.synchronizedList(new ArrayList<Message>());
+        final List<Message> failed = Collections.synchronizedList(new ArrayList<Message>());
+        final List<Thread> listenerThreads = Collections.synchronizedList(new ArrayList<Thread>());
+        final CountDownLatch notified = new CountDownLatch(3);
+        CompletionListener listener = new CompletionListener()
+        {
+            @Override
+            public void onCompletion(final Message message)
+            {
+                completed.add(message);
+                listenerThreads.add(Thread.currentThread());
+                notified.countDown();
+            }
+
+            @Override
+            public void onException(final Message message, final Exception exception)
+            {
+                failed.add(message);
+                listenerThreads.add(Thread.currentThread());
+                notified.countDown();
+            }
+        };
+
+        Message message1 = mock(Message.class);
+        Message message2 = mock(Message.class);
+        Message message3 = mock(Message.class);
+        session.getPublishCompletionTracker().add(message1, listener);
+        session.getPublishCompletionTracker().add(message2, listener);
+        session.getPublishCompletionTracker().add(message3, listener);
+
+        _connection.getProtocolHandler().methodBodyReceived(1, new BasicAckBody(2, true));
+        _connection.getProtocolHandler().methodBodyReceived(1, new BasicNackBody(3, false, false));
+
+        assertTrue("Listeners not notified", notified.await(5, TimeUnit.SECONDS));
+        assertFalse("Listener called on the receiving thread", listenerThreads.contains(Thread.currentThread()));
+        assertEquals("Unexpected completions", 2, completed.size());
+        assertSame(message1, completed.get(0));
+        assertSame(message2, completed.get(1));
+        assertEquals("Unexpected failures", 1, failed.size());
+        assertSame(message3, failed.get(0));
+    }
+
+    public void testLostPublishClosesSessionAndFailsOutstandingSends() throws Exception
+    {
+        AMQSession_0_8 session = new AMQSession_0_8(_connection, 1, false, Session.AUTO_ACKNOWLEDGE, 1, 1);
+        _connection.registerSession(1, session);
+
+        final List<Message> failed = Collections.synchronizedList(new ArrayList<Message>());
+        final CountDownLatch notified = new CountDownLatch(1);
+        CompletionListener listener = new CompletionListener()
+        {
+            @Override
+            public void onCompletion(final Message message)
+            {
+                notified.countDown();
+            }
+
+            @Override
+            public void onException(final Message message, final Exception exception)
+            {
+                failed.add(message);
+                notified.countDown();
+            }
+        };
+
+        Message message = mock(Message.class);
+        session.getPublishCompletionTracker().add(message, listener);
+
+        session.publishSequenceLost(new RuntimeException("Test"));
+
+        assertTrue("Session should be closed", session.isClosed());
+        assertTrue("Listener not notified", notified.await(5, TimeUnit.SECONDS));
+        assertEquals("Unexpected failures", 1, failed.size());
+        assertSame(message, failed.get(0));
+        assertEquals("Unexpected pending sends", 0, session.getPublishCompletionTracker().getPendingCount());
+    }
 }
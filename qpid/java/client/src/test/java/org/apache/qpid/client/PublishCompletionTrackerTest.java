@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.client;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.apache.qpid.jms.CompletionListener;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class PublishCompletionTrackerTest extends QpidTestCase
+{
+    private static final Executor SAME_THREAD = new Executor()
+    {
+        @Override
+        public void execute(final Runnable command)
+        {
+            command.run();
+        }
+    };
+
+    private final List<Message> _completed = new ArrayList<Message>();
+    private final List<Message> _failed = new ArrayList<Message>();
+    private final CompletionListener _listener = new CompletionListener()
+    {
+        @Override
+        public void onCompletion(final Message message)
+        {
+            _completed.add(message);
+        }
+
+        @Override
+        public void onException(final Message message, final Exception exception)
+        {
+            _failed.add(message);
+        }
+    };
+
+    public void testMultipleCompletionCompletesEarlierSends() throws Exception
+    {
+        PublishCompletionTracker tracker = new PublishCompletionTracker(10, 1000L, SAME_THREAD);
+        Message message1 = mock(Message.class);
+        Message message2 = mock(Message.class);
+        Message message3 = mock(Message.class);
+
+        assertEquals("Unexpected sequence", 1L, tracker.add(message1, _listener));
+        assertEquals("Unexpected sequence", 2L, tracker.add(message2, _listener));
+        assertEquals("Unexpected sequence", 3L, tracker.add(message3, _listener));
+
+        tracker.complete(2L, true);
+
+        assertEquals("Unexpected completions", 2, _completed.size());
+        assertSame(message1, _completed.get(0));
+        assertSame(message2, _completed.get(1));
+        assertEquals("Unexpected pending count", 1, tracker.getPendingCount());
+
+        tracker.fail(3L, false, new JMSException("rejected"));
+
+        assertEquals("Unexpected failures", 1, _failed.size());
+        assertSame(message3, _failed.get(0));
+        assertEquals("Unexpected pending count", 0, tracker.getPendingCount());
+    }
+
+    public void testUntrackedSendsConsumeSequenceNumbers() throws Exception
+    {
+        PublishCompletionTracker tracker = new PublishCompletionTracker(10, 1000L, SAME_THREAD);
+        Message message = mock(Message.class);
+
+        assertEquals("Unexpected sequence", 1L, tracker.skip());
+        assertEquals("Unexpected sequence", 2L, tracker.add(message, _listener));
+
+        tracker.complete(1L, false);
+        assertTrue("Unexpected completion", _completed.isEmpty());
+
+        tracker.complete(2L, false);
+        assertEquals("Unexpected completions", 1, _completed.size());
+    }
+
+    public void testFailAllFailsPendingSendsAndRestartsNumbering() throws Exception
+    {
+        PublishCompletionTracker tracker = new PublishCompletionTracker(10, 1000L, SAME_THREAD);
+        tracker.add(mock(Message.class), _listener);
+        tracker.add(mock(Message.class), _listener);
+        long cancelled = tracker.add(mock(Message.class), _listener);
+        tracker.cancel(cancelled);
+
+        tracker.failAll(new JMSException("failed over"));
+
+        assertEquals("Unexpected failures", 2, _failed.size());
+        assertTrue("Unexpected completion", _completed.isEmpty());
+        assertEquals("Unexpected sequence", 1L, tracker.add(mock(Message.class), _listener));
+    }
+
+    public void testAwaitCapacityWaitsForWindowToOpen() throws Exception
+    {
+        final PublishCompletionTracker tracker = new PublishCompletionTracker(1, 50L, SAME_THREAD);
+        final long sequence = tracker.add(mock(Message.class), _listener);
+
+        try
+        {
+            tracker.awaitCapacity();
+            fail("Exception not thrown");
+        }
+        catch (JMSException e)
+        {
+            // pass
+        }
+
+        Thread completer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                tracker.complete(sequence, false);
+            }
+        });
+        completer.start();
+        completer.join();
+
+        tracker.awaitCapacity();
+        assertTrue("Sends still outstanding", tracker.awaitCompletion(0L));
+    }
+
+    /**
+     * A listener that sends two further messages with a window of one has to wait, in the second send, for the
+     * completion of the first. That completion is delivered by the thread which completed the original send, as the
+     * I/O thread would deliver it, so the listener must not be running on that thread.
+     */
+    public void testListenerSendingWithWindowOfOneDoesNotBlockCompletions() throws Exception
+    {
+        final PublishCompletionTracker tracker =
+                new PublishCompletionTracker(1, 5000L, PublishCompletionTracker.createListenerExecutor(getTestName()));
+        final CountDownLatch resent = new CountDownLatch(2);
+        final AtomicReference<Exception> sendFailure = new AtomicReference<Exception>();
+        final CompletionListener resendListener = new CompletionListener()
+        {
+            @Override
+            public void onCompletion(final Message message)
+            {
+                try
+                {
+                    for (int i = 0; i < 2; i++)
+                    {
+                        tracker.awaitCapacity();
+                        tracker.add(mock(Message.class), _listener);
+                        resent.countDown();
+                    }
+                }
+                catch (JMSException e)
+                {
+                    sendFailure.set(e);
+                }
+            }
+
+            @Override
+            public void onException(final Message message, final Exception exception)
+            {
+                sendFailure.set(exception);
+            }
+        };
+
+        tracker.add(mock(Message.class), resendListener);
+        tracker.complete(1L, false);
+
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (tracker.getPendingCount() == 0 && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10L);
+        }
+        assertEquals("Listener did not send", 1, tracker.getPendingCount());
+        tracker.complete(2L, false);
+
+        assertTrue("Listener did not complete its sends", resent.await(5, TimeUnit.SECONDS));
+        assertNull("Listener failed to send", sendFailure.get());
+    }
+}
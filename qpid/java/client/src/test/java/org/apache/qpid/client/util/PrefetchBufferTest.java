@@ -0,0 +1,229 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class PrefetchBufferTest extends QpidTestCase
+{
+    private final List<String> _events = new ArrayList<String>();
+    private final PrefetchBuffer.ThresholdListener _listener = new PrefetchBuffer.ThresholdListener()
+    {
+        @Override
+        public void aboveThreshold(final int currentValue)
+        {
+            _events.add("above:" + currentValue);
+        }
+
+        @Override
+        public void underThreshold(final int currentValue)
+        {
+            _events.add("under:" + currentValue);
+        }
+    };
+
+    public void testThresholdEventsEmittedOncePerCrossing() throws Exception
+    {
+        PrefetchBuffer<Integer> buffer = new PrefetchBuffer<Integer>(3, 2, _listener);
+
+        for (int i = 0; i < 5; i++)
+        {
+            buffer.add(i);
+        }
+        assertEquals(5, buffer.size());
+
+        for (int i = 0; i < 5; i++)
+        {
+            assertEquals(Integer.valueOf(i), buffer.take());
+        }
+        buffer.add(5);
+        buffer.add(6);
+        buffer.add(7);
+
+        assertEquals("[above:3, under:1, above:3]", _events.toString());
+    }
+
+    public void testNoEventsWhenFlowControlDisabled() throws Exception
+    {
+        PrefetchBuffer<Integer> buffer = new PrefetchBuffer<Integer>(0, _listener);
+        buffer.add(1);
+        buffer.take();
+
+        assertTrue("Unexpected events " + _events, _events.isEmpty());
+    }
+
+    public void testItemsRemovedThroughIteratorNoLongerCounted() throws Exception
+    {
+        PrefetchBuffer<Integer> buffer = new PrefetchBuffer<Integer>(2, _listener);
+        buffer.add(1);
+        buffer.add(2);
+
+        Iterator<Integer> iterator = buffer.iterator();
+        iterator.next();
+        iterator.remove();
+
+        assertEquals(1, buffer.size());
+        assertEquals(Integer.valueOf(2), buffer.take());
+        assertEquals("[above:2, under:1]", _events.toString());
+    }
+
+    public void testTakeWaitsForAdd() throws Exception
+    {
+        final PrefetchBuffer<Integer> buffer = new PrefetchBuffer<Integer>(0, null);
+        final AtomicReference<Integer> taken = new AtomicReference<Integer>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread taker = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    taken.set(buffer.take());
+                }
+                catch (InterruptedException e)
+                {
+                    // taken remains unset
+                }
+                done.countDown();
+            }
+        });
+        taker.start();
+
+        assertFalse("Take returned from an empty buffer", done.await(100, TimeUnit.MILLISECONDS));
+        buffer.add(42);
+        assertTrue("Take did not return once an item was added", done.await(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(42), taken.get());
+    }
+
+    public void testTakeInterrupted() throws Exception
+    {
+        final PrefetchBuffer<Integer> buffer = new PrefetchBuffer<Integer>(0, null);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        Thread taker = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    buffer.take();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted.countDown();
+                }
+            }
+        });
+        taker.start();
+        taker.interrupt();
+
+        assertTrue("Take was not interrupted", interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Takes the buffer below its low threshold while the listener is still handling the event for crossing the high
+     * one. The under threshold event must not be emitted until the above threshold event has returned.
+     */
+    public void testThresholdEventsSerialisedAcrossThreads() throws Exception
+    {
+        final CountDownLatch inAbove = new CountDownLatch(1);
+        final CountDownLatch releaseAbove = new CountDownLatch(1);
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final PrefetchBuffer<Integer> buffer = new PrefetchBuffer<Integer>(2, 1, new PrefetchBuffer.ThresholdListener()
+        {
+            @Override
+            public void aboveThreshold(final int currentValue)
+            {
+                events.add("above");
+                inAbove.countDown();
+                try
+                {
+                    releaseAbove.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                events.add("aboveReturned");
+            }
+
+            @Override
+            public void underThreshold(final int currentValue)
+            {
+                events.add("under");
+            }
+        });
+
+        Thread adder = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                buffer.add(1);
+                buffer.add(2);
+            }
+        });
+        adder.start();
+        assertTrue("Above threshold event not emitted", inAbove.await(5, TimeUnit.SECONDS));
+
+        Thread taker = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    buffer.take();
+                    buffer.take();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        taker.start();
+
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (taker.isAlive() && taker.getState() != Thread.State.BLOCKED && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10L);
+        }
+        assertEquals("Under threshold event emitted during the above threshold event",
+                     Collections.singletonList("above"), new ArrayList<String>(events));
+
+        releaseAbove.countDown();
+        adder.join(5000L);
+        taker.join(5000L);
+
+        assertEquals("[above, aboveReturned, under]", events.toString());
+        assertEquals(0, buffer.size());
+    }
+}
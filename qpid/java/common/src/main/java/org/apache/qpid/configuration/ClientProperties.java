@@ -75,6 +75,13 @@ public class ClientProperties
      */
     public static final String SYNC_PUBLISH_PROP_NAME = "sync_publish";
 
+    /**
+     * System property to set a default value for the connection option 'async_publish_window', the number of
+     * messages sent with a completion listener that a session may have awaiting acceptance by the broker
+     */
+    public static final String ASYNC_PUBLISH_WINDOW_PROP_NAME = "qpid.async_publish_window";
+    public static final int DEFAULT_ASYNC_PUBLISH_WINDOW = 1000;
+
     /**
      * Frequency of heartbeat messages (in milliseconds)
      * @see #QPID_HEARTBEAT_INTERVAL
@@ -347,6 +354,16 @@ public class ClientProperties
 
     }
 
+    /**
+     * Returns the timeout for synchronous operations, read from {@link #QPID_SYNC_OP_TIMEOUT}, falling back to
+     * the deprecated {@link #AMQJ_DEFAULT_SYNCWRITE_TIMEOUT} and then to {@link #DEFAULT_SYNC_OPERATION_TIMEOUT}.
+     */
+    public static long getSyncOperationTimeout()
+    {
+        return Long.getLong(QPID_SYNC_OP_TIMEOUT,
+                            Long.getLong(AMQJ_DEFAULT_SYNCWRITE_TIMEOUT, DEFAULT_SYNC_OPERATION_TIMEOUT));
+    }
+
     private ClientProperties()
     {
         //No instances
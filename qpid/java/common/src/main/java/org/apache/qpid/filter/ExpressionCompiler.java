@@ -0,0 +1,270 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites a parsed selector expression tree into an equivalent tree that is cheaper to evaluate.
+ * <p>
+ * Nested ORs and ANDs are flattened into a single node evaluating its operands in a loop, and
+ * equality tests between a property and a constant of a type whose {@code equals} agrees with the
+ * comparison rules of the selector language are replaced by a direct comparison. Sub-expressions
+ * which cannot be specialised are kept as parsed. The compiled tree yields the same result as the
+ * original tree for every message, including the treatment of unknown (null) values.
+ */
+public final class ExpressionCompiler
+{
+    private static final Set<Class<?>> EQUALS_CONSISTENT_TYPES = new HashSet<Class<?>>(
+            Arrays.<Class<?>>asList(String.class, Boolean.class, Integer.class, Long.class, Float.class, Double.class));
+
+    private ExpressionCompiler()
+    {
+    }
+
+    public static BooleanExpression compile(BooleanExpression expression)
+    {
+        if (expression instanceof LogicExpression.OrExpression)
+        {
+            List<BooleanExpression> operands = new ArrayList<BooleanExpression>();
+            flatten(expression, LogicExpression.OrExpression.class, operands);
+            return new AnyOfExpression(operands);
+        }
+        else if (expression instanceof LogicExpression.AndExpression)
+        {
+            List<BooleanExpression> operands = new ArrayList<BooleanExpression>();
+            flatten(expression, LogicExpression.AndExpression.class, operands);
+            return new AllOfExpression(operands);
+        }
+        else if (expression instanceof UnaryExpression.NotExpression)
+        {
+            return UnaryExpression.createNOT(compile((BooleanExpression) ((UnaryExpression) expression).getRight()));
+        }
+        else if (expression instanceof ComparisonExpression.EqualExpression)
+        {
+            return compileEqual((ComparisonExpression.EqualExpression) expression);
+        }
+        return expression;
+    }
+
+    private static void flatten(BooleanExpression expression,
+                                Class<? extends LogicExpression> type,
+                                List<BooleanExpression> operands)
+    {
+        if (type.isInstance(expression))
+        {
+            LogicExpression logicExpression = (LogicExpression) expression;
+            flatten((BooleanExpression) logicExpression.getLeft(), type, operands);
+            flatten((BooleanExpression) logicExpression.getRight(), type, operands);
+        }
+        else
+        {
+            operands.add(compile(expression));
+        }
+    }
+
+    private static BooleanExpression compileEqual(ComparisonExpression.EqualExpression expression)
+    {
+        Expression left = expression.getLeft();
+        Expression right = expression.getRight();
+        if (left instanceof PropertyExpression && right instanceof ConstantExpression)
+        {
+            return compileEqual(expression, (PropertyExpression) left, ((ConstantExpression) right).getValue());
+        }
+        else if (right instanceof PropertyExpression && left instanceof ConstantExpression)
+        {
+            return compileEqual(expression, (PropertyExpression) right, ((ConstantExpression) left).getValue());
+        }
+        return expression;
+    }
+
+    private static BooleanExpression compileEqual(BooleanExpression expression,
+                                                  PropertyExpression property,
+                                                  Object value)
+    {
+        if (value == null)
+        {
+            return new PropertyIsNullExpression(property);
+        }
+        else if (EQUALS_CONSISTENT_TYPES.contains(value.getClass()))
+        {
+            return new PropertyEqualsConstantExpression(expression, property, value);
+        }
+        return expression;
+    }
+
+    private static abstract class CompiledBooleanExpression implements BooleanExpression
+    {
+        public boolean matches(FilterableMessage message)
+        {
+            return evaluate(message) == Boolean.TRUE;
+        }
+    }
+
+    /**
+     * Equivalent to a chain of ORs: true if any operand is true, otherwise the value of the last operand.
+     */
+    private static final class AnyOfExpression extends CompiledBooleanExpression
+    {
+        private final BooleanExpression[] _operands;
+
+        private AnyOfExpression(List<BooleanExpression> operands)
+        {
+            _operands = operands.toArray(new BooleanExpression[operands.size()]);
+        }
+
+        public Object evaluate(FilterableMessage message)
+        {
+            final int last = _operands.length - 1;
+            for (int i = 0; i < last; i++)
+            {
+                if (_operands[i].evaluate(message) == Boolean.TRUE)
+                {
+                    return Boolean.TRUE;
+                }
+            }
+            Object value = _operands[last].evaluate(message);
+            return value == null ? null : (Boolean) value;
+        }
+
+        public String toString()
+        {
+            return join(_operands, " OR ");
+        }
+    }
+
+    /**
+     * Equivalent to a chain of ANDs: unknown as soon as an operand is unknown, false as soon as an operand is
+     * false, otherwise the value of the last operand.
+     */
+    private static final class AllOfExpression extends CompiledBooleanExpression
+    {
+        private final BooleanExpression[] _operands;
+
+        private AllOfExpression(List<BooleanExpression> operands)
+        {
+            _operands = operands.toArray(new BooleanExpression[operands.size()]);
+        }
+
+        public Object evaluate(FilterableMessage message)
+        {
+            final int last = _operands.length - 1;
+            for (int i = 0; i < last; i++)
+            {
+                Boolean value = (Boolean) _operands[i].evaluate(message);
+                if (value == null)
+                {
+                    return null;
+                }
+                if (!value.booleanValue())
+                {
+                    return Boolean.FALSE;
+                }
+            }
+            Object value = _operands[last].evaluate(message);
+            return value == null ? null : (Boolean) value;
+        }
+
+        public String toString()
+        {
+            return join(_operands, " AND ");
+        }
+    }
+
+    private static final class PropertyIsNullExpression extends CompiledBooleanExpression
+    {
+        private final PropertyExpression _property;
+
+        private PropertyIsNullExpression(PropertyExpression property)
+        {
+            _property = property;
+        }
+
+        public Object evaluate(FilterableMessage message)
+        {
+            return _property.evaluate(message) == null ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        public String toString()
+        {
+            return "(" + _property + " IS NULL)";
+        }
+    }
+
+    /**
+     * Compares the property with the constant using {@code equals}, deferring to the parsed expression (and its
+     * numeric type promotion) only when the property value is of a different type to the constant.
+     */
+    private static final class PropertyEqualsConstantExpression extends CompiledBooleanExpression
+    {
+        private final BooleanExpression _parsedExpression;
+        private final PropertyExpression _property;
+        private final Object _value;
+        private final Class<?> _valueClass;
+
+        private PropertyEqualsConstantExpression(BooleanExpression parsedExpression,
+                                                 PropertyExpression property,
+                                                 Object value)
+        {
+            _parsedExpression = parsedExpression;
+            _property = property;
+            _value = value;
+            _valueClass = value.getClass();
+        }
+
+        public Object evaluate(FilterableMessage message)
+        {
+            Object propertyValue = _property.evaluate(message);
+            if (propertyValue == null)
+            {
+                return Boolean.FALSE;
+            }
+            else if (propertyValue.getClass() == _valueClass)
+            {
+                return _value.equals(propertyValue) ? Boolean.TRUE : Boolean.FALSE;
+            }
+            return _parsedExpression.evaluate(message);
+        }
+
+        public String toString()
+        {
+            return _parsedExpression.toString();
+        }
+    }
+
+    private static String join(BooleanExpression[] operands, String separator)
+    {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < operands.length; i++)
+        {
+            if (i != 0)
+            {
+                builder.append(separator);
+            }
+            builder.append(operands[i]);
+        }
+        return builder.append(")").toString();
+    }
+}
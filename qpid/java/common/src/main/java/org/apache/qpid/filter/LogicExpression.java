@@ -50,7 +50,7 @@ public abstract class LogicExpression extends BinaryExpression implements Boolea
         return (object != null) && (object == Boolean.TRUE);
     }
 
-    private static class OrExpression extends LogicExpression
+    static class OrExpression extends LogicExpression
     {
         public OrExpression(final BooleanExpression lvalue, final BooleanExpression rvalue)
         {
@@ -78,7 +78,7 @@ public abstract class LogicExpression extends BinaryExpression implements Boolea
         }
     }
 
-    private static class AndExpression extends LogicExpression
+    static class AndExpression extends LogicExpression
     {
         public AndExpression(final BooleanExpression lvalue, final BooleanExpression rvalue)
         {
@@ -280,7 +280,7 @@ public abstract class UnaryExpression implements Expression
         }
     }
 
-    private static class NotExpression extends BooleanUnaryExpression
+    static class NotExpression extends BooleanUnaryExpression
     {
         public NotExpression(final BooleanExpression left)
         {
@@ -510,6 +510,29 @@ public final class AMQShortString implements CharSequence, Comparable<AMQShortSt
 
     }
 
+    /**
+     * Returns true if this string consists of the given bytes.
+     */
+    boolean equals(final byte[] data, final int offset, final int length)
+    {
+        if (length != _length)
+        {
+            return false;
+        }
+
+        final byte[] thisData = _data;
+        int thisIdx = _offset;
+        int otherIdx = offset;
+        for (int i = length; i-- != 0; )
+        {
+            if (thisData[thisIdx++] != data[otherIdx++])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean equalsCharSequence(CharSequence s)
     {
         if(s instanceof AMQShortString)
@@ -26,6 +26,7 @@ import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -52,6 +53,12 @@ public class FieldTable
     private byte[] _encodedForm;
     private int _encodedFormOffset;
     private LinkedHashMap<AMQShortString, AMQTypedValue> _properties = null;
+    /**
+     * The offsets of the entries in the encoded form, built by the first lookup of a table not yet decoded into
+     * _properties, so that lookups need decode only the value they find
+     */
+    private int[] _encodedIndex;
+    private int _encodedIndexSize;
     private long _encodedSize;
     private static final int INITIAL_HASHMAP_CAPACITY = 16;
     private static final int INITIAL_ENCODED_FORM_SIZE = 256;
@@ -112,23 +119,142 @@ public class FieldTable
                 }
                 else
                 {
-                    populateFromBuffer();
+                    return findEncodedProperty(string);
                 }
             }
         }
 
-        if (_properties == null)
+        return _properties.get(string);
+    }
+
+    private AMQTypedValue findEncodedProperty(AMQShortString name)
+    {
+        int entry = findEncodedEntry(name);
+        if (entry < 0)
         {
             return null;
         }
-        else
+
+        int valueOffset = entry + 1 + (_encodedForm[entry] & 0xFF);
+        int end = _encodedFormOffset + (int) _encodedSize;
+        try
+        {
+            return AMQTypedValue.readFromBuffer(new ByteArrayDataInput(_encodedForm, valueOffset, end - valueOffset));
+        }
+        catch (IOException e)
         {
-            return _properties.get(string);
+            _logger.error("Unexpected IO exception decoding field table");
+            throw new IllegalArgumentException(e);
         }
     }
 
+    private int findEncodedEntry(AMQShortString name)
+    {
+        if (_encodedIndex == null)
+        {
+            buildEncodedIndex();
+        }
+
+        // the last entry with the name is found, as it is the one kept when the table is decoded into a map
+        for (int i = _encodedIndexSize - 1; i >= 0; i--)
+        {
+            int entry = _encodedIndex[i];
+            if (name.equals(_encodedForm, entry + 1, _encodedForm[entry] & 0xFF))
+            {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private void buildEncodedIndex()
+    {
+        final byte[] data = _encodedForm;
+        final int end = _encodedFormOffset + (int) _encodedSize;
+        int[] index = new int[8];
+        int size = 0;
+        int position = _encodedFormOffset;
+        while (position < end)
+        {
+            if (size == index.length)
+            {
+                index = Arrays.copyOf(index, size * 2);
+            }
+            index[size++] = position;
+
+            position += 1 + (data[position] & 0xFF);
+            if (position >= end)
+            {
+                throw new IllegalArgumentException("Field table entry at offset " + index[size - 1]
+                                                   + " exceeds the length of the table");
+            }
+            byte type = data[position++];
+            position += encodedValueLength(type, data, position, end);
+        }
+
+        if (position != end)
+        {
+            throw new IllegalArgumentException("Field table entry at offset " + index[size - 1]
+                                               + " exceeds the length of the table");
+        }
+        _encodedIndex = index;
+        _encodedIndexSize = size;
+    }
+
+    private static int encodedValueLength(byte type, byte[] data, int position, int end)
+    {
+        switch (AMQTypeMap.getType(type))
+        {
+            case LONG_STRING:
+            case ASCII_STRING:
+            case WIDE_STRING:
+            case BINARY:
+            case FIELD_TABLE:
+            case FIELD_ARRAY:
+                if (end - position < 4)
+                {
+                    throw new IllegalArgumentException("Field table value at offset " + position
+                                                       + " exceeds the length of the table");
+                }
+                long length = ((data[position] & 0xFFL) << 24) | ((data[position + 1] & 0xFFL) << 16)
+                              | ((data[position + 2] & 0xFFL) << 8) | (data[position + 3] & 0xFFL);
+                if (length > end - position - 4)
+                {
+                    throw new IllegalArgumentException("Field table value at offset " + position
+                                                       + " exceeds the length of the table");
+                }
+                return 4 + (int) length;
+            case VOID:
+                return 0;
+            case BOOLEAN:
+            case ASCII_CHARACTER:
+            case BYTE:
+                return 1;
+            case SHORT:
+                return 2;
+            case INT:
+            case INTEGER:
+            case FLOAT:
+                return 4;
+            case DECIMAL:
+                return 5;
+            case LONG:
+            case TIMESTAMP:
+            case DOUBLE:
+                return 8;
+            default:
+                throw new IllegalArgumentException("Unsupported field table value type: " + (char) type);
+        }
+    }
+
+    synchronized boolean isDecoded()
+    {
+        return _properties != null;
+    }
+
     private void populateFromBuffer()
     {
+        _encodedIndex = null;
         try
         {
             setFromBuffer();
@@ -761,6 +887,13 @@ public class FieldTable
     public boolean itemExists(AMQShortString propertyName)
     {
         checkPropertyName(propertyName);
+        synchronized (this)
+        {
+            if (_properties == null && _encodedForm != null)
+            {
+                return findEncodedEntry(propertyName) >= 0;
+            }
+        }
         initMapIfNecessary();
 
         return _properties.containsKey(propertyName);
@@ -973,11 +1106,25 @@ public class FieldTable
 
     public boolean isEmpty()
     {
-        return size() == 0;
+        synchronized (this)
+        {
+            if (_properties == null)
+            {
+                return _encodedForm == null || _encodedSize == 0;
+            }
+        }
+        return _properties.isEmpty();
     }
 
     public boolean containsKey(AMQShortString key)
     {
+        synchronized (this)
+        {
+            if (_properties == null && _encodedForm != null)
+            {
+                return findEncodedEntry(key) >= 0;
+            }
+        }
         initMapIfNecessary();
 
         return _properties.containsKey(key);
@@ -0,0 +1,105 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.transport;
+
+/**
+ * The commands a session has sent and is holding until the peer completes them, indexed by command id.
+ * <p>
+ * Commands are held in an array whose size is a power of two, at the index given by the low bits of their id, so
+ * holding, finding and removing a command neither boxes its id nor allocates. The commands a session holds always lie
+ * within a window of ids no wider than its command limit; should two held commands fall at the same index the array
+ * is doubled, so it grows to the width of the window actually used.
+ * <p>
+ * Not thread safe: the session only accesses it while holding its command lock.
+ */
+final class CommandRing
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Method[] _commands = new Method[INITIAL_CAPACITY];
+    private int _size;
+
+    Method get(int id)
+    {
+        Method command = _commands[id & (_commands.length - 1)];
+        return command != null && command.getId() == id ? command : null;
+    }
+
+    void put(int id, Method command)
+    {
+        int index = id & (_commands.length - 1);
+        Method held = _commands[index];
+        while (held != null && held.getId() != id)
+        {
+            grow();
+            index = id & (_commands.length - 1);
+            held = _commands[index];
+        }
+        _commands[index] = command;
+        if (held == null)
+        {
+            _size++;
+        }
+    }
+
+    Method remove(int id)
+    {
+        int index = id & (_commands.length - 1);
+        Method command = _commands[index];
+        if (command != null && command.getId() == id)
+        {
+            _commands[index] = null;
+            _size--;
+            return command;
+        }
+        return null;
+    }
+
+    int size()
+    {
+        return _size;
+    }
+
+    int capacity()
+    {
+        return _commands.length;
+    }
+
+    private void grow()
+    {
+        Method[] old = _commands;
+        Method[] commands = new Method[old.length << 1];
+        for (Method command : old)
+        {
+            if (command != null)
+            {
+                commands[command.getId() & (commands.length - 1)] = command;
+            }
+        }
+        _commands = commands;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CommandRing[size=" + _size + ", capacity=" + _commands.length + "]";
+    }
+}
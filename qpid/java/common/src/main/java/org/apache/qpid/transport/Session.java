@@ -44,10 +44,11 @@ import static org.apache.qpid.util.Strings.toUTF8;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Session
@@ -106,14 +107,21 @@ public class Session extends SessionInvoker
     // completed incoming commands
     private final Object processedLock = new Object();
     private RangeSet processed;
+    // a run of consecutively processed commands, following those in processed, not yet added to it
+    private boolean processedRun;
+    private int processedRunLower;
+    private int processedRunUpper;
     private int maxProcessed;
     private int syncPoint;
 
     // outgoing command count
     private int commandsOut = 0;
     private final int commandLimit = Integer.getInteger("qpid.session.command_limit", 64 * 1024);
-    private Map<Integer,Method> commands = new HashMap<Integer, Method>();
-    private final Object commandsLock = new Object();
+    private final CommandRing commands = new CommandRing();
+    private final ReentrantLock commandsLock = new ReentrantLock();
+    // signalled when the session state changes or outgoing commands are completed
+    private final Condition commandsChanged = commandsLock.newCondition();
+    private int commandsWaiters = 0;
     private int commandBytes = 0;
     private int byteLimit = Integer.getInteger("qpid.session.byte_limit", 1024*1024);
     private int maxComplete = commandsOut - 1;
@@ -208,18 +216,28 @@ public class Session extends SessionInvoker
 
     public void setAutoSync(boolean value)
     {
-        synchronized (commandsLock)
+        commandsLock.lock();
+        try
         {
             this.autoSync = value;
         }
+        finally
+        {
+            commandsLock.unlock();
+        }
     }
 
     protected void setState(State state)
     {
-        synchronized (commandsLock)
+        commandsLock.lock();
+        try
         {
             this.state = state;
-            commandsLock.notifyAll();
+            commandsChanged.signalAll();
+        }
+        finally
+        {
+            commandsLock.unlock();
         }
     }
 
@@ -280,6 +298,7 @@ public class Session extends SessionInvoker
         {
             incomingInit = false;
             processed = RangeSetFactory.createRangeSet();
+            processedRun = false;
         }
     }
 
@@ -294,7 +313,8 @@ public class Session extends SessionInvoker
     {
         _failoverRequired.set(false);
 
-        synchronized (commandsLock)
+        commandsLock.lock();
+        try
         {
             attach();
 
@@ -353,6 +373,10 @@ public class Session extends SessionInvoker
             listener.resumed(this);
             resumer = null;
         }
+        finally
+        {
+            commandsLock.unlock();
+        }
     }
 
     private Method getCommand(int i)
@@ -372,17 +396,22 @@ public class Session extends SessionInvoker
 
     void dump()
     {
-        synchronized (commandsLock)
+        commandsLock.lock();
+        try
         {
-            TreeMap<Integer, Method> ordered = new TreeMap<Integer, Method>(commands);
-            for (Method m : ordered.values())
+            for (int i = maxComplete + 1; lt(i, commandsOut); i++)
             {
+                Method m = getCommand(i);
                 if (m != null)
                 {
                     log.debug("%s", m);
                 }
             }
         }
+        finally
+        {
+            commandsLock.unlock();
+        }
     }
 
     final void commandPoint(int id)
@@ -472,12 +501,41 @@ public class Session extends SessionInvoker
                     ("range exceeds max received command-id: " + Range.newInstance(lower, upper));
             }
 
-            processed.add(lower, upper);
-
-            Range first = processed.getFirst();
+            // commands are mostly processed in order, so extend the run of them rather than adding each to the
+            // range set in turn
+            if (processedRun && lower == processedRunUpper + 1)
+            {
+                processedRunUpper = upper;
+            }
+            else if (!processedRun && (processed.size() == 0 || gt(lower, processed.getLast().getUpper())))
+            {
+                processedRun = true;
+                processedRunLower = lower;
+                processedRunUpper = upper;
+            }
+            else
+            {
+                addProcessedRun();
+                processed.add(lower, upper);
+            }
 
-            int flower = first.getLower();
-            int fupper = first.getUpper();
+            int flower;
+            int fupper;
+            if (processed.size() == 0)
+            {
+                flower = processedRunLower;
+                fupper = processedRunUpper;
+            }
+            else
+            {
+                Range first = processed.getFirst();
+                flower = first.getLower();
+                fupper = first.getUpper();
+                if (processedRun && processed.size() == 1 && le(processedRunLower, fupper + 1))
+                {
+                    fupper = max(fupper, processedRunUpper);
+                }
+            }
             int old = maxProcessed;
             if (le(flower, maxProcessed + 1))
             {
@@ -496,6 +554,16 @@ public class Session extends SessionInvoker
         }
     }
 
+    // only call while holding processedLock
+    private void addProcessedRun()
+    {
+        if (processedRun)
+        {
+            processed.add(processedRunLower, processedRunUpper);
+            processedRun = false;
+        }
+    }
+
     void flushExpected()
     {
         RangeSet rs = RangeSetFactory.createRangeSet();
@@ -514,10 +582,12 @@ public class Session extends SessionInvoker
         RangeSet copy;
         synchronized (processedLock)
         {
+            addProcessedRun();
             copy = processed.copy();
         }
 
-        synchronized (commandsLock)
+        commandsLock.lock();
+        try
         {
             if (state == DETACHED || state == CLOSING || state == CLOSED)
             {
@@ -528,6 +598,10 @@ public class Session extends SessionInvoker
 	            sessionCompleted(copy, options);
             }
         }
+        finally
+        {
+            commandsLock.unlock();
+        }
     }
 
     void knownComplete(RangeSet kc)
@@ -536,6 +610,7 @@ public class Session extends SessionInvoker
         {
             synchronized (processedLock)
             {
+                addProcessedRun();
                 processed.subtract(kc) ;
             }
         }
@@ -564,7 +639,8 @@ public class Session extends SessionInvoker
         {
             log.debug("%s complete(%d, %d)", this, lower, upper);
         }
-        synchronized (commandsLock)
+        commandsLock.lock();
+        try
         {
             int old = maxComplete;
             for (int id = max(maxComplete, lower); le(id, upper); id++)
@@ -586,9 +662,16 @@ public class Session extends SessionInvoker
                 log.debug("%s   commands remaining: %s", this, commandsOut - maxComplete);
             }
 
-            commandsLock.notifyAll();
+            if (commandsWaiters > 0)
+            {
+                commandsChanged.signalAll();
+            }
             return gt(maxComplete, old);
         }
+        finally
+        {
+            commandsLock.unlock();
+        }
     }
 
     void received(Method m)
@@ -636,7 +719,8 @@ public class Session extends SessionInvoker
                 acquireCredit();
             }
 
-            synchronized (commandsLock)
+            commandsLock.lock();
+            try
             {
                 if (state == DETACHED && m.isUnreliable())
                 {
@@ -652,7 +736,7 @@ public class Session extends SessionInvoker
                     Thread current = Thread.currentThread();
                     if (!current.equals(resumer) )
                     {
-                        Waiter w = new Waiter(commandsLock, timeout);
+                        CommandWaiter w = new CommandWaiter(timeout);
                         while (w.hasTime() && (state != OPEN && state != CLOSED))
                         {
                             checkFailoverRequired("Command was interrupted because of failover, before being sent");
@@ -701,7 +785,7 @@ public class Session extends SessionInvoker
 
                 if (isFull(next))
                 {
-                    Waiter w = new Waiter(commandsLock, timeout);
+                    CommandWaiter w = new CommandWaiter(timeout);
                     while (w.hasTime() && isFull(next) && state != CLOSED)
                     {
                         if (state == OPEN || state == RESUMING)
@@ -812,6 +896,10 @@ public class Session extends SessionInvoker
                     }
                 }
             }
+            finally
+            {
+                commandsLock.unlock();
+            }
         }
         else
         {
@@ -840,7 +928,8 @@ public class Session extends SessionInvoker
     public void sync(long timeout)
     {
         log.debug("%s sync()", this);
-        synchronized (commandsLock)
+        commandsLock.lock();
+        try
         {
             int point = commandsOut - 1;
 
@@ -849,7 +938,7 @@ public class Session extends SessionInvoker
                 executionSync(SYNC);
             }
 
-            Waiter w = new Waiter(commandsLock, timeout);
+            CommandWaiter w = new CommandWaiter(timeout);
             while (w.hasTime() && state != CLOSED && lt(maxComplete, point))
             {
                 checkFailoverRequired("Session sync was interrupted by failover.");
@@ -878,6 +967,10 @@ public class Session extends SessionInvoker
                 }
             }
         }
+        finally
+        {
+            commandsLock.unlock();
+        }
     }
 
     private Map<Integer,ResultFuture<?>> results = new HashMap<Integer,ResultFuture<?>>();
@@ -926,7 +1019,8 @@ public class Session extends SessionInvoker
 
     protected <T> Future<T> invoke(Method m, Class<T> klass)
     {
-        synchronized (commandsLock)
+        commandsLock.lock();
+        try
         {
             int command = commandsOut;
             ResultFuture<T> future = new ResultFuture<T>(klass);
@@ -937,6 +1031,10 @@ public class Session extends SessionInvoker
             invoke(m);
             return future;
         }
+        finally
+        {
+            commandsLock.unlock();
+        }
     }
 
     private class ResultFuture<T> implements Future<T>
@@ -1036,7 +1134,8 @@ public class Session extends SessionInvoker
         {
             log.debug("Closing [%s] in state [%s]", this, state);
         }
-        synchronized (commandsLock)
+        commandsLock.lock();
+        try
         {
             switch(state)
             {
@@ -1056,11 +1155,15 @@ public class Session extends SessionInvoker
                     awaitClose();
             }
         }
+        finally
+        {
+            commandsLock.unlock();
+        }
     }
 
     protected void awaitClose()
     {
-        Waiter w = new Waiter(commandsLock, timeout);
+        CommandWaiter w = new CommandWaiter(timeout);
         while (w.hasTime() && state != CLOSED)
         {
             checkFailoverRequired("close() was interrupted by failover.");
@@ -1080,7 +1183,8 @@ public class Session extends SessionInvoker
 
     public void closed()
     {
-        synchronized (commandsLock)
+        commandsLock.lock();
+        try
         {
             if (closing || getException() != null)
             {
@@ -1091,7 +1195,7 @@ public class Session extends SessionInvoker
                 state = DETACHED;
             }
 
-            commandsLock.notifyAll();
+            commandsChanged.signalAll();
 
             synchronized (results)
             {
@@ -1112,6 +1216,10 @@ public class Session extends SessionInvoker
                 delegate.detached(this);
             }
         }
+        finally
+        {
+            commandsLock.unlock();
+        }
 
         if(state == CLOSED)
         {
@@ -1188,9 +1296,14 @@ public class Session extends SessionInvoker
         //prevent them waiting for timeout for 60 seconds
         //and possibly preventing failover proceeding
         _failoverRequired.set(true);
-        synchronized (commandsLock)
+        commandsLock.lock();
+        try
         {
-            commandsLock.notifyAll();
+            commandsChanged.signalAll();
+        }
+        finally
+        {
+            commandsLock.unlock();
         }
         synchronized (results)
         {
@@ -1204,6 +1317,46 @@ public class Session extends SessionInvoker
         }
     }
 
+    /**
+     * Waits, while holding the command lock, for the session state to change or outgoing commands to be completed.
+     */
+    private final class CommandWaiter
+    {
+        private final long timeout;
+        private final long start;
+        private long elapsed;
+
+        private CommandWaiter(long timeout)
+        {
+            this.timeout = timeout;
+            this.start = System.currentTimeMillis();
+            this.elapsed = 0;
+        }
+
+        boolean hasTime()
+        {
+            return elapsed < timeout;
+        }
+
+        void await()
+        {
+            commandsWaiters++;
+            try
+            {
+                commandsChanged.awaitNanos(TimeUnit.MILLISECONDS.toNanos(timeout - elapsed));
+            }
+            catch (InterruptedException e)
+            {
+                // pass
+            }
+            finally
+            {
+                commandsWaiters--;
+            }
+            elapsed = System.currentTimeMillis() - start;
+        }
+    }
+
     /**
      * An auxiliary method for test purposes only
      * @return true if flow is blocked
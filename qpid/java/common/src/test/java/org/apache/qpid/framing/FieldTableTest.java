@@ -931,6 +931,109 @@ public class FieldTableTest extends TestCase
         assertTrue("unexpected property value", destinationTable.getBoolean(myBooleanTestProperty));
     }
 
+    public void testLookupsOnEncodedFormDoNotDecodeTable()
+    {
+        FieldTable encodeTable = new FieldTable();
+        encodeTable.setString("string", "value");
+        encodeTable.setInteger("int", 42);
+        encodeTable.setLong("long", Long.MAX_VALUE);
+        encodeTable.setBoolean("boolean", true);
+        encodeTable.setByte("byte", (byte) 7);
+        encodeTable.setShort("short", (short) 300);
+        encodeTable.setChar("char", 'c');
+        encodeTable.setFloat("float", 1.5f);
+        encodeTable.setDouble("double", 2.5d);
+        encodeTable.setBytes("bytes", new byte[]{1, 2, 3});
+        encodeTable.setVoid(new AMQShortString("void"));
+        FieldTable nested = new FieldTable();
+        nested.setString("nestedString", "nestedValue");
+        encodeTable.setFieldTable("table", nested);
+        encodeTable.setString("last", "lastValue");
+        byte[] data = encodeTable.getDataAsBytes();
+
+        byte[] padded = new byte[data.length + 10];
+        System.arraycopy(data, 0, padded, 5, data.length);
+        FieldTable table = new FieldTable(padded, 5, data.length);
+
+        assertEquals("value", table.getString("string"));
+        assertEquals(Integer.valueOf(42), table.getInteger("int"));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), table.getLong("long"));
+        assertEquals(Boolean.TRUE, table.getBoolean("boolean"));
+        assertEquals(Byte.valueOf((byte) 7), table.getByte("byte"));
+        assertEquals(Short.valueOf((short) 300), table.getShort("short"));
+        assertEquals(Character.valueOf('c'), table.getCharacter("char"));
+        assertEquals(Float.valueOf(1.5f), table.getFloat("float"));
+        assertEquals(Double.valueOf(2.5d), table.getDouble("double"));
+        assertBytesEqual(new byte[]{1, 2, 3}, table.getBytes("bytes"));
+        assertTrue("void property not found", table.containsKey(new AMQShortString("void")));
+        assertNull(table.getObject("void"));
+        assertEquals("nestedValue", table.getFieldTable("table").getString("nestedString"));
+        assertEquals("lastValue", table.getString("last"));
+        assertNull("Unexpected value for absent property", table.getString("absent"));
+        assertFalse("Absent property found", table.propertyExists("absent"));
+        assertFalse("Table unexpectedly empty", table.isEmpty());
+
+        assertFalse("Table decoded by lookups", table.isDecoded());
+        assertBytesEqual(data, table.getDataAsBytes());
+    }
+
+    public void testLookupOnEncodedFormFindsLastOfDuplicateProperties()
+    {
+        FieldTable first = new FieldTable();
+        first.setString("name", "first");
+        first.setInteger("other", 1);
+        FieldTable second = new FieldTable();
+        second.setString("name", "second");
+        byte[] firstData = first.getDataAsBytes();
+        byte[] secondData = second.getDataAsBytes();
+        byte[] data = new byte[firstData.length + secondData.length];
+        System.arraycopy(firstData, 0, data, 0, firstData.length);
+        System.arraycopy(secondData, 0, data, firstData.length, secondData.length);
+
+        FieldTable table = new FieldTable(data, 0, data.length);
+        assertEquals("second", table.getString("name"));
+        assertEquals(Integer.valueOf(1), table.getInteger("other"));
+
+        FieldTable decoded = new FieldTable(data, 0, data.length);
+        assertEquals("Unexpected number of entries", 2, decoded.size());
+        assertEquals("second", decoded.getString("name"));
+    }
+
+    public void testModifyingTableAfterLookupOnEncodedForm()
+    {
+        FieldTable encodeTable = new FieldTable();
+        encodeTable.setString("name", "value");
+        byte[] data = encodeTable.getDataAsBytes();
+
+        FieldTable table = new FieldTable(data, 0, data.length);
+        assertEquals("value", table.getString("name"));
+        table.setString("added", "addedValue");
+        assertTrue("Table not decoded by modification", table.isDecoded());
+
+        FieldTable copy = new FieldTable(table.getDataAsBytes(), 0, (int) table.getEncodedSize());
+        assertEquals("value", copy.getString("name"));
+        assertEquals("addedValue", copy.getString("added"));
+        assertEquals("Unexpected number of entries", 2, copy.size());
+    }
+
+    public void testLookupOnTruncatedEncodedForm()
+    {
+        FieldTable encodeTable = new FieldTable();
+        encodeTable.setString("name", "value");
+        byte[] data = encodeTable.getDataAsBytes();
+
+        FieldTable table = new FieldTable(data, 0, data.length - 1);
+        try
+        {
+            table.getString("name");
+            fail("Exception not thrown for truncated table");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // pass
+        }
+    }
+
     private void assertBytesEqual(byte[] expected, byte[] actual)
     {
         Assert.assertEquals(expected.length, actual.length);
@@ -0,0 +1,92 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.transport;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class CommandRingTest extends QpidTestCase
+{
+    private final CommandRing _ring = new CommandRing();
+
+    public void testPutGetRemove()
+    {
+        Method command = command(5);
+        _ring.put(5, command);
+
+        assertSame(command, _ring.get(5));
+        assertNull("Unexpected command at an id not held", _ring.get(6));
+        assertEquals(1, _ring.size());
+
+        assertSame(command, _ring.remove(5));
+        assertNull(_ring.get(5));
+        assertNull("Command removed twice", _ring.remove(5));
+        assertEquals(0, _ring.size());
+    }
+
+    public void testIdSharingIndexWithHeldCommandNotFound()
+    {
+        int capacity = _ring.capacity();
+        _ring.put(1, command(1));
+
+        assertNull(_ring.get(1 + capacity));
+        assertNull(_ring.remove(1 + capacity));
+        assertEquals(1, _ring.size());
+    }
+
+    public void testGrowsToHoldWindowOfCommands()
+    {
+        int initialCapacity = _ring.capacity();
+        int count = initialCapacity * 3;
+        for (int id = 0; id < count; id++)
+        {
+            _ring.put(id, command(id));
+        }
+
+        assertEquals(count, _ring.size());
+        assertTrue("Ring did not grow", _ring.capacity() >= count);
+        for (int id = 0; id < count; id++)
+        {
+            assertEquals(id, _ring.get(id).getId());
+        }
+    }
+
+    public void testCommandIdsWrapAround()
+    {
+        int first = Integer.MAX_VALUE - 10;
+        for (int i = 0; i < 20; i++)
+        {
+            _ring.put(first + i, command(first + i));
+        }
+
+        for (int i = 0; i < 20; i++)
+        {
+            assertEquals(first + i, _ring.remove(first + i).getId());
+        }
+        assertEquals(0, _ring.size());
+    }
+
+    private Method command(int id)
+    {
+        Method command = new ExecutionSync();
+        command.setId(id);
+        return command;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.transport;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+/**
+ * Tests the tracking of outgoing and incoming commands by a pair of sessions whose connections deliver to one another
+ * directly, in the calling thread.
+ */
+public class SessionCommandTrackingTest extends QpidTestCase
+{
+    private static final int TRANSFER_COUNT = 600;
+
+    private final List<MessageTransfer> _received = new ArrayList<MessageTransfer>();
+    private final AtomicInteger _completed = new AtomicInteger();
+    private Session _sender;
+    private Session _receiver;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        Connection senderConnection = new Connection();
+        Connection receiverConnection = new Connection();
+        senderConnection.setConnectionDelegate(new TestConnectionDelegate());
+        receiverConnection.setConnectionDelegate(new TestConnectionDelegate());
+        senderConnection.setSender(new DirectSender(receiverConnection));
+        receiverConnection.setSender(new DirectSender(senderConnection));
+
+        _sender = new Session(senderConnection, new Binary("sender".getBytes()), 0);
+        _receiver = new Session(receiverConnection, new Binary("receiver".getBytes()), 0);
+        _receiver.setSessionListener(new SessionListener()
+        {
+            public void opened(Session ssn) {}
+
+            public void resumed(Session ssn) {}
+
+            public void message(Session ssn, MessageTransfer xfr)
+            {
+                _received.add(xfr);
+            }
+
+            public void exception(Session ssn, SessionException exc) {}
+
+            public void closed(Session ssn) {}
+        });
+        senderConnection.map(_sender, 0);
+        receiverConnection.map(_receiver, 0);
+        _sender.setState(Session.State.OPEN);
+        _receiver.setState(Session.State.OPEN);
+    }
+
+    public void testCommandsProcessedInOrderAreCompleted()
+    {
+        sendTransfers();
+        for (MessageTransfer xfr : _received)
+        {
+            _receiver.processed(xfr);
+        }
+
+        _sender.sync(1000);
+        assertEquals(TRANSFER_COUNT, _completed.get());
+    }
+
+    public void testCommandsProcessedOutOfOrderAreCompleted()
+    {
+        sendTransfers();
+
+        List<MessageTransfer> reversed = new ArrayList<MessageTransfer>(_received);
+        Collections.reverse(reversed);
+        for (MessageTransfer xfr : reversed.subList(0, TRANSFER_COUNT / 2))
+        {
+            _receiver.processed(xfr);
+        }
+        _receiver.flushProcessed();
+        assertEquals("Commands completed before those preceding them were processed", TRANSFER_COUNT / 2,
+                     _completed.get());
+
+        for (int i = 0; i < TRANSFER_COUNT / 2; i += 2)
+        {
+            _receiver.processed(_received.get(i));
+        }
+        for (int i = 1; i < TRANSFER_COUNT / 2; i += 2)
+        {
+            _receiver.processed(_received.get(i));
+        }
+
+        _sender.sync(1000);
+        assertEquals(TRANSFER_COUNT, _completed.get());
+    }
+
+    private void sendTransfers()
+    {
+        for (int i = 0; i < TRANSFER_COUNT; i++)
+        {
+            MessageTransfer xfr = new MessageTransfer("destination", MessageAcceptMode.NONE,
+                                                      MessageAcquireMode.PRE_ACQUIRED, null, ByteBuffer.allocate(0));
+            xfr.setCompletionListener(new Method.CompletionListener()
+            {
+                public void onComplete(Method method)
+                {
+                    _completed.incrementAndGet();
+                }
+            });
+            _sender.invoke(xfr);
+        }
+        assertEquals(TRANSFER_COUNT, _received.size());
+    }
+
+    private static class TestConnectionDelegate extends ConnectionDelegate
+    {
+        public void init(Connection conn, ProtocolHeader hdr)
+        {
+        }
+    }
+
+    private static class DirectSender implements Sender<ProtocolEvent>
+    {
+        private final Connection _peer;
+
+        private DirectSender(Connection peer)
+        {
+            _peer = peer;
+        }
+
+        public void setIdleTimeout(int i)
+        {
+        }
+
+        public void send(ProtocolEvent msg)
+        {
+            _peer.received(msg);
+        }
+
+        public void flush()
+        {
+        }
+
+        public void close()
+        {
+        }
+    }
+}